@@ -0,0 +1,55 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates realistic rows for the benchmarks: a mix of ids, amounts, dates, codes and free text
+ */
+final class BenchmarkData {
+
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "张三", "李四", "上海", "北京",
+            "O'Brien", "Zürich", "a, b", "\"quoted\""};
+
+    private BenchmarkData() {}
+
+    /**
+     * @param random   the Random with a fixed seed, so that the runs are comparable
+     * @param column   the index of the column, which decides the kind of the column
+     * @param quoted   whether the text columns are quoted, and may contain commas and quotes
+     * @return  the column formatted for a CSV line
+     */
+    static String csvColumn(final Random random, final int column, final boolean quoted) {
+        switch (column % 5) {
+            case 0:
+                return String.valueOf(random.nextInt(100000000));
+            case 1:
+                return String.valueOf(random.nextInt(100000000) / 100.0);
+            case 2:
+                return String.format("20%02d-%02d-%02d %02d:%02d:%02d", random.nextInt(30), 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            case 3:
+                return "C" + random.nextInt(1000);
+            default:
+                final StringBuilder builder = new StringBuilder();
+                for (int i = random.nextInt(4); i >= 0; i -= 1) {
+                    if (builder.length() > 0) {
+                        builder.append(' ');
+                    }
+                    final String word = WORDS[random.nextInt(WORDS.length)];
+                    builder.append(quoted ? word : word.replace(',', ' ').replace('"', ' '));
+                }
+                return quoted ? '"' + builder.toString().replace("\"", "\"\"") + '"' : builder.toString();
+        }
+    }
+
+    static String csvLine(final Random random, final int columnCount, final boolean quoted) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < columnCount; i += 1) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(csvColumn(random, i, quoted));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Compares two JMH result files in CSV format ({@code -rf csv}), e.g. of the base branch and of a change:</p>
+ *
+ * <pre>java -cp target/test-classes tech.firas.framework.fileimport.benchmark.CompareBenchmarkResults \
+ *     base.csv target/jmh-result.csv [thresholdPercent]</pre>
+ *
+ * <p>For every benchmark and parameters in both files, prints the scores and the change. A change is a
+ *    regression if it is worse by more than {@code thresholdPercent} (5 by default) and more than the sum of the
+ *    score errors of both runs. Exits with 1 if there is any regression.</p>
+ */
+public final class CompareBenchmarkResults {
+
+    private CompareBenchmarkResults() {}
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareBenchmarkResults <base.csv> <current.csv> [thresholdPercent]");
+            System.exit(2);
+        }
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+        final Map<String, Result> baseResults = read(args[0]);
+        final Map<String, Result> currentResults = read(args[1]);
+
+        int regressionCount = 0;
+        for (final Map.Entry<String, Result> entry : currentResults.entrySet()) {
+            final Result base = baseResults.get(entry.getKey());
+            final Result current = entry.getValue();
+            if (null == base) {
+                System.out.println(String.format(Locale.ROOT, "%-100s %14s %14.3f %s (new)",
+                        entry.getKey(), "", current.score, current.unit));
+                continue;
+            }
+
+            final double change = (current.score - base.score) / base.score * 100;
+            // for the average time, lower is better; for the throughput, higher is better
+            final boolean worse = current.higherIsBetter() ? change < 0 : change > 0;
+            final boolean significant = Math.abs(current.score - base.score) > base.error + current.error;
+            final boolean regression = worse && significant && Math.abs(change) > threshold;
+            if (regression) {
+                regressionCount += 1;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-100s %14.3f %14.3f %s %+7.2f%%%s",
+                    entry.getKey(), base.score, current.score, current.unit, change,
+                    regression ? " REGRESSION" : significant ? (worse ? " worse" : " better") : ""));
+        }
+
+        System.out.println(regressionCount + " regression(s), threshold " + threshold + "%");
+        if (regressionCount > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return  the results by the benchmark name and the parameters
+     */
+    private static Map<String, Result> read(final String path) throws IOException {
+        final List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException(path + " is empty");
+        }
+        final List<String> header = split(lines.get(0));
+        final int modeIndex = header.indexOf("Mode");
+        final int scoreIndex = header.indexOf("Score");
+        final int errorIndex = scoreIndex + 1;
+        final int unitIndex = header.indexOf("Unit");
+        if (modeIndex < 0 || scoreIndex < 0 || unitIndex < 0) {
+            throw new IllegalArgumentException(path + " is not a JMH result in CSV format");
+        }
+
+        final Map<String, Result> results = new LinkedHashMap<>();
+        for (int i = 1; i < lines.size(); i += 1) {
+            if (lines.get(i).trim().isEmpty()) {
+                continue;
+            }
+            final List<String> columns = split(lines.get(i));
+            final StringBuilder key = new StringBuilder(columns.get(0));
+            for (int j = unitIndex + 1; j < columns.size() && j < header.size(); j += 1) {
+                key.append(' ').append(header.get(j).replace("Param: ", "")).append('=').append(columns.get(j));
+            }
+            final String error = columns.get(errorIndex);
+            results.put(key.toString(), new Result(columns.get(modeIndex), parse(columns.get(scoreIndex)),
+                    error.isEmpty() || "NaN".equals(error) ? 0 : parse(error), columns.get(unitIndex)));
+        }
+        return results;
+    }
+
+    /**
+     * JMH may write the numbers with a decimal comma in some locales, in which case they are quoted
+     */
+    private static double parse(final String number) {
+        return Double.parseDouble(number.replace(',', '.'));
+    }
+
+    private static List<String> split(final String line) {
+        final List<String> columns = new ArrayList<>();
+        final StringBuilder column = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i += 1;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    private static class Result {
+
+        private final String mode;
+        private final double score;
+        private final double error;
+        private final String unit;
+
+        private Result(final String mode, final double score, final double error, final String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        private boolean higherIsBetter() {
+            return "thrpt".equals(this.mode);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.opencsv.CSVParser;
+import com.opencsv.RFC4180Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+
+/**
+ * The cost of parsing a CSV line by {@link CsvRowToStringListProcessor}, for various row widths and quoting
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvRowToStringListProcessorBenchmark {
+
+    private static final int LINE_COUNT = 256;
+
+    @Param({"5", "20", "80"})
+    public int columnCount;
+
+    @Param({"false", "true"})
+    public boolean quoted;
+
+    @Param({"RFC4180", "CSV"})
+    public String parser;
+
+    @Param({"false", "true"})
+    public boolean reuseRowContext;
+
+    private CsvRowToStringListProcessor processor;
+    private ConsumingProcessor consumer;
+    private DataRowContext<String>[] rows;
+    private int index = 0;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        this.consumer = new ConsumingProcessor();
+        this.processor = new CsvRowToStringListProcessor();
+        this.processor.setCsvParser("CSV".equals(this.parser) ? new CSVParser() : new RFC4180Parser());
+        this.processor.setReuseRowContext(this.reuseRowContext);
+        this.processor.setNextProcessor(this.consumer);
+
+        final Random random = new Random(20200229L);
+        final DataFileContext dataFileContext = new DataFileContext("benchmark.csv");
+        this.rows = new DataRowContext[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i += 1) {
+            this.rows[i] = new DataRowContext<>(dataFileContext, i + 1,
+                    BenchmarkData.csvLine(random, this.columnCount, this.quoted), RowType.DATA);
+        }
+    }
+
+    @Benchmark
+    public void processRow(final Blackhole blackhole) throws Exception {
+        this.consumer.blackhole = blackhole;
+        this.processor.processRow(this.rows[this.index]);
+        this.index = (this.index + 1) % LINE_COUNT;
+    }
+
+    private static class ConsumingProcessor implements DataFileProcessor<List<String>> {
+
+        private Blackhole blackhole;
+
+        @Override
+        public void beforeProcessFile(final String filePath) {
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) {
+        }
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext) {
+            final List<String> row = dataRowContext.getRow();
+            for (int i = 0; i < row.size(); i += 1) {
+                this.blackhole.consume(row.get(i));
+            }
+            return dataRowContext;
+        }
+    }
+}
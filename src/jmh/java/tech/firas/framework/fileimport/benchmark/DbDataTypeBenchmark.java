@@ -0,0 +1,130 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.firas.framework.fileimport.processor.db.DateTimeType;
+import tech.firas.framework.fileimport.processor.db.DateType;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.DecimalType;
+import tech.firas.framework.fileimport.processor.db.Float64Type;
+import tech.firas.framework.fileimport.processor.db.Int32Type;
+import tech.firas.framework.fileimport.processor.db.Int64Type;
+import tech.firas.framework.fileimport.processor.db.ValidationException;
+import tech.firas.framework.fileimport.processor.db.VarCharType;
+
+/**
+ * <p>The cost of {@link DbDataType#fromString} for every DbDataType, with realistic column values.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DbDataTypeBenchmark {
+
+    private static final int VALUE_COUNT = 1024;
+
+    @Param({"INT32", "INT64", "FLOAT64", "DECIMAL", "DECIMAL_GROUPED", "DATE", "DATE_TIME", "VARCHAR"})
+    public String type;
+
+    private DbDataType<?> dataType;
+    private String[] values;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(20200229L);
+        this.values = new String[VALUE_COUNT];
+        switch (this.type) {
+            case "INT32":
+                this.dataType = new Int32Type();
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    this.values[i] = String.valueOf(random.nextInt(2000000) - 1000000);
+                }
+                break;
+            case "INT64":
+                this.dataType = new Int64Type();
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    this.values[i] = String.valueOf(random.nextLong());
+                }
+                break;
+            case "FLOAT64":
+                this.dataType = new Float64Type(null);
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    this.values[i] = String.valueOf(random.nextDouble() * 100000);
+                }
+                break;
+            case "DECIMAL":
+                this.dataType = new DecimalType(18, 2, RoundingMode.HALF_UP, null);
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    this.values[i] = amount(random).toString();
+                }
+                break;
+            case "DECIMAL_GROUPED":
+                this.dataType = new DecimalType(18, 2, RoundingMode.HALF_UP, "#,##0.00");
+                final DecimalFormat format = new DecimalFormat("#,##0.00");
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    this.values[i] = format.format(amount(random));
+                }
+                break;
+            case "DATE":
+                this.dataType = new DateType("yyyy-MM-dd");
+                fillDates(random, "yyyy-MM-dd");
+                break;
+            case "DATE_TIME":
+                this.dataType = new DateTimeType("yyyy-MM-dd HH:mm:ss");
+                fillDates(random, "yyyy-MM-dd HH:mm:ss");
+                break;
+            case "VARCHAR":
+                this.dataType = new VarCharType(100);
+                for (int i = 0; i < VALUE_COUNT; i += 1) {
+                    final StringBuilder builder = new StringBuilder();
+                    for (int j = random.nextInt(40); j >= 0; j -= 1) {
+                        builder.append((char) ('a' + random.nextInt(26)));
+                    }
+                    this.values[i] = builder.toString();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type: " + this.type);
+        }
+    }
+
+    @Benchmark
+    public Object fromString() throws ValidationException {
+        final String value = this.values[this.index];
+        this.index = (this.index + 1) & (VALUE_COUNT - 1);
+        return this.dataType.fromString(value);
+    }
+
+    private static BigDecimal amount(final Random random) {
+        return BigDecimal.valueOf(random.nextInt(1000000000), 2);
+    }
+
+    private void fillDates(final Random random, final String pattern) {
+        final SimpleDateFormat format = new SimpleDateFormat(pattern);
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < VALUE_COUNT; i += 1) {
+            this.values[i] = format.format(new Date(now - (random.nextLong() & Long.MAX_VALUE) % (3650L * 86400000)));
+        }
+    }
+}
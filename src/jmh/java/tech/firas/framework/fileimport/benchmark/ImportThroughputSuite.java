@@ -0,0 +1,330 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.sql.DataSource;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.ICSVParser;
+import com.opencsv.RFC4180Parser;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import tech.firas.framework.fileimport.DataRowJudge;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.FilterRowTypeProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+import tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor;
+import tech.firas.framework.fileimport.processor.db.DateTimeType;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.DecimalType;
+import tech.firas.framework.fileimport.processor.db.Int32Type;
+import tech.firas.framework.fileimport.processor.db.Int64Type;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithDataSource;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithJdbcTemplate;
+import tech.firas.framework.fileimport.processor.db.VarCharType;
+
+/**
+ * <p>Imports a large synthetic data file through the whole pipeline: {@link DefaultDataFileImporterBase},
+ *    {@link DefaultPlainTextDataFileReader}, {@link SetRowTypeProcessor}, {@link CsvRowToStringListProcessor}
+ *    and a DB processor with an embedded H2 database, for both DB processors and every batch size, and reports
+ *    rows / second, MB / second, the peak heap usage and the GC time of every run.</p>
+ *
+ * <p>This is not a JMH benchmark because one run takes seconds to minutes; the arguments are
+ *    {@code key=value} pairs, see {@link #DEFAULT_ARGS} for the keys and the default values.</p>
+ */
+public class ImportThroughputSuite {
+
+    private static final Map<String, String> DEFAULT_ARGS = new LinkedHashMap<>();
+    static {
+        DEFAULT_ARGS.put("rows", "1000000");
+        DEFAULT_ARGS.put("columns", "INT64,VARCHAR,DECIMAL,DATE_TIME,INT32,VARCHAR");
+        DEFAULT_ARGS.put("width", "40");
+        // csv: the VARCHAR columns are quoted and may contain commas and quotes; txt: no quoting at all
+        DEFAULT_ARGS.put("format", "csv");
+        DEFAULT_ARGS.put("header", "1");
+        DEFAULT_ARGS.put("footer", "1");
+        DEFAULT_ARGS.put("charset", "UTF-8");
+        DEFAULT_ARGS.put("processors", "DATA_SOURCE,JDBC_TEMPLATE");
+        DEFAULT_ARGS.put("batchSizes", "100,1000,5000");
+        DEFAULT_ARGS.put("warmup", "true");
+        DEFAULT_ARGS.put("url", "jdbc:h2:mem:throughput;DB_CLOSE_DELAY=-1");
+    }
+
+    private static final String TABLE_NAME = "IMPORT_THROUGHPUT";
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> arguments = new LinkedHashMap<>(DEFAULT_ARGS);
+        for (final String arg : args) {
+            final int index = arg.indexOf('=');
+            if (index <= 0 || !DEFAULT_ARGS.containsKey(arg.substring(0, index))) {
+                System.err.println("Unknown argument: " + arg + ", the arguments (and the default values) are " +
+                        DEFAULT_ARGS);
+                System.exit(2);
+                return;
+            }
+            arguments.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+
+        final List<SyntheticDataGenerator.ColumnKind> columnKinds = new ArrayList<>();
+        for (final String column : arguments.get("columns").split(",")) {
+            columnKinds.add(SyntheticDataGenerator.ColumnKind.valueOf(column.trim()));
+        }
+        final boolean csv = "csv".equalsIgnoreCase(arguments.get("format"));
+
+        final SyntheticDataGenerator generator = new SyntheticDataGenerator();
+        generator.setRowCount(Long.parseLong(arguments.get("rows")));
+        generator.setColumnKinds(columnKinds);
+        generator.setVarcharWidth(Integer.parseInt(arguments.get("width")));
+        generator.setQuoted(csv);
+        generator.setHeaderRowCount(Integer.parseInt(arguments.get("header")));
+        generator.setFooterRowCount(Integer.parseInt(arguments.get("footer")));
+        generator.setCharset(Charset.forName(arguments.get("charset")));
+
+        final File directory = Files.createTempDirectory("throughput").toFile();
+        final File file = new File(directory, csv ? "data.csv" : "data.txt");
+        try {
+            final long fileSize = generator.generate(file.toPath());
+            System.out.printf(Locale.ROOT, "%s: %d rows of %s, %.1f MB%n", file.getName(),
+                    generator.getRowCount(), columnKinds, fileSize / 1048576.0);
+
+            final ImportThroughputSuite suite = new ImportThroughputSuite(generator, arguments, directory);
+            final String[] processors = arguments.get("processors").split(",");
+            final String[] batchSizes = arguments.get("batchSizes").split(",");
+            if (Boolean.parseBoolean(arguments.get("warmup"))) {
+                suite.run(processors[0].trim(), Integer.parseInt(batchSizes[0].trim()));
+            }
+
+            System.out.printf(Locale.ROOT, "%-14s %8s %10s %8s %12s %8s %10s %8s%n", "processor", "batch",
+                    "rows", "seconds", "rows/s", "MB/s", "peak MB", "GC ms");
+            for (final String processor : processors) {
+                for (final String batchSize : batchSizes) {
+                    final Result result = suite.run(processor.trim(), Integer.parseInt(batchSize.trim()));
+                    final double seconds = result.elapsedNanos / 1e9;
+                    System.out.printf(Locale.ROOT, "%-14s %8s %10d %8.2f %12.0f %8.2f %10.1f %8d%n",
+                            processor.trim(), batchSize.trim(), result.rowCount, seconds, result.rowCount / seconds,
+                            fileSize / 1048576.0 / seconds, result.peakHeapBytes / 1048576.0, result.gcMillis);
+                }
+            }
+        } finally {
+            if (file.exists() && !file.delete()) {
+                System.err.println("Fail to delete " + file);
+            }
+            if (!directory.delete()) {
+                System.err.println("Fail to delete " + directory);
+            }
+        }
+    }
+
+    private final SyntheticDataGenerator generator;
+    private final String charset;
+    private final File directory;
+    private final DataSource dataSource;
+
+    private ImportThroughputSuite(final SyntheticDataGenerator generator, final Map<String, String> arguments,
+            final File directory) {
+        this.generator = generator;
+        this.charset = arguments.get("charset");
+        this.directory = directory;
+
+        final DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName("org.h2.Driver");
+        driverManagerDataSource.setUrl(arguments.get("url"));
+        this.dataSource = driverManagerDataSource;
+    }
+
+    private Result run(final String processor, final int batchSize) throws Exception {
+        this.createTable();
+
+        final AbstractStringListToDbProcessor dbProcessor;
+        if ("DATA_SOURCE".equals(processor)) {
+            final StringListToDbProcessorWithDataSource dataSourceProcessor = new StringListToDbProcessorWithDataSource();
+            dataSourceProcessor.setDataSource(this.dataSource);
+            dbProcessor = dataSourceProcessor;
+        } else if ("JDBC_TEMPLATE".equals(processor)) {
+            final StringListToDbProcessorWithJdbcTemplate jdbcTemplateProcessor =
+                    new StringListToDbProcessorWithJdbcTemplate();
+            jdbcTemplateProcessor.setJdbcTemplate(new JdbcTemplate(this.dataSource));
+            dbProcessor = jdbcTemplateProcessor;
+        } else {
+            throw new IllegalArgumentException("Unknown processor: " + processor);
+        }
+        dbProcessor.setInsertSql(this.insertSql());
+        dbProcessor.setBatchSize(batchSize);
+        dbProcessor.setColumnDataTypeList(this.columnDataTypes());
+
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(this.generator.isQuoted() ? new RFC4180Parser() :
+                new CSVParserBuilder().withQuoteChar(ICSVParser.NULL_CHARACTER).build());
+        csvProcessor.setNextProcessor(dbProcessor);
+
+        final FilterRowTypeProcessor<String> filterProcessor = new FilterRowTypeProcessor<>();
+        filterProcessor.setAllowRowTypes(EnumSet.of(RowType.DATA));
+        filterProcessor.setNextProcessor(csvProcessor);
+
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(new HeaderFooterRowJudge(this.generator.getHeaderRowCount()));
+        setRowTypeProcessor.setNextProcessor(filterProcessor);
+
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setCharset(this.charset);
+        reader.setDataFileProcessor(setRowTypeProcessor);
+
+        final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+        importer.setDataFileReader(reader);
+        importer.setBaseDirectory(this.directory.getPath());
+        importer.setFileNamePattern("^data\\.");
+
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        final long gcMillisBefore = gcMillis();
+
+        final long start = System.nanoTime();
+        final ImportContext importContext = importer.call();
+        final Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - start;
+
+        result.gcMillis = gcMillis() - gcMillisBefore;
+        for (final MemoryPoolMXBean pool : heapPools) {
+            final MemoryUsage peak = pool.getPeakUsage();
+            if (null != peak) {
+                result.peakHeapBytes += peak.getUsed();
+            }
+        }
+        if (!importContext.isSuccessful()) {
+            throw new IllegalStateException(processor + ", batch size " + batchSize + ": " +
+                    importContext.getMessage());
+        }
+        result.rowCount = this.countRows();
+        if (result.rowCount != this.generator.getRowCount()) {
+            throw new IllegalStateException(processor + ", batch size " + batchSize + ": " + result.rowCount +
+                    " rows imported, but " + this.generator.getRowCount() + " rows generated");
+        }
+        return result;
+    }
+
+    private void createTable() throws SQLException {
+        final StringBuilder builder = new StringBuilder("CREATE TABLE ").append(TABLE_NAME).append(" (");
+        final List<SyntheticDataGenerator.ColumnKind> columnKinds = this.generator.getColumnKinds();
+        for (int i = 0; i < columnKinds.size(); i += 1) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append("col").append(i).append(' ')
+                    .append(columnKinds.get(i).getSqlType(this.generator.getVarcharWidth()));
+        }
+        builder.append(')');
+
+        try (final Connection connection = this.dataSource.getConnection();
+                final Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
+            statement.execute(builder.toString());
+        }
+    }
+
+    private long countRows() throws SQLException {
+        try (final Connection connection = this.dataSource.getConnection();
+                final Statement statement = connection.createStatement();
+                final ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE_NAME)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private String insertSql() {
+        final char[] placeholders = new char[this.generator.getColumnKinds().size() * 2 - 1];
+        Arrays.fill(placeholders, ',');
+        for (int i = 0; i < placeholders.length; i += 2) {
+            placeholders[i] = '?';
+        }
+        return "INSERT INTO " + TABLE_NAME + " VALUES (" + new String(placeholders) + ')';
+    }
+
+    private List<DbDataType<?>> columnDataTypes() {
+        final List<DbDataType<?>> result = new ArrayList<>();
+        for (final SyntheticDataGenerator.ColumnKind columnKind : this.generator.getColumnKinds()) {
+            switch (columnKind) {
+                case INT32:
+                    result.add(new Int32Type());
+                    break;
+                case INT64:
+                    result.add(new Int64Type());
+                    break;
+                case DECIMAL:
+                    result.add(new DecimalType(18, 2, RoundingMode.HALF_UP, null));
+                    break;
+                case DATE_TIME:
+                    result.add(new DateTimeType("yyyy-MM-dd HH:mm:ss"));
+                    break;
+                default:
+                    result.add(new VarCharType(this.generator.getVarcharWidth()));
+            }
+        }
+        return result;
+    }
+
+    private static long gcMillis() {
+        long result = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, gc.getCollectionTime());
+        }
+        return result;
+    }
+
+    private static class Result {
+        private long rowCount;
+        private long elapsedNanos;
+        private long peakHeapBytes;
+        private long gcMillis;
+    }
+
+    /**
+     * The first {@code numberOfHeaderRows} rows are headers, the rows beginning with
+     * {@link SyntheticDataGenerator#FOOTER_PREFIX} and all the rows after them are footers
+     */
+    private static class HeaderFooterRowJudge implements DataRowJudge<String> {
+
+        private final int numberOfHeaderRows;
+
+        private HeaderFooterRowJudge(final int numberOfHeaderRows) {
+            this.numberOfHeaderRows = numberOfHeaderRows;
+        }
+
+        @Override
+        public RowType test(final long rowNumber, final String row, final RowType previousRowType) {
+            if (rowNumber <= this.numberOfHeaderRows) {
+                return RowType.HEADER;
+            }
+            return RowType.FOOTER == previousRowType || row.startsWith(SyntheticDataGenerator.FOOTER_PREFIX) ?
+                    RowType.FOOTER : RowType.DATA;
+        }
+    }
+}
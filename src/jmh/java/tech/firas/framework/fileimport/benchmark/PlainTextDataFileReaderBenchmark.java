@@ -0,0 +1,111 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.PlainTextDataFileReader;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+
+/**
+ * The cost of reading the lines of a whole data file, for various charsets and row widths.
+ * {@link MappedPlainTextDataFileReader} is measured for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlainTextDataFileReaderBenchmark {
+
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+
+    @Param({"UTF-8", "GBK"})
+    public String charset;
+
+    @Param({"5", "40"})
+    public int columnCount;
+
+    @Param({"DEFAULT", "MAPPED"})
+    public String reader;
+
+    private File file;
+    private PlainTextDataFileReader dataFileReader;
+    private ConsumingProcessor consumer;
+
+    @Setup
+    public void setup() throws IOException {
+        this.file = File.createTempFile("benchmark", ".csv");
+        final Random random = new Random(20200229L);
+        try (final Writer writer = new OutputStreamWriter(Files.newOutputStream(this.file.toPath()), this.charset)) {
+            int size = 0;
+            while (size < FILE_SIZE) {
+                final String line = BenchmarkData.csvLine(random, this.columnCount, true);
+                writer.write(line);
+                writer.write('\n');
+                size += line.length() + 1;
+            }
+        }
+
+        this.consumer = new ConsumingProcessor();
+        this.dataFileReader = "MAPPED".equals(this.reader) ?
+                new MappedPlainTextDataFileReader() : new DefaultPlainTextDataFileReader();
+        this.dataFileReader.setCharset(this.charset);
+        this.dataFileReader.setDataFileProcessor(this.consumer);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!this.file.delete()) {
+            this.file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public DataFileContext readDataFile(final Blackhole blackhole) throws Exception {
+        this.consumer.blackhole = blackhole;
+        return this.dataFileReader.readDataFile(this.file.getPath(), null);
+    }
+
+    private static class ConsumingProcessor implements DataFileProcessor<String> {
+
+        private Blackhole blackhole;
+
+        @Override
+        public void beforeProcessFile(final String filePath) {
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) {
+        }
+
+        @Override
+        public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) {
+            this.blackhole.consume(dataRowContext.getRow());
+            return dataRowContext;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.firas.framework.fileimport.convert.DefaultStringListToJavaBeanConverter;
+
+/**
+ * The cost of {@link DefaultStringListToJavaBeanConverter#convert} for various mixes of the field types
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringListToJavaBeanConverterBenchmark {
+
+    private static final int ROW_COUNT = 256;
+
+    /**
+     * STRINGS: 8 String fields, NUMBERS: int, long, double and BigDecimal fields, MIXED: all of them
+     */
+    @Param({"STRINGS", "NUMBERS", "MIXED"})
+    public String fieldMix;
+
+    private DefaultStringListToJavaBeanConverter<Record> converter;
+    private List<String>[] rows;
+    private int index = 0;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws NoSuchMethodException {
+        final List<String> fieldNames;
+        switch (this.fieldMix) {
+            case "STRINGS":
+                fieldNames = Arrays.asList("s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8");
+                break;
+            case "NUMBERS":
+                fieldNames = Arrays.asList("i1", "l1", "d1", "b1", "i2", "l2", "d2", "b2");
+                break;
+            case "MIXED":
+                fieldNames = Arrays.asList("i1", "s1", "l1", "s2", "d1", "s3", "b1", "flag");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown fieldMix: " + this.fieldMix);
+        }
+        this.converter = DefaultStringListToJavaBeanConverter.ofClass(Record.class);
+        this.converter.setFieldNames(fieldNames);
+
+        final Random random = new Random(20200229L);
+        this.rows = new List[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i += 1) {
+            final List<String> row = new ArrayList<>(fieldNames.size());
+            for (final String fieldName : fieldNames) {
+                row.add(value(random, fieldName));
+            }
+            this.rows[i] = row;
+        }
+    }
+
+    @Benchmark
+    public Record convert() {
+        final Record result = this.converter.convert(this.rows[this.index]);
+        this.index = (this.index + 1) % ROW_COUNT;
+        return result;
+    }
+
+    private static String value(final Random random, final String fieldName) {
+        switch (fieldName.charAt(0)) {
+            case 'i':
+                return String.valueOf(random.nextInt());
+            case 'l':
+                return String.valueOf(random.nextLong());
+            case 'd':
+                return String.valueOf(random.nextDouble() * 1000);
+            case 'b':
+                return BigDecimal.valueOf(random.nextInt(1000000000), 2).toString();
+            case 'f':
+                return String.valueOf(random.nextBoolean());
+            default:
+                return BenchmarkData.csvColumn(random, 4, false);
+        }
+    }
+
+    public static class Record {
+
+        private String s1, s2, s3, s4, s5, s6, s7, s8;
+        private int i1;
+        private Integer i2;
+        private long l1;
+        private Long l2;
+        private double d1;
+        private Double d2;
+        private BigDecimal b1, b2;
+        private boolean flag;
+
+        public void setS1(final String s1) {
+            this.s1 = s1;
+        }
+
+        public void setS2(final String s2) {
+            this.s2 = s2;
+        }
+
+        public void setS3(final String s3) {
+            this.s3 = s3;
+        }
+
+        public void setS4(final String s4) {
+            this.s4 = s4;
+        }
+
+        public void setS5(final String s5) {
+            this.s5 = s5;
+        }
+
+        public void setS6(final String s6) {
+            this.s6 = s6;
+        }
+
+        public void setS7(final String s7) {
+            this.s7 = s7;
+        }
+
+        public void setS8(final String s8) {
+            this.s8 = s8;
+        }
+
+        public void setI1(final int i1) {
+            this.i1 = i1;
+        }
+
+        public void setI2(final Integer i2) {
+            this.i2 = i2;
+        }
+
+        public void setL1(final long l1) {
+            this.l1 = l1;
+        }
+
+        public void setL2(final Long l2) {
+            this.l2 = l2;
+        }
+
+        public void setD1(final double d1) {
+            this.d1 = d1;
+        }
+
+        public void setD2(final Double d2) {
+            this.d2 = d2;
+        }
+
+        public void setB1(final BigDecimal b1) {
+            this.b1 = b1;
+        }
+
+        public void setB2(final BigDecimal b2) {
+            this.b2 = b2;
+        }
+
+        public void setFlag(final boolean flag) {
+            this.flag = flag;
+        }
+    }
+}
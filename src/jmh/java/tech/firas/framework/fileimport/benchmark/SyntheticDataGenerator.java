@@ -0,0 +1,219 @@
+package tech.firas.framework.fileimport.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Generates a large CSV / TXT data file with a fixed seed, so that the same file is generated every time:
+ *    {@code headerRowCount} header rows, {@code rowCount} data rows of {@code columnKinds}, and then
+ *    {@code footerRowCount} footer rows beginning with {@link #FOOTER_PREFIX}.</p>
+ *
+ * <p>If {@code quoted} is true, the VARCHAR columns are quoted as in RFC 4180 and may contain commas and
+ *    quotes, otherwise they contain neither.</p>
+ */
+public class SyntheticDataGenerator {
+
+    public static final String FOOTER_PREFIX = "TRAILER";
+
+    public enum ColumnKind {
+        INT32("INT"),
+        INT64("BIGINT"),
+        DECIMAL("DECIMAL(18,2)"),
+        DATE_TIME("TIMESTAMP"),
+        VARCHAR("VARCHAR(%d)");
+
+        private final String sqlType;
+
+        ColumnKind(final String sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        /**
+         * @param width  the maximum length of a VARCHAR column
+         * @return  the type of the column in CREATE TABLE
+         */
+        public String getSqlType(final int width) {
+            return String.format(this.sqlType, width);
+        }
+    }
+
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon", "张三", "李四", "上海",
+            "O'Brien", "Zürich", "a, b", "\"quoted\""};
+
+    private long rowCount = 100000;
+
+    private List<ColumnKind> columnKinds = Arrays.asList(ColumnKind.INT64, ColumnKind.VARCHAR, ColumnKind.DECIMAL,
+            ColumnKind.DATE_TIME, ColumnKind.INT32, ColumnKind.VARCHAR);
+
+    /**
+     * The maximum length of a VARCHAR column
+     */
+    private int varcharWidth = 40;
+
+    private boolean quoted = true;
+
+    private int headerRowCount = 1;
+
+    private int footerRowCount = 1;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private long seed = 20200229L;
+
+    /**
+     * @param path  where the data file is written to, overwritten if it exists
+     * @return  the size of the data file in bytes
+     * @throws IOException  if the data file cannot be written
+     */
+    public long generate(final Path path) throws IOException {
+        final Random random = new Random(this.seed);
+        try (final BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(path), this.charset), 64 * 1024)) {
+            for (int i = 0; i < this.headerRowCount; i += 1) {
+                for (int j = 0; j < this.columnKinds.size(); j += 1) {
+                    if (j > 0) {
+                        writer.write(',');
+                    }
+                    writer.write("col" + j);
+                }
+                writer.write('\n');
+            }
+
+            final StringBuilder builder = new StringBuilder();
+            for (long i = 1; i <= this.rowCount; i += 1) {
+                builder.setLength(0);
+                for (int j = 0; j < this.columnKinds.size(); j += 1) {
+                    if (j > 0) {
+                        builder.append(',');
+                    }
+                    this.appendColumn(builder, random, this.columnKinds.get(j), i);
+                }
+                builder.append('\n');
+                writer.append(builder);
+            }
+
+            for (int i = 1; i <= this.footerRowCount; i += 1) {
+                writer.write(FOOTER_PREFIX + ',' + i + ',' + this.rowCount + '\n');
+            }
+        }
+        return Files.size(path);
+    }
+
+    private void appendColumn(final StringBuilder builder, final Random random, final ColumnKind kind,
+            final long rowNumber) {
+        switch (kind) {
+            case INT32:
+                builder.append(random.nextInt(2000000000) - 1000000000);
+                break;
+            case INT64:
+                builder.append(rowNumber);
+                break;
+            case DECIMAL:
+                final long cents = (random.nextLong() & Long.MAX_VALUE) % 10000000000000L;
+                builder.append(cents / 100).append('.');
+                if (cents % 100 < 10) {
+                    builder.append('0');
+                }
+                builder.append(cents % 100);
+                break;
+            case DATE_TIME:
+                builder.append(String.format("20%02d-%02d-%02d %02d:%02d:%02d", random.nextInt(30),
+                        1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                        random.nextInt(60)));
+                break;
+            default:
+                final int length = 1 + random.nextInt(this.varcharWidth);
+                final StringBuilder value = new StringBuilder(length + 8);
+                while (value.length() < length) {
+                    value.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                value.setLength(length);
+                if (this.quoted) {
+                    builder.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+                } else {
+                    builder.append(value.toString().replace(',', ' ').replace('"', ' '));
+                }
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(final long rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("rowCount must not be negative");
+        }
+        this.rowCount = rowCount;
+    }
+
+    public List<ColumnKind> getColumnKinds() {
+        return columnKinds;
+    }
+
+    public void setColumnKinds(final List<ColumnKind> columnKinds) {
+        if (null == columnKinds || columnKinds.isEmpty()) {
+            throw new IllegalArgumentException("columnKinds must not be empty");
+        }
+        this.columnKinds = columnKinds;
+    }
+
+    public int getVarcharWidth() {
+        return varcharWidth;
+    }
+
+    public void setVarcharWidth(final int varcharWidth) {
+        if (varcharWidth <= 0) {
+            throw new IllegalArgumentException("varcharWidth must be a positive integer");
+        }
+        this.varcharWidth = varcharWidth;
+    }
+
+    public boolean isQuoted() {
+        return quoted;
+    }
+
+    public void setQuoted(final boolean quoted) {
+        this.quoted = quoted;
+    }
+
+    public int getHeaderRowCount() {
+        return headerRowCount;
+    }
+
+    public void setHeaderRowCount(final int headerRowCount) {
+        this.headerRowCount = headerRowCount;
+    }
+
+    public int getFooterRowCount() {
+        return footerRowCount;
+    }
+
+    public void setFooterRowCount(final int footerRowCount) {
+        this.footerRowCount = footerRowCount;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(final Charset charset) {
+        this.charset = charset;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(final long seed) {
+        this.seed = seed;
+    }
+}
@@ -15,10 +15,19 @@
  */
 package tech.firas.framework.fileimport;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
+import tech.firas.framework.fileimport.checkpoint.Checkpoint;
+import tech.firas.framework.fileimport.checkpoint.CheckpointStore;
 import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessors;
+import tech.firas.framework.fileimport.util.ByteCountingIterator;
 import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.PositionAwareIterator;
+import tech.firas.framework.fileimport.util.ReadAheadIterator;
 
 /**
  * For reading every row in a data file and pass the row to a DataFileProcessor
@@ -31,6 +40,39 @@ public abstract class AbstractDataFileReader<R> {
 
     private DataFileProcessor<R> dataFileProcessor;
 
+    /**
+     * The maximum number of rows read ahead on a background thread while the rows before them are processed,
+     * 0 (by default) to read the rows on the thread that processes them
+     */
+    private int readAheadCapacity = 0;
+
+    /**
+     * Where the checkpoints of the data files are loaded from, null (by default) to always read from the beginning
+     */
+    private CheckpointStore checkpointStore;
+
+    /**
+     * Whether one DataRowContext is reused for all the rows of a data file, see {@link DataRowContext#isRecycled()}
+     */
+    private boolean reuseRowContext = false;
+
+    /**
+     * The number of rows passed to the DataFileProcessor in one call of
+     * {@link tech.firas.framework.fileimport.processor.BatchDataFileProcessor#processRows},
+     * 0 (by default) to pass the rows one by one to {@code processRow}
+     */
+    private int rowBatchSize = 0;
+
+    /**
+     * Where the progress of every data file is reported to, null (by default) not to report
+     */
+    private ProgressListener progressListener;
+
+    /**
+     * The minimum interval between 2 reports of the progress of a data file, default is 10 seconds
+     */
+    private long progressIntervalMillis = 10000;
+
     /**
      * Read the data from a data file
      *
@@ -44,27 +86,268 @@ public abstract class AbstractDataFileReader<R> {
             throw new IllegalStateException("dataFileProcessor not set");
         }
 
-        try (CloseableIterator<R> iterator = this.getRowIterator(filePath, parameters)) {
+        final Checkpoint checkpoint = this.loadCheckpoint(filePath);
+        final long startPosition = null == checkpoint ? 0 : checkpoint.getPosition();
+        try (CloseableIterator<R> iterator = this.readAhead(
+                this.getRowIterator(filePath, parameters, startPosition), filePath)) {
             final DataFileContext dataFileContext = new DataFileContext(filePath);
+            long rowNumber = 0;
+            if (null != checkpoint) {
+                rowNumber = checkpoint.getRowNumber();
+                dataFileContext.setHeaderRowCount(checkpoint.getHeaderRowCount());
+                dataFileContext.setDataRowCount(checkpoint.getDataRowCount());
+                dataFileContext.setFooterRowCount(checkpoint.getFooterRowCount());
+            }
+
+            final ProgressTracker progressTracker = null == this.progressListener ? null :
+                    new ProgressTracker(this.progressListener, filePath, this.getFileSize(filePath),
+                            this.progressIntervalMillis, rowNumber, startPosition);
 
             dataFileProcessor.beforeProcessFile(filePath);
-            int rowNumber = 0;
-            while (iterator.hasNext()) {
-                rowNumber += 1;
-                this.dataFileProcessor.processRow(new DataRowContext<>(dataFileContext, rowNumber,
-                        iterator.next(), RowType.UNKNOWN));
-            }
+            this.processRows(this.dataFileProcessor, iterator, dataFileContext, rowNumber, true, false,
+                    progressTracker, startPosition);
+            setStallCounts(iterator, dataFileContext);
             logger.finer("Processed " + dataFileContext.getDataRowCount() + " row(s) of data in " + filePath +
                     ", header row count: " + dataFileContext.getHeaderRowCount() +
                     ", footer row count: " + dataFileContext.getFooterRowCount());
             this.dataFileProcessor.afterProcessFile(dataFileContext);
+            if (null != progressTracker) {
+                progressTracker.finish();
+            }
             return dataFileContext;
         }
     }
 
+    /**
+     * List the data files packed in a file, for example the entries of a zip archive,
+     * so that they can be read one by one and every one gets its own DataFileContext
+     *
+     * @param filePath  the path of the file
+     * @return  the paths to be passed to {@link #readDataFile}, only {@code filePath} itself by default
+     * @throws Exception  if an error occurs when reading the file
+     */
+    public List<String> listDataFiles(final String filePath) throws Exception {
+        return Collections.singletonList(filePath);
+    }
+
     protected abstract CloseableIterator<R> getRowIterator(
             final String filePath, final Object parameters) throws Exception;
 
+    /**
+     * <p>Get an iterator of the rows from {@code position} of the data file, for resuming from a Checkpoint.
+     *    The iterator should implement {@link PositionAwareIterator} so that the rows carry their positions
+     *    (see {@link DataRowContext#getPosition()}) and checkpoints can be made.</p>
+     *
+     * <p>Only position 0 is supported by default.</p>
+     *
+     * @param filePath    the path of the data file
+     * @param parameters  for example the sheet name of an Excel
+     * @param position    the position, e.g. the byte offset, returned by {@link PositionAwareIterator#getPosition()}
+     * @return  an iterator of the rows from {@code position}
+     * @throws Exception  if an error occurs when opening the file
+     */
+    protected CloseableIterator<R> getRowIterator(
+            final String filePath, final Object parameters, final long position) throws Exception {
+        if (position != 0) {
+            throw new UnsupportedOperationException(this.getClass().getName() + " cannot read from position " +
+                    position);
+        }
+        return this.getRowIterator(filePath, parameters);
+    }
+
+    /**
+     * @param filePath  the path of the data file
+     * @return  the size of the data file in the unit of the bytes counted by the row iterator (see
+     *          {@link ByteCountingIterator} and {@link PositionAwareIterator}) for reporting the progress,
+     *          or -1 if unknown; the length of the file by default
+     * @throws Exception  if an error occurs when reading the size
+     */
+    protected long getFileSize(final String filePath) throws Exception {
+        final File file = new File(filePath);
+        return file.isFile() ? file.length() : -1;
+    }
+
+    /**
+     * Pass the rows of {@code iterator} to {@code processor}, without reporting the progress,
+     * see {@link #processRows(DataFileProcessor, CloseableIterator, DataFileContext, long, boolean, boolean,
+     * ProgressTracker, long)}
+     */
+    protected long processRows(final DataFileProcessor<R> processor, final CloseableIterator<R> iterator,
+            final DataFileContext dataFileContext, final long rowNumber, final boolean trackPositions,
+            final boolean cancellable) throws Exception {
+        return this.processRows(processor, iterator, dataFileContext, rowNumber, trackPositions, cancellable,
+                null, 0);
+    }
+
+    /**
+     * Pass the rows of {@code iterator} to {@code processor}, one by one, or in batches of {@code rowBatchSize}
+     *
+     * @param rowNumber        the row number of the row before the first row of {@code iterator}
+     * @param trackPositions   true to set the positions of the rows if {@code iterator} is a PositionAwareIterator,
+     *                         false if the rows are not read in order so no checkpoint should be made
+     * @param cancellable      true to throw an InterruptedException if the current thread is interrupted
+     * @param progressTracker  where the rows and the bytes read are added to, null not to report the progress
+     * @param startPosition    the position of the first row of {@code iterator}
+     * @return  the row number of the last row
+     * @throws Exception  if the processor throws an Exception
+     */
+    protected long processRows(final DataFileProcessor<R> processor, final CloseableIterator<R> iterator,
+            final DataFileContext dataFileContext, long rowNumber, final boolean trackPositions,
+            final boolean cancellable, final ProgressTracker progressTracker, final long startPosition)
+            throws Exception {
+        long reportedRowNumber = rowNumber;
+        long reportedBytes = startPosition;
+        final PositionAwareIterator<R> positionAwareIterator =
+                trackPositions && iterator instanceof PositionAwareIterator ?
+                        (PositionAwareIterator<R>) iterator : null;
+        if (this.rowBatchSize <= 0) {
+            final DataRowContext<R> reusableContext = this.reuseRowContext ? new DataRowContext<R>() : null;
+            while (iterator.hasNext()) {
+                checkInterrupted(cancellable, dataFileContext);
+                rowNumber += 1;
+                final DataRowContext<R> dataRowContext = rowContext(reusableContext, dataFileContext, rowNumber,
+                        iterator.next());
+                if (null != positionAwareIterator) {
+                    dataRowContext.setPosition(positionAwareIterator.getPosition());
+                }
+                processor.processRow(dataRowContext);
+                if (null != progressTracker && (rowNumber & 0xFF) == 0) {
+                    reportedBytes = advanceProgress(progressTracker, iterator, rowNumber - reportedRowNumber,
+                            reportedBytes);
+                    reportedRowNumber = rowNumber;
+                }
+            }
+            if (null != progressTracker) {
+                advanceProgress(progressTracker, iterator, rowNumber - reportedRowNumber, reportedBytes);
+            }
+            return rowNumber;
+        }
+
+        final DataRowBatch<R> batch = new DataRowBatch<>(this.rowBatchSize);
+        while (iterator.hasNext()) {
+            checkInterrupted(cancellable, dataFileContext);
+            batch.clear();
+            do {
+                rowNumber += 1;
+                DataRowContext<R> reusable = null;
+                if (this.reuseRowContext) {
+                    // a new context is recycled too, because it is reused for a row of the next batch
+                    reusable = batch.nextReusable();
+                    if (null == reusable) {
+                        reusable = new DataRowContext<>();
+                    }
+                }
+                final DataRowContext<R> dataRowContext = rowContext(reusable, dataFileContext, rowNumber,
+                        iterator.next());
+                if (null != positionAwareIterator) {
+                    dataRowContext.setPosition(positionAwareIterator.getPosition());
+                }
+                batch.add(dataRowContext);
+            } while (batch.size() < this.rowBatchSize && iterator.hasNext());
+            DataFileProcessors.processRows(processor, batch);
+            if (null != progressTracker) {
+                reportedBytes = advanceProgress(progressTracker, iterator, rowNumber - reportedRowNumber,
+                        reportedBytes);
+                reportedRowNumber = rowNumber;
+            }
+        }
+        return rowNumber;
+    }
+
+    /**
+     * @param rows           the number of rows read since the last call
+     * @param reportedBytes  the bytes read at the last call
+     * @return  the bytes read now, or {@code reportedBytes} if unknown
+     */
+    private static long advanceProgress(final ProgressTracker progressTracker, final CloseableIterator<?> iterator,
+            final long rows, final long reportedBytes) {
+        long bytes = -1;
+        if (iterator instanceof ByteCountingIterator) {
+            bytes = ((ByteCountingIterator<?>) iterator).getBytesRead();
+        }
+        if (bytes < 0 && iterator instanceof PositionAwareIterator) {
+            bytes = ((PositionAwareIterator<?>) iterator).getPosition();
+        }
+        if (bytes < 0) {
+            progressTracker.advance(rows, -1);
+            return reportedBytes;
+        }
+        progressTracker.advance(rows, bytes - reportedBytes);
+        return bytes;
+    }
+
+    private static void checkInterrupted(final boolean cancellable, final DataFileContext dataFileContext)
+            throws InterruptedException {
+        if (cancellable && Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Processing " + dataFileContext.getFilePath() + " is cancelled");
+        }
+    }
+
+    /**
+     * @param reusableContext  the DataRowContext to reuse, or null to create a new one
+     * @return  a DataRowContext of an unknown type for the row
+     */
+    protected static <R> DataRowContext<R> rowContext(final DataRowContext<R> reusableContext,
+            final DataFileContext dataFileContext, final long rowNumber, final R row) {
+        if (null == reusableContext) {
+            return new DataRowContext<>(dataFileContext, rowNumber, row, RowType.UNKNOWN);
+        }
+        reusableContext.setDataFileContext(dataFileContext);
+        reusableContext.setRowNumber(rowNumber);
+        reusableContext.setRow(row);
+        reusableContext.setType(RowType.UNKNOWN);
+        reusableContext.setPosition(-1);
+        reusableContext.setRowCounts(-1, -1, -1);
+        reusableContext.setRecycled(true);
+        return reusableContext;
+    }
+
+    /**
+     * @return  the Checkpoint to resume from, or null to read from the beginning
+     */
+    private Checkpoint loadCheckpoint(final String filePath) throws Exception {
+        if (null == this.checkpointStore) {
+            return null;
+        }
+        final Checkpoint checkpoint = this.checkpointStore.load(filePath);
+        if (null == checkpoint) {
+            return null;
+        }
+        if (!checkpoint.matchesFile()) {
+            logger.warning("Discard " + checkpoint + " because the file has been changed");
+            this.checkpointStore.remove(filePath);
+            return null;
+        }
+        logger.info("Resume " + filePath + " from " + checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Sets the stall counts of the reading and the processing into {@code dataFileContext},
+     * if the rows are read ahead
+     *
+     * @param iterator         the iterator returned by {@link #readAhead}, after all the rows are processed
+     * @param dataFileContext  the information of the data file, or of a range of it
+     */
+    protected static void setStallCounts(final CloseableIterator<?> iterator, final DataFileContext dataFileContext) {
+        if (iterator instanceof ReadAheadIterator) {
+            final ReadAheadIterator<?> readAheadIterator = (ReadAheadIterator<?>) iterator;
+            dataFileContext.setReaderStallCount(readAheadIterator.getProducerStallCount());
+            dataFileContext.setReaderStallNanos(readAheadIterator.getProducerStallNanos());
+            dataFileContext.setProcessorStallCount(readAheadIterator.getConsumerStallCount());
+            dataFileContext.setProcessorStallNanos(readAheadIterator.getConsumerStallNanos());
+        }
+    }
+
+    /**
+     * @return  {@code iterator} itself, or a ReadAheadIterator of it if {@code readAheadCapacity} is positive
+     */
+    protected CloseableIterator<R> readAhead(final CloseableIterator<R> iterator, final String filePath) {
+        return this.readAheadCapacity > 0 ?
+                new ReadAheadIterator<>(iterator, this.readAheadCapacity, filePath) :
+                iterator;
+    }
+
     public DataFileProcessor<R> getDataFileProcessor() {
         return dataFileProcessor;
     }
@@ -72,4 +355,115 @@ public abstract class AbstractDataFileReader<R> {
     public void setDataFileProcessor(DataFileProcessor<R> dataFileProcessor) {
         this.dataFileProcessor = dataFileProcessor;
     }
+
+    public int getReadAheadCapacity() {
+        return readAheadCapacity;
+    }
+
+    /**
+     * <p>Read the rows on a background thread, at most {@code readAheadCapacity} rows ahead,
+     *    so that reading the rows (I/O and decoding) and processing the rows (parsing, converting, JDBC ...)
+     *    overlap. 0 to read the rows on the thread that processes them.</p>
+     *
+     * <p>How often the reading and the processing waited for each other is set into the DataFileContext,
+     *    see {@link DataFileContext#getReaderStallCount()} and {@link DataFileContext#getProcessorStallCount()}.
+     *    </p>
+     *
+     * @param readAheadCapacity  the maximum number of rows read ahead
+     */
+    public void setReadAheadCapacity(final int readAheadCapacity) {
+        if (readAheadCapacity < 0) {
+            throw new IllegalArgumentException("readAheadCapacity must not be negative");
+        }
+        this.readAheadCapacity = readAheadCapacity;
+    }
+
+    public boolean isReuseRowContext() {
+        return reuseRowContext;
+    }
+
+    /**
+     * <p>Reuse one DataRowContext for all the rows of a data file instead of creating one for every row,
+     *    to reduce the garbage. Then the DataFileProcessors must not keep the DataRowContext after
+     *    {@code processRow} returns, see {@link DataRowContext#isRecycled()}.</p>
+     *
+     * <p>The processors that convert the rows can reuse their contexts as well, e.g.
+     *    {@link tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor#setReuseRowContext}.</p>
+     *
+     * @param reuseRowContext  true to reuse one DataRowContext for all the rows, false (by default) otherwise
+     */
+    public void setReuseRowContext(final boolean reuseRowContext) {
+        this.reuseRowContext = reuseRowContext;
+    }
+
+    public int getRowBatchSize() {
+        return rowBatchSize;
+    }
+
+    /**
+     * <p>Pass the rows to the DataFileProcessor in batches of {@code rowBatchSize} rows, so that a chain of
+     *    {@link tech.firas.framework.fileimport.processor.BatchDataFileProcessor}s does its work per row
+     *    in tight loops, and its work per call once per batch. The processors that are not
+     *    BatchDataFileProcessors still get the rows one by one.</p>
+     *
+     * <p>A few hundred to a few thousand rows are usually enough.</p>
+     *
+     * @param rowBatchSize  the number of rows in a batch, 0 to pass the rows one by one
+     */
+    public void setRowBatchSize(final int rowBatchSize) {
+        if (rowBatchSize < 0) {
+            throw new IllegalArgumentException("rowBatchSize must not be negative");
+        }
+        this.rowBatchSize = rowBatchSize;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * <p>Report the progress of every data file: the rows and the bytes read against the size of the file,
+     *    the rates and the estimated time to finish, see {@link ImportProgress}. The bytes are known for the
+     *    readers that count them (see {@link ByteCountingIterator}) or that know the positions of the rows
+     *    (see {@link PositionAwareIterator}).</p>
+     *
+     * @param progressListener  where the progress is reported to, null not to report
+     */
+    public void setProgressListener(final ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+
+    /**
+     * @param progressIntervalMillis  the minimum interval between 2 reports of the progress of a data file
+     */
+    public void setProgressIntervalMillis(final long progressIntervalMillis) {
+        if (progressIntervalMillis <= 0) {
+            throw new IllegalArgumentException("progressIntervalMillis must be a positive integer");
+        }
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    /**
+     * <p>Resume the data files from their checkpoints in {@code checkpointStore}, instead of reading them from
+     *    the beginning again. A checkpoint is discarded if the length or the last modified time of the data file
+     *    has been changed since the checkpoint was made.</p>
+     *
+     * <p>The checkpoints are saved by the DataFileProcessor that commits the rows, see
+     *    {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor#setCheckpointStore}.
+     *    Only the readers that can read from a position support resuming, e.g. {@link MappedPlainTextDataFileReader},
+     *    {@link MappedCsvDataFileReader} and {@link FixedWidthDataFileReader}.</p>
+     *
+     * @param checkpointStore  where the checkpoints are loaded from, null to always read from the beginning
+     */
+    public void setCheckpointStore(final CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
 }
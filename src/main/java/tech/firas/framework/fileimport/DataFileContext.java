@@ -1,5 +1,7 @@
 package tech.firas.framework.fileimport;
 
+import tech.firas.framework.fileimport.metrics.ImportMetrics;
+
 public class DataFileContext {
 
     /**
@@ -7,16 +9,66 @@ public class DataFileContext {
      */
     private String filePath;
 
-    private int headerRowCount;
-    private int dataRowCount;
-    private int footerRowCount;
+    private long headerRowCount;
+    private long dataRowCount;
+    private long footerRowCount;
+
+    /**
+     * How many rows are accepted and how many rows are rejected by the processors that reject the invalid rows
+     * instead of failing the file, see
+     * {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor#setErrorBudget}
+     */
+    private long acceptedRowCount;
+    private long rejectedRowCount;
+
+    /**
+     * How many rows are dropped as duplicates, see
+     * {@link tech.firas.framework.fileimport.processor.DeduplicateProcessor}
+     */
+    private long duplicateRowCount;
+
+    /**
+     * How many times, and how long in nanoseconds, reading the rows waited for processing the rows,
+     * when the rows are read ahead, see {@link AbstractDataFileReader#setReadAheadCapacity}
+     */
+    private long readerStallCount;
+    private long readerStallNanos;
+
+    /**
+     * How many times, and how long in nanoseconds, processing the rows waited for reading the rows,
+     * when the rows are read ahead, see {@link AbstractDataFileReader#setReadAheadCapacity}
+     */
+    private long processorStallCount;
+    private long processorStallNanos;
 
     private Object attachment;
 
-    public DataFileContext() {}
+    /**
+     * The state of the processors for this file
+     */
+    private final ProcessingSession session;
+
+    /**
+     * The timings of the stages of the processor chain for this file, empty if no stage is timed
+     */
+    private final ImportMetrics metrics = new ImportMetrics();
+
+    public DataFileContext() {
+        this.session = new ProcessingSession();
+    }
 
     public DataFileContext(final String filePath) {
+        this(filePath, null);
+    }
+
+    /**
+     * @param filePath     the canonical file path of the file to be imported
+     * @param fileSession  the session of the whole data file if this context is for a range of it, otherwise null,
+     *                     see {@link ProcessingSession#getFileSession()}
+     */
+    public DataFileContext(final String filePath, final ProcessingSession fileSession) {
         setFilePath(filePath);
+        this.session = new ProcessingSession(fileSession);
     }
 
     public String getFilePath() {
@@ -27,30 +79,86 @@ public class DataFileContext {
         this.filePath = filePath;
     }
 
-    public int getHeaderRowCount() {
+    public long getHeaderRowCount() {
         return headerRowCount;
     }
 
-    public void setHeaderRowCount(final int headerRowCount) {
+    public void setHeaderRowCount(final long headerRowCount) {
         this.headerRowCount = headerRowCount;
     }
 
-    public int getDataRowCount() {
+    public long getDataRowCount() {
         return dataRowCount;
     }
 
-    public void setDataRowCount(final int dataRowCount) {
+    public void setDataRowCount(final long dataRowCount) {
         this.dataRowCount = dataRowCount;
     }
 
-    public int getFooterRowCount() {
+    public long getFooterRowCount() {
         return footerRowCount;
     }
 
-    public void setFooterRowCount(final int footerRowCount) {
+    public void setFooterRowCount(final long footerRowCount) {
         this.footerRowCount = footerRowCount;
     }
 
+    public long getAcceptedRowCount() {
+        return acceptedRowCount;
+    }
+
+    public void setAcceptedRowCount(final long acceptedRowCount) {
+        this.acceptedRowCount = acceptedRowCount;
+    }
+
+    public long getRejectedRowCount() {
+        return rejectedRowCount;
+    }
+
+    public void setRejectedRowCount(final long rejectedRowCount) {
+        this.rejectedRowCount = rejectedRowCount;
+    }
+
+    public long getDuplicateRowCount() {
+        return duplicateRowCount;
+    }
+
+    public void setDuplicateRowCount(final long duplicateRowCount) {
+        this.duplicateRowCount = duplicateRowCount;
+    }
+
+    public long getReaderStallCount() {
+        return readerStallCount;
+    }
+
+    public void setReaderStallCount(final long readerStallCount) {
+        this.readerStallCount = readerStallCount;
+    }
+
+    public long getReaderStallNanos() {
+        return readerStallNanos;
+    }
+
+    public void setReaderStallNanos(final long readerStallNanos) {
+        this.readerStallNanos = readerStallNanos;
+    }
+
+    public long getProcessorStallCount() {
+        return processorStallCount;
+    }
+
+    public void setProcessorStallCount(final long processorStallCount) {
+        this.processorStallCount = processorStallCount;
+    }
+
+    public long getProcessorStallNanos() {
+        return processorStallNanos;
+    }
+
+    public void setProcessorStallNanos(final long processorStallNanos) {
+        this.processorStallNanos = processorStallNanos;
+    }
+
     public Object getAttachment() {
         return attachment;
     }
@@ -59,6 +167,21 @@ public class DataFileContext {
         this.attachment = attachment;
     }
 
+    /**
+     * @return  the state of the processors for this file, see {@link ProcessingSession}
+     */
+    public ProcessingSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return  the timings of the stages of the processor chain for this file, see
+     *          {@link tech.firas.framework.fileimport.metrics.TimingDataFileProcessor}
+     */
+    public ImportMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public String toString() {
         return "DataFileContext{" +
@@ -66,6 +189,13 @@ public class DataFileContext {
                 ", headerRowCount=" + headerRowCount +
                 ", dataRowCount=" + dataRowCount +
                 ", footerRowCount=" + footerRowCount +
+                ", acceptedRowCount=" + acceptedRowCount +
+                ", rejectedRowCount=" + rejectedRowCount +
+                ", duplicateRowCount=" + duplicateRowCount +
+                ", readerStallCount=" + readerStallCount +
+                ", readerStallNanos=" + readerStallNanos +
+                ", processorStallCount=" + processorStallCount +
+                ", processorStallNanos=" + processorStallNanos +
                 '}';
     }
 }
@@ -0,0 +1,85 @@
+package tech.firas.framework.fileimport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A chunk of consecutive rows passed to
+ *    {@link tech.firas.framework.fileimport.processor.BatchDataFileProcessor#processRows}.</p>
+ *
+ * <p>A DataRowBatch is cleared and refilled for the next chunk after {@code processRows} returns, so a processor
+ *    must not keep the batch itself. Whether the DataRowContexts in it can be kept is decided by
+ *    {@link DataRowContext#isRecycled()}.</p>
+ *
+ * @param <R>  the type of the rows
+ */
+public class DataRowBatch<R> {
+
+    /**
+     * The contexts before {@code size} are in this batch, the ones after it are kept for reuse
+     */
+    private final List<DataRowContext<R>> contexts;
+    private int size = 0;
+
+    public DataRowBatch() {
+        this(16);
+    }
+
+    public DataRowBatch(final int initialCapacity) {
+        this.contexts = new ArrayList<>(initialCapacity);
+    }
+
+    /**
+     * @param dataRowContext  the next row of this batch
+     */
+    public void add(final DataRowContext<R> dataRowContext) {
+        if (null == dataRowContext) {
+            throw new IllegalArgumentException("dataRowContext must not be null");
+        }
+        if (this.size < this.contexts.size()) {
+            this.contexts.set(this.size, dataRowContext);
+        } else {
+            this.contexts.add(dataRowContext);
+        }
+        this.size += 1;
+    }
+
+    /**
+     * @param index  the index of the row in this batch, count from 0
+     * @return  the DataRowContext of the row
+     */
+    public DataRowContext<R> get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return this.contexts.get(index);
+    }
+
+    /**
+     * @return  the DataRowContext that was added at the next index before this batch was cleared,
+     *          to be reused for the next row and then added again, or null if there is none
+     */
+    public DataRowContext<R> nextReusable() {
+        return this.size < this.contexts.size() ? this.contexts.get(this.size) : null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size <= 0;
+    }
+
+    /**
+     * Remove all the rows from this batch, the DataRowContexts are kept for {@link #nextReusable()}
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "DataRowBatch{size=" + this.size + '}';
+    }
+}
@@ -2,6 +2,16 @@ package tech.firas.framework.fileimport;
 
 import java.util.Objects;
 
+/**
+ * <p>A row passed to {@link tech.firas.framework.fileimport.processor.DataFileProcessor#processRow}.</p>
+ *
+ * <p>If {@link #isRecycled()} is true, this context and its row are reused for the next row after
+ *    {@code processRow} returns, so a processor may use them only before it returns. A processor that keeps
+ *    the row for later, e.g. for a batch, must keep a copy of what it needs, not this context or a List row
+ *    itself. The row objects themselves, e.g. the Strings of the columns, may be kept.</p>
+ *
+ * @param <R>  the type of the row
+ */
 public class DataRowContext<R> {
 
     private DataFileContext dataFileContext;
@@ -9,13 +19,32 @@ public class DataRowContext<R> {
     /**
      * Count from 1
      */
-    private int rowNumber;
+    private long rowNumber;
     private R row;
     private RowType type;
 
+    /**
+     * The position (e.g. the byte offset) in the data file after this row, where the reading can be resumed,
+     * or -1 if the reader does not know it
+     */
+    private long position = -1;
+
+    /**
+     * The numbers of the header, data and footer rows of the data file up to this row, which are set by
+     * {@link tech.firas.framework.fileimport.processor.SetRowTypeProcessor}, or -1 if the rows are not counted
+     */
+    private long headerRowCount = -1;
+    private long dataRowCount = -1;
+    private long footerRowCount = -1;
+
+    /**
+     * Whether this context is reused for the next row, see {@link #isRecycled()}
+     */
+    private boolean recycled = false;
+
     public DataRowContext() {}
 
-    public DataRowContext(final DataFileContext dataFileContext, final int rowNumber, final R row, final RowType type) {
+    public DataRowContext(final DataFileContext dataFileContext, final long rowNumber, final R row, final RowType type) {
         setDataFileContext(dataFileContext);
         setRowNumber(rowNumber);
         setRow(row);
@@ -30,11 +59,18 @@ public class DataRowContext<R> {
         this.dataFileContext = dataFileContext;
     }
 
-    public int getRowNumber() {
+    /**
+     * @return  the state of the processors for the file of this row, see {@link DataFileContext#getSession()}
+     */
+    public ProcessingSession getSession() {
+        return dataFileContext.getSession();
+    }
+
+    public long getRowNumber() {
         return rowNumber;
     }
 
-    public void setRowNumber(final int rowNumber) {
+    public void setRowNumber(final long rowNumber) {
         if (rowNumber <= 0) {
             throw new IllegalArgumentException("Row number must be a positive integer");
         }
@@ -52,6 +88,90 @@ public class DataRowContext<R> {
         this.row = row;
     }
 
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(final long position) {
+        this.position = position;
+    }
+
+    /**
+     * @return  the number of the header rows of the data file up to this row, or -1 if the rows are not counted
+     */
+    public long getHeaderRowCount() {
+        return headerRowCount;
+    }
+
+    /**
+     * @return  the number of the data rows of the data file up to this row, or -1 if the rows are not counted
+     */
+    public long getDataRowCount() {
+        return dataRowCount;
+    }
+
+    /**
+     * @return  the number of the footer rows of the data file up to this row, or -1 if the rows are not counted
+     */
+    public long getFooterRowCount() {
+        return footerRowCount;
+    }
+
+    /**
+     * The counts in {@link DataFileContext} may include the rows after this row when the rows are processed in
+     * batches, so a Checkpoint after this row takes the counts here
+     *
+     * @param headerRowCount  the number of the header rows of the data file up to this row
+     * @param dataRowCount    the number of the data rows of the data file up to this row
+     * @param footerRowCount  the number of the footer rows of the data file up to this row
+     */
+    public void setRowCounts(final long headerRowCount, final long dataRowCount, final long footerRowCount) {
+        this.headerRowCount = headerRowCount;
+        this.dataRowCount = dataRowCount;
+        this.footerRowCount = footerRowCount;
+    }
+
+    /**
+     * Copies the position of {@code source} and the row counts up to it, for a row converted from the row of
+     * {@code source}
+     *
+     * @param source  the context of the row before conversion
+     */
+    public void copyPosition(final DataRowContext<?> source) {
+        this.setPosition(source.getPosition());
+        this.setRowCounts(source.getHeaderRowCount(), source.getDataRowCount(), source.getFooterRowCount());
+    }
+
+    /**
+     * @return  true if this context, and its row if it is a mutable container like a List,
+     *          must not be used after {@code processRow} returns
+     */
+    public boolean isRecycled() {
+        return recycled;
+    }
+
+    public void setRecycled(final boolean recycled) {
+        this.recycled = recycled;
+    }
+
+    /**
+     * Reuses this context for a row converted from the row of {@code source}, with the same row number,
+     * type, position and row counts
+     *
+     * @param source  the context of the row before conversion
+     * @param row     the converted row
+     * @return  this context, recycled
+     */
+    public DataRowContext<R> reuse(final DataRowContext<?> source, final R row) {
+        this.setDataFileContext(source.getDataFileContext());
+        this.setRowNumber(source.getRowNumber());
+        this.setRow(row);
+        this.setType(source.getType());
+        this.copyPosition(source);
+        this.recycled = true;
+        return this;
+    }
+
     public RowType getType() {
         return type;
     }
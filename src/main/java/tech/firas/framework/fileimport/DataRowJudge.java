@@ -28,5 +28,5 @@ public interface DataRowJudge<T> {
      * @param previousRowType  the type of the previous row
      * @return  the type of the input row
      */
-    RowType test(int rowNumber, T row, RowType previousRowType);
+    RowType test(long rowNumber, T row, RowType previousRowType);
 }
@@ -17,16 +17,27 @@ package tech.firas.framework.fileimport;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import tech.firas.framework.fileimport.metrics.ImportMetrics;
+
 /**
  * Reads and processes a set of data files that are in the same directory and should be processed
  * by the same DataFileReader and the same DataFileProcessors.
@@ -54,6 +65,20 @@ public class DefaultDataFileImporterBase<R> implements Callable<ImportContext> {
      */
     private String fileNamePattern;
 
+    /**
+     * For importing the files concurrently, if null and {@code parallelism} is greater than 1,
+     * a fixed thread pool of {@code parallelism} threads is created for every call
+     */
+    private ExecutorService executorService;
+
+    /**
+     * The maximum number of files imported at the same time, 0 (by default) if not set: 1 without
+     * {@code executorService}, otherwise only limited by {@code executorService}
+     */
+    private int parallelism = 0;
+
+    private List<ImportRunListener> runListeners;
+
     @Override
     public ImportContext call() {
         final File baseDirFile = new File(this.baseDirectory);
@@ -76,25 +101,137 @@ public class DefaultDataFileImporterBase<R> implements Callable<ImportContext> {
             return result;
         }
 
+        final List<ImportRunListener> listeners = this.runListeners;
+        int listenersBegun = 0;
         try {
+            if (null != listeners) {
+                for (final ImportRunListener listener : listeners) {
+                    listener.beforeRun();
+                    listenersBegun += 1;
+                }
+            }
             this.beforeAllImport(Collections.unmodifiableList(Arrays.asList(filesToImport)));
-            final Map<String, DataFileContext> dataFileContextMap = new HashMap<>();
+            if (null == this.executorService && this.parallelism <= 1) {
+                final Map<String, DataFileContext> dataFileContextMap = new HashMap<>();
+                for (final File file : filesToImport) {
+                    for (final String filePath : this.dataFileReader.listDataFiles(file.getCanonicalPath())) {
+                        final DataFileContext dataFileContext = this.importOneFile(filePath);
+                        dataFileContextMap.put(filePath, dataFileContext);
+                    }
+                }
+                this.afterAllImport(dataFileContextMap);
+
+                final ImportContext result = new ImportContext(dataFileContextMap);
+                result.setMetrics(mergeMetrics(dataFileContextMap));
+                result.setMessageForSuccess(dataFileContextMap.size() + " file(s) imported");
+                return result;
+            }
+
+            final List<String> filePaths = new ArrayList<>();
             for (final File file : filesToImport) {
-                final String filePath = file.getCanonicalPath();
-                final DataFileContext dataFileContext = this.importOneFile(filePath);
-                dataFileContextMap.put(filePath, dataFileContext);
+                filePaths.addAll(this.dataFileReader.listDataFiles(file.getCanonicalPath()));
             }
+            final Map<String, DataFileContext> dataFileContextMap = new ConcurrentHashMap<>();
+            final Map<String, Exception> failedFileMap = this.importConcurrently(filePaths, dataFileContextMap);
             this.afterAllImport(dataFileContextMap);
 
             final ImportContext result = new ImportContext(dataFileContextMap);
-            result.setMessageForSuccess(dataFileContextMap.size() + " file(s) imported");
+            result.setMetrics(mergeMetrics(dataFileContextMap));
+            result.setFailedFileMap(failedFileMap);
+            if (failedFileMap.isEmpty()) {
+                result.setMessageForSuccess(dataFileContextMap.size() + " file(s) imported");
+            } else {
+                result.setMessageForFailure(dataFileContextMap.size() + " file(s) imported, " +
+                        failedFileMap.size() + " file(s) failed");
+            }
             return result;
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Fail to import", ex);
             final ImportContext result = new ImportContext(null);
             result.setMessageForFailure(ex.getMessage());
             return result;
+        } finally {
+            for (int i = 0; i < listenersBegun; i += 1) {
+                try {
+                    listeners.get(i).afterRun();
+                } catch (RuntimeException ex) {
+                    logger.log(Level.WARNING, "Fail to end the run of " + listeners.get(i), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Import the files concurrently, at most {@code parallelism} files at the same time if it is set.
+     * A file that fails does not stop the others.
+     *
+     * @param filePaths           the paths of the data files
+     * @param dataFileContextMap  where the DataFileContexts of the imported files are put into
+     * @return  the Exceptions of the files that fail, key is the path of the data file
+     * @throws InterruptedException  if the current thread is interrupted while waiting
+     */
+    private Map<String, Exception> importConcurrently(final List<String> filePaths,
+            final Map<String, DataFileContext> dataFileContextMap) throws InterruptedException {
+        final ExecutorService executor = null == this.executorService ?
+                Executors.newFixedThreadPool(Math.max(1, Math.min(this.parallelism, filePaths.size()))) :
+                this.executorService;
+        final Semaphore permits = this.parallelism > 0 ? new Semaphore(this.parallelism) : null;
+        final Map<String, Future<DataFileContext>> futures = new LinkedHashMap<>();
+        try {
+            for (final String filePath : filePaths) {
+                if (null != permits) {
+                    permits.acquire();
+                }
+                try {
+                    futures.put(filePath, executor.submit(new Callable<DataFileContext>() {
+                        @Override
+                        public DataFileContext call() throws Exception {
+                            try {
+                                return importOneFile(filePath);
+                            } finally {
+                                if (null != permits) {
+                                    permits.release();
+                                }
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException ex) {
+                    if (null != permits) {
+                        permits.release();
+                    }
+                    throw ex;
+                }
+            }
+
+            final Map<String, Exception> failedFileMap = new LinkedHashMap<>();
+            for (final Map.Entry<String, Future<DataFileContext>> entry : futures.entrySet()) {
+                try {
+                    dataFileContextMap.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    logger.log(Level.SEVERE, "Fail to import " + entry.getKey(), cause);
+                    failedFileMap.put(entry.getKey(), cause instanceof Exception ? (Exception) cause : ex);
+                }
+            }
+            return failedFileMap;
+        } catch (InterruptedException | RuntimeException ex) {
+            for (final Future<DataFileContext> future : futures.values()) {
+                future.cancel(true);
+            }
+            throw ex;
+        } finally {
+            if (executor != this.executorService) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static ImportMetrics mergeMetrics(final Map<String, DataFileContext> dataFileContextMap) {
+        final ImportMetrics metrics = new ImportMetrics();
+        for (final DataFileContext dataFileContext : dataFileContextMap.values()) {
+            metrics.merge(dataFileContext.getMetrics());
         }
+        return metrics;
     }
 
     public AbstractDataFileReader<R> getDataFileReader() {
@@ -121,6 +258,59 @@ public class DefaultDataFileImporterBase<R> implements Callable<ImportContext> {
         this.fileNamePattern = fileNamePattern;
     }
 
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * <p>Import the files concurrently on {@code executorService}, as many files at the same time as it runs
+     *    tasks, or at most {@code parallelism} files if {@code parallelism} is set. For example, on Java 21 or
+     *    later, {@code Executors.newVirtualThreadPerTaskExecutor()} imports every file on its own virtual thread.
+     *    </p>
+     *
+     * <p>In the concurrent mode, a file that fails does not stop the others: the DataFileContexts of the files
+     *    imported are still in the ImportContext, and the failures are in
+     *    {@link ImportContext#getFailedFileMap()}. The DataFileReader and the DataFileProcessors are shared by
+     *    the files, so they must keep the state of every file separately, as the processors in this library do.
+     *    </p>
+     *
+     * @param executorService  the ExecutorService not shut down by this class,
+     *                         or null to create a fixed thread pool if {@code parallelism} is greater than 1
+     */
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism  the maximum number of files imported at the same time; if it is not set, the files are
+     *                     imported one by one without {@code executorService}, and as many at the same time as
+     *                     {@code executorService} runs tasks with it
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be a positive integer");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public List<ImportRunListener> getRunListeners() {
+        return runListeners;
+    }
+
+    /**
+     * @param runListeners  notified when {@link #call()} begins and ends importing the files found in
+     *                      {@code baseDirectory}, e.g. a
+     *                      {@link tech.firas.framework.fileimport.processor.DeduplicateProcessor} of the RUN scope
+     *                      in the processor chain
+     */
+    public void setRunListeners(final List<ImportRunListener> runListeners) {
+        this.runListeners = runListeners;
+    }
+
     protected void beforeAllImport(final List<File> filesToImport) throws Exception {
         logger.finer("Going to import " + filesToImport.size() + " files in " + this.baseDirectory);
     }
@@ -15,41 +15,261 @@
  */
 package tech.firas.framework.fileimport;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.util.ByteCountingIterator;
 import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.CompressionFormat;
+import tech.firas.framework.fileimport.util.CountingInputStream;
+import tech.firas.framework.fileimport.util.ReadAheadInputStream;
 
+/**
+ * <p>Reads a plain text data file line by line.</p>
+ *
+ * <p>A gzip or zip compressed file is detected by its magic bytes and decompressed while it is read,
+ *    on a background thread unless {@code readAheadChunkCount} is 0, see {@link ReadAheadInputStream}.
+ *    An entry of a zip archive is denoted by the path of the archive followed by {@value #ZIP_ENTRY_SEPARATOR}
+ *    and the name of the entry, and {@link #listDataFiles} lists all the entries of an archive.
+ *    An archive with only one entry can be read by the path of the archive.</p>
+ *
+ * <p>For reporting the progress, the bytes of a gzip compressed file are counted before decompression,
+ *    and the bytes of an entry of a zip archive are counted after decompression.</p>
+ */
 public class DefaultPlainTextDataFileReader extends PlainTextDataFileReader {
 
     private static final Logger logger = Logger.getLogger(DefaultPlainTextDataFileReader.class.getName());
 
+    public static final String ZIP_ENTRY_SEPARATOR = "!/";
+
     private DataFileProcessor dataFileProcessor;
 
+    /**
+     * The number of bytes of a chunk decompressed ahead, default is 64 KB
+     */
+    private int readAheadChunkSize = 64 * 1024;
+
+    /**
+     * The maximum number of chunks decompressed ahead, 0 to decompress on the thread that reads the file
+     */
+    private int readAheadChunkCount = 16;
+
+    @Override
+    public List<String> listDataFiles(final String filePath) throws IOException {
+        if (CompressionFormat.ZIP != CompressionFormat.detect(Paths.get(filePath))) {
+            return Collections.singletonList(filePath);
+        }
+
+        final List<String> result = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(filePath)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    result.add(filePath + ZIP_ENTRY_SEPARATOR + entry.getName());
+                }
+            }
+        }
+        logger.finer(filePath + " contains " + result.size() + " entries");
+        return result;
+    }
+
     @Override
     protected CloseableIterator<String> getRowIterator(
             final String filePath, final Object parameters) throws IOException {
         logger.finer("Going to open " + filePath);
-        final Scanner scanner = (null == this.charset) ?
-                new Scanner(Paths.get(filePath)) :
-                new Scanner(Paths.get(filePath), this.charset);
-        return new MyIterator(filePath, scanner);
+        final AtomicLong bytesRead = new AtomicLong();
+        final InputStream inputStream = this.openInputStream(filePath, bytesRead);
+        try {
+            final Scanner scanner = (null == this.charset) ?
+                    new Scanner(inputStream) :
+                    new Scanner(inputStream, this.charset);
+            return new MyIterator(filePath, scanner, bytesRead);
+        } catch (RuntimeException ex) {
+            inputStream.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @param filePath   the path of the data file, or the path of an entry of a zip archive
+     * @param bytesRead  where the number of the bytes read from the file (or the entry) is added to
+     * @return  the InputStream of the decompressed content of the data file
+     * @throws IOException  if the file cannot be opened
+     */
+    protected InputStream openInputStream(final String filePath, final AtomicLong bytesRead) throws IOException {
+        final int separatorIndex = filePath.indexOf(ZIP_ENTRY_SEPARATOR);
+        if (separatorIndex > 0) {
+            final Path archivePath = Paths.get(filePath.substring(0, separatorIndex));
+            if (Files.isRegularFile(archivePath)) {
+                return this.readAhead(openZipEntry(archivePath,
+                        filePath.substring(separatorIndex + ZIP_ENTRY_SEPARATOR.length()), bytesRead), filePath);
+            }
+        }
+
+        final Path path = Paths.get(filePath);
+        switch (CompressionFormat.detect(path)) {
+            case GZIP:
+                final InputStream inputStream = new CountingInputStream(Files.newInputStream(path), bytesRead);
+                try {
+                    return this.readAhead(new GZIPInputStream(inputStream, this.readAheadChunkSize), filePath);
+                } catch (IOException | RuntimeException ex) {
+                    inputStream.close();
+                    throw ex;
+                }
+            case ZIP:
+                return this.readAhead(openZipEntry(path, null, bytesRead), filePath);
+            default:
+                return new CountingInputStream(Files.newInputStream(path), bytesRead);
+        }
+    }
+
+    /**
+     * @return  the size of the entry after decompression for an entry of a zip archive,
+     *          otherwise the length of the file
+     */
+    @Override
+    protected long getFileSize(final String filePath) throws IOException {
+        final int separatorIndex = filePath.indexOf(ZIP_ENTRY_SEPARATOR);
+        if (separatorIndex > 0) {
+            final Path archivePath = Paths.get(filePath.substring(0, separatorIndex));
+            if (Files.isRegularFile(archivePath)) {
+                return entrySize(archivePath, filePath.substring(separatorIndex + ZIP_ENTRY_SEPARATOR.length()));
+            }
+        }
+
+        final Path path = Paths.get(filePath);
+        if (!Files.isRegularFile(path)) {
+            return -1;
+        }
+        return CompressionFormat.ZIP == CompressionFormat.detect(path) ? entrySize(path, null) : Files.size(path);
+    }
+
+    private InputStream readAhead(final InputStream inputStream, final String filePath) {
+        return this.readAheadChunkCount <= 0 ? inputStream :
+                new ReadAheadInputStream(inputStream, this.readAheadChunkSize, this.readAheadChunkCount, filePath);
+    }
+
+    /**
+     * @param entryName  null for the only entry of the archive
+     * @param bytesRead  where the number of the decompressed bytes read from the entry is added to
+     * @return  the InputStream of the entry, which closes the archive when it is closed
+     */
+    private static InputStream openZipEntry(final Path archivePath, final String entryName,
+            final AtomicLong bytesRead) throws IOException {
+        final ZipFile zipFile = new ZipFile(archivePath.toFile());
+        try {
+            final ZipEntry entry = findEntry(zipFile, archivePath, entryName);
+            return new FilterInputStream(new CountingInputStream(zipFile.getInputStream(entry), bytesRead)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException ex) {
+            zipFile.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @param entryName  null for the only entry of the archive
+     * @return  the size of the entry after decompression, -1 if unknown
+     */
+    private static long entrySize(final Path archivePath, final String entryName) throws IOException {
+        try (final ZipFile zipFile = new ZipFile(archivePath.toFile())) {
+            return findEntry(zipFile, archivePath, entryName).getSize();
+        }
+    }
+
+    /**
+     * @param entryName  null for the only entry of the archive
+     */
+    private static ZipEntry findEntry(final ZipFile zipFile, final Path archivePath, final String entryName)
+            throws IOException {
+        if (null != entryName) {
+            final ZipEntry entry = zipFile.getEntry(entryName);
+            if (null == entry || entry.isDirectory()) {
+                throw new IOException(entryName + " is not found in " + archivePath);
+            }
+            return entry;
+        }
+
+        ZipEntry entry = null;
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        int count = 0;
+        while (entries.hasMoreElements()) {
+            final ZipEntry e = entries.nextElement();
+            if (!e.isDirectory()) {
+                entry = e;
+                count += 1;
+            }
+        }
+        if (count != 1) {
+            throw new IllegalArgumentException(archivePath + " contains " + count +
+                    " entries, please read them by the paths from listDataFiles");
+        }
+        return entry;
+    }
+
+    public int getReadAheadChunkSize() {
+        return readAheadChunkSize;
+    }
+
+    public void setReadAheadChunkSize(final int readAheadChunkSize) {
+        if (readAheadChunkSize <= 0) {
+            throw new IllegalArgumentException("readAheadChunkSize must be a positive integer");
+        }
+        this.readAheadChunkSize = readAheadChunkSize;
+    }
+
+    public int getReadAheadChunkCount() {
+        return readAheadChunkCount;
+    }
+
+    /**
+     * @param readAheadChunkCount  the maximum number of chunks decompressed ahead on a background thread,
+     *                             0 to decompress on the thread that reads the file
+     */
+    public void setReadAheadChunkCount(final int readAheadChunkCount) {
+        if (readAheadChunkCount < 0) {
+            throw new IllegalArgumentException("readAheadChunkCount must not be negative");
+        }
+        this.readAheadChunkCount = readAheadChunkCount;
     }
 
-    private static class MyIterator implements CloseableIterator<String> {
+    private static class MyIterator implements ByteCountingIterator<String> {
 
         private final String filePath;
         private final Scanner scanner;
+        private final AtomicLong bytesRead;
 
         private boolean scannerClosed = false;
 
-        private MyIterator(final String filePath, final Scanner scanner) {
+        private MyIterator(final String filePath, final Scanner scanner, final AtomicLong bytesRead) {
             this.filePath = filePath;
             this.scanner = scanner;
+            this.bytesRead = bytesRead;
             logger.finer(filePath + " opened");
         }
 
@@ -60,7 +280,12 @@ public class DefaultPlainTextDataFileReader extends PlainTextDataFileReader {
             }
 
             if (!this.scanner.hasNextLine()) {
+                // Scanner swallows the IOException, e.g. of a corrupted compressed file
+                final IOException ex = this.scanner.ioException();
                 this.close();
+                if (null != ex) {
+                    throw new IllegalStateException("Fail to read " + this.filePath, ex);
+                }
                 return false;
             } else {
                 return true;
@@ -75,6 +300,11 @@ public class DefaultPlainTextDataFileReader extends PlainTextDataFileReader {
             return this.scanner.nextLine();
         }
 
+        @Override
+        public long getBytesRead() {
+            return this.bytesRead.get();
+        }
+
         @Override
         public void remove() {
             throw new UnsupportedOperationException();
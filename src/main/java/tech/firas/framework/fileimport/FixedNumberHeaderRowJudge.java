@@ -43,7 +43,7 @@ public class FixedNumberHeaderRowJudge<T> implements DataRowJudge<T> {
     }
 
     @Override
-    public RowType test(final int rowNumber, final T row, final RowType previousRowType) {
+    public RowType test(final long rowNumber, final T row, final RowType previousRowType) {
         return rowNumber <= numberOfHeaderRows ? RowType.HEADER : RowType.DATA;
     }
 }
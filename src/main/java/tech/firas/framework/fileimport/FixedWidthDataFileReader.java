@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.util.ByteColumnList;
+import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.MappedFileScanner;
+import tech.firas.framework.fileimport.util.MappedLineScanner;
+import tech.firas.framework.fileimport.util.PositionAwareIterator;
+
+/**
+ * <p>Reads a data file of fixed-width records, one record per line, and slices every record into fields
+ *    according to {@code fields}, so the rows can be passed to processors like
+ *    {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor}
+ *    or {@link tech.firas.framework.fileimport.processor.StringListToJavaBeanProcessor}.</p>
+ *
+ * <p>The file is mapped into memory like {@link MappedPlainTextDataFileReader}, and no String is created for a
+ *    whole line. If {@code byteOffsets} is false (by default), the offsets and the lengths of the fields are
+ *    counted in characters, and the fields are sliced from the decoded characters of the line. Otherwise they are
+ *    counted in bytes, which is how the layouts of multi-byte charsets like GBK are usually defined, and the
+ *    fields are sliced from the bytes of the line and decoded only when they are got from the row.</p>
+ */
+public class FixedWidthDataFileReader extends AbstractDataFileReader<List<String>> {
+
+    private static final Logger logger = Logger.getLogger(FixedWidthDataFileReader.class.getName());
+
+    private String charset;
+
+    private List<FixedWidthField> fields;
+
+    private boolean byteOffsets = false;
+
+    /**
+     * How many bytes of the file are mapped into memory at one time
+     */
+    private int windowSize = MappedFileScanner.DEFAULT_WINDOW_SIZE;
+
+    @Override
+    protected CloseableIterator<List<String>> getRowIterator(
+            final String filePath, final Object parameters) throws IOException {
+        return getRowIterator(filePath, parameters, 0);
+    }
+
+    @Override
+    protected CloseableIterator<List<String>> getRowIterator(
+            final String filePath, final Object parameters, final long position) throws IOException {
+        if (null == this.fields || this.fields.isEmpty()) {
+            throw new IllegalStateException("fields not set");
+        }
+
+        logger.finer("Going to map " + filePath + " from " + position);
+        final Charset cs = MappedFileScanner.checkCharset(
+                null == this.charset ? Charset.defaultCharset() : Charset.forName(this.charset));
+        final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new MyIterator(filePath, new MappedLineScanner(channel, position, channel.size(),
+                    this.windowSize), cs, this.fields.toArray(new FixedWidthField[this.fields.size()]), this.byteOffsets);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * <p>Tell the reader to read the data file with the specific character set</p>
+     *
+     * <p>If `charset` is null, then read with the operating system's default character set</p>
+     *
+     * @param charset  the name of the character set used to read the text data file
+     */
+    public void setCharset(final String charset) {
+        this.charset = charset;
+    }
+
+    public List<FixedWidthField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @param fields  the layout of a record, the fields may overlap and need not be in order
+     */
+    public void setFields(final List<FixedWidthField> fields) {
+        this.fields = fields;
+    }
+
+    public boolean isByteOffsets() {
+        return byteOffsets;
+    }
+
+    /**
+     * @param byteOffsets  true if the offsets and the lengths of the fields are counted in bytes,
+     *                     false if they are counted in characters
+     */
+    public void setByteOffsets(final boolean byteOffsets) {
+        this.byteOffsets = byteOffsets;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(final int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be a positive integer");
+        }
+        this.windowSize = windowSize;
+    }
+
+    private static class MyIterator implements PositionAwareIterator<List<String>> {
+
+        private final String filePath;
+        private final MappedLineScanner scanner;
+        private final Charset charset;
+        private final FixedWidthField[] fields;
+
+        /**
+         * null if the offsets are counted in bytes
+         */
+        private final MappedPlainTextDataFileReader.LineDecoder decoder;
+
+        /**
+         * Whether the scanner has been moved to a line that is not returned by {@link #next()} yet
+         */
+        private boolean lineAvailable = false;
+        private boolean scannerClosed = false;
+        private long position = -1;
+
+        private MyIterator(final String filePath, final MappedLineScanner scanner, final Charset charset,
+                final FixedWidthField[] fields, final boolean byteOffsets) {
+            this.filePath = filePath;
+            this.scanner = scanner;
+            this.charset = charset;
+            this.fields = fields;
+            this.decoder = byteOffsets ? null : new MappedPlainTextDataFileReader.LineDecoder(charset);
+            logger.finer(filePath + " mapped");
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.scannerClosed) {
+                return false;
+            }
+            if (this.lineAvailable) {
+                return true;
+            }
+
+            try {
+                this.lineAvailable = this.scanner.nextLine();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Fail to read " + this.filePath, ex);
+            }
+            if (!this.lineAvailable) {
+                this.close();
+            }
+            return this.lineAvailable;
+        }
+
+        @Override
+        public List<String> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.lineAvailable = false;
+            this.position = this.scanner.getPosition();
+
+            final ByteBuffer lineBuffer = this.scanner.getLineBuffer();
+            if (null == this.decoder) {
+                final byte[] data = new byte[lineBuffer.remaining()];
+                lineBuffer.get(data);
+                final int[] bounds = new int[this.fields.length * 2];
+                for (int i = 0; i < this.fields.length; i += 1) {
+                    this.fields[i].sliceBytes(data, data.length, bounds, i);
+                }
+                return new ByteColumnList(data, bounds, this.charset);
+            }
+
+            final CharBuffer chars;
+            try {
+                chars = this.decoder.decode(lineBuffer);
+            } catch (CharacterCodingException ex) {
+                throw new IllegalStateException("Fail to decode the line at offset " +
+                        this.scanner.getLineOffset() + " of " + this.filePath, ex);
+            }
+            final String[] columns = new String[this.fields.length];
+            for (int i = 0; i < columns.length; i += 1) {
+                // the CharBuffer is allocated by the decoder, so its array begins at position 0
+                columns[i] = this.fields[i].slice(chars.array(), chars.limit());
+            }
+            return Arrays.asList(columns);
+        }
+
+        @Override
+        public long getPosition() {
+            return this.position;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (this.scannerClosed) {
+                return;
+            }
+            this.scannerClosed = true;
+            try {
+                this.scanner.close();
+                logger.finer("Channel for " + this.filePath + " closed");
+            } catch (IOException ex) {
+                logger.warning("Fail to close the channel for " + this.filePath + ": " + ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+/**
+ * <p>A field of a fixed-width record: where it begins in the record, how long it is, and how it is trimmed.</p>
+ *
+ * <p>The offset and the length are counted in characters or in bytes, depending on the reader / processor.
+ *    If a record is shorter than the field, the field is truncated, or empty if the record ends before
+ *    the field begins.</p>
+ */
+public class FixedWidthField {
+
+    public enum Trim {
+        NONE,
+        LEADING,
+        TRAILING,
+        BOTH
+    }
+
+    /**
+     * Count from 0
+     */
+    private int offset;
+    private int length;
+    private Trim trim = Trim.BOTH;
+
+    public FixedWidthField() {}
+
+    public FixedWidthField(final int offset, final int length) {
+        setOffset(offset);
+        setLength(length);
+    }
+
+    public FixedWidthField(final int offset, final int length, final Trim trim) {
+        this(offset, length);
+        setTrim(trim);
+    }
+
+    /**
+     * @param chars  the characters of the record, from 0 to {@code recordLength}
+     * @param recordLength  the number of characters of the record
+     * @return  the trimmed field
+     */
+    public String slice(final char[] chars, final int recordLength) {
+        int start = Math.min(this.offset, recordLength);
+        int end = (int) Math.min((long) this.offset + this.length, recordLength);
+        if (this.trim == Trim.LEADING || this.trim == Trim.BOTH) {
+            while (start < end && chars[start] <= ' ') {
+                start += 1;
+            }
+        }
+        if (this.trim == Trim.TRAILING || this.trim == Trim.BOTH) {
+            while (end > start && chars[end - 1] <= ' ') {
+                end -= 1;
+            }
+        }
+        return start < end ? new String(chars, start, end - start) : "";
+    }
+
+    /**
+     * @param record  the record
+     * @return  the trimmed field
+     */
+    public String slice(final String record) {
+        final int recordLength = record.length();
+        int start = Math.min(this.offset, recordLength);
+        int end = (int) Math.min((long) this.offset + this.length, recordLength);
+        if (this.trim == Trim.LEADING || this.trim == Trim.BOTH) {
+            while (start < end && record.charAt(start) <= ' ') {
+                start += 1;
+            }
+        }
+        if (this.trim == Trim.TRAILING || this.trim == Trim.BOTH) {
+            while (end > start && record.charAt(end - 1) <= ' ') {
+                end -= 1;
+            }
+        }
+        return record.substring(start, end);
+    }
+
+    /**
+     * Finds the bytes of the trimmed field. Only the ASCII white spaces and control characters are trimmed,
+     * which never appear inside a multi-byte character of an ASCII compatible charset like GBK or UTF-8.
+     *
+     * @param bytes         the bytes of the record, from 0 to {@code recordLength}
+     * @param recordLength  the number of bytes of the record
+     * @param bounds        to set the (start, end) indexes of the trimmed field into
+     * @param index         the index of the field, the indexes are set at {@code index * 2} and {@code index * 2 + 1}
+     */
+    public void sliceBytes(final byte[] bytes, final int recordLength, final int[] bounds, final int index) {
+        int start = Math.min(this.offset, recordLength);
+        int end = (int) Math.min((long) this.offset + this.length, recordLength);
+        if (this.trim == Trim.LEADING || this.trim == Trim.BOTH) {
+            while (start < end && bytes[start] >= 0 && bytes[start] <= ' ') {
+                start += 1;
+            }
+        }
+        if (this.trim == Trim.TRAILING || this.trim == Trim.BOTH) {
+            while (end > start && bytes[end - 1] >= 0 && bytes[end - 1] <= ' ') {
+                end -= 1;
+            }
+        }
+        bounds[index * 2] = start;
+        bounds[index * 2 + 1] = end;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(final int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset cannot be negative: " + offset);
+        }
+        this.offset = offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(final int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("length must be a positive integer: " + length);
+        }
+        this.length = length;
+    }
+
+    public Trim getTrim() {
+        return trim;
+    }
+
+    public void setTrim(final Trim trim) {
+        if (null == trim) {
+            throw new IllegalArgumentException("trim must not be null");
+        }
+        this.trim = trim;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedWidthField{" +
+                "offset=" + offset +
+                ", length=" + length +
+                ", trim=" + trim +
+                '}';
+    }
+}
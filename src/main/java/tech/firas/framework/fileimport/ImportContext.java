@@ -1,7 +1,10 @@
 package tech.firas.framework.fileimport;
 
+import java.util.Collections;
 import java.util.Map;
 
+import tech.firas.framework.fileimport.metrics.ImportMetrics;
+
 public class ImportContext {
 
     /**
@@ -9,6 +12,16 @@ public class ImportContext {
      */
     private Map<String, DataFileContext> dataFileContextMap;
 
+    /**
+     * Key is the name / path of the data file failed to import, only when the files are imported concurrently
+     */
+    private Map<String, Exception> failedFileMap = Collections.emptyMap();
+
+    /**
+     * The timings of the stages of the processor chain, of all the imported files
+     */
+    private ImportMetrics metrics = new ImportMetrics();
+
     private boolean successful;
 
     private String message;
@@ -23,6 +36,22 @@ public class ImportContext {
         return dataFileContextMap;
     }
 
+    public Map<String, Exception> getFailedFileMap() {
+        return failedFileMap;
+    }
+
+    public void setFailedFileMap(final Map<String, Exception> failedFileMap) {
+        this.failedFileMap = failedFileMap;
+    }
+
+    public ImportMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(final ImportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public boolean isSuccessful() {
         return successful;
     }
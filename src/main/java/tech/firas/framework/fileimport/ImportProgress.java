@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the progress of reading a data file: how many rows and bytes have been read, how fast,
+ * and when the file will probably be finished
+ */
+public final class ImportProgress {
+
+    private final String filePath;
+
+    /**
+     * The number of rows read, including the rows before the checkpoint that the reading resumed from
+     */
+    private final long rowCount;
+
+    /**
+     * The number of bytes of the file read, including the bytes before the checkpoint, -1 if unknown
+     */
+    private final long bytesRead;
+
+    /**
+     * The size of the file in the same unit as {@code bytesRead}, -1 if unknown
+     */
+    private final long fileSize;
+
+    private final long elapsedNanos;
+
+    /**
+     * The rates since the reading started (or resumed)
+     */
+    private final double rowsPerSecond;
+    private final double bytesPerSecond;
+
+    private final boolean finished;
+
+    public ImportProgress(final String filePath, final long rowCount, final long bytesRead, final long fileSize,
+            final long elapsedNanos, final double rowsPerSecond, final double bytesPerSecond, final boolean finished) {
+        this.filePath = filePath;
+        this.rowCount = rowCount;
+        this.bytesRead = bytesRead;
+        this.fileSize = fileSize;
+        this.elapsedNanos = elapsedNanos;
+        this.rowsPerSecond = rowsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.finished = finished;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return  the fraction of the file read, from 0 to 1, or -1 if unknown
+     */
+    public double getFraction() {
+        if (this.finished) {
+            return 1;
+        }
+        if (this.bytesRead < 0 || this.fileSize <= 0) {
+            return -1;
+        }
+        return Math.min(1, (double) this.bytesRead / this.fileSize);
+    }
+
+    /**
+     * @return  the estimated milliseconds to finish reading the file at the current rate, or -1 if unknown
+     */
+    public long getEtaMillis() {
+        if (this.finished) {
+            return 0;
+        }
+        if (this.bytesRead < 0 || this.fileSize < 0 || this.bytesPerSecond <= 0) {
+            return -1;
+        }
+        return (long) (Math.max(0, this.fileSize - this.bytesRead) / this.bytesPerSecond * 1000);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportProgress{" +
+                "filePath='" + filePath + '\'' +
+                ", rowCount=" + rowCount +
+                ", bytesRead=" + bytesRead +
+                ", fileSize=" + fileSize +
+                ", elapsedMillis=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) +
+                ", rowsPerSecond=" + (long) rowsPerSecond +
+                ", bytesPerSecond=" + (long) bytesPerSecond +
+                ", etaMillis=" + getEtaMillis() +
+                ", finished=" + finished +
+                '}';
+    }
+}
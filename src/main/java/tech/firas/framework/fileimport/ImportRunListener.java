@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+/**
+ * Gets notified when {@link DefaultDataFileImporterBase#call()} begins and ends importing a set of files,
+ * see {@link DefaultDataFileImporterBase#setRunListeners}, e.g. for a processor that keeps some state
+ * across all the files of one run
+ */
+public interface ImportRunListener {
+
+    /**
+     * Called before any file of the run is imported
+     *
+     * @throws Exception  if an error occurs, then no file of the run is imported
+     */
+    void beforeRun() throws Exception;
+
+    /**
+     * Called after all the files of the run are imported or failed, even if the run fails
+     */
+    void afterRun();
+}
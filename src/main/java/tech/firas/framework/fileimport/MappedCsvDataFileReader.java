@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.MappedCsvScanner;
+import tech.firas.framework.fileimport.util.MappedFileScanner;
+import tech.firas.framework.fileimport.util.PositionAwareIterator;
+
+/**
+ * <p>Reads a CSV data file by mapping it into memory and tokenizing the records directly over the bytes,
+ *    so it replaces a plain text data file reader followed by a
+ *    {@link tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor}, and the rows can be passed
+ *    to processors like {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor}
+ *    or {@link tech.firas.framework.fileimport.processor.StringListToJavaBeanProcessor}.</p>
+ *
+ * <p>No String is created for a whole row, and a column is decoded only when it is got from the row,
+ *    see {@link tech.firas.framework.fileimport.util.ByteColumnList}.</p>
+ *
+ * <p>The default format is RFC 4180: separated by ',', quoted by '"' and no escape character.
+ *    A quoted column may contain line terminators. In the character sets like GBK, GB18030 and Big5, the
+ *    separator, the quote character and the escape character must be below 0x40 and not digits, see
+ *    {@link MappedCsvScanner}.</p>
+ */
+public class MappedCsvDataFileReader extends AbstractDataFileReader<List<String>> {
+
+    private static final Logger logger = Logger.getLogger(MappedCsvDataFileReader.class.getName());
+
+    private String charset;
+
+    private char separator = ',';
+
+    private char quoteChar = '"';
+
+    private char escapeChar = MappedCsvScanner.NO_ESCAPE;
+
+    /**
+     * How many bytes of the file are mapped into memory at one time
+     */
+    private int windowSize = MappedFileScanner.DEFAULT_WINDOW_SIZE;
+
+    @Override
+    protected CloseableIterator<List<String>> getRowIterator(
+            final String filePath, final Object parameters) throws IOException {
+        return getRowIterator(filePath, parameters, 0);
+    }
+
+    @Override
+    protected CloseableIterator<List<String>> getRowIterator(
+            final String filePath, final Object parameters, final long position) throws IOException {
+        logger.finer("Going to map " + filePath + " from " + position);
+        final Charset cs = MappedFileScanner.checkCharset(
+                null == this.charset ? Charset.defaultCharset() : Charset.forName(this.charset));
+        final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new MyIterator(filePath, new MappedCsvScanner(channel, position, channel.size(), this.windowSize,
+                    this.separator, this.quoteChar, this.escapeChar, cs), cs);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * <p>Tell the reader to read the data file with the specific character set</p>
+     *
+     * <p>If `charset` is null, then read with the operating system's default character set</p>
+     *
+     * @param charset  the name of the character set used to read the text data file
+     */
+    public void setCharset(final String charset) {
+        this.charset = charset;
+    }
+
+    public char getSeparator() {
+        return separator;
+    }
+
+    public void setSeparator(final char separator) {
+        this.separator = separator;
+    }
+
+    public char getQuoteChar() {
+        return quoteChar;
+    }
+
+    public void setQuoteChar(final char quoteChar) {
+        this.quoteChar = quoteChar;
+    }
+
+    public char getEscapeChar() {
+        return escapeChar;
+    }
+
+    /**
+     * @param escapeChar  the character that makes the next character an ordinary character,
+     *                    {@link MappedCsvScanner#NO_ESCAPE} for no escape character
+     */
+    public void setEscapeChar(final char escapeChar) {
+        this.escapeChar = escapeChar;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(final int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be a positive integer");
+        }
+        this.windowSize = windowSize;
+    }
+
+    private static class MyIterator implements PositionAwareIterator<List<String>> {
+
+        private final String filePath;
+        private final MappedCsvScanner scanner;
+        private final Charset charset;
+
+        /**
+         * Whether the scanner has been moved to a record that is not returned by {@link #next()} yet
+         */
+        private boolean recordAvailable = false;
+        private boolean scannerClosed = false;
+        private long position = -1;
+
+        private MyIterator(final String filePath, final MappedCsvScanner scanner, final Charset charset) {
+            this.filePath = filePath;
+            this.scanner = scanner;
+            this.charset = charset;
+            logger.finer(filePath + " mapped");
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.scannerClosed) {
+                return false;
+            }
+            if (this.recordAvailable) {
+                return true;
+            }
+
+            try {
+                this.recordAvailable = this.scanner.nextCsvRecord();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Fail to read " + this.filePath, ex);
+            }
+            if (!this.recordAvailable) {
+                this.close();
+            }
+            return this.recordAvailable;
+        }
+
+        @Override
+        public List<String> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.recordAvailable = false;
+            this.position = this.scanner.getPosition();
+            return this.scanner.getColumns(this.charset);
+        }
+
+        @Override
+        public long getPosition() {
+            return this.position;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (this.scannerClosed) {
+                return;
+            }
+            this.scannerClosed = true;
+            try {
+                this.scanner.close();
+                logger.finer("Channel for " + this.filePath + " closed");
+            } catch (IOException ex) {
+                logger.warning("Fail to close the channel for " + this.filePath + ": " + ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.MappedFileScanner;
+import tech.firas.framework.fileimport.util.MappedLineScanner;
+import tech.firas.framework.fileimport.util.PositionAwareIterator;
+
+/**
+ * <p>Reads a plain text data file by mapping it into memory with {@link FileChannel#map}. The line terminators
+ *    are searched over the bytes and only the bytes of a line are decoded with {@code charset}, which is
+ *    much faster than {@link DefaultPlainTextDataFileReader} that runs a regular expression for every line.</p>
+ *
+ * <p>Only "\n", "\r\n" and "\r" are recognized as line terminators, and the character set must encode
+ *    '\r' and '\n' as single bytes (e.g. UTF-8, GBK, ISO-8859-1; but not UTF-16).</p>
+ */
+public class MappedPlainTextDataFileReader extends PlainTextDataFileReader {
+
+    private static final Logger logger = Logger.getLogger(MappedPlainTextDataFileReader.class.getName());
+
+    /**
+     * How many bytes of the file are mapped into memory at one time
+     */
+    private int windowSize = MappedFileScanner.DEFAULT_WINDOW_SIZE;
+
+    @Override
+    protected CloseableIterator<String> getRowIterator(
+            final String filePath, final Object parameters) throws IOException {
+        return getRowIterator(filePath, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    protected CloseableIterator<String> getRowIterator(
+            final String filePath, final Object parameters, final long position) throws IOException {
+        return getRowIterator(filePath, position, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets an iterator of the lines in a region of the file
+     *
+     * @param filePath  the path of the data file
+     * @param start     the offset of the beginning of the first line in the region
+     * @param end       the offset after the last line in the region, truncated to the size of the file
+     * @return  an iterator of the lines in the region
+     * @throws IOException  if the file cannot be opened
+     */
+    protected CloseableIterator<String> getRowIterator(final String filePath, final long start, final long end)
+            throws IOException {
+        logger.finer("Going to map " + filePath + " from " + start);
+        final Charset cs = getCharsetToRead();
+        final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new MyIterator(filePath, new MappedLineScanner(channel, start, Math.min(end, channel.size()),
+                    this.windowSize), cs);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return  the Charset named by {@code charset}, or the default Charset if {@code charset} is null
+     * @throws IllegalArgumentException  if the Charset does not encode '\r' and '\n' as single bytes
+     */
+    protected Charset getCharsetToRead() {
+        return MappedFileScanner.checkCharset(
+                null == this.charset ? Charset.defaultCharset() : Charset.forName(this.charset));
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(final int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be a positive integer");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Decodes the lines found by a MappedLineScanner, reusing one CharBuffer for all the lines
+     */
+    static class LineDecoder {
+
+        private final CharsetDecoder decoder;
+        private CharBuffer charBuffer;
+
+        LineDecoder(final Charset charset) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.charBuffer = CharBuffer.allocate(256);
+        }
+
+        /**
+         * @param in  the bytes to decode, from its position to its limit
+         * @return  the decoded characters, valid until the next call of this method
+         */
+        CharBuffer decode(final ByteBuffer in) throws CharacterCodingException {
+            final int maxLength = (int) Math.ceil(in.remaining() * (double) this.decoder.maxCharsPerByte());
+            if (this.charBuffer.capacity() < maxLength) {
+                this.charBuffer = CharBuffer.allocate(Math.max(maxLength, this.charBuffer.capacity() * 2));
+            }
+            final CharBuffer out = this.charBuffer;
+            out.clear();
+            this.decoder.reset();
+            CoderResult result = this.decoder.decode(in, out, true);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+            result = this.decoder.flush(out);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+            out.flip();
+            return out;
+        }
+    }
+
+    private static class MyIterator implements PositionAwareIterator<String> {
+
+        private final String filePath;
+        private final MappedLineScanner scanner;
+        private final LineDecoder decoder;
+
+        /**
+         * Whether the scanner has been moved to a line that is not returned by {@link #next()} yet
+         */
+        private boolean lineAvailable = false;
+        private boolean scannerClosed = false;
+        private long position = -1;
+
+        private MyIterator(final String filePath, final MappedLineScanner scanner, final Charset charset) {
+            this.filePath = filePath;
+            this.scanner = scanner;
+            this.decoder = new LineDecoder(charset);
+            logger.finer(filePath + " mapped");
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.scannerClosed) {
+                return false;
+            }
+            if (this.lineAvailable) {
+                return true;
+            }
+
+            try {
+                this.lineAvailable = this.scanner.nextLine();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Fail to read " + this.filePath, ex);
+            }
+            if (!this.lineAvailable) {
+                this.close();
+            }
+            return this.lineAvailable;
+        }
+
+        @Override
+        public String next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.lineAvailable = false;
+            this.position = this.scanner.getPosition();
+            try {
+                return this.decoder.decode(this.scanner.getLineBuffer()).toString();
+            } catch (CharacterCodingException ex) {
+                throw new IllegalStateException("Fail to decode the line at offset " +
+                        this.scanner.getLineOffset() + " of " + this.filePath, ex);
+            }
+        }
+
+        @Override
+        public long getPosition() {
+            return this.position;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (this.scannerClosed) {
+                return;
+            }
+            this.scannerClosed = true;
+            try {
+                this.scanner.close();
+                logger.finer("Channel for " + this.filePath + " closed");
+            } catch (IOException ex) {
+                logger.warning("Fail to close the channel for " + this.filePath + ": " + ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package tech.firas.framework.fileimport;
+
+import java.util.Arrays;
+
+/**
+ * <p>The state of the processors for one data file, or one range of a data file for
+ *    {@link SplitPlainTextDataFileReader}, see {@link DataFileContext#getSession()}.</p>
+ *
+ * <p>A processor keeps its per-file state in a slot of the session, under a {@link SessionKey} of its own,
+ *    instead of a Map keyed by the file path, so that it does not look up a Map for every row. A slot is usually
+ *    filled by the first row of the file, and is discarded with the DataFileContext after the file is processed.
+ *    Keep a mutable holder in a slot for a counter updated for every row, instead of putting a new boxed value.</p>
+ *
+ * <p>A session holds only a few slots, one or two for each processor of a chain, so they are looked up linearly.
+ *    {@link #get} does not lock, and the slots may be put and removed by different threads, e.g. by the worker
+ *    chains of {@link tech.firas.framework.fileimport.processor.ParallelProcessor}.</p>
+ *
+ * <p>The session of a range belongs to the session of the whole data file, see {@link #getFileSession()}, which
+ *    holds the state shared by the processors of all the ranges, e.g. a reject file. Such a state is kept under a
+ *    key shared by those processors, and must be thread-safe.</p>
+ */
+public final class ProcessingSession {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * The keys and the values, alternately, never modified after assigned, so {@link #get} needs no lock
+     */
+    private volatile Object[] slots = EMPTY;
+
+    /**
+     * The session of the whole data file if this is the session of a range, otherwise null
+     */
+    private final ProcessingSession fileSession;
+
+    public ProcessingSession() {
+        this(null);
+    }
+
+    /**
+     * @param fileSession  the session of the whole data file if this is the session of a range of it,
+     *                     null if this is the session of the whole data file
+     */
+    public ProcessingSession(final ProcessingSession fileSession) {
+        this.fileSession = null == fileSession ? null : fileSession.getFileSession();
+    }
+
+    /**
+     * @return  the session of the whole data file, i.e. this session unless this is the session of a range
+     */
+    public ProcessingSession getFileSession() {
+        return null == this.fileSession ? this : this.fileSession;
+    }
+
+    /**
+     * @param key  the key of the slot
+     * @param <T>  the type of the value in the slot
+     * @return  the value in the slot, or null if the slot is empty
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final SessionKey<T> key) {
+        final Object[] slots = this.slots;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] == key) {
+                return (T) slots[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param key    the key of the slot
+     * @param value  the value to put in the slot, null to empty the slot
+     * @param <T>    the type of the value in the slot
+     * @return  the value in the slot before, or null if the slot was empty
+     */
+    public synchronized <T> T put(final SessionKey<T> key, final T value) {
+        if (null == key) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        if (null == value) {
+            return this.remove(key);
+        }
+
+        final Object[] slots = this.slots;
+        final int index = indexOf(slots, key);
+        final Object[] newSlots;
+        if (index < 0) {
+            newSlots = Arrays.copyOf(slots, slots.length + 2);
+            newSlots[slots.length] = key;
+            newSlots[slots.length + 1] = value;
+        } else {
+            newSlots = slots.clone();
+            newSlots[index + 1] = value;
+        }
+        this.slots = newSlots;
+        return index < 0 ? null : ProcessingSession.<T>valueAt(slots, index);
+    }
+
+    /**
+     * @param key  the key of the slot
+     * @param <T>  the type of the value in the slot
+     * @return  the value in the slot before, or null if the slot was empty
+     */
+    public synchronized <T> T remove(final SessionKey<T> key) {
+        final Object[] slots = this.slots;
+        final int index = indexOf(slots, key);
+        if (index < 0) {
+            return null;
+        }
+
+        final Object[] newSlots = new Object[slots.length - 2];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        System.arraycopy(slots, index + 2, newSlots, index, slots.length - index - 2);
+        this.slots = newSlots;
+        return ProcessingSession.<T>valueAt(slots, index);
+    }
+
+    /**
+     * @return  the number of the slots that are not empty
+     */
+    public int size() {
+        return this.slots.length / 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T valueAt(final Object[] slots, final int index) {
+        return (T) slots[index + 1];
+    }
+
+    private static int indexOf(final Object[] slots, final SessionKey<?> key) {
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("ProcessingSession{");
+        final Object[] slots = this.slots;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(((SessionKey<?>) slots[i]).getName());
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+/**
+ * Gets the progress of reading a data file, see {@link AbstractDataFileReader#setProgressListener}
+ */
+public interface ProgressListener {
+
+    /**
+     * Called on the thread that reads the data file, so it should return quickly.
+     * For {@link SplitPlainTextDataFileReader}, it may be called by the threads of different ranges of the file,
+     * but not at the same time.
+     *
+     * @param progress  the progress of a data file, the last one of the file is {@link ImportProgress#isFinished()}
+     */
+    void onProgress(ImportProgress progress);
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * <p>Accumulates the rows and the bytes read from a data file, and reports an {@link ImportProgress} to a
+ *    {@link ProgressListener} at most once every {@code intervalMillis}, and once more when the file is finished.
+ *    </p>
+ *
+ * <p>Thread safe, so the ranges of a file read concurrently can share one ProgressTracker.</p>
+ */
+public final class ProgressTracker {
+
+    private static final Logger logger = Logger.getLogger(ProgressTracker.class.getName());
+
+    private final ProgressListener listener;
+    private final String filePath;
+    private final long fileSize;
+    private final long intervalNanos;
+
+    private final long startNanos = System.nanoTime();
+    private final long startRowCount;
+    private final long startBytes;
+
+    private final AtomicLong rowCount;
+    private final AtomicLong bytesRead;
+
+    /**
+     * Whether any number of bytes has been added, i.e. the reader knows how many bytes it has read
+     */
+    private volatile boolean bytesKnown = false;
+
+    private final AtomicLong nextReportNanos;
+
+    /**
+     * @param listener        where the progress is reported to
+     * @param filePath        the path of the data file
+     * @param fileSize        the size of the data file in bytes, -1 if unknown
+     * @param intervalMillis  the minimum interval between 2 reports
+     * @param startRowCount   the number of rows before the row that the reading starts from, e.g. of a checkpoint
+     * @param startBytes      the number of bytes before the position that the reading starts from
+     */
+    public ProgressTracker(final ProgressListener listener, final String filePath, final long fileSize,
+            final long intervalMillis, final long startRowCount, final long startBytes) {
+        if (null == listener) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.listener = listener;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.startRowCount = startRowCount;
+        this.startBytes = startBytes;
+        this.rowCount = new AtomicLong(startRowCount);
+        this.bytesRead = new AtomicLong(startBytes);
+        this.nextReportNanos = new AtomicLong(this.startNanos + this.intervalNanos);
+    }
+
+    /**
+     * Adds the rows and the bytes read since the last call, and reports the progress if the interval has elapsed
+     *
+     * @param rows   the number of rows read since the last call
+     * @param bytes  the number of bytes read since the last call, negative if unknown
+     */
+    public void advance(final long rows, final long bytes) {
+        this.rowCount.addAndGet(rows);
+        if (bytes >= 0) {
+            this.bytesRead.addAndGet(bytes);
+            this.bytesKnown = true;
+        }
+
+        final long now = System.nanoTime();
+        final long next = this.nextReportNanos.get();
+        if (now - next >= 0 && this.nextReportNanos.compareAndSet(next, now + this.intervalNanos)) {
+            this.report(now, false);
+        }
+    }
+
+    /**
+     * Reports the final progress of the file
+     */
+    public void finish() {
+        this.report(System.nanoTime(), true);
+    }
+
+    private synchronized void report(final long now, final boolean finished) {
+        final long elapsedNanos = now - this.startNanos;
+        final double seconds = elapsedNanos / 1e9;
+        final long rows = this.rowCount.get();
+        final long bytes = this.bytesKnown ? this.bytesRead.get() : -1;
+        final ImportProgress progress = new ImportProgress(this.filePath, rows, bytes, this.fileSize, elapsedNanos,
+                seconds > 0 ? (rows - this.startRowCount) / seconds : 0,
+                seconds > 0 && bytes >= 0 ? (bytes - this.startBytes) / seconds : 0,
+                finished);
+        try {
+            this.listener.onProgress(progress);
+        } catch (RuntimeException ex) {
+            // a failing listener should not fail the import
+            logger.warning("ProgressListener fails for " + this.filePath + ": " + ex);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package tech.firas.framework.fileimport;
+
+/**
+ * <p>The key of a slot in a {@link ProcessingSession}.</p>
+ *
+ * <p>Keys are compared by identity, so a processor should create its own keys, usually as final instance fields,
+ *    then two instances of the same processor class in one chain do not share a slot.</p>
+ *
+ * @param <T>  the type of the value in the slot
+ */
+public final class SessionKey<T> {
+
+    private final String name;
+
+    /**
+     * @param name  the name of the slot, for debugging only
+     */
+    public SessionKey(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionKey{" + name + '}';
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessorFactory;
+import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.MappedLineScanner;
+
+/**
+ * <p>Reads a large plain text data file in parallel. The file is split into byte ranges aligned to the
+ *    beginning of lines, and every range is processed on a worker thread by its own chain of
+ *    DataFileProcessors created by {@code dataFileProcessorFactory}, so the processors need not be thread-safe.
+ *    {@code dataFileProcessor} is not used by this reader.</p>
+ *
+ * <p>The lines of every range are counted in parallel before processing, so every row is passed with its
+ *    global row number, and the counts of the chains (the header / data / footer rows, the accepted / rejected /
+ *    duplicate rows and the stalls of reading ahead) and their metrics are summed up into the returned
+ *    DataFileContext. Every chain gets its own DataFileContext for
+ *    {@link DataFileProcessor#afterProcessFile}, with the counts of its range only, whose session belongs to the
+ *    session of the returned DataFileContext, see {@link ProcessingSession#getFileSession()}.</p>
+ *
+ * <p>A {@link DataRowJudge} gets the global row number of every row, so header rows at the start and footer rows
+ *    at the end can be judged by row number or by content. But the first row of every range gets null as the type
+ *    of the previous row, like the first row of the file.</p>
+ *
+ * <p>The ranges are processed independently, so if a range fails, the rows of the other ranges may have been
+ *    processed (e.g. committed into DB). The rejected rows of all the ranges count against a count error budget
+ *    of the whole file, but a percentage error budget is checked for every range, see
+ *    {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor#setErrorBudget}.</p>
+ */
+public class SplitPlainTextDataFileReader extends MappedPlainTextDataFileReader {
+
+    private static final Logger logger = Logger.getLogger(SplitPlainTextDataFileReader.class.getName());
+
+    private DataFileProcessorFactory<String> dataFileProcessorFactory;
+
+    /**
+     * For running the ranges, if null, a fixed thread pool of {@code splitCount} threads is created for every file
+     */
+    private ExecutorService executorService;
+
+    /**
+     * The maximum number of ranges a file is split into, default is the number of available processors
+     */
+    private int splitCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The minimum number of bytes of a range, default is 16 MB
+     */
+    private long minSplitSize = 16L * 1024 * 1024;
+
+    @Override
+    public DataFileContext readDataFile(final String filePath, final Object parameters) throws Exception {
+        if (null == this.dataFileProcessorFactory) {
+            throw new IllegalStateException("dataFileProcessorFactory not set");
+        }
+
+        final long[] boundaries = split(filePath);
+        final int rangeCount = boundaries.length - 1;
+        logger.finer(filePath + " is split into " + rangeCount + " range(s)");
+
+        final ExecutorService executor = null == this.executorService ?
+                Executors.newFixedThreadPool(Math.max(1, Math.min(rangeCount, this.splitCount))) :
+                this.executorService;
+        try {
+            final List<Callable<Long>> countTasks = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount; i += 1) {
+                countTasks.add(new CountTask(filePath, boundaries[i], boundaries[i + 1]));
+            }
+            final List<Long> lineCounts = waitForAll(submitAll(executor, countTasks));
+
+            // shared by the ranges
+            final ProgressTracker progressTracker = null == this.getProgressListener() ? null :
+                    new ProgressTracker(this.getProgressListener(), filePath, this.getFileSize(filePath),
+                            this.getProgressIntervalMillis(), 0, 0);
+
+            // the sessions of the ranges belong to the session of the whole file
+            final DataFileContext dataFileContext = new DataFileContext(filePath);
+            final List<Callable<DataFileContext>> rangeTasks = new ArrayList<>(rangeCount);
+            long firstRowNumber = 1;
+            for (int i = 0; i < rangeCount; i += 1) {
+                rangeTasks.add(new RangeTask(filePath, boundaries[i], boundaries[i + 1], firstRowNumber,
+                        progressTracker, dataFileContext.getSession()));
+                firstRowNumber += lineCounts.get(i);
+            }
+
+            for (final DataFileContext rangeContext : waitForAll(submitAll(executor, rangeTasks))) {
+                merge(dataFileContext, rangeContext);
+            }
+            logger.finer("Processed " + dataFileContext.getDataRowCount() + " row(s) of data in " + filePath +
+                    ", header row count: " + dataFileContext.getHeaderRowCount() +
+                    ", footer row count: " + dataFileContext.getFooterRowCount());
+            if (null != progressTracker) {
+                progressTracker.finish();
+            }
+            return dataFileContext;
+        } finally {
+            if (executor != this.executorService) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Adds the counts and the metrics of a range into the DataFileContext of the whole file
+     */
+    private static void merge(final DataFileContext dataFileContext, final DataFileContext rangeContext) {
+        dataFileContext.setHeaderRowCount(dataFileContext.getHeaderRowCount() + rangeContext.getHeaderRowCount());
+        dataFileContext.setDataRowCount(dataFileContext.getDataRowCount() + rangeContext.getDataRowCount());
+        dataFileContext.setFooterRowCount(dataFileContext.getFooterRowCount() + rangeContext.getFooterRowCount());
+        dataFileContext.setAcceptedRowCount(dataFileContext.getAcceptedRowCount() +
+                rangeContext.getAcceptedRowCount());
+        dataFileContext.setRejectedRowCount(dataFileContext.getRejectedRowCount() +
+                rangeContext.getRejectedRowCount());
+        dataFileContext.setDuplicateRowCount(dataFileContext.getDuplicateRowCount() +
+                rangeContext.getDuplicateRowCount());
+        dataFileContext.setReaderStallCount(dataFileContext.getReaderStallCount() +
+                rangeContext.getReaderStallCount());
+        dataFileContext.setReaderStallNanos(dataFileContext.getReaderStallNanos() +
+                rangeContext.getReaderStallNanos());
+        dataFileContext.setProcessorStallCount(dataFileContext.getProcessorStallCount() +
+                rangeContext.getProcessorStallCount());
+        dataFileContext.setProcessorStallNanos(dataFileContext.getProcessorStallNanos() +
+                rangeContext.getProcessorStallNanos());
+        dataFileContext.getMetrics().merge(rangeContext.getMetrics());
+    }
+
+    /**
+     * Splits the file into ranges, every range begins at the beginning of a line
+     *
+     * @param filePath  the path of the data file
+     * @return  the offsets of the boundaries of the ranges, beginning with 0 and ending with the size of the file
+     * @throws IOException  if the file cannot be read
+     */
+    protected long[] split(final String filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int count = (int) Math.max(1, Math.min(this.splitCount, size / this.minSplitSize));
+            final List<Long> boundaries = new ArrayList<>(count + 1);
+            boundaries.add(0L);
+            final ByteBuffer buffer = ByteBuffer.allocate(8192);
+            for (int i = 1; i < count; i += 1) {
+                final long boundary = findLineStart(channel, buffer, Math.max(size / count * i,
+                        boundaries.get(boundaries.size() - 1)), size);
+                if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+                    boundaries.add(boundary);
+                }
+            }
+            boundaries.add(size);
+
+            final long[] result = new long[boundaries.size()];
+            for (int i = 0; i < result.length; i += 1) {
+                result[i] = boundaries.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return  the offset of the beginning of the first line that begins at or after {@code offset}
+     */
+    private static long findLineStart(final FileChannel channel, final ByteBuffer buffer, final long offset,
+            final long size) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+        long position = offset - 1; // the previous byte may be a line terminator
+        boolean afterCarriageReturn = false;
+        while (position < size) {
+            buffer.clear();
+            final int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i += 1) {
+                final byte b = buffer.get(i);
+                if (afterCarriageReturn) {
+                    return b == '\n' ? position + i + 1 : position + i;
+                }
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                afterCarriageReturn = b == '\r';
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    private static <T> List<Future<T>> submitAll(final ExecutorService executor, final List<Callable<T>> tasks) {
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for all the tasks, and cancels the others if any one fails
+     */
+    private static <T> List<T> waitForAll(final List<Future<T>> futures) throws Exception {
+        final List<T> result = new ArrayList<>(futures.size());
+        try {
+            for (final Future<T> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (ExecutionException ex) {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ex;
+        } catch (InterruptedException ex) {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+            throw ex;
+        }
+    }
+
+    public DataFileProcessorFactory<String> getDataFileProcessorFactory() {
+        return dataFileProcessorFactory;
+    }
+
+    public void setDataFileProcessorFactory(final DataFileProcessorFactory<String> dataFileProcessorFactory) {
+        this.dataFileProcessorFactory = dataFileProcessorFactory;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getSplitCount() {
+        return splitCount;
+    }
+
+    public void setSplitCount(final int splitCount) {
+        if (splitCount < 1) {
+            throw new IllegalArgumentException("splitCount must be a positive integer");
+        }
+        this.splitCount = splitCount;
+    }
+
+    public long getMinSplitSize() {
+        return minSplitSize;
+    }
+
+    public void setMinSplitSize(final long minSplitSize) {
+        if (minSplitSize < 1) {
+            throw new IllegalArgumentException("minSplitSize must be a positive integer");
+        }
+        this.minSplitSize = minSplitSize;
+    }
+
+    private class CountTask implements Callable<Long> {
+
+        private final String filePath;
+        private final long start;
+        private final long end;
+
+        private CountTask(final String filePath, final long start, final long end) {
+            this.filePath = filePath;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Long call() throws IOException {
+            try (final MappedLineScanner scanner = new MappedLineScanner(
+                    FileChannel.open(Paths.get(this.filePath), StandardOpenOption.READ),
+                    this.start, this.end, getWindowSize())) {
+                long count = 0;
+                while (scanner.nextLine()) {
+                    count += 1;
+                }
+                return count;
+            }
+        }
+    }
+
+    private class RangeTask implements Callable<DataFileContext> {
+
+        private final String filePath;
+        private final long start;
+        private final long end;
+        private final long firstRowNumber;
+        private final ProgressTracker progressTracker;
+        private final ProcessingSession fileSession;
+
+        private RangeTask(final String filePath, final long start, final long end, final long firstRowNumber,
+                final ProgressTracker progressTracker, final ProcessingSession fileSession) {
+            this.filePath = filePath;
+            this.start = start;
+            this.end = end;
+            this.firstRowNumber = firstRowNumber;
+            this.progressTracker = progressTracker;
+            this.fileSession = fileSession;
+        }
+
+        @Override
+        public DataFileContext call() throws Exception {
+            final DataFileProcessor<String> processor = dataFileProcessorFactory.createDataFileProcessor();
+            try (CloseableIterator<String> iterator = readAhead(
+                    getRowIterator(this.filePath, this.start, this.end), this.filePath)) {
+                final DataFileContext dataFileContext = new DataFileContext(this.filePath, this.fileSession);
+
+                processor.beforeProcessFile(this.filePath);
+                // the ranges are processed concurrently, so the positions are not for checkpoints
+                processRows(processor, iterator, dataFileContext, this.firstRowNumber - 1, false, true,
+                        this.progressTracker, this.start);
+                setStallCounts(iterator, dataFileContext);
+                processor.afterProcessFile(dataFileContext);
+                return dataFileContext;
+            }
+        }
+    }
+}
@@ -0,0 +1,595 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Watches {@code baseDirectory} with a {@link WatchService}, and imports every file whose name matches
+ *    {@code fileNamePattern} once it is fully written, until {@link #stop()} or {@link #close()} is called.
+ *    {@link #call()} still imports the files in {@code baseDirectory} once.</p>
+ *
+ * <p>A file is fully written when its size and its last modified time have not changed for
+ *    {@code stabilityMillis}, or, if {@code markerSuffix} is set, when a marker file of the same name with
+ *    {@code markerSuffix} appended (e.g. "data.csv.done") is created, which should be created by the producer
+ *    after the data file is closed.</p>
+ *
+ * <p>The files that are fully written are put into a queue of {@code queueCapacity}, and imported by
+ *    {@code parallelism} workers (1 if it is not set), on {@code executorService} if it is set. If the queue is
+ *    full, the watcher waits, and the file events it misses are recovered by rescanning {@code baseDirectory}.
+ *    A file is imported again only if its size or its last modified time changes; moving the imported files
+ *    away, e.g. in {@link #afterImportFile}, keeps the directory small.</p>
+ *
+ * @param <R>  the type of a row (String for a plain text data file, or Row for an Excel file, ...)
+ */
+public class WatchingDataFileImporter<R> extends DefaultDataFileImporterBase<R> implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(WatchingDataFileImporter.class.getName());
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    /**
+     * How long the size and the last modified time of a file must not change before it is imported, default is 1s
+     */
+    private long stabilityMillis = 1000;
+
+    /**
+     * If not null, a file is imported when its marker file is created, regardless of {@code stabilityMillis}
+     */
+    private String markerSuffix;
+
+    /**
+     * The maximum number of the files waiting to be imported, default is 1024
+     */
+    private int queueCapacity = 1024;
+
+    /**
+     * How often the watcher checks the files being written and whether it is stopped, default is 200ms
+     */
+    private long pollIntervalMillis = 200;
+
+    /**
+     * Whether the files already in {@code baseDirectory} when started are imported, default is true
+     */
+    private boolean importExistingFiles = true;
+
+    /**
+     * How long {@link #close()} waits for the queued files to be imported, default is 30s
+     */
+    private long shutdownTimeoutMillis = 30000;
+
+    private final AtomicLong importedFileCount = new AtomicLong();
+    private final AtomicLong failedFileCount = new AtomicLong();
+
+    private volatile boolean running = false;
+
+    /**
+     * False after the watcher stops, then the workers stop after the queue is empty
+     */
+    private volatile boolean watching = false;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private BlockingQueue<String> queue;
+    private ExecutorService workerExecutor;
+    private List<Future<?>> workerFutures;
+    private CountDownLatch workersDone;
+
+    /**
+     * Start watching {@code baseDirectory} and importing the files in the background
+     *
+     * @throws IOException  if {@code baseDirectory} cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (null != this.watcherThread) {
+            throw new IllegalStateException("Already started");
+        }
+        if (null == this.getDataFileReader()) {
+            throw new IllegalStateException("dataFileReader is null");
+        }
+        if (null == this.getFileNamePattern()) {
+            throw new IllegalStateException("fileNamePattern is null");
+        }
+        if (null == this.getBaseDirectory()) {
+            throw new IllegalStateException("baseDirectory is null");
+        }
+        final Path directory = Paths.get(this.getBaseDirectory());
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalStateException(this.getBaseDirectory() + " is not a directory");
+        }
+        final Pattern pattern = Pattern.compile(this.getFileNamePattern());
+
+        this.watchService = directory.getFileSystem().newWatchService();
+        try {
+            directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | RuntimeException ex) {
+            this.watchService.close();
+            this.watchService = null;
+            throw ex;
+        }
+
+        final int workerCount = Math.max(1, this.getParallelism());
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.workersDone = new CountDownLatch(workerCount);
+        this.workerExecutor = null == this.getExecutorService() ?
+                Executors.newFixedThreadPool(workerCount, new DaemonThreadFactory()) : this.getExecutorService();
+        this.running = true;
+        this.watching = true;
+
+        this.workerFutures = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i += 1) {
+            this.workerFutures.add(this.workerExecutor.submit(new Worker()));
+        }
+        this.watcherThread = new Thread(new Watcher(directory, pattern),
+                "file-import-watcher-" + threadNumber.incrementAndGet());
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+        logger.info("Start watching " + directory);
+    }
+
+    /**
+     * Stop watching {@code baseDirectory}. The files already in the queue are still imported,
+     * see {@link #awaitTermination}.
+     */
+    public void stop() {
+        this.running = false;
+        final WatchService watchService;
+        synchronized (this) {
+            watchService = this.watchService;
+        }
+        if (null != watchService) {
+            try {
+                watchService.close(); // wakes up the watcher
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Fail to close the WatchService of " + this.getBaseDirectory(), ex);
+            }
+        }
+    }
+
+    /**
+     * Wait for the watcher to stop and the queued files to be imported, after {@link #stop()}
+     *
+     * @return  true if all the files in the queue are imported, false if the timeout elapses before
+     * @throws InterruptedException  if the current thread is interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final Thread watcherThread;
+        final CountDownLatch workersDone;
+        synchronized (this) {
+            watcherThread = this.watcherThread;
+            workersDone = this.workersDone;
+        }
+        if (null == watcherThread) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        TimeUnit.NANOSECONDS.timedJoin(watcherThread, Math.max(1, deadline - System.nanoTime()));
+        return !watcherThread.isAlive() && workersDone.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop watching, wait at most {@code shutdownTimeoutMillis} for the queued files to be imported,
+     * and then interrupt the workers that are still importing
+     */
+    @Override
+    public void close() {
+        this.stop();
+        try {
+            if (!this.awaitTermination(this.shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warning("The files in " + this.getBaseDirectory() + " are not imported in " +
+                        this.shutdownTimeoutMillis + "ms, interrupt the workers");
+                this.cancelWorkers();
+            }
+        } catch (InterruptedException ex) {
+            this.cancelWorkers();
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                if (null != this.workerExecutor && this.workerExecutor != this.getExecutorService()) {
+                    this.workerExecutor.shutdown();
+                }
+                this.watcherThread = null;
+                this.watchService = null;
+            }
+        }
+        logger.info("Stop watching " + this.getBaseDirectory());
+    }
+
+    private synchronized void cancelWorkers() {
+        if (null != this.workerFutures) {
+            for (final Future<?> future : this.workerFutures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return  the number of the data files imported since this importer was created
+     */
+    public long getImportedFileCount() {
+        return importedFileCount.get();
+    }
+
+    /**
+     * @return  the number of the data files failed to import since this importer was created
+     */
+    public long getFailedFileCount() {
+        return failedFileCount.get();
+    }
+
+    /**
+     * Called by a worker after a data file is imported
+     */
+    protected void afterImportFile(final String filePath, final DataFileContext dataFileContext) throws Exception {
+        logger.finer(filePath + " imported");
+    }
+
+    /**
+     * Called by a worker after a data file fails to import
+     */
+    protected void onImportFailure(final String filePath, final Exception exception) {
+        logger.log(Level.SEVERE, "Fail to import " + filePath, exception);
+    }
+
+    public long getStabilityMillis() {
+        return stabilityMillis;
+    }
+
+    public void setStabilityMillis(final long stabilityMillis) {
+        if (stabilityMillis < 0) {
+            throw new IllegalArgumentException("stabilityMillis must not be negative");
+        }
+        this.stabilityMillis = stabilityMillis;
+    }
+
+    public String getMarkerSuffix() {
+        return markerSuffix;
+    }
+
+    /**
+     * @param markerSuffix  the suffix of the marker files, e.g. ".done", or null (by default) to import a file
+     *                      when its size and its last modified time have not changed for {@code stabilityMillis}
+     */
+    public void setMarkerSuffix(final String markerSuffix) {
+        this.markerSuffix = null == markerSuffix || markerSuffix.isEmpty() ? null : markerSuffix;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(final int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be a positive integer");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public void setPollIntervalMillis(final long pollIntervalMillis) {
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("pollIntervalMillis must be a positive integer");
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public boolean isImportExistingFiles() {
+        return importExistingFiles;
+    }
+
+    public void setImportExistingFiles(final boolean importExistingFiles) {
+        this.importExistingFiles = importExistingFiles;
+    }
+
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+
+    public void setShutdownTimeoutMillis(final long shutdownTimeoutMillis) {
+        if (shutdownTimeoutMillis < 0) {
+            throw new IllegalArgumentException("shutdownTimeoutMillis must not be negative");
+        }
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    /**
+     * The size and the last modified time of a file
+     */
+    private static class FileVersion {
+
+        private final long size;
+        private final long lastModified;
+
+        /**
+         * When the size or the last modified time changed last time, by {@link System#nanoTime()}
+         */
+        private final long changedAt;
+
+        private FileVersion(final File file) {
+            this.size = file.length();
+            this.lastModified = file.lastModified();
+            this.changedAt = System.nanoTime();
+        }
+
+        private boolean sameAs(final FileVersion that) {
+            return null != that && this.size == that.size && this.lastModified == that.lastModified;
+        }
+    }
+
+    /**
+     * Runs on its own thread, the only thread that accesses {@code pendingFiles} and {@code dispatchedFiles}
+     */
+    private class Watcher implements Runnable {
+
+        private final Path directory;
+        private final Pattern pattern;
+
+        /**
+         * The files being written, waiting for their size and last modified time not to change
+         */
+        private final Map<Path, FileVersion> pendingFiles = new HashMap<>();
+
+        /**
+         * The versions of the files put into the queue, so that an unchanged file is not imported again
+         */
+        private final Map<Path, FileVersion> dispatchedFiles = new HashMap<>();
+
+        private Watcher(final Path directory, final Pattern pattern) {
+            this.directory = directory;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (importExistingFiles) {
+                    this.scan();
+                }
+                while (running) {
+                    final WatchKey key = watchService.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (null != key) {
+                        for (final WatchEvent<?> event : key.pollEvents()) {
+                            this.onEvent(event);
+                        }
+                        if (!key.reset()) {
+                            logger.severe(this.directory + " can no longer be watched");
+                            break;
+                        }
+                    }
+                    this.checkPendingFiles();
+                }
+            } catch (ClosedWatchServiceException ex) {
+                logger.finer("WatchService of " + this.directory + " closed");
+            } catch (InterruptedException ex) {
+                logger.warning("Watcher of " + this.directory + " interrupted");
+            } catch (IOException | RuntimeException ex) {
+                logger.log(Level.SEVERE, "Fail to watch " + this.directory, ex);
+            } finally {
+                running = false;
+                watching = false;
+                try {
+                    watchService.close();
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, "Fail to close the WatchService of " + this.directory, ex);
+                }
+            }
+        }
+
+        private void onEvent(final WatchEvent<?> event) throws IOException, InterruptedException {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warning("Some events of " + this.directory + " are lost, rescan it");
+                this.scan();
+                return;
+            }
+
+            final Path path = this.directory.resolve((Path) event.context());
+            final String fileName = path.getFileName().toString();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                this.pendingFiles.remove(path);
+                this.dispatchedFiles.remove(path);
+                return;
+            }
+
+            if (null == markerSuffix) {
+                if (this.pattern.matcher(fileName).find()) {
+                    this.refresh(path);
+                }
+            } else if (fileName.endsWith(markerSuffix)) {
+                final String dataFileName = fileName.substring(0, fileName.length() - markerSuffix.length());
+                if (this.pattern.matcher(dataFileName).find()) {
+                    this.dispatch(path.resolveSibling(dataFileName));
+                }
+            }
+        }
+
+        private void scan() throws IOException, InterruptedException {
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+                for (final Path path : stream) {
+                    final String fileName = path.getFileName().toString();
+                    if (!this.pattern.matcher(fileName).find()) {
+                        continue;
+                    }
+                    if (null == markerSuffix) {
+                        this.refresh(path);
+                    } else if (Files.exists(path.resolveSibling(fileName + markerSuffix))) {
+                        this.dispatch(path);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Start or restart waiting for the file not to change
+         */
+        private void refresh(final Path path) {
+            final File file = path.toFile();
+            if (!file.isFile()) {
+                return;
+            }
+            final FileVersion version = new FileVersion(file);
+            final FileVersion pending = this.pendingFiles.get(path);
+            if (!version.sameAs(pending)) {
+                this.pendingFiles.put(path, version);
+            }
+        }
+
+        private void checkPendingFiles() throws IOException, InterruptedException {
+            final long now = System.nanoTime();
+            final Iterator<Map.Entry<Path, FileVersion>> iterator = this.pendingFiles.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Path, FileVersion> entry = iterator.next();
+                final File file = entry.getKey().toFile();
+                if (!file.isFile()) {
+                    iterator.remove();
+                    continue;
+                }
+                final FileVersion version = new FileVersion(file);
+                if (!version.sameAs(entry.getValue())) {
+                    entry.setValue(version);
+                } else if (now - entry.getValue().changedAt >= TimeUnit.MILLISECONDS.toNanos(stabilityMillis)) {
+                    iterator.remove();
+                    this.dispatch(entry.getKey());
+                }
+            }
+        }
+
+        /**
+         * Put the file into the queue, unless it has been put with the same version
+         */
+        private void dispatch(final Path path) throws IOException, InterruptedException {
+            final File file = path.toFile();
+            if (!file.isFile()) {
+                return;
+            }
+            final FileVersion version = new FileVersion(file);
+            if (version.sameAs(this.dispatchedFiles.get(path))) {
+                logger.finer(path + " has been imported");
+                return;
+            }
+
+            final String filePath = file.getCanonicalPath();
+            while (!queue.offer(filePath, pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    logger.info(filePath + " is not imported because the importer is stopped");
+                    return;
+                }
+                logger.finer("The queue is full, waiting to put " + filePath);
+            }
+            this.dispatchedFiles.put(path, version);
+            logger.finer(filePath + " queued");
+        }
+    }
+
+    /**
+     * Takes the files from the queue and imports them, until the watcher stops and the queue is empty
+     */
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final String filePath = queue.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (null == filePath) {
+                        if (!watching && queue.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    this.importFile(filePath);
+                }
+            } catch (InterruptedException ex) {
+                logger.warning("Worker for " + getBaseDirectory() + " interrupted");
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        private void importFile(final String filePath) {
+            final List<String> dataFilePaths;
+            try {
+                dataFilePaths = getDataFileReader().listDataFiles(filePath);
+            } catch (Exception ex) {
+                failedFileCount.incrementAndGet();
+                onImportFailure(filePath, ex);
+                return;
+            }
+            for (final String dataFilePath : dataFilePaths) {
+                final DataFileContext dataFileContext;
+                try {
+                    dataFileContext = importOneFile(dataFilePath);
+                } catch (Exception ex) {
+                    failedFileCount.incrementAndGet();
+                    onImportFailure(dataFilePath, ex);
+                    continue;
+                }
+                importedFileCount.incrementAndGet();
+                try {
+                    afterImportFile(dataFilePath, dataFileContext);
+                } catch (Exception ex) {
+                    logger.log(Level.SEVERE, "Fail to handle the imported file " + dataFilePath, ex);
+                }
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "file-import-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
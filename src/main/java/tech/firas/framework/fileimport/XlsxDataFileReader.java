@@ -0,0 +1,432 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import tech.firas.framework.fileimport.util.CloseableIterator;
+import tech.firas.framework.fileimport.util.CompactStringTable;
+
+/**
+ * <p>Reads a sheet of an Excel 2007+ (.xlsx) file, streaming the XML of the sheet with StAX, so the memory used
+ *    does not grow with the number of rows. Only the shared strings table is loaded into memory, in a
+ *    {@link CompactStringTable}.</p>
+ *
+ * <p>The sheet to read is chosen by the {@code parameters} of {@link #readDataFile}: the name of the sheet
+ *    (a String), the index of the sheet (an Integer, count from 0), or null for the first sheet.</p>
+ *
+ * <p>Every row is a List of the values of the cells as they are stored in the file, without formatting:
+ *    a number (including a date) is its string in the file, a boolean is "TRUE" or "FALSE", and the cached value
+ *    of a formula is used. A missing cell is an empty string, and a missing row is an empty List, so the row
+ *    number passed to the processors is the row number in Excel. The List of a row ends at its last cell.</p>
+ */
+public class XlsxDataFileReader extends AbstractDataFileReader<List<String>> {
+
+    private static final Logger logger = Logger.getLogger(XlsxDataFileReader.class.getName());
+
+    private static final String WORKBOOK = "xl/workbook.xml";
+    private static final String WORKBOOK_RELATIONSHIPS = "xl/_rels/workbook.xml.rels";
+    private static final String DEFAULT_SHARED_STRINGS = "xl/sharedStrings.xml";
+
+    private final XMLInputFactory xmlInputFactory;
+
+    public XlsxDataFileReader() {
+        this.xmlInputFactory = XMLInputFactory.newInstance();
+        // an XLSX file has no DTD, and must not make the reader read other files
+        this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    protected CloseableIterator<List<String>> getRowIterator(
+            final String filePath, final Object parameters) throws IOException, XMLStreamException {
+        logger.finer("Going to open " + filePath);
+        final ZipFile zipFile = new ZipFile(filePath);
+        try {
+            final Map<String, String> relationships = new HashMap<>();
+            String sharedStringsPath = DEFAULT_SHARED_STRINGS;
+            for (final String[] relationship : this.readRelationships(zipFile, filePath)) {
+                relationships.put(relationship[0], relationship[2]);
+                if (relationship[1].endsWith("/sharedStrings")) {
+                    sharedStringsPath = relationship[2];
+                }
+            }
+
+            final String sheetPath = relationships.get(this.findSheetRelationshipId(zipFile, filePath, parameters));
+            final ZipEntry sheetEntry = null == sheetPath ? null : zipFile.getEntry(sheetPath);
+            if (null == sheetEntry) {
+                throw new IOException("The sheet " + parameters + " is not found in " + filePath);
+            }
+
+            final CompactStringTable sharedStrings = this.readSharedStrings(zipFile, sharedStringsPath);
+            logger.finer(sharedStrings.size() + " shared string(s) loaded from " + filePath);
+            final InputStream inputStream = zipFile.getInputStream(sheetEntry);
+            try {
+                return new MyIterator(filePath, zipFile, inputStream,
+                        this.xmlInputFactory.createXMLStreamReader(inputStream), sharedStrings);
+            } catch (XMLStreamException | RuntimeException ex) {
+                inputStream.close();
+                throw ex;
+            }
+        } catch (IOException | XMLStreamException | RuntimeException ex) {
+            zipFile.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return  the Id, the Type and the path of the target of every relationship of the workbook
+     */
+    private List<String[]> readRelationships(final ZipFile zipFile, final String filePath)
+            throws IOException, XMLStreamException {
+        final ZipEntry entry = zipFile.getEntry(WORKBOOK_RELATIONSHIPS);
+        if (null == entry) {
+            throw new IOException(WORKBOOK_RELATIONSHIPS + " is not found in " + filePath);
+        }
+
+        final List<String[]> result = new ArrayList<>();
+        try (final InputStream inputStream = zipFile.getInputStream(entry)) {
+            final XMLStreamReader reader = this.xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT &&
+                            "Relationship".equals(reader.getLocalName())) {
+                        final String target = reader.getAttributeValue(null, "Target");
+                        if (null == target) {
+                            continue;
+                        }
+                        // the target is relative to "xl/", unless it is absolute
+                        result.add(new String[] {reader.getAttributeValue(null, "Id"),
+                                String.valueOf(reader.getAttributeValue(null, "Type")),
+                                target.startsWith("/") ? target.substring(1) : "xl/" + target});
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param parameters  the name (String) or the index (Integer) of the sheet, or null for the first sheet
+     * @return  the relationship id of the sheet
+     */
+    private String findSheetRelationshipId(final ZipFile zipFile, final String filePath, final Object parameters)
+            throws IOException, XMLStreamException {
+        if (null != parameters && !(parameters instanceof String) && !(parameters instanceof Integer)) {
+            throw new IllegalArgumentException("parameters must be the name (String) or " +
+                    "the index (Integer) of the sheet, or null for the first sheet: " + parameters);
+        }
+        final ZipEntry entry = zipFile.getEntry(WORKBOOK);
+        if (null == entry) {
+            throw new IOException(WORKBOOK + " is not found in " + filePath);
+        }
+
+        try (final InputStream inputStream = zipFile.getInputStream(entry)) {
+            final XMLStreamReader reader = this.xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                int index = 0;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT || !"sheet".equals(reader.getLocalName())) {
+                        continue;
+                    }
+                    if (null == parameters || parameters.equals(index) ||
+                            parameters.equals(reader.getAttributeValue(null, "name"))) {
+                        // r:id, the prefix of the namespace is not always "r"
+                        for (int i = 0; i < reader.getAttributeCount(); i += 1) {
+                            if ("id".equals(reader.getAttributeLocalName(i))) {
+                                return reader.getAttributeValue(i);
+                            }
+                        }
+                    }
+                    index += 1;
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        throw new IllegalArgumentException("The sheet " + parameters + " is not found in " + filePath);
+    }
+
+    private CompactStringTable readSharedStrings(final ZipFile zipFile, final String path)
+            throws IOException, XMLStreamException {
+        final CompactStringTable result = new CompactStringTable();
+        final ZipEntry entry = zipFile.getEntry(path);
+        if (null == entry) {
+            return result; // no string in the workbook
+        }
+
+        try (final InputStream inputStream = zipFile.getInputStream(entry)) {
+            final XMLStreamReader reader = this.xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                final StringBuilder builder = new StringBuilder();
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "si".equals(reader.getLocalName())) {
+                        builder.setLength(0);
+                        readText(reader, "si", builder);
+                        result.add(builder);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Appends the text of the current element (a shared string or an inline string), i.e. the text of all the
+     * "t" elements in it, excluding the phonetic runs
+     *
+     * @param endElement  the local name of the current element
+     */
+    private static void readText(final XMLStreamReader reader, final String endElement, final StringBuilder builder)
+            throws XMLStreamException {
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("t".equals(reader.getLocalName())) {
+                    builder.append(reader.getElementText());
+                } else if ("rPh".equals(reader.getLocalName())) {
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && endElement.equals(reader.getLocalName())) {
+                return;
+            }
+        }
+    }
+
+    private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth += 1;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth -= 1;
+            }
+        }
+    }
+
+    /**
+     * @param reference  the reference of a cell, e.g. "AB12"
+     * @return  the index of the column, count from 0, e.g. 27 for "AB12"; or -1 if the reference is invalid
+     */
+    private static int getColumnIndex(final String reference) {
+        int result = 0;
+        int i = 0;
+        for (; i < reference.length(); i += 1) {
+            final char c = reference.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                result = result * 26 + (c - 'A' + 1);
+            } else {
+                break;
+            }
+        }
+        return i == 0 ? -1 : result - 1;
+    }
+
+    private static class MyIterator implements CloseableIterator<List<String>> {
+
+        private final String filePath;
+        private final ZipFile zipFile;
+        private final InputStream inputStream;
+        private final XMLStreamReader reader;
+        private final CompactStringTable sharedStrings;
+
+        private final StringBuilder textBuilder = new StringBuilder();
+
+        /**
+         * The row number of the last row returned by {@link #next()}
+         */
+        private int rowNumber = 0;
+
+        /**
+         * The row read but not returned by {@link #next()} yet, and its row number
+         */
+        private List<String> nextRow;
+        private int nextRowNumber;
+
+        private boolean closed = false;
+
+        private MyIterator(final String filePath, final ZipFile zipFile, final InputStream inputStream,
+                final XMLStreamReader reader, final CompactStringTable sharedStrings) {
+            this.filePath = filePath;
+            this.zipFile = zipFile;
+            this.inputStream = inputStream;
+            this.reader = reader;
+            this.sharedStrings = sharedStrings;
+            logger.finer(filePath + " opened");
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.closed) {
+                return false;
+            }
+            if (null != this.nextRow) {
+                return true;
+            }
+
+            try {
+                this.nextRow = this.readRow();
+            } catch (XMLStreamException | RuntimeException ex) {
+                this.close();
+                throw new IllegalStateException("Fail to read the row after row " + this.rowNumber +
+                        " of " + this.filePath, ex);
+            }
+            if (null == this.nextRow) {
+                this.close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public List<String> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.rowNumber += 1;
+            if (this.rowNumber < this.nextRowNumber) {
+                return Collections.emptyList(); // a missing row
+            }
+            final List<String> result = this.nextRow;
+            this.nextRow = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.reader.close();
+            } catch (XMLStreamException ex) {
+                logger.warning("Fail to close the XMLStreamReader for " + this.filePath + ": " + ex);
+            }
+            try {
+                this.inputStream.close();
+                this.zipFile.close();
+                logger.finer(this.filePath + " closed");
+            } catch (IOException ex) {
+                logger.warning("Fail to close " + this.filePath + ": " + ex);
+            }
+        }
+
+        /**
+         * @return  the cells of the next row in the sheet, or null if there is no more row
+         */
+        private List<String> readRow() throws XMLStreamException {
+            while (this.reader.hasNext()) {
+                final int event = this.reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && "row".equals(this.reader.getLocalName())) {
+                    final String reference = this.reader.getAttributeValue(null, "r");
+                    this.nextRowNumber = null == reference ? this.rowNumber + 1 : Integer.parseInt(reference);
+                    if (this.nextRowNumber <= this.rowNumber) {
+                        throw new IllegalStateException("Row " + this.nextRowNumber + " is after row " +
+                                this.rowNumber);
+                    }
+                    return this.readCells();
+                } else if (event == XMLStreamConstants.END_ELEMENT &&
+                        "sheetData".equals(this.reader.getLocalName())) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private List<String> readCells() throws XMLStreamException {
+            final List<String> cells = new ArrayList<>();
+            while (this.reader.hasNext()) {
+                final int event = this.reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && "c".equals(this.reader.getLocalName())) {
+                    final String reference = this.reader.getAttributeValue(null, "r");
+                    final int columnIndex = null == reference ? cells.size() : getColumnIndex(reference);
+                    if (columnIndex < cells.size()) {
+                        throw new IllegalStateException("Invalid cell " + reference + " in row " +
+                                this.nextRowNumber);
+                    }
+                    final String type = this.reader.getAttributeValue(null, "t");
+                    final String value = this.readCellValue(type);
+                    while (cells.size() < columnIndex) {
+                        cells.add("");
+                    }
+                    cells.add(value);
+                } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(this.reader.getLocalName())) {
+                    break;
+                }
+            }
+            return cells;
+        }
+
+        /**
+         * @param type  the "t" attribute of the cell
+         */
+        private String readCellValue(final String type) throws XMLStreamException {
+            String value = null;
+            while (this.reader.hasNext()) {
+                final int event = this.reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("v".equals(this.reader.getLocalName())) {
+                        value = this.reader.getElementText();
+                    } else if ("is".equals(this.reader.getLocalName())) {
+                        this.textBuilder.setLength(0);
+                        readText(this.reader, "is", this.textBuilder);
+                        value = this.textBuilder.toString();
+                    } else {
+                        skipElement(this.reader); // e.g. the formula "f"
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(this.reader.getLocalName())) {
+                    break;
+                }
+            }
+
+            if (null == value) {
+                return "";
+            }
+            if ("s".equals(type)) {
+                return this.sharedStrings.get(Integer.parseInt(value.trim()));
+            }
+            if ("b".equals(type)) {
+                return "1".equals(value.trim()) ? "TRUE" : "FALSE";
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package tech.firas.framework.fileimport.checkpoint;
+
+import java.io.File;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * <p>Where the import of a data file can be resumed: the rows before {@code position} have been committed.</p>
+ *
+ * <p>The length and the last modified time of the data file are recorded as well, so that a checkpoint of another
+ *    file of the same path is not used.</p>
+ */
+public class Checkpoint {
+
+    /**
+     * the canonical file path of the file to be imported
+     */
+    private final String filePath;
+
+    /**
+     * The position (e.g. the byte offset) in the data file after the last committed row
+     */
+    private final long position;
+
+    /**
+     * The row number of the last committed row, count from 1
+     */
+    private final long rowNumber;
+
+    private final long headerRowCount;
+    private final long dataRowCount;
+    private final long footerRowCount;
+
+    private final long fileLength;
+    private final long fileLastModified;
+
+    public Checkpoint(final String filePath, final long position, final long rowNumber,
+            final long headerRowCount, final long dataRowCount, final long footerRowCount,
+            final long fileLength, final long fileLastModified) {
+        if (null == filePath) {
+            throw new IllegalArgumentException("filePath must not be null");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position cannot be negative: " + position);
+        }
+        if (rowNumber < 0) {
+            throw new IllegalArgumentException("rowNumber cannot be negative: " + rowNumber);
+        }
+        this.filePath = filePath;
+        this.position = position;
+        this.rowNumber = rowNumber;
+        this.headerRowCount = headerRowCount;
+        this.dataRowCount = dataRowCount;
+        this.footerRowCount = footerRowCount;
+        this.fileLength = fileLength;
+        this.fileLastModified = fileLastModified;
+    }
+
+    /**
+     * Creates a Checkpoint after a row, with the row counts up to the row
+     * and the current length and last modified time of the data file
+     *
+     * @param dataRowContext  the row, whose position is where the reading can be resumed; if its rows are not
+     *                        counted (see {@link DataRowContext#getDataRowCount()}), the row counts in its
+     *                        DataFileContext are taken
+     * @return  a new Checkpoint
+     */
+    public static Checkpoint of(final DataRowContext<?> dataRowContext) {
+        final DataFileContext dataFileContext = dataRowContext.getDataFileContext();
+        final boolean counted = dataRowContext.getDataRowCount() >= 0;
+        final File file = new File(dataFileContext.getFilePath());
+        return new Checkpoint(dataFileContext.getFilePath(), dataRowContext.getPosition(),
+                dataRowContext.getRowNumber(),
+                counted ? dataRowContext.getHeaderRowCount() : dataFileContext.getHeaderRowCount(),
+                counted ? dataRowContext.getDataRowCount() : dataFileContext.getDataRowCount(),
+                counted ? dataRowContext.getFooterRowCount() : dataFileContext.getFooterRowCount(),
+                file.length(), file.lastModified());
+    }
+
+    /**
+     * @return  true if the data file has the same length and last modified time as when this checkpoint was made
+     */
+    public boolean matchesFile() {
+        final File file = new File(this.filePath);
+        return file.isFile() && file.length() == this.fileLength && file.lastModified() == this.fileLastModified &&
+                this.position <= this.fileLength;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public long getHeaderRowCount() {
+        return headerRowCount;
+    }
+
+    public long getDataRowCount() {
+        return dataRowCount;
+    }
+
+    public long getFooterRowCount() {
+        return footerRowCount;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public long getFileLastModified() {
+        return fileLastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{" +
+                "filePath='" + filePath + '\'' +
+                ", position=" + position +
+                ", rowNumber=" + rowNumber +
+                ", headerRowCount=" + headerRowCount +
+                ", dataRowCount=" + dataRowCount +
+                ", footerRowCount=" + footerRowCount +
+                ", fileLength=" + fileLength +
+                ", fileLastModified=" + fileLastModified +
+                '}';
+    }
+}
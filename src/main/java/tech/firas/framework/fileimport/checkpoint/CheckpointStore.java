@@ -0,0 +1,31 @@
+package tech.firas.framework.fileimport.checkpoint;
+
+/**
+ * Stores the latest Checkpoint of every data file being imported.
+ * The same CheckpointStore should be set to the DataFileReader and the DataFileProcessor that commits the rows.
+ */
+public interface CheckpointStore {
+
+    /**
+     * @param filePath  the canonical file path of the data file
+     * @return  the latest Checkpoint of the data file, or null if there is none
+     * @throws Exception  if the Checkpoint cannot be loaded
+     */
+    Checkpoint load(String filePath) throws Exception;
+
+    /**
+     * Replaces the Checkpoint of the data file, the Checkpoint must be durable when this method returns
+     *
+     * @param checkpoint  the latest Checkpoint of a data file
+     * @throws Exception  if the Checkpoint cannot be saved
+     */
+    void save(Checkpoint checkpoint) throws Exception;
+
+    /**
+     * Removes the Checkpoint of the data file, after the data file is imported completely
+     *
+     * @param filePath  the canonical file path of the data file
+     * @throws Exception  if the Checkpoint cannot be removed
+     */
+    void remove(String filePath) throws Exception;
+}
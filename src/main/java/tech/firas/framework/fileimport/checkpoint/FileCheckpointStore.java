@@ -0,0 +1,126 @@
+package tech.firas.framework.fileimport.checkpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * <p>Saves the Checkpoint of every data file into a small properties file in {@code directory}.</p>
+ *
+ * <p>A Checkpoint is written into a temporary file which is then moved over the old one,
+ *    so a Checkpoint file is never left half written.</p>
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    private static final Logger logger = Logger.getLogger(FileCheckpointStore.class.getName());
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private String directory;
+
+    @Override
+    public Checkpoint load(final String filePath) throws IOException {
+        final Path path = this.getCheckpointPath(filePath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            properties.load(inputStream);
+        }
+        if (!filePath.equals(properties.getProperty("filePath"))) {
+            logger.warning(path + " is not the checkpoint of " + filePath);
+            return null;
+        }
+        try {
+            return new Checkpoint(filePath,
+                    Long.parseLong(properties.getProperty("position")),
+                    Long.parseLong(properties.getProperty("rowNumber")),
+                    Long.parseLong(properties.getProperty("headerRowCount")),
+                    Long.parseLong(properties.getProperty("dataRowCount")),
+                    Long.parseLong(properties.getProperty("footerRowCount")),
+                    Long.parseLong(properties.getProperty("fileLength")),
+                    Long.parseLong(properties.getProperty("fileLastModified")));
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException is an IllegalArgumentException
+            throw new IOException("Invalid checkpoint file: " + path, ex);
+        }
+    }
+
+    @Override
+    public void save(final Checkpoint checkpoint) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("filePath", checkpoint.getFilePath());
+        properties.setProperty("position", String.valueOf(checkpoint.getPosition()));
+        properties.setProperty("rowNumber", String.valueOf(checkpoint.getRowNumber()));
+        properties.setProperty("headerRowCount", String.valueOf(checkpoint.getHeaderRowCount()));
+        properties.setProperty("dataRowCount", String.valueOf(checkpoint.getDataRowCount()));
+        properties.setProperty("footerRowCount", String.valueOf(checkpoint.getFooterRowCount()));
+        properties.setProperty("fileLength", String.valueOf(checkpoint.getFileLength()));
+        properties.setProperty("fileLastModified", String.valueOf(checkpoint.getFileLastModified()));
+
+        final Path path = this.getCheckpointPath(checkpoint.getFilePath());
+        final Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temp)) {
+                properties.store(outputStream, null);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void remove(final String filePath) throws IOException {
+        Files.deleteIfExists(this.getCheckpointPath(filePath));
+    }
+
+    private Path getCheckpointPath(final String filePath) {
+        if (null == this.directory) {
+            throw new IllegalStateException("directory not set");
+        }
+        return Paths.get(this.directory, sha1Hex(filePath) + SUFFIX);
+    }
+
+    private static String sha1Hex(final String value) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (final byte b : hash) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param directory  the existing directory where the checkpoint files are saved
+     */
+    public void setDirectory(final String directory) {
+        this.directory = directory;
+    }
+}
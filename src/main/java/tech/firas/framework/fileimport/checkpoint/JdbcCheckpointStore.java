@@ -0,0 +1,135 @@
+package tech.firas.framework.fileimport.checkpoint;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>Saves the Checkpoint of every data file into a DB table, which can be created by:</p>
+ *
+ * <pre>
+ * CREATE TABLE t_file_import_checkpoint (
+ *     file_path VARCHAR(1000) NOT NULL PRIMARY KEY,
+ *     byte_offset BIGINT NOT NULL,
+ *     row_no BIGINT NOT NULL,
+ *     header_rows BIGINT NOT NULL,
+ *     data_rows BIGINT NOT NULL,
+ *     footer_rows BIGINT NOT NULL,
+ *     file_length BIGINT NOT NULL,
+ *     last_modified BIGINT NOT NULL
+ * )
+ * </pre>
+ *
+ * <p>Every operation gets its own Connection from {@code dataSource}, and commits if the Connection is not in
+ *    auto-commit mode, so a Checkpoint is durable no matter what transaction the rows are inserted in.</p>
+ */
+public class JdbcCheckpointStore implements CheckpointStore {
+
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_.]*");
+
+    private DataSource dataSource;
+
+    private String tableName = "t_file_import_checkpoint";
+
+    @Override
+    public Checkpoint load(final String filePath) throws SQLException {
+        try (Connection connection = this.getConnection();
+                PreparedStatement ps = connection.prepareStatement("SELECT byte_offset, row_no, header_rows, " +
+                        "data_rows, footer_rows, file_length, last_modified FROM " + this.tableName +
+                        " WHERE file_path = ?")) {
+            ps.setString(1, filePath);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new Checkpoint(filePath, resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3),
+                        resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6), resultSet.getLong(7));
+            }
+        }
+    }
+
+    @Override
+    public void save(final Checkpoint checkpoint) throws SQLException {
+        try (Connection connection = this.getConnection()) {
+            final int updated;
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE " + this.tableName +
+                    " SET byte_offset = ?, row_no = ?, header_rows = ?, data_rows = ?, footer_rows = ?, " +
+                    "file_length = ?, last_modified = ? WHERE file_path = ?")) {
+                setParameters(ps, checkpoint);
+                ps.setString(8, checkpoint.getFilePath());
+                updated = ps.executeUpdate();
+            }
+            if (updated <= 0) {
+                try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + this.tableName +
+                        " (byte_offset, row_no, header_rows, data_rows, footer_rows, file_length, last_modified, " +
+                        "file_path) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                    setParameters(ps, checkpoint);
+                    ps.setString(8, checkpoint.getFilePath());
+                    ps.executeUpdate();
+                }
+            }
+            commit(connection);
+        }
+    }
+
+    @Override
+    public void remove(final String filePath) throws SQLException {
+        try (Connection connection = this.getConnection();
+                PreparedStatement ps = connection.prepareStatement("DELETE FROM " + this.tableName +
+                        " WHERE file_path = ?")) {
+            ps.setString(1, filePath);
+            ps.executeUpdate();
+            commit(connection);
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        if (null == this.dataSource) {
+            throw new IllegalStateException("dataSource not set");
+        }
+        return this.dataSource.getConnection();
+    }
+
+    private static void setParameters(final PreparedStatement ps, final Checkpoint checkpoint) throws SQLException {
+        ps.setLong(1, checkpoint.getPosition());
+        ps.setLong(2, checkpoint.getRowNumber());
+        ps.setLong(3, checkpoint.getHeaderRowCount());
+        ps.setLong(4, checkpoint.getDataRowCount());
+        ps.setLong(5, checkpoint.getFooterRowCount());
+        ps.setLong(6, checkpoint.getFileLength());
+        ps.setLong(7, checkpoint.getFileLastModified());
+    }
+
+    private static void commit(final Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public void setDataSource(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @param tableName  the name of the checkpoint table, may be qualified by the schema,
+     *                   "t_file_import_checkpoint" by default
+     */
+    public void setTableName(final String tableName) {
+        if (null == tableName || !TABLE_NAME_PATTERN.matcher(tableName).matches()) {
+            throw new IllegalArgumentException("Invalid tableName: " + tableName);
+        }
+        this.tableName = tableName;
+    }
+}
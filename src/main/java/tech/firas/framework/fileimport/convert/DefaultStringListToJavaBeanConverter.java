@@ -17,8 +17,10 @@ package tech.firas.framework.fileimport.convert;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,22 +95,23 @@ public class DefaultStringListToJavaBeanConverter<T> implements Converter<List<S
         try {
             final T result = constructor.newInstance();
 
-            int i = 0;
-            for (final String column : list) {
-                if (i >= this.fieldSetters.length) {
-                    logger.info("There are " + (i + 1) + " columns but there are only " +
-                            + this.fieldSetters.length + " FieldSetters");
-                    break;
-                }
+            // get the columns by index, so that a lazy List only creates the columns mapped to a field
+            final List<String> columns = list instanceof RandomAccess ? list : new ArrayList<>(list);
+            final int size = columns.size();
+            if (size > this.fieldSetters.length) {
+                logger.info("There are " + size + " columns but there are only " +
+                        this.fieldSetters.length + " FieldSetters");
+            }
+            final int count = Math.min(size, this.fieldSetters.length);
+            for (int i = 0; i < count; i += 1) {
                 if (null == this.fieldSetters[i]) {
-                    i += 1;
-                    logger.finer("The " + i + " column corresponds to no FieldSetter");
+                    logger.finer("The " + (i + 1) + " column corresponds to no FieldSetter");
                     continue;
                 }
+                final String column = columns.get(i);
                 final Class<?> targetType = this.fieldSetters[i].getParameterType();
                 if (String.class.equals(targetType)) {
                     this.fieldSetters[i].set(result, column);
-                    i += 1;
                     continue;
                 }
 
@@ -116,7 +119,6 @@ public class DefaultStringListToJavaBeanConverter<T> implements Converter<List<S
                 if (this.getConversionService().canConvert(String.class, targetObjectType)) {
                     this.fieldSetters[i].set(result, this.getConversionService().convert(column, targetObjectType));
                 }
-                i += 1;
             }
             return result;
         } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
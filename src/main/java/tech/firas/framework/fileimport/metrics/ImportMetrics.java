@@ -0,0 +1,57 @@
+package tech.firas.framework.fileimport.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The StageMetrics of a data file ({@link tech.firas.framework.fileimport.DataFileContext#getMetrics()})
+ * or of an import run ({@link tech.firas.framework.fileimport.ImportContext#getMetrics()}), by the stage names
+ */
+public class ImportMetrics {
+
+    private final ConcurrentMap<String, StageMetrics> stageMap = new ConcurrentHashMap<>();
+
+    /**
+     * Add {@code stageMetrics} into the StageMetrics of the same name
+     */
+    public void merge(final StageMetrics stageMetrics) {
+        final String name = stageMetrics.getName();
+        StageMetrics stage = this.stageMap.get(name);
+        if (null == stage) {
+            final StageMetrics newStage = new StageMetrics(name);
+            stage = this.stageMap.putIfAbsent(name, newStage);
+            if (null == stage) {
+                stage = newStage;
+            }
+        }
+        stage.merge(stageMetrics);
+    }
+
+    public void merge(final ImportMetrics importMetrics) {
+        for (final StageMetrics stageMetrics : importMetrics.stageMap.values()) {
+            this.merge(stageMetrics);
+        }
+    }
+
+    /**
+     * @return  the StageMetrics of the stage, or null if the stage is not timed
+     */
+    public StageMetrics getStage(final String name) {
+        return this.stageMap.get(name);
+    }
+
+    public Map<String, StageMetrics> getStageMap() {
+        return Collections.unmodifiableMap(this.stageMap);
+    }
+
+    public boolean isEmpty() {
+        return this.stageMap.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ImportMetrics" + this.stageMap.values();
+    }
+}
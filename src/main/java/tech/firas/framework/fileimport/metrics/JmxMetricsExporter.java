@@ -0,0 +1,75 @@
+package tech.firas.framework.fileimport.metrics;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers StageMetrics as MXBeans named like
+ * {@code tech.firas.framework.fileimport:type=StageMetrics,name="csv"}, and unregisters them when closed
+ */
+public class JmxMetricsExporter implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(JmxMetricsExporter.class.getName());
+
+    private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private String domain = "tech.firas.framework.fileimport";
+
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * @param stageMetrics  e.g. {@link TimingDataFileProcessor#getMetrics()}
+     * @return  the name of the registered MXBean
+     * @throws JMException  if the MXBean cannot be registered, e.g. the name has been registered
+     */
+    public synchronized ObjectName register(final StageMetrics stageMetrics) throws JMException {
+        final Hashtable<String, String> properties = new Hashtable<>();
+        properties.put("type", StageMetrics.class.getSimpleName());
+        properties.put("name", ObjectName.quote(stageMetrics.getName()));
+        final ObjectName objectName = new ObjectName(this.domain, properties);
+        this.mBeanServer.registerMBean(stageMetrics, objectName);
+        this.registeredNames.add(objectName);
+        logger.finer(objectName + " registered");
+        return objectName;
+    }
+
+    /**
+     * Unregister all the MXBeans registered by this exporter
+     */
+    @Override
+    public synchronized void close() {
+        for (final ObjectName objectName : this.registeredNames) {
+            try {
+                this.mBeanServer.unregisterMBean(objectName);
+                logger.finer(objectName + " unregistered");
+            } catch (JMException ex) {
+                logger.log(Level.WARNING, "Fail to unregister " + objectName, ex);
+            }
+        }
+        this.registeredNames.clear();
+    }
+
+    public MBeanServer getMBeanServer() {
+        return mBeanServer;
+    }
+
+    public void setMBeanServer(final MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public void setDomain(final String domain) {
+        this.domain = domain;
+    }
+}
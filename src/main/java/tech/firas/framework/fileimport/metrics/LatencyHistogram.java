@@ -0,0 +1,134 @@
+package tech.firas.framework.fileimport.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A histogram of latencies in nanoseconds, in log-linear buckets: every power of 2 is divided into 8 buckets,
+ *    so a percentile is at most 12.5% more than the real one. Recording a latency is a few atomic additions,
+ *    without locking or allocating.</p>
+ *
+ * <p>The histogram is thread-safe, but {@link #merge} and {@link #reset} are not atomic as a whole.</p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos  the latency in nanoseconds, a negative one is recorded as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        this.buckets.incrementAndGet(bucketIndex(value));
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(value);
+        updateMax(this.maxNanos, value);
+    }
+
+    /**
+     * Add all the latencies recorded in {@code that} into this histogram
+     */
+    public void merge(final LatencyHistogram that) {
+        for (int i = 0; i < BUCKET_COUNT; i += 1) {
+            final long n = that.buckets.get(i);
+            if (n != 0) {
+                this.buckets.addAndGet(i, n);
+            }
+        }
+        this.count.addAndGet(that.count.get());
+        this.totalNanos.addAndGet(that.totalNanos.get());
+        updateMax(this.maxNanos, that.maxNanos.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i += 1) {
+            this.buckets.set(i, 0);
+        }
+        this.count.set(0);
+        this.totalNanos.set(0);
+        this.maxNanos.set(0);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        final long n = this.count.get();
+        return n == 0 ? 0 : this.totalNanos.get() / n;
+    }
+
+    /**
+     * @param percentile  between 0 and 100, e.g. 99.9
+     * @return  the upper bound of the bucket of the latency at {@code percentile}, or 0 if nothing is recorded
+     */
+    public long getPercentileNanos(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        final long n = this.count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i += 1) {
+            cumulative += this.buckets.get(i);
+            if (cumulative >= target) {
+                return Math.min(bucketUpperBound(i), this.maxNanos.get());
+            }
+        }
+        return this.maxNanos.get();
+    }
+
+    private static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", meanNanos=" + getMeanNanos() +
+                ", p50Nanos=" + getPercentileNanos(50) +
+                ", p99Nanos=" + getPercentileNanos(99) +
+                ", maxNanos=" + getMaxNanos() +
+                '}';
+    }
+}
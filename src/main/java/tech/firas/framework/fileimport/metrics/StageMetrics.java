@@ -0,0 +1,146 @@
+package tech.firas.framework.fileimport.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The latencies of the calls to a stage of the processor chain, e.g. a processor decorated by
+ *    {@link TimingDataFileProcessor}, or the JDBC batches of
+ *    {@link tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor}.</p>
+ *
+ * <p>If {@code enabled} is false, the stage is not timed at all, so it can be switched off at runtime,
+ *    e.g. through JMX, at the cost of reading a volatile field for every call.</p>
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+    private final String name;
+
+    private volatile boolean enabled = true;
+
+    /**
+     * The latencies of the calls, a call is a row or a batch of rows
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLong rowCount = new AtomicLong();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    public StageMetrics(final String name) {
+        if (null == name) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        this.name = name;
+    }
+
+    /**
+     * @param nanos  how long the call took
+     * @param rows   the number of the rows of the call
+     */
+    public void record(final long nanos, final int rows) {
+        this.latency.record(nanos);
+        this.rowCount.addAndGet(rows);
+    }
+
+    public void addElapsedNanos(final long nanos) {
+        this.elapsedNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Add all the calls recorded in {@code that} into this StageMetrics
+     */
+    public void merge(final StageMetrics that) {
+        this.latency.merge(that.latency);
+        this.rowCount.addAndGet(that.rowCount.get());
+        this.elapsedNanos.addAndGet(that.elapsedNanos.get());
+    }
+
+    @Override
+    public void reset() {
+        this.latency.reset();
+        this.rowCount.set(0);
+        this.elapsedNanos.set(0);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getCallCount() {
+        return this.latency.getCount();
+    }
+
+    @Override
+    public long getRowCount() {
+        return this.rowCount.get();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return this.latency.getTotalNanos();
+    }
+
+    @Override
+    public long getMeanNanos() {
+        return this.latency.getMeanNanos();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return this.latency.getMaxNanos();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return this.latency.getPercentileNanos(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return this.latency.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return this.latency.getPercentileNanos(99.9);
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return this.elapsedNanos.get();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        final long totalNanos = this.latency.getTotalNanos();
+        return totalNanos == 0 ? 0 : this.rowCount.get() * 1e9 / totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "StageMetrics{" +
+                "name='" + name + '\'' +
+                ", callCount=" + getCallCount() +
+                ", rowCount=" + getRowCount() +
+                ", totalNanos=" + getTotalNanos() +
+                ", p50Nanos=" + getP50Nanos() +
+                ", p99Nanos=" + getP99Nanos() +
+                ", maxNanos=" + getMaxNanos() +
+                ", elapsedNanos=" + getElapsedNanos() +
+                '}';
+    }
+}
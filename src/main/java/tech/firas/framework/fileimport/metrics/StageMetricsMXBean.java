@@ -0,0 +1,44 @@
+package tech.firas.framework.fileimport.metrics;
+
+/**
+ * The management interface of {@link StageMetrics}, see {@link JmxMetricsExporter}
+ */
+public interface StageMetricsMXBean {
+
+    String getName();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return  the number of the calls timed, i.e. the rows or the batches
+     */
+    long getCallCount();
+
+    long getRowCount();
+
+    long getTotalNanos();
+
+    long getMeanNanos();
+
+    long getMaxNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    /**
+     * @return  the total time from the first row to the end of the files
+     */
+    long getElapsedNanos();
+
+    /**
+     * @return  the rows per second during the time in this stage
+     */
+    double getRowsPerSecond();
+
+    void reset();
+}
@@ -0,0 +1,173 @@
+package tech.firas.framework.fileimport.metrics;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
+import tech.firas.framework.fileimport.processor.BatchDataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessors;
+
+/**
+ * <p>Times every call to {@code processRow} / {@code processRows} of {@code delegate}, into the StageMetrics of
+ *    {@code name} in {@link DataFileContext#getMetrics()} of every file, and into {@link #getMetrics()} after
+ *    every file, which can be exported through JMX by {@link JmxMetricsExporter}.</p>
+ *
+ * <p>The time of a chained processor includes the time of the processors after it, so decorate the head of
+ *    the chain and then every stage to be measured, and the time of a stage is the difference between its time
+ *    and the time of the next stage. The time between the first row and the end of a file that is not spent in
+ *    the head of the chain, i.e. the elapsed time minus the total time, is spent in reading the file.</p>
+ *
+ * @param <R>  the type of the row
+ */
+public class TimingDataFileProcessor<R> implements BatchDataFileProcessor<R> {
+
+    private DataFileProcessor<R> delegate;
+
+    private String name;
+
+    /**
+     * The metrics of all the files processed, created with {@code name} when first used if not set
+     */
+    private volatile StageMetrics metrics;
+
+    /**
+     * The metrics of the current file, in the session of the file
+     */
+    private final SessionKey<FileTiming> fileTimingKey = new SessionKey<>("fileTiming");
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        ensureDelegateNotNull();
+        this.delegate.beforeProcessFile(filePath);
+    }
+
+    @Override
+    public DataRowContext<R> processRow(final DataRowContext<R> dataRowContext) throws Exception {
+        ensureDelegateNotNull();
+        if (!this.getMetrics().isEnabled()) {
+            return this.delegate.processRow(dataRowContext);
+        }
+
+        final StageMetrics fileMetrics = this.getFileTiming(dataRowContext.getDataFileContext()).metrics;
+        final long start = System.nanoTime();
+        try {
+            return this.delegate.processRow(dataRowContext);
+        } finally {
+            fileMetrics.record(System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        ensureDelegateNotNull();
+        if (dataRowBatch.isEmpty() || !this.getMetrics().isEnabled()) {
+            DataFileProcessors.processRows(this.delegate, dataRowBatch);
+            return;
+        }
+
+        final StageMetrics fileMetrics = this.getFileTiming(dataRowBatch.get(0).getDataFileContext()).metrics;
+        final int size = dataRowBatch.size();
+        final long start = System.nanoTime();
+        try {
+            DataFileProcessors.processRows(this.delegate, dataRowBatch);
+        } finally {
+            fileMetrics.record(System.nanoTime() - start, size);
+        }
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        ensureDelegateNotNull();
+        try {
+            this.delegate.afterProcessFile(dataFileContext);
+        } finally {
+            final FileTiming fileTiming = dataFileContext.getSession().remove(this.fileTimingKey);
+            if (null != fileTiming) {
+                fileTiming.metrics.addElapsedNanos(System.nanoTime() - fileTiming.startNanos);
+                dataFileContext.getMetrics().merge(fileTiming.metrics);
+                this.getMetrics().merge(fileTiming.metrics);
+            }
+        }
+    }
+
+    private FileTiming getFileTiming(final DataFileContext dataFileContext) {
+        final ProcessingSession session = dataFileContext.getSession();
+        FileTiming fileTiming = session.get(this.fileTimingKey);
+        if (null == fileTiming) {
+            // the rows of a file may be processed by the workers of a ParallelProcessor concurrently
+            synchronized (dataFileContext) {
+                fileTiming = session.get(this.fileTimingKey);
+                if (null == fileTiming) {
+                    fileTiming = new FileTiming(new StageMetrics(this.getMetrics().getName()));
+                    session.put(this.fileTimingKey, fileTiming);
+                }
+            }
+        }
+        return fileTiming;
+    }
+
+    private void ensureDelegateNotNull() {
+        if (null == this.delegate) {
+            throw new IllegalStateException("delegate is null");
+        }
+    }
+
+    public DataFileProcessor<R> getDelegate() {
+        return delegate;
+    }
+
+    public void setDelegate(final DataFileProcessor<R> delegate) {
+        this.delegate = delegate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name  the name of the stage, the simple class name of {@code delegate} by default
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public StageMetrics getMetrics() {
+        StageMetrics result = this.metrics;
+        if (null == result) {
+            synchronized (this) {
+                result = this.metrics;
+                if (null == result) {
+                    result = new StageMetrics(null != this.name ? this.name :
+                            null == this.delegate ? "unknown" : this.delegate.getClass().getSimpleName());
+                    this.metrics = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param metrics  where the metrics of all the files processed are merged into, its name is used as the stage
+     *                 name in {@link DataFileContext#getMetrics()}, e.g. to share one StageMetrics among the
+     *                 worker chains of {@link tech.firas.framework.fileimport.processor.ParallelProcessor}
+     */
+    public void setMetrics(final StageMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private static final class FileTiming {
+
+        private final StageMetrics metrics;
+
+        /**
+         * When the first row of the file comes, by {@link System#nanoTime()}
+         */
+        private final long startNanos = System.nanoTime();
+
+        private FileTiming(final StageMetrics metrics) {
+            this.metrics = metrics;
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package tech.firas.framework.fileimport.processor;
 
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
 
 /**
  * The processor that will pass the row to the next DataFileProcessor
  * @param <R>  the type of the input row
  * @param <T>  the type of the row to pass to the next DataFileProcessor
  */
-public abstract class AbstractChainedFileProcessor<R, T> implements DataFileProcessor<R> {
+public abstract class AbstractChainedFileProcessor<R, T> implements BatchDataFileProcessor<R> {
 
     private DataFileProcessor<T> nextProcessor;
 
@@ -39,6 +40,30 @@ public abstract class AbstractChainedFileProcessor<R, T> implements DataFileProc
         this.nextProcessor.afterProcessFile(dataFileContext);
     }
 
+    /**
+     * By default, call {@link #processRow} for every row in the batch;
+     * override it to pass the converted rows to the next processor as a batch by {@link #forwardRows}
+     * @param dataRowBatch  the rows to process
+     * @throws Exception  if an error occurs when processing the rows
+     */
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            this.processRow(dataRowBatch.get(i));
+        }
+    }
+
+    /**
+     * Pass a batch of rows to the next processor
+     * @param dataRowBatch  the rows to pass
+     * @throws Exception  if the next processor throws an Exception
+     */
+    protected void forwardRows(final DataRowBatch<T> dataRowBatch) throws Exception {
+        ensureNextProcessNotNull();
+        DataFileProcessors.processRows(this.nextProcessor, dataRowBatch);
+    }
+
     protected void ensureNextProcessNotNull() {
         if (null == this.nextProcessor) {
             throw new IllegalStateException("nextProcessor is null");
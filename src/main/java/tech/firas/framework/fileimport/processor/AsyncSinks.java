@@ -0,0 +1,274 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * <p>The processing of one data file by some DataFileProcessors (the sinks), each on its own thread, for
+ *    {@link HashPartitionProcessor} and {@link TeeProcessor}. The rows for a sink are collected into batches,
+ *    and at most {@code queueCapacity} batches wait for a sink, beyond which {@link #add} blocks.</p>
+ *
+ * <p>If a sink fails {@code beforeProcessFile} or a row, all the sinks are stopped without their
+ *    {@code afterProcessFile}, and the failure is thrown by the next call of {@link #add} or {@link #finish}.
+ *    If a sink fails {@code afterProcessFile}, the other sinks still finish the file.</p>
+ *
+ * @param <R>  the type of the rows
+ */
+final class AsyncSinks<R> {
+
+    private static final Logger logger = Logger.getLogger(AsyncSinks.class.getName());
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String filePath;
+    private final List<? extends DataFileProcessor<R>> sinks;
+    private final int batchSize;
+    private final List<BlockingQueue<Task<R>>> queues;
+    private final CountDownLatch workersDone;
+    private final ExecutorService executorService;
+    private final ExecutorService executor;
+
+    /**
+     * The failure of {@code beforeProcessFile} or a row, which stops all the sinks
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * The failures of {@code afterProcessFile}, which do not stop the other sinks
+     */
+    private final Queue<Exception> finishFailures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The rows not passed to every sink yet, guarded by this object
+     */
+    private final List<DataRowBatch<R>> pendingRows;
+
+    /**
+     * @param filePath         the path of the data file
+     * @param sinks            the DataFileProcessors that process the rows
+     * @param batchSize        how many rows are passed to a sink at one time
+     * @param queueCapacity    the maximum number of batches waiting for a sink
+     * @param executorService  for running the sinks, it must be able to run all the sinks at the same time,
+     *                         or null to create a fixed thread pool of daemon threads named {@code threadPrefix}
+     * @param threadPrefix     the prefix of the names of the threads created
+     */
+    AsyncSinks(final String filePath, final List<? extends DataFileProcessor<R>> sinks, final int batchSize,
+            final int queueCapacity, final ExecutorService executorService, final String threadPrefix) {
+        this.filePath = filePath;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        final int sinkCount = sinks.size();
+        this.queues = new ArrayList<>(sinkCount);
+        this.pendingRows = new ArrayList<>(sinkCount);
+        for (int i = 0; i < sinkCount; i += 1) {
+            this.queues.add(new ArrayBlockingQueue<Task<R>>(queueCapacity + 1));
+            this.pendingRows.add(new DataRowBatch<R>(batchSize));
+        }
+        this.workersDone = new CountDownLatch(sinkCount);
+        this.executorService = executorService;
+        this.executor = null == executorService ?
+                Executors.newFixedThreadPool(sinkCount, new SinkThreadFactory(threadPrefix, filePath)) :
+                executorService;
+    }
+
+    /**
+     * Call {@code beforeProcessFile} of every sink on its thread
+     */
+    void start() {
+        for (int i = 0; i < this.sinks.size(); i += 1) {
+            this.executor.execute(new Worker(i));
+        }
+    }
+
+    /**
+     * @param sink            the index of the sink
+     * @param dataRowContext  the row to pass to the sink, copied if it is recycled
+     * @throws Exception  if a sink has failed
+     */
+    void add(final int sink, final DataRowContext<R> dataRowContext) throws Exception {
+        final DataRowBatch<R> full;
+        synchronized (this) {
+            final DataRowBatch<R> rows = this.pendingRows.get(sink);
+            rows.add(DataFileProcessors.copyIfRecycled(dataRowContext));
+            if (rows.size() < this.batchSize) {
+                return;
+            }
+            full = rows;
+            this.pendingRows.set(sink, new DataRowBatch<R>(this.batchSize));
+        }
+        this.submit(sink, new Task<>(full, null));
+    }
+
+    /**
+     * Pass the rows left to the sinks, call their {@code afterProcessFile}, and wait for them
+     *
+     * @param dataFileContext  the information of the processed data file
+     * @return  the failures of {@code afterProcessFile} of the sinks, empty if all the sinks finish the file
+     * @throws Exception  if a sink fails {@code beforeProcessFile} or a row
+     */
+    List<Exception> finish(final DataFileContext dataFileContext) throws Exception {
+        try {
+            for (int i = 0; i < this.sinks.size(); i += 1) {
+                final DataRowBatch<R> rows;
+                synchronized (this) {
+                    rows = this.pendingRows.get(i);
+                    this.pendingRows.set(i, new DataRowBatch<R>(1));
+                }
+                if (!rows.isEmpty()) {
+                    this.submit(i, new Task<>(rows, null));
+                }
+                this.submit(i, new Task<R>(null, dataFileContext));
+            }
+            while (!this.workersDone.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                this.checkFailure();
+            }
+            this.checkFailure();
+            logger.finer("Sinks finished for " + this.filePath);
+            return new ArrayList<>(this.finishFailures);
+        } catch (Exception ex) {
+            this.abort();
+            throw ex;
+        } finally {
+            if (this.executor != this.executorService) {
+                this.executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Stop the sinks without calling their afterProcessFile
+     */
+    void abort() {
+        this.failure.compareAndSet(null,
+                new IllegalStateException("The processing of " + this.filePath + " is aborted"));
+        for (final BlockingQueue<Task<R>> queue : this.queues) {
+            queue.clear();
+            queue.offer(new Task<R>(null, null));
+        }
+        if (this.executor != this.executorService) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    private void submit(final int sink, final Task<R> task) throws Exception {
+        final BlockingQueue<Task<R>> queue = this.queues.get(sink);
+        while (!queue.offer(task, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            this.checkFailure();
+        }
+        this.checkFailure();
+    }
+
+    private void checkFailure() throws Exception {
+        final Throwable cause = this.failure.get();
+        if (null == cause) {
+            return;
+        }
+        this.abort();
+        if (cause instanceof Exception) {
+            throw (Exception) cause;
+        }
+        throw new IllegalStateException("Sink failed for " + this.filePath, cause);
+    }
+
+    private void fail(final Throwable cause) {
+        if (!this.failure.compareAndSet(null, cause)) {
+            logger.finer("Ignored the failure after the first one for " + this.filePath + ": " + cause);
+        }
+    }
+
+    /**
+     * A batch of rows for a sink, or the end of the file if {@code rows} is null
+     */
+    private static class Task<R> {
+        private final DataRowBatch<R> rows;
+        private final DataFileContext dataFileContext;
+
+        private Task(final DataRowBatch<R> rows, final DataFileContext dataFileContext) {
+            this.rows = rows;
+            this.dataFileContext = dataFileContext;
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final int sink;
+
+        private Worker(final int sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void run() {
+            final BlockingQueue<Task<R>> queue = queues.get(this.sink);
+            try {
+                final DataFileProcessor<R> processor = sinks.get(this.sink);
+                processor.beforeProcessFile(filePath);
+                long rowCount = 0;
+                while (true) {
+                    final Task<R> task = queue.take();
+                    if (null == task.rows) {
+                        if (null != task.dataFileContext && null == failure.get()) {
+                            this.finish(processor, task.dataFileContext, rowCount);
+                        }
+                        return;
+                    }
+                    if (null == failure.get()) {
+                        DataFileProcessors.processRows(processor, task.rows);
+                        rowCount += task.rows.size();
+                    }
+                }
+            } catch (Throwable ex) {
+                // the thread calling add stops waiting for the sinks when it finds the failure
+                fail(ex);
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        private void finish(final DataFileProcessor<R> processor, final DataFileContext dataFileContext,
+                final long rowCount) {
+            try {
+                processor.afterProcessFile(dataFileContext);
+                logger.finer(rowCount + " row(s) of " + filePath + " passed to sink " + this.sink);
+            } catch (Exception ex) {
+                finishFailures.add(ex);
+            }
+        }
+    }
+
+    private static class SinkThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final String filePath;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private SinkThreadFactory(final String prefix, final String filePath) {
+            this.prefix = prefix;
+            this.filePath = filePath;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, this.prefix + "-" + this.count.incrementAndGet() + "-" +
+                    this.filePath);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
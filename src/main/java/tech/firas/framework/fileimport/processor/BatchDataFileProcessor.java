@@ -0,0 +1,23 @@
+package tech.firas.framework.fileimport.processor;
+
+import tech.firas.framework.fileimport.DataRowBatch;
+
+/**
+ * A DataFileProcessor that can process a chunk of rows in one call, so that the work done for every call
+ * (checking the configuration, looking up the state of the file, calling the next processor ...) is done
+ * once per chunk instead of once per row.
+ *
+ * Call {@link DataFileProcessors#processRows} to pass a batch to any DataFileProcessor.
+ *
+ * @param <R>  the type of the rows
+ */
+public interface BatchDataFileProcessor<R> extends DataFileProcessor<R> {
+
+    /**
+     * Process the rows in {@code dataRowBatch} in order, as if {@link #processRow} was called for every row
+     *
+     * @param dataRowBatch  the consecutive rows of one data file, must not be kept after this method returns
+     * @throws Exception  if an error occurs when processing the rows
+     */
+    void processRows(DataRowBatch<R> dataRowBatch) throws Exception;
+}
@@ -3,14 +3,42 @@ package tech.firas.framework.fileimport.processor;
 import java.util.Arrays;
 import java.util.List;
 
+import com.opencsv.CSVParser;
 import com.opencsv.ICSVParser;
 
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.util.ArrayColumnList;
+import tech.firas.framework.fileimport.util.LazyCsvColumnList;
+import tech.firas.framework.fileimport.util.MappedCsvScanner;
 
 public class CsvRowToStringListProcessor extends AbstractChainedFileProcessor<String, List<String>> {
 
     private ICSVParser csvParser;
 
+    private boolean reuseRowContext = false;
+
+    private boolean lazyColumns = false;
+
+    /**
+     * The LazyCsvColumnList of each thread for scanning the rows when {@code lazyColumns} is true and
+     * {@code reuseRowContext} is false, a copy of it is passed to the next DataFileProcessor
+     */
+    private final ThreadLocal<LazyCsvColumnList> scanningColumns = new ThreadLocal<>();
+
+    /**
+     * The DataRowContext reused on each thread by {@link #processRow}, if {@code reuseRowContext} is true
+     */
+    private final ThreadLocal<DataRowContext<List<String>>> reusableContext =
+            new ThreadLocal<DataRowContext<List<String>>>() {
+                @Override
+                protected DataRowContext<List<String>> initialValue() {
+                    return new DataRowContext<>();
+                }
+            };
+
+    private final ThreadLocal<DataRowBatch<List<String>>> outputBatch = DataFileProcessors.threadLocalBatch();
+
     public ICSVParser getCsvParser() {
         return csvParser;
     }
@@ -19,6 +47,35 @@ public class CsvRowToStringListProcessor extends AbstractChainedFileProcessor<St
         this.csvParser = csvParser;
     }
 
+    public boolean isReuseRowContext() {
+        return reuseRowContext;
+    }
+
+    /**
+     * @param reuseRowContext  true to pass a recycled DataRowContext and List to the next DataFileProcessor,
+     *                         instead of new ones for every row, see {@link DataRowContext#isRecycled()}
+     */
+    public void setReuseRowContext(final boolean reuseRowContext) {
+        this.reuseRowContext = reuseRowContext;
+    }
+
+    public boolean isLazyColumns() {
+        return lazyColumns;
+    }
+
+    /**
+     * @param lazyColumns  true to pass a {@link LazyCsvColumnList} to the next DataFileProcessor, which only
+     *                     records the boundaries of the columns and creates a column when it is got, instead of
+     *                     the columns parsed by {@code csvParser}, so that the columns not used are never
+     *                     created. The separator and the quote character are taken from {@code csvParser}, and
+     *                     the escape character too if it is a {@link CSVParser}, which always escapes the
+     *                     character after it; the other options of {@code csvParser} are ignored, and an empty
+     *                     column is always an empty String, see {@link LazyCsvColumnList}
+     */
+    public void setLazyColumns(final boolean lazyColumns) {
+        this.lazyColumns = lazyColumns;
+    }
+
     @Override
     public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
         if (null == this.csvParser) {
@@ -26,11 +83,83 @@ public class CsvRowToStringListProcessor extends AbstractChainedFileProcessor<St
         }
         ensureNextProcessNotNull();
 
-        final String[] columns = this.csvParser.parseLine(dataRowContext.getRow());
-
-        final DataRowContext<List<String>> newContext = new DataRowContext<>(dataRowContext.getDataFileContext(),
-                dataRowContext.getRowNumber(), Arrays.asList(columns), dataRowContext.getType());
-        this.getNextProcessor().processRow(newContext);
+        final DataRowContext<List<String>> reusable = this.reuseRowContext ? this.reusableContext.get() : null;
+        this.getNextProcessor().processRow(this.lazyColumns ? this.newLazyContext(dataRowContext, reusable) :
+                this.newContext(dataRowContext, this.csvParser.parseLine(dataRowContext.getRow()), reusable));
         return dataRowContext;
     }
+
+    @Override
+    public void processRows(final DataRowBatch<String> dataRowBatch) throws Exception {
+        if (null == this.csvParser) {
+            throw new IllegalStateException("csvParser is null");
+        }
+
+        final DataRowBatch<List<String>> newBatch = this.outputBatch.get();
+        newBatch.clear();
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<String> dataRowContext = dataRowBatch.get(i);
+            DataRowContext<List<String>> reusable = null;
+            if (this.reuseRowContext) {
+                reusable = newBatch.nextReusable();
+                if (null == reusable) {
+                    reusable = new DataRowContext<>();
+                }
+            }
+            newBatch.add(this.lazyColumns ? this.newLazyContext(dataRowContext, reusable) :
+                    this.newContext(dataRowContext, this.csvParser.parseLine(dataRowContext.getRow()), reusable));
+        }
+        this.forwardRows(newBatch);
+    }
+
+    /**
+     * @param reusable  the DataRowContext to reuse, or null to create a new one
+     */
+    private DataRowContext<List<String>> newContext(final DataRowContext<String> dataRowContext,
+            final String[] columns, final DataRowContext<List<String>> reusable) {
+        if (null == reusable) {
+            final DataRowContext<List<String>> newContext = new DataRowContext<>(
+                    dataRowContext.getDataFileContext(), dataRowContext.getRowNumber(), Arrays.asList(columns),
+                    dataRowContext.getType());
+            newContext.copyPosition(dataRowContext);
+            return newContext;
+        }
+
+        final List<String> oldRow = reusable.getRow();
+        final ArrayColumnList columnList = oldRow instanceof ArrayColumnList ?
+                (ArrayColumnList) oldRow : new ArrayColumnList();
+        return reusable.reuse(dataRowContext, columnList.reset(columns));
+    }
+
+    /**
+     * @param reusable  the DataRowContext to reuse, or null to create a new one
+     */
+    private DataRowContext<List<String>> newLazyContext(final DataRowContext<String> dataRowContext,
+            final DataRowContext<List<String>> reusable) {
+        if (null == reusable) {
+            LazyCsvColumnList columnList = this.scanningColumns.get();
+            if (null == columnList) {
+                columnList = this.newLazyColumnList();
+                this.scanningColumns.set(columnList);
+            }
+            // the copy only holds the boundaries of the columns of this row
+            final DataRowContext<List<String>> newContext = new DataRowContext<List<String>>(
+                    dataRowContext.getDataFileContext(), dataRowContext.getRowNumber(),
+                    columnList.reset(dataRowContext.getRow()).copy(), dataRowContext.getType());
+            newContext.copyPosition(dataRowContext);
+            return newContext;
+        }
+
+        final List<String> oldRow = reusable.getRow();
+        final LazyCsvColumnList columnList = oldRow instanceof LazyCsvColumnList ?
+                (LazyCsvColumnList) oldRow : this.newLazyColumnList();
+        return reusable.reuse(dataRowContext, columnList.reset(dataRowContext.getRow()));
+    }
+
+    private LazyCsvColumnList newLazyColumnList() {
+        final char escape = this.csvParser instanceof CSVParser ?
+                ((CSVParser) this.csvParser).getEscape() : MappedCsvScanner.NO_ESCAPE;
+        return new LazyCsvColumnList(this.csvParser.getSeparator(), this.csvParser.getQuotechar(), escape);
+    }
 }
@@ -0,0 +1,14 @@
+package tech.firas.framework.fileimport.processor;
+
+/**
+ * Creates new chains of DataFileProcessors, for the cases that a chain must not be shared by several threads
+ * @param <R>  the type of the row that the first DataFileProcessor of the chain accepts
+ */
+public interface DataFileProcessorFactory<R> {
+
+    /**
+     * @return  the first DataFileProcessor of a new chain that shares no state with the chains created before
+     * @throws Exception  if an error occurs when creating the chain
+     */
+    DataFileProcessor<R> createDataFileProcessor() throws Exception;
+}
@@ -0,0 +1,117 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * Utility methods for DataFileProcessors
+ */
+public final class DataFileProcessors {
+
+    private DataFileProcessors() {}
+
+    /**
+     * Pass {@code dataRowBatch} to {@code processor} as a whole if it is a BatchDataFileProcessor,
+     * otherwise pass the rows one by one to its {@code processRow}
+     *
+     * @param processor     the DataFileProcessor to process the rows
+     * @param dataRowBatch  the rows to process
+     * @param <R>  the type of the rows
+     * @throws Exception  if the processor throws an Exception
+     */
+    public static <R> void processRows(final DataFileProcessor<R> processor,
+            final DataRowBatch<R> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        if (processor instanceof BatchDataFileProcessor) {
+            ((BatchDataFileProcessor<R>) processor).processRows(dataRowBatch);
+        } else {
+            final int size = dataRowBatch.size();
+            for (int i = 0; i < size; i += 1) {
+                processor.processRow(dataRowBatch.get(i));
+            }
+        }
+    }
+
+    /**
+     * @param dataRowContext  a DataRowContext to be kept after {@code processRow} returns, e.g. by another thread
+     * @return  {@code dataRowContext} itself, or a copy of it if it is recycled
+     */
+    static <E> DataRowContext<E> copyIfRecycled(final DataRowContext<E> dataRowContext) {
+        if (!dataRowContext.isRecycled()) {
+            return dataRowContext;
+        }
+        final DataRowContext<E> copy = new DataRowContext<>(dataRowContext.getDataFileContext(),
+                dataRowContext.getRowNumber(), dataRowContext.getRow(), dataRowContext.getType());
+        copy.copyPosition(dataRowContext);
+        return copy;
+    }
+
+    /**
+     * @param dataRowContext  a DataRowContext to be processed out of the order of the data file, e.g. by one of
+     *                        several sinks or workers, which should not save a checkpoint for it
+     * @return  {@code dataRowContext} itself if it has no position, otherwise a copy of it without the position,
+     *          which is still marked recycled if {@code dataRowContext} is, because they share the row
+     */
+    static <E> DataRowContext<E> copyWithoutPosition(final DataRowContext<E> dataRowContext) {
+        if (dataRowContext.getPosition() < 0) {
+            return dataRowContext;
+        }
+        final DataRowContext<E> copy = new DataRowContext<>(dataRowContext.getDataFileContext(),
+                dataRowContext.getRowNumber(), dataRowContext.getRow(), dataRowContext.getType());
+        copy.setRecycled(dataRowContext.isRecycled());
+        return copy;
+    }
+
+    /**
+     * Call {@code afterProcessFile} of every processor, even if some of them fail
+     *
+     * @param processors       the processors that finish the file independently
+     * @param dataFileContext  the information of the processed data file
+     * @return  the failures of the processors, empty if all of them finish the file
+     */
+    static List<Exception> afterProcessFile(final List<? extends DataFileProcessor<?>> processors,
+            final DataFileContext dataFileContext) {
+        final List<Exception> failures = new ArrayList<>(0);
+        for (final DataFileProcessor<?> processor : processors) {
+            try {
+                processor.afterProcessFile(dataFileContext);
+            } catch (Exception ex) {
+                failures.add(ex);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @param failures  the failures of some processors that are run independently, e.g. their afterProcessFile
+     * @throws Exception  the first one of {@code failures}, with the others suppressed, if there is any
+     */
+    static void throwFailures(final List<Exception> failures) throws Exception {
+        if (failures.isEmpty()) {
+            return;
+        }
+        final Exception first = failures.get(0);
+        for (int i = 1; i < failures.size(); i += 1) {
+            first.addSuppressed(failures.get(i));
+        }
+        throw first;
+    }
+
+    /**
+     * @return  a ThreadLocal of an empty DataRowBatch for every thread, for the processors that convert the rows
+     */
+    static <T> ThreadLocal<DataRowBatch<T>> threadLocalBatch() {
+        return new ThreadLocal<DataRowBatch<T>>() {
+            @Override
+            protected DataRowBatch<T> initialValue() {
+                return new DataRowBatch<>();
+            }
+        };
+    }
+}
@@ -0,0 +1,356 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.ImportRunListener;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.SessionKey;
+import tech.firas.framework.fileimport.util.BloomFilter;
+import tech.firas.framework.fileimport.util.CompactKeySet;
+
+/**
+ * <p>Drops the duplicate rows, so that they do not reach the DB and fail a whole batch on a unique key.
+ *    The key of a row is made of the columns at {@code keyColumnIndexes}, or of all the columns if it is not set.
+ *    The rows of the type HEADER or FOOTER are always passed to the next DataFileProcessor.</p>
+ *
+ * <p>In the EXACT mode (by default), the keys are kept in a {@link CompactKeySet}, which takes about 16 bytes
+ *    plus 2 bytes per char for every key. In the BLOOM_FILTER mode, the keys are kept in a {@link BloomFilter} of
+ *    {@code expectedKeyCount} keys, about 1.8 bytes per key for the {@code falsePositiveProbability} 0.001,
+ *    for the volumes that do not fit in memory; a new row is dropped as a duplicate with that probability.</p>
+ *
+ * <p>In the FILE scope (by default), the duplicates are dropped within every data file, or every range of a file
+ *    for {@link tech.firas.framework.fileimport.SplitPlainTextDataFileReader}. In the RUN scope, they are dropped
+ *    across all the files, until {@link #reset()}; add this processor to
+ *    {@link tech.firas.framework.fileimport.DefaultDataFileImporterBase#setRunListeners} to reset it for every
+ *    run of the importer.</p>
+ *
+ * <p>The keys of a row are kept in the RUN scope as soon as the row is passed, and they cannot be removed, for
+ *    a Bloom filter cannot forget a key and a DataFileProcessor is not told that a file fails. So the keys of
+ *    a file that fails, or whose rows are rolled back, are kept until {@link #reset()}: the rows of the same keys
+ *    in the later files of the run are dropped as duplicates, and the failed file is deduplicated against its
+ *    own keys if it is imported again in the same run. Reset this processor for every run, so that a failed file
+ *    is imported again in the next run with none of its keys, and use the FILE scope if the rows of a file must
+ *    never be dropped because of the rows of another file which may fail.</p>
+ *
+ * <p>The number of the dropped rows is added to {@link DataFileContext#getDuplicateRowCount()}. This processor
+ *    should be chained before a {@link ParallelProcessor}, not in its worker chains, which would keep the keys
+ *    of every worker separately.</p>
+ */
+public class DeduplicateProcessor extends AbstractChainedFileProcessor<List<String>, List<String>>
+        implements ImportRunListener {
+
+    private static final Logger logger = Logger.getLogger(DeduplicateProcessor.class.getName());
+
+    public enum Mode {
+        EXACT,
+        BLOOM_FILTER
+    }
+
+    public enum Scope {
+        FILE,
+        RUN
+    }
+
+    private final SessionKey<FileState> fileStateKey = new SessionKey<>("deduplicate");
+
+    private int[] keyColumnIndexes;
+
+    private Mode mode = Mode.EXACT;
+
+    private Scope scope = Scope.FILE;
+
+    /**
+     * How many distinct keys are expected in a file (FILE scope) or in a run (RUN scope)
+     */
+    private long expectedKeyCount = 1 << 20;
+
+    private double falsePositiveProbability = 0.001;
+
+    /**
+     * The keys of the RUN scope, created by the first row after {@link #reset()}
+     */
+    private volatile KeyFilter runKeys;
+
+    private final ThreadLocal<StringBuilder> keyBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+
+    private final ThreadLocal<DataRowBatch<List<String>>> outputBatch = DataFileProcessors.threadLocalBatch();
+
+    public List<Integer> getKeyColumnIndexes() {
+        if (null == this.keyColumnIndexes) {
+            return null;
+        }
+        final List<Integer> result = new ArrayList<>(this.keyColumnIndexes.length);
+        for (final int index : this.keyColumnIndexes) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    /**
+     * @param keyColumnIndexes  the indexes (count from 0) of the columns that make the key of a row,
+     *                          or null to make the key of all the columns
+     */
+    public void setKeyColumnIndexes(final List<Integer> keyColumnIndexes) {
+        if (null == keyColumnIndexes || keyColumnIndexes.isEmpty()) {
+            this.keyColumnIndexes = null;
+            return;
+        }
+        final int[] indexes = new int[keyColumnIndexes.size()];
+        for (int i = 0; i < indexes.length; i += 1) {
+            final Integer index = keyColumnIndexes.get(i);
+            if (null == index || index < 0) {
+                throw new IllegalArgumentException("keyColumnIndexes must not contain a null or a negative index");
+            }
+            indexes[i] = index;
+        }
+        this.keyColumnIndexes = indexes;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(final Mode mode) {
+        if (null == mode) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        this.mode = mode;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @param scope  FILE (by default) to drop the duplicates within every file, RUN to drop them across all the
+     *               files until {@link #reset()}, including the keys of the files that fail, see above
+     */
+    public void setScope(final Scope scope) {
+        if (null == scope) {
+            throw new IllegalArgumentException("scope must not be null");
+        }
+        this.scope = scope;
+    }
+
+    public long getExpectedKeyCount() {
+        return expectedKeyCount;
+    }
+
+    /**
+     * @param expectedKeyCount  how many distinct keys are expected in a file (FILE scope) or in a run
+     *                          (RUN scope), the size of the Bloom filter, or the initial capacity of the exact set
+     */
+    public void setExpectedKeyCount(final long expectedKeyCount) {
+        if (expectedKeyCount <= 0) {
+            throw new IllegalArgumentException("expectedKeyCount must be a positive integer");
+        }
+        this.expectedKeyCount = expectedKeyCount;
+    }
+
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * @param falsePositiveProbability  the probability that a new row is dropped in the BLOOM_FILTER mode,
+     *                                  when {@code expectedKeyCount} keys are added, 0.001 by default
+     */
+    public void setFalsePositiveProbability(final double falsePositiveProbability) {
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Forget the keys of the RUN scope
+     */
+    public void reset() {
+        this.runKeys = null;
+    }
+
+    @Override
+    public void beforeRun() {
+        this.reset();
+    }
+
+    @Override
+    public void afterRun() {
+        this.reset();
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        final FileState fileState = dataFileContext.getSession().remove(this.fileStateKey);
+        if (null != fileState) {
+            final long duplicates;
+            synchronized (fileState.keys) {
+                duplicates = fileState.duplicateRowCount;
+            }
+            logger.finer(duplicates + " duplicate row(s) dropped in " + dataFileContext.getFilePath());
+            synchronized (dataFileContext) {
+                dataFileContext.setDuplicateRowCount(dataFileContext.getDuplicateRowCount() + duplicates);
+            }
+        }
+        this.getNextProcessor().afterProcessFile(dataFileContext);
+    }
+
+    @Override
+    public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+            throws Exception {
+        ensureNextProcessNotNull();
+        final FileState fileState = this.getFileState(dataRowContext.getDataFileContext());
+        final boolean passed;
+        synchronized (fileState.keys) {
+            passed = this.pass(fileState, dataRowContext);
+        }
+        return passed ? this.getNextProcessor().processRow(dataRowContext) : dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        // the rows of a batch are from the same data file
+        final FileState fileState = this.getFileState(dataRowBatch.get(0).getDataFileContext());
+        final DataRowBatch<List<String>> newBatch = this.outputBatch.get();
+        newBatch.clear();
+        final int size = dataRowBatch.size();
+        synchronized (fileState.keys) {
+            for (int i = 0; i < size; i += 1) {
+                final DataRowContext<List<String>> dataRowContext = dataRowBatch.get(i);
+                if (this.pass(fileState, dataRowContext)) {
+                    newBatch.add(dataRowContext);
+                }
+            }
+        }
+        this.forwardRows(newBatch);
+    }
+
+    /**
+     * Must be called with the lock of {@code fileState.keys}
+     *
+     * @return  true if the row should be passed to the next DataFileProcessor
+     */
+    private boolean pass(final FileState fileState, final DataRowContext<List<String>> dataRowContext) {
+        final RowType type = dataRowContext.getType();
+        if (RowType.HEADER == type || RowType.FOOTER == type) {
+            return true;
+        }
+        if (fileState.keys.add(this.buildKey(dataRowContext.getRow()))) {
+            return true;
+        }
+        fileState.duplicateRowCount += 1;
+        return false;
+    }
+
+    private FileState getFileState(final DataFileContext dataFileContext) {
+        final ProcessingSession session = dataFileContext.getSession();
+        FileState fileState = session.get(this.fileStateKey);
+        if (null == fileState) {
+            fileState = new FileState(Scope.RUN == this.scope ? this.getRunKeys() : this.newKeyFilter());
+            session.put(this.fileStateKey, fileState);
+            logger.finer("Deduplicating " + dataFileContext.getFilePath() + " in the " + this.scope + " scope");
+        }
+        return fileState;
+    }
+
+    private KeyFilter getRunKeys() {
+        KeyFilter keys = this.runKeys;
+        if (null == keys) {
+            synchronized (this) {
+                keys = this.runKeys;
+                if (null == keys) {
+                    keys = this.newKeyFilter();
+                    this.runKeys = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    private KeyFilter newKeyFilter() {
+        if (Mode.BLOOM_FILTER == this.mode) {
+            final BloomFilter bloomFilter = new BloomFilter(this.expectedKeyCount, this.falsePositiveProbability);
+            return new KeyFilter() {
+                @Override
+                boolean add(final CharSequence key) {
+                    return bloomFilter.add(key);
+                }
+            };
+        }
+        final CompactKeySet keySet = new CompactKeySet((int) Math.min(Integer.MAX_VALUE, this.expectedKeyCount));
+        return new KeyFilter() {
+            @Override
+            boolean add(final CharSequence key) {
+                return keySet.add(key);
+            }
+        };
+    }
+
+    /**
+     * Every column is prefixed by its length in 2 chars, so that the columns cannot run into each other
+     */
+    private CharSequence buildKey(final List<String> row) {
+        final StringBuilder builder = this.keyBuilder.get();
+        builder.setLength(0);
+        if (null == this.keyColumnIndexes) {
+            final int size = row.size();
+            for (int i = 0; i < size; i += 1) {
+                appendColumn(builder, row.get(i));
+            }
+        } else {
+            final int size = row.size();
+            for (final int index : this.keyColumnIndexes) {
+                appendColumn(builder, index < size ? row.get(index) : null);
+            }
+        }
+        return builder;
+    }
+
+    private static void appendColumn(final StringBuilder builder, final String column) {
+        if (null == column) {
+            builder.append('\uFFFF').append('\uFFFF');
+            return;
+        }
+        final int length = column.length();
+        builder.append((char) (length >>> 16)).append((char) length).append(column);
+    }
+
+    private abstract static class KeyFilter {
+
+        /**
+         * @return  true if the key is new
+         */
+        abstract boolean add(CharSequence key);
+    }
+
+    private static class FileState {
+
+        /**
+         * Shared by the files in the RUN scope
+         */
+        private final KeyFilter keys;
+
+        /**
+         * Guarded by {@code keys}
+         */
+        private long duplicateRowCount = 0;
+
+        private FileState(final KeyFilter keys) {
+            this.keys = keys;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package tech.firas.framework.fileimport.processor;
 import java.util.HashSet;
 import java.util.Set;
 
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
 import tech.firas.framework.fileimport.RowType;
 
@@ -17,6 +18,8 @@ public class FilterRowTypeProcessor<R> extends AbstractChainedFileProcessor<R, R
 
     private Set<RowType> allowRowTypes;
 
+    private final ThreadLocal<DataRowBatch<R>> outputBatch = DataFileProcessors.threadLocalBatch();
+
     public Set<RowType> getAllowRowTypes() {
         return allowRowTypes;
     }
@@ -52,4 +55,22 @@ public class FilterRowTypeProcessor<R> extends AbstractChainedFileProcessor<R, R
             return dataRowContext;
         }
     }
+
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        if (null == this.allowRowTypes) {
+            this.forwardRows(dataRowBatch);
+            return;
+        }
+        final DataRowBatch<R> allowedRows = this.outputBatch.get();
+        allowedRows.clear();
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<R> dataRowContext = dataRowBatch.get(i);
+            if (this.allowRowTypes.contains(dataRowContext.getType())) {
+                allowedRows.add(dataRowContext);
+            }
+        }
+        this.forwardRows(allowedRows);
+    }
 }
@@ -0,0 +1,102 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.FixedWidthField;
+import tech.firas.framework.fileimport.util.ByteColumnList;
+
+/**
+ * <p>Slices a fixed-width record into fields according to {@code fields}, and then passes the List of the fields
+ *    to the next DataFileProcessor. For the data files that must be read as String rows, e.g. compressed files;
+ *    otherwise {@link tech.firas.framework.fileimport.FixedWidthDataFileReader} is faster.</p>
+ *
+ * <p>If {@code byteOffsetCharset} is null (by default), the offsets and the lengths of the fields are counted
+ *    in characters. Otherwise they are counted in the bytes of the record encoded in {@code byteOffsetCharset},
+ *    which should be the charset of the data file, e.g. GBK.</p>
+ */
+public class FixedWidthRowToStringListProcessor extends AbstractChainedFileProcessor<String, List<String>> {
+
+    private FixedWidthField[] fields;
+
+    private Charset byteOffsetCharset;
+
+    private final ThreadLocal<DataRowBatch<List<String>>> outputBatch = DataFileProcessors.threadLocalBatch();
+
+    public List<FixedWidthField> getFields() {
+        return null == this.fields ? null : Arrays.asList(this.fields);
+    }
+
+    /**
+     * @param fields  the layout of a record, the fields may overlap and need not be in order
+     */
+    public void setFields(final List<FixedWidthField> fields) {
+        this.fields = null == fields ? null : fields.toArray(new FixedWidthField[fields.size()]);
+    }
+
+    public String getByteOffsetCharset() {
+        return null == this.byteOffsetCharset ? null : this.byteOffsetCharset.name();
+    }
+
+    /**
+     * @param byteOffsetCharset  the name of the charset in which the offsets and the lengths of the fields
+     *                           are counted in bytes, or null if they are counted in characters
+     */
+    public void setByteOffsetCharset(final String byteOffsetCharset) {
+        this.byteOffsetCharset = null == byteOffsetCharset ? null : Charset.forName(byteOffsetCharset);
+    }
+
+    @Override
+    public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
+        if (null == this.fields || this.fields.length <= 0) {
+            throw new IllegalStateException("fields is null");
+        }
+        ensureNextProcessNotNull();
+
+        this.getNextProcessor().processRow(newContext(dataRowContext, this.slice(dataRowContext.getRow())));
+        return dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<String> dataRowBatch) throws Exception {
+        if (null == this.fields || this.fields.length <= 0) {
+            throw new IllegalStateException("fields is null");
+        }
+
+        final DataRowBatch<List<String>> newBatch = this.outputBatch.get();
+        newBatch.clear();
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<String> dataRowContext = dataRowBatch.get(i);
+            newBatch.add(newContext(dataRowContext, this.slice(dataRowContext.getRow())));
+        }
+        this.forwardRows(newBatch);
+    }
+
+    private List<String> slice(final String row) {
+        if (null == this.byteOffsetCharset) {
+            final String[] columnArray = new String[this.fields.length];
+            for (int i = 0; i < columnArray.length; i += 1) {
+                columnArray[i] = this.fields[i].slice(row);
+            }
+            return Arrays.asList(columnArray);
+        }
+        final byte[] data = row.getBytes(this.byteOffsetCharset);
+        final int[] bounds = new int[this.fields.length * 2];
+        for (int i = 0; i < this.fields.length; i += 1) {
+            this.fields[i].sliceBytes(data, data.length, bounds, i);
+        }
+        return new ByteColumnList(data, bounds, this.byteOffsetCharset);
+    }
+
+    private static DataRowContext<List<String>> newContext(final DataRowContext<String> dataRowContext,
+            final List<String> columns) {
+        final DataRowContext<List<String>> newContext = new DataRowContext<>(dataRowContext.getDataFileContext(),
+                dataRowContext.getRowNumber(), columns, dataRowContext.getType());
+        newContext.copyPosition(dataRowContext);
+        return newContext;
+    }
+}
@@ -0,0 +1,326 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * <p>Routes every row to one of the DataFileProcessors in {@code partitions}, e.g. one
+ *    {@link tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithDataSource} for every shard
+ *    of a table, by the hash of the columns at {@code keyColumnIndexes} (all the columns if it is not set).
+ *    The hash is {@code String.hashCode} of the columns combined like {@code List.hashCode}, so a key always goes
+ *    to the same partition; override {@link #partition} to follow the sharding of the DB.
+ *    {@code beforeProcessFile} and {@code afterProcessFile} are passed to every partition. The header and footer
+ *    rows are routed like the others, so put a {@link FilterRowTypeProcessor} before this processor to drop
+ *    them.</p>
+ *
+ * <p>By default, the rows are passed to the partitions on the thread that calls {@code processRow}. If
+ *    {@code parallel} is true, every partition runs on its own thread, on {@code executorService} if it is set,
+ *    so that the shards are loaded in parallel: the rows are collected into batches of {@code partitionBatchSize}
+ *    for every partition, and at most {@code queueCapacity} batches wait for a partition, beyond which
+ *    {@code processRow} blocks. Then, like {@link ParallelProcessor}, the rows must not be recycled, and the
+ *    partitions must not update the DataFileContext unless they lock it. If a partition fails a row, the others
+ *    are stopped without their {@code afterProcessFile}, and the failure is thrown. If a partition fails
+ *    {@code afterProcessFile}, the others still finish the file, and the first failure is thrown with the others
+ *    suppressed.</p>
+ *
+ * <p>Every partition must be a different instance, because a processor keeps the state of a file in the session
+ *    of the file under its own keys.</p>
+ *
+ * <p>The partitions commit their rows independently, so a position in the data file does not tell which rows
+ *    all of them have committed: the rows are passed to the partitions without their positions, so that no
+ *    partition saves a {@link tech.firas.framework.fileimport.checkpoint.Checkpoint} for the file. Do not set a
+ *    {@code checkpointStore} on the partitions either, or the first partition that finishes the file removes the
+ *    Checkpoint the file was resumed from, which the other partitions may still need.</p>
+ */
+public class HashPartitionProcessor implements BatchDataFileProcessor<List<String>> {
+
+    private static final Logger logger = Logger.getLogger(HashPartitionProcessor.class.getName());
+
+    private final ConcurrentMap<String, AsyncSinks<List<String>>> runCache = new ConcurrentHashMap<>();
+
+    private List<DataFileProcessor<List<String>>> partitions;
+
+    private int[] keyColumnIndexes;
+
+    private boolean parallel = false;
+
+    /**
+     * For running the partitions in the parallel mode, if null, a fixed thread pool of one daemon thread
+     * for every partition is created for every file
+     */
+    private ExecutorService executorService;
+
+    private int partitionBatchSize = 256;
+
+    private int queueCapacity = 4;
+
+    private final ThreadLocal<List<DataRowBatch<List<String>>>> outputBatches =
+            new ThreadLocal<List<DataRowBatch<List<String>>>>() {
+                @Override
+                protected List<DataRowBatch<List<String>>> initialValue() {
+                    return new ArrayList<>();
+                }
+            };
+
+    public List<DataFileProcessor<List<String>>> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @param partitions  the DataFileProcessors the rows are routed to, different instances
+     */
+    public void setPartitions(final List<DataFileProcessor<List<String>>> partitions) {
+        if (null != partitions) {
+            final Map<DataFileProcessor<List<String>>, Boolean> instances = new IdentityHashMap<>();
+            for (final DataFileProcessor<List<String>> partition : partitions) {
+                if (null == partition) {
+                    throw new IllegalArgumentException("partitions must not contain null");
+                }
+                if (null != instances.put(partition, Boolean.TRUE)) {
+                    throw new IllegalArgumentException("partitions must be different instances");
+                }
+            }
+            this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+        } else {
+            this.partitions = null;
+        }
+    }
+
+    public List<Integer> getKeyColumnIndexes() {
+        if (null == this.keyColumnIndexes) {
+            return null;
+        }
+        final List<Integer> result = new ArrayList<>(this.keyColumnIndexes.length);
+        for (final int index : this.keyColumnIndexes) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    /**
+     * @param keyColumnIndexes  the indexes (count from 0) of the columns that decide the partition of a row,
+     *                          or null to hash all the columns
+     */
+    public void setKeyColumnIndexes(final List<Integer> keyColumnIndexes) {
+        if (null == keyColumnIndexes || keyColumnIndexes.isEmpty()) {
+            this.keyColumnIndexes = null;
+            return;
+        }
+        final int[] indexes = new int[keyColumnIndexes.size()];
+        for (int i = 0; i < indexes.length; i += 1) {
+            final Integer index = keyColumnIndexes.get(i);
+            if (null == index || index < 0) {
+                throw new IllegalArgumentException("keyColumnIndexes must not contain a null or a negative index");
+            }
+            indexes[i] = index;
+        }
+        this.keyColumnIndexes = indexes;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel  true to run every partition on its own thread,
+     *                  false (by default) to run them on the thread that calls {@code processRow}
+     */
+    public void setParallel(final boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @param executorService  for running the partitions in the parallel mode, it must be able to run all the
+     *                         partitions at the same time for the whole processing of a file
+     */
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getPartitionBatchSize() {
+        return partitionBatchSize;
+    }
+
+    /**
+     * @param partitionBatchSize  how many rows are passed to a partition at one time in the parallel mode,
+     *                            256 by default
+     */
+    public void setPartitionBatchSize(final int partitionBatchSize) {
+        if (partitionBatchSize <= 0) {
+            throw new IllegalArgumentException("partitionBatchSize must be a positive integer");
+        }
+        this.partitionBatchSize = partitionBatchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity  the maximum number of batches waiting for a partition in the parallel mode,
+     *                       4 by default
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be a positive integer");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        if (null == this.partitions || this.partitions.isEmpty()) {
+            throw new IllegalStateException("partitions not set");
+        }
+        if (!this.parallel) {
+            for (final DataFileProcessor<List<String>> partition : this.partitions) {
+                partition.beforeProcessFile(filePath);
+            }
+            return;
+        }
+
+        final AsyncSinks<List<String>> stale = this.runCache.remove(filePath);
+        if (null != stale) {
+            logger.warning("The last processing of " + filePath + " was not finished, abort it");
+            stale.abort();
+        }
+        final AsyncSinks<List<String>> run = new AsyncSinks<>(filePath, this.partitions, this.partitionBatchSize,
+                this.queueCapacity, this.executorService, "partition");
+        this.runCache.put(filePath, run);
+        run.start();
+        logger.finer(this.partitions.size() + " partition(s) started for " + filePath);
+    }
+
+    @Override
+    public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+            throws Exception {
+        final List<DataFileProcessor<List<String>>> partitions = this.partitions;
+        final int partition = this.partitionOf(dataRowContext.getRow(), partitions.size());
+        if (this.parallel) {
+            final AsyncSinks<List<String>> run = this.getRun(dataRowContext.getDataFileContext());
+            try {
+                run.add(partition, DataFileProcessors.copyWithoutPosition(dataRowContext));
+            } catch (Exception ex) {
+                this.runCache.remove(dataRowContext.getDataFileContext().getFilePath(), run);
+                throw ex;
+            }
+        } else {
+            partitions.get(partition).processRow(DataFileProcessors.copyWithoutPosition(dataRowContext));
+        }
+        return dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        final List<DataFileProcessor<List<String>>> partitions = this.partitions;
+        final int partitionCount = partitions.size();
+        final int size = dataRowBatch.size();
+        if (this.parallel) {
+            // the rows of a batch are from the same data file
+            final DataFileContext dataFileContext = dataRowBatch.get(0).getDataFileContext();
+            final AsyncSinks<List<String>> run = this.getRun(dataFileContext);
+            try {
+                for (int i = 0; i < size; i += 1) {
+                    final DataRowContext<List<String>> dataRowContext = dataRowBatch.get(i);
+                    run.add(this.partitionOf(dataRowContext.getRow(), partitionCount),
+                            DataFileProcessors.copyWithoutPosition(dataRowContext));
+                }
+            } catch (Exception ex) {
+                this.runCache.remove(dataFileContext.getFilePath(), run);
+                throw ex;
+            }
+            return;
+        }
+
+        final List<DataRowBatch<List<String>>> batches = this.outputBatches.get();
+        while (batches.size() < partitionCount) {
+            batches.add(new DataRowBatch<List<String>>());
+        }
+        for (int i = 0; i < partitionCount; i += 1) {
+            batches.get(i).clear();
+        }
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<List<String>> dataRowContext = dataRowBatch.get(i);
+            batches.get(this.partitionOf(dataRowContext.getRow(), partitionCount))
+                    .add(DataFileProcessors.copyWithoutPosition(dataRowContext));
+        }
+        for (int i = 0; i < partitionCount; i += 1) {
+            DataFileProcessors.processRows(partitions.get(i), batches.get(i));
+        }
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        if (!this.parallel) {
+            DataFileProcessors.throwFailures(DataFileProcessors.afterProcessFile(this.partitions, dataFileContext));
+            return;
+        }
+
+        final AsyncSinks<List<String>> run = this.getRun(dataFileContext);
+        final List<Exception> failures;
+        try {
+            failures = run.finish(dataFileContext);
+        } finally {
+            this.runCache.remove(dataFileContext.getFilePath(), run);
+        }
+        DataFileProcessors.throwFailures(failures);
+    }
+
+    /**
+     * @param row             the row to route
+     * @param partitionCount  the number of the partitions
+     * @return  the index of the partition of {@code row}, from 0 to {@code partitionCount - 1}
+     */
+    protected int partition(final List<String> row, final int partitionCount) {
+        int hash = 1;
+        if (null == this.keyColumnIndexes) {
+            final int size = row.size();
+            for (int i = 0; i < size; i += 1) {
+                final String column = row.get(i);
+                hash = 31 * hash + (null == column ? 0 : column.hashCode());
+            }
+        } else {
+            final int size = row.size();
+            for (final int index : this.keyColumnIndexes) {
+                final String column = index < size ? row.get(index) : null;
+                hash = 31 * hash + (null == column ? 0 : column.hashCode());
+            }
+        }
+        return (hash & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    private int partitionOf(final List<String> row, final int partitionCount) {
+        final int partition = this.partition(row, partitionCount);
+        if (partition < 0 || partition >= partitionCount) {
+            throw new IllegalStateException("Partition " + partition + " is out of " + partitionCount);
+        }
+        return partition;
+    }
+
+    private AsyncSinks<List<String>> getRun(final DataFileContext dataFileContext) {
+        final AsyncSinks<List<String>> run = this.runCache.get(dataFileContext.getFilePath());
+        if (null == run) {
+            throw new IllegalStateException("beforeProcessFile is not called for " +
+                    dataFileContext.getFilePath());
+        }
+        return run;
+    }
+}
@@ -0,0 +1,483 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * <p>Hands the rows to {@code parallelism} worker threads, each of which runs its own chain of DataFileProcessors
+ *    created by {@code workerChainFactory}, e.g. CSV parsing, bean conversion and validation, so that the
+ *    CPU-heavy processing uses more than one core. At most {@code queueCapacity} tasks (a row, or a batch of
+ *    rows from {@link #processRows}) wait for or are in the workers, beyond which {@code processRow} blocks.</p>
+ *
+ * <p>In the unordered mode (by default), the outputs of the worker chains are passed to the next processor
+ *    concurrently as soon as they are ready, so the next processor (if any) must be thread-safe. In the ordered
+ *    mode, the outputs are re-sequenced in the order of the input rows, and passed to the next processor on the
+ *    thread that calls {@code processRow}, so the next processor can be a single-threaded sink.</p>
+ *
+ * <p>The rows are processed on other threads after {@code processRow} returns, so:</p>
+ * <ul>
+ *     <li>a recycled input DataRowContext is copied, but its row must not be recycled, i.e. do not put this
+ *         processor after a processor whose {@code reuseRowContext} is true;</li>
+ *     <li>the worker chains must not update the DataFileContext, e.g. put {@link SetRowTypeProcessor} before
+ *         this processor, not in the worker chains;</li>
+ *     <li>in the ordered mode, the rows output by the worker chains must not be recycled either.</li>
+ * </ul>
+ *
+ * <p>The workers process the rows out of the order of the data file, so a position in the file does not tell
+ *    which rows have been processed. In the unordered mode, the rows are passed to the workers without their
+ *    positions, so that neither the worker chains nor the next processor save a
+ *    {@link tech.firas.framework.fileimport.checkpoint.Checkpoint} for them. In the ordered mode, the positions
+ *    are kept for the next processor, which gets the rows in order and so can save checkpoints, but the worker
+ *    chains must not save checkpoints, i.e. do not set a {@code checkpointStore} on a processor in them.</p>
+ *
+ * @param <R>  the type of the input row
+ * @param <T>  the type of the row output by the worker chains
+ */
+public class ParallelProcessor<R, T> extends AbstractChainedFileProcessor<R, T> {
+
+    private static final Logger logger = Logger.getLogger(ParallelProcessor.class.getName());
+
+    private static final long POLL_MILLIS = 100;
+
+    private final ConcurrentMap<String, Run> runCache = new ConcurrentHashMap<>();
+
+    private WorkerChainFactory<R, T> workerChainFactory;
+
+    /**
+     * For running the workers, if null, a fixed thread pool of {@code parallelism} daemon threads
+     * is created for every file
+     */
+    private ExecutorService executorService;
+
+    /**
+     * The number of worker threads, default is the number of available processors
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The maximum number of tasks waiting for or being processed by the workers, default is 4 * parallelism
+     */
+    private int queueCapacity = 0;
+
+    private boolean ordered = false;
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        if (null == this.workerChainFactory) {
+            throw new IllegalStateException("workerChainFactory is null");
+        }
+        final Run stale = this.runCache.remove(filePath);
+        if (null != stale) {
+            logger.warning("The last processing of " + filePath + " was not finished, abort it");
+            stale.abort();
+        }
+
+        if (null != this.getNextProcessor()) {
+            this.getNextProcessor().beforeProcessFile(filePath);
+        }
+        final Run run = new Run(filePath);
+        this.runCache.put(filePath, run);
+        run.start();
+        logger.finer(this.parallelism + " worker(s) started for " + filePath);
+    }
+
+    @Override
+    public DataRowContext<R> processRow(final DataRowContext<R> dataRowContext) throws Exception {
+        final DataRowBatch<R> rows = new DataRowBatch<>(1);
+        rows.add(this.toTask(dataRowContext));
+        this.getRun(dataRowContext.getDataFileContext()).submit(rows);
+        return dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        final int size = dataRowBatch.size();
+        final DataRowBatch<R> rows = new DataRowBatch<>(size);
+        for (int i = 0; i < size; i += 1) {
+            rows.add(this.toTask(dataRowBatch.get(i)));
+        }
+        this.getRun(dataRowBatch.get(0).getDataFileContext()).submit(rows);
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        final Run run = this.getRun(dataFileContext);
+        try {
+            run.finish(dataFileContext);
+        } finally {
+            this.runCache.remove(dataFileContext.getFilePath());
+        }
+        if (null != this.getNextProcessor()) {
+            this.getNextProcessor().afterProcessFile(dataFileContext);
+        }
+    }
+
+    /**
+     * @return  {@code dataRowContext} or a copy of it to be kept for the workers, without the position in the
+     *          unordered mode
+     */
+    private DataRowContext<R> toTask(final DataRowContext<R> dataRowContext) {
+        if (this.ordered || dataRowContext.getPosition() < 0) {
+            return DataFileProcessors.copyIfRecycled(dataRowContext);
+        }
+        return new DataRowContext<>(dataRowContext.getDataFileContext(), dataRowContext.getRowNumber(),
+                dataRowContext.getRow(), dataRowContext.getType());
+    }
+
+    private Run getRun(final DataFileContext dataFileContext) {
+        final Run run = this.runCache.get(dataFileContext.getFilePath());
+        if (null == run) {
+            throw new IllegalStateException("beforeProcessFile is not called for " +
+                    dataFileContext.getFilePath());
+        }
+        return run;
+    }
+
+    public WorkerChainFactory<R, T> getWorkerChainFactory() {
+        return workerChainFactory;
+    }
+
+    public void setWorkerChainFactory(final WorkerChainFactory<R, T> workerChainFactory) {
+        this.workerChainFactory = workerChainFactory;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @param executorService  for running the workers, it must be able to run {@code parallelism} workers
+     *                         at the same time for the whole processing of a file
+     */
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be a positive integer");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity > 0 ? queueCapacity : this.parallelism * 4;
+    }
+
+    public void setQueueCapacity(final int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be a positive integer");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * @param ordered  true to pass the outputs of the workers to the next processor in the order of the input
+     *                 rows on one thread, false (by default) to pass them concurrently as soon as they are ready
+     */
+    public void setOrdered(final boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * A task of the workers: the rows to process, or the end of the file if {@code rows} is null
+     */
+    private static class Task<R> {
+        private final long sequence;
+        private final DataRowBatch<R> rows;
+        private final DataFileContext dataFileContext;
+
+        private Task(final long sequence, final DataRowBatch<R> rows, final DataFileContext dataFileContext) {
+            this.sequence = sequence;
+            this.rows = rows;
+            this.dataFileContext = dataFileContext;
+        }
+    }
+
+    /**
+     * The outputs of a task, for the ordered mode
+     */
+    private static class Result<T> {
+        private final long sequence;
+        private final List<DataRowContext<T>> outputs;
+
+        private Result(final long sequence, final List<DataRowContext<T>> outputs) {
+            this.sequence = sequence;
+            this.outputs = outputs;
+        }
+    }
+
+    /**
+     * The processing of one file
+     */
+    private class Run {
+
+        private final String filePath;
+        private final BlockingQueue<Task<R>> tasks = new LinkedBlockingQueue<>();
+        private final Semaphore permits = new Semaphore(getQueueCapacity());
+        private final CountDownLatch workersDone = new CountDownLatch(parallelism);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final ExecutorService executor;
+
+        /**
+         * For the ordered mode, only accessed by the thread calling processRow
+         */
+        private final BlockingQueue<Result<T>> results;
+        private final Map<Long, Result<T>> pendingResults;
+        private long nextSequence = 0;
+        private long nextOutputSequence = 0;
+
+        private Run(final String filePath) {
+            this.filePath = filePath;
+            this.executor = null == executorService ?
+                    Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory(filePath)) :
+                    executorService;
+            this.results = ordered ? new LinkedBlockingQueue<Result<T>>() : null;
+            this.pendingResults = ordered ? new HashMap<Long, Result<T>>() : null;
+        }
+
+        private void start() {
+            for (int i = 0; i < parallelism; i += 1) {
+                this.executor.execute(new Worker(this));
+            }
+        }
+
+        private void submit(final DataRowBatch<R> rows) throws Exception {
+            while (!this.permits.tryAcquire()) {
+                this.checkFailure();
+                if (ordered) {
+                    this.output(this.results.poll(POLL_MILLIS, TimeUnit.MILLISECONDS));
+                } else {
+                    if (this.permits.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                }
+            }
+            this.tasks.add(new Task<>(this.nextSequence, rows, null));
+            this.nextSequence += 1;
+
+            if (ordered) {
+                Result<T> result;
+                while (null != (result = this.results.poll())) {
+                    this.output(result);
+                }
+            }
+            this.checkFailure();
+        }
+
+        /**
+         * Pass the outputs of the tasks to the next processor in order, up to the one not finished
+         */
+        private void output(final Result<T> result) throws Exception {
+            if (null == result) {
+                return;
+            }
+            this.pendingResults.put(result.sequence, result);
+            Result<T> next;
+            while (null != (next = this.pendingResults.remove(this.nextOutputSequence))) {
+                this.nextOutputSequence += 1;
+                this.permits.release();
+                final DataFileProcessor<T> nextProcessor = getNextProcessor();
+                if (null != nextProcessor) {
+                    for (final DataRowContext<T> output : next.outputs) {
+                        nextProcessor.processRow(output);
+                    }
+                }
+            }
+        }
+
+        private void finish(final DataFileContext dataFileContext) throws Exception {
+            try {
+                for (int i = 0; i < parallelism; i += 1) {
+                    this.tasks.add(new Task<R>(-1, null, dataFileContext));
+                }
+                while (!this.workersDone.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    this.checkFailure();
+                    if (ordered) {
+                        this.output(this.results.poll());
+                    }
+                }
+                this.checkFailure();
+                if (ordered) {
+                    Result<T> result;
+                    while (null != (result = this.results.poll())) {
+                        this.output(result);
+                    }
+                    if (this.nextOutputSequence != this.nextSequence) {
+                        throw new IllegalStateException("Only " + this.nextOutputSequence + " of " +
+                                this.nextSequence + " task(s) are finished for " + this.filePath);
+                    }
+                }
+                logger.finer("Workers finished for " + this.filePath);
+            } catch (Exception ex) {
+                this.abort();
+                throw ex;
+            } finally {
+                if (this.executor != executorService) {
+                    this.executor.shutdown();
+                }
+            }
+        }
+
+        private void checkFailure() throws Exception {
+            final Throwable cause = this.failure.get();
+            if (null == cause) {
+                return;
+            }
+            this.abort();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new IllegalStateException("Worker failed for " + this.filePath, cause);
+        }
+
+        private void fail(final Throwable cause) {
+            if (!this.failure.compareAndSet(null, cause)) {
+                logger.finer("Ignored the failure after the first one for " + this.filePath + ": " + cause);
+            }
+        }
+
+        /**
+         * Stop the workers without calling afterProcessFile of the worker chains
+         */
+        private void abort() {
+            this.failure.compareAndSet(null,
+                    new IllegalStateException("The processing of " + this.filePath + " is aborted"));
+            runCache.remove(this.filePath, this);
+            this.tasks.clear();
+            for (int i = 0; i < parallelism; i += 1) {
+                this.tasks.add(new Task<R>(-1, null, null));
+            }
+            if (this.executor != executorService) {
+                this.executor.shutdownNow();
+            }
+        }
+    }
+
+    private class Worker implements Runnable, BatchDataFileProcessor<T> {
+
+        private final Run run;
+
+        /**
+         * The outputs of the current task, for the ordered mode
+         */
+        private List<DataRowContext<T>> outputs;
+
+        private Worker(final Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final DataFileProcessor<R> chain = workerChainFactory.createWorkerChain(
+                        null == getNextProcessor() && !ordered ? null : this);
+                chain.beforeProcessFile(this.run.filePath);
+                while (true) {
+                    final Task<R> task = this.run.tasks.take();
+                    if (null == task.rows) {
+                        if (null != task.dataFileContext && null == this.run.failure.get()) {
+                            chain.afterProcessFile(task.dataFileContext);
+                        }
+                        return;
+                    }
+                    if (null != this.run.failure.get()) {
+                        continue;
+                    }
+
+                    this.outputs = ordered ? new ArrayList<DataRowContext<T>>(task.rows.size()) : null;
+                    DataFileProcessors.processRows(chain, task.rows);
+                    if (ordered) {
+                        this.run.results.add(new Result<>(task.sequence, this.outputs));
+                    } else {
+                        this.run.permits.release();
+                    }
+                }
+            } catch (Throwable ex) {
+                this.run.fail(ex);
+            } finally {
+                this.run.workersDone.countDown();
+            }
+        }
+
+        // The worker chain passes its outputs to the worker, which are begun and ended by the ParallelProcessor
+
+        @Override
+        public void beforeProcessFile(final String filePath) {
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) {
+        }
+
+        @Override
+        public DataRowContext<T> processRow(final DataRowContext<T> dataRowContext) throws Exception {
+            if (ordered) {
+                this.outputs.add(DataFileProcessors.copyIfRecycled(dataRowContext));
+            } else {
+                getNextProcessor().processRow(dataRowContext);
+            }
+            return dataRowContext;
+        }
+
+        @Override
+        public void processRows(final DataRowBatch<T> dataRowBatch) throws Exception {
+            if (ordered) {
+                final int size = dataRowBatch.size();
+                for (int i = 0; i < size; i += 1) {
+                    this.outputs.add(DataFileProcessors.copyIfRecycled(dataRowBatch.get(i)));
+                }
+            } else {
+                DataFileProcessors.processRows(getNextProcessor(), dataRowBatch);
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final String filePath;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private WorkerThreadFactory(final String filePath) {
+            this.filePath = filePath;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "parallel-" + this.count.incrementAndGet() + "-" +
+                    this.filePath);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,20 +1,24 @@
 package tech.firas.framework.fileimport.processor;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
 import tech.firas.framework.fileimport.DataRowJudge;
+import tech.firas.framework.fileimport.ProcessingSession;
 import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.SessionKey;
 
 /**
- * Set RowType and row count in DataRowContext and then pass the row to the next DataFileProcessor
+ * Set RowType and row count in DataRowContext and then pass the row to the next DataFileProcessor.
+ * The row counts up to every row are set in its DataRowContext as well, see {@link DataRowContext#setRowCounts}
  * @param <R>  the type of the input row
  */
 public class SetRowTypeProcessor<R> extends AbstractChainedFileProcessor<R, R> {
 
-    private Map<String, RowType> lastRowTypeCache = new HashMap<>();
+    /**
+     * The type of the last row of the file, in the session of the file
+     */
+    private final SessionKey<RowType> lastRowTypeKey = new SessionKey<>("lastRowType");
 
     private DataRowJudge<R> dataRowJudge;
 
@@ -28,22 +32,49 @@ public class SetRowTypeProcessor<R> extends AbstractChainedFileProcessor<R, R> {
 
     @Override
     public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
-        this.lastRowTypeCache.remove(dataFileContext.getFilePath());
+        dataFileContext.getSession().remove(this.lastRowTypeKey);
         this.getNextProcessor().afterProcessFile(dataFileContext);
     }
 
     @Override
     public DataRowContext<R> processRow(DataRowContext<R> dataRowContext) throws Exception {
         ensureNextProcessNotNull();
-        final String filePath = dataRowContext.getDataFileContext().getFilePath();
+        final ProcessingSession session = dataRowContext.getSession();
+        final RowType lastRowType = session.get(this.lastRowTypeKey);
         final RowType rowType = this.dataRowJudge.test(dataRowContext.getRowNumber(), dataRowContext.getRow(),
-                this.lastRowTypeCache.get(filePath)); // for the first row, the previous row type is null
+                lastRowType); // for the first row, the previous row type is null
         dataRowContext.setType(rowType);
-        this.lastRowTypeCache.put(filePath, rowType);
+        if (rowType != lastRowType) {
+            session.put(this.lastRowTypeKey, rowType);
+        }
         setRowCount(dataRowContext);
         return this.getNextProcessor().processRow(dataRowContext);
     }
 
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        ensureNextProcessNotNull();
+        // the rows of a batch are from the same data file
+        final ProcessingSession session = dataRowBatch.get(0).getSession();
+        final RowType storedRowType = session.get(this.lastRowTypeKey);
+        RowType lastRowType = storedRowType;
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<R> dataRowContext = dataRowBatch.get(i);
+            lastRowType = this.dataRowJudge.test(dataRowContext.getRowNumber(), dataRowContext.getRow(),
+                    lastRowType);
+            dataRowContext.setType(lastRowType);
+            setRowCount(dataRowContext);
+        }
+        if (lastRowType != storedRowType) {
+            session.put(this.lastRowTypeKey, lastRowType);
+        }
+        this.forwardRows(dataRowBatch);
+    }
+
     private static void setRowCount(final DataRowContext<?> dataRowContext) {
         final DataFileContext dataFileContext = dataRowContext.getDataFileContext();
         switch (dataRowContext.getType()) {
@@ -57,5 +88,7 @@ public class SetRowTypeProcessor<R> extends AbstractChainedFileProcessor<R, R> {
                 dataFileContext.setFooterRowCount(dataFileContext.getFooterRowCount() + 1);
                 break;
         }
+        dataRowContext.setRowCounts(dataFileContext.getHeaderRowCount(), dataFileContext.getDataRowCount(),
+                dataFileContext.getFooterRowCount());
     }
 }
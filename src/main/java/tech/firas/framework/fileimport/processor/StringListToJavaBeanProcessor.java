@@ -4,12 +4,27 @@ import java.util.List;
 
 import org.springframework.core.convert.converter.Converter;
 
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
 
 public class StringListToJavaBeanProcessor<T> extends AbstractChainedFileProcessor<List<String>, T> {
 
     private Converter<List<String>, T> stringListToJavaBeanConverter;
 
+    private boolean reuseRowContext = false;
+
+    /**
+     * The DataRowContext reused on each thread, if {@code reuseRowContext} is true
+     */
+    private final ThreadLocal<DataRowContext<T>> reusableContext = new ThreadLocal<DataRowContext<T>>() {
+        @Override
+        protected DataRowContext<T> initialValue() {
+            return new DataRowContext<>();
+        }
+    };
+
+    private final ThreadLocal<DataRowBatch<T>> outputBatch = DataFileProcessors.threadLocalBatch();
+
     public Converter<List<String>, T> getStringListToJavaBeanConverter() {
         return stringListToJavaBeanConverter;
     }
@@ -18,6 +33,19 @@ public class StringListToJavaBeanProcessor<T> extends AbstractChainedFileProcess
         this.stringListToJavaBeanConverter = stringListToJavaBeanConverter;
     }
 
+    public boolean isReuseRowContext() {
+        return reuseRowContext;
+    }
+
+    /**
+     * @param reuseRowContext  true to pass a recycled DataRowContext to the next DataFileProcessor,
+     *                         instead of a new one for every row, see {@link DataRowContext#isRecycled()};
+     *                         the Java beans are still created by the converter for every row
+     */
+    public void setReuseRowContext(final boolean reuseRowContext) {
+        this.reuseRowContext = reuseRowContext;
+    }
+
     @Override
     public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext) throws Exception {
         if (null == this.stringListToJavaBeanConverter) {
@@ -27,9 +55,47 @@ public class StringListToJavaBeanProcessor<T> extends AbstractChainedFileProcess
 
         final T obj = this.stringListToJavaBeanConverter.convert(dataRowContext.getRow());
 
-        final DataRowContext<T> newContext = new DataRowContext<>(dataRowContext.getDataFileContext(),
-                dataRowContext.getRowNumber(), obj, dataRowContext.getType());
+        final DataRowContext<T> newContext = this.newContext(dataRowContext, obj,
+                this.reuseRowContext ? this.reusableContext.get() : null);
         this.getNextProcessor().processRow(newContext);
         return dataRowContext;
     }
+
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (null == this.stringListToJavaBeanConverter) {
+            throw new IllegalStateException("stringListToJavaBeanConverter is null");
+        }
+
+        final DataRowBatch<T> newBatch = this.outputBatch.get();
+        newBatch.clear();
+        final int size = dataRowBatch.size();
+        for (int i = 0; i < size; i += 1) {
+            final DataRowContext<List<String>> dataRowContext = dataRowBatch.get(i);
+            final T obj = this.stringListToJavaBeanConverter.convert(dataRowContext.getRow());
+            DataRowContext<T> reusable = null;
+            if (this.reuseRowContext) {
+                reusable = newBatch.nextReusable();
+                if (null == reusable) {
+                    reusable = new DataRowContext<>();
+                }
+            }
+            newBatch.add(this.newContext(dataRowContext, obj, reusable));
+        }
+        this.forwardRows(newBatch);
+    }
+
+    /**
+     * @param reusable  the DataRowContext to reuse, or null to create a new one
+     */
+    private DataRowContext<T> newContext(final DataRowContext<List<String>> dataRowContext, final T obj,
+            final DataRowContext<T> reusable) {
+        if (null != reusable) {
+            return reusable.reuse(dataRowContext, obj);
+        }
+        final DataRowContext<T> newContext = new DataRowContext<>(dataRowContext.getDataFileContext(),
+                dataRowContext.getRowNumber(), obj, dataRowContext.getType());
+        newContext.copyPosition(dataRowContext);
+        return newContext;
+    }
 }
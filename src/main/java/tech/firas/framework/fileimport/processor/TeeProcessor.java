@@ -0,0 +1,264 @@
+package tech.firas.framework.fileimport.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+
+/**
+ * <p>Passes every row to all the DataFileProcessors in {@code sinks} and {@code asyncSinks}, e.g. one for an
+ *    operational table and one for an audit table, so that a data file is read and parsed only once. The sinks
+ *    share the DataRowContexts, so they must not modify them.</p>
+ *
+ * <p>The {@code sinks} process the rows one after another on the thread that calls {@code processRow}. Every one
+ *    of the {@code asyncSinks} runs on its own thread, on {@code executorService} if it is set, so that a slow
+ *    sink does not hold the others: the rows are collected into batches of {@code asyncBatchSize} for it, and at
+ *    most {@code asyncQueueCapacity} batches wait for it, beyond which {@code processRow} blocks. Like
+ *    {@link ParallelProcessor}, the rows must not be recycled then.</p>
+ *
+ * <p>The sinks share the fate of the file, but not of their {@code afterProcessFile}:</p>
+ * <ul>
+ *     <li>{@code beforeProcessFile} is called on the {@code sinks} in order, and then on the {@code asyncSinks}
+ *         on their threads. If a sink fails it, the file fails;</li>
+ *     <li>if a sink fails a row, the file fails: the {@code asyncSinks} are stopped, and no sink gets
+ *         {@code afterProcessFile}, just like a single sink that fails a row;</li>
+ *     <li>in {@code afterProcessFile}, the {@code asyncSinks} process the rows left first, and then
+ *         {@code afterProcessFile} is called on all the sinks, the {@code asyncSinks} on their threads and then
+ *         the {@code sinks} in order. If a sink fails {@code afterProcessFile}, e.g. sink B fails to commit,
+ *         the other sinks still finish the file, e.g. sink A commits, and the first failure is thrown with the
+ *         others suppressed. Put the sink whose failure should prevent the others from committing in front of
+ *         this processor instead.</li>
+ * </ul>
+ *
+ * <p>The sinks commit the rows independently, so a position in the data file does not tell which rows all of
+ *    them have committed: the rows are passed to the sinks without their positions, so that no sink saves a
+ *    {@link tech.firas.framework.fileimport.checkpoint.Checkpoint} for the file. Do not set a
+ *    {@code checkpointStore} on the sinks either, or the first sink that finishes the file removes the
+ *    Checkpoint the file was resumed from, which the other sinks may still need.</p>
+ *
+ * @param <R>  the type of the row
+ */
+public class TeeProcessor<R> implements BatchDataFileProcessor<R> {
+
+    private static final Logger logger = Logger.getLogger(TeeProcessor.class.getName());
+
+    private final ConcurrentMap<String, AsyncSinks<R>> runCache = new ConcurrentHashMap<>();
+
+    private List<DataFileProcessor<R>> sinks = Collections.emptyList();
+
+    private List<DataFileProcessor<R>> asyncSinks = Collections.emptyList();
+
+    /**
+     * For running the asyncSinks, if null, a fixed thread pool of one daemon thread for every one of them
+     * is created for every file
+     */
+    private ExecutorService executorService;
+
+    private int asyncBatchSize = 256;
+
+    private int asyncQueueCapacity = 16;
+
+    private final ThreadLocal<DataRowBatch<R>> outputBatch = DataFileProcessors.threadLocalBatch();
+
+    public List<DataFileProcessor<R>> getSinks() {
+        return sinks;
+    }
+
+    /**
+     * @param sinks  the DataFileProcessors that process the rows on the thread that calls {@code processRow}
+     */
+    public void setSinks(final List<DataFileProcessor<R>> sinks) {
+        this.sinks = this.checkSinks(sinks, this.asyncSinks);
+    }
+
+    public List<DataFileProcessor<R>> getAsyncSinks() {
+        return asyncSinks;
+    }
+
+    /**
+     * @param asyncSinks  the DataFileProcessors that process the rows on their own threads
+     */
+    public void setAsyncSinks(final List<DataFileProcessor<R>> asyncSinks) {
+        this.asyncSinks = this.checkSinks(asyncSinks, this.sinks);
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @param executorService  for running the asyncSinks, it must be able to run all of them at the same time
+     *                         for the whole processing of a file
+     */
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    /**
+     * @param asyncBatchSize  how many rows are passed to an async sink at one time, 256 by default
+     */
+    public void setAsyncBatchSize(final int asyncBatchSize) {
+        if (asyncBatchSize <= 0) {
+            throw new IllegalArgumentException("asyncBatchSize must be a positive integer");
+        }
+        this.asyncBatchSize = asyncBatchSize;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    /**
+     * @param asyncQueueCapacity  the maximum number of batches waiting for an async sink, 16 by default
+     */
+    public void setAsyncQueueCapacity(final int asyncQueueCapacity) {
+        if (asyncQueueCapacity <= 0) {
+            throw new IllegalArgumentException("asyncQueueCapacity must be a positive integer");
+        }
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        if (this.sinks.isEmpty() && this.asyncSinks.isEmpty()) {
+            throw new IllegalStateException("sinks not set");
+        }
+        final AsyncSinks<R> stale = this.runCache.remove(filePath);
+        if (null != stale) {
+            logger.warning("The last processing of " + filePath + " was not finished, abort it");
+            stale.abort();
+        }
+
+        for (final DataFileProcessor<R> sink : this.sinks) {
+            sink.beforeProcessFile(filePath);
+        }
+        if (!this.asyncSinks.isEmpty()) {
+            final AsyncSinks<R> run = new AsyncSinks<>(filePath, this.asyncSinks, this.asyncBatchSize,
+                    this.asyncQueueCapacity, this.executorService, "tee");
+            this.runCache.put(filePath, run);
+            run.start();
+            logger.finer(this.asyncSinks.size() + " async sink(s) started for " + filePath);
+        }
+    }
+
+    @Override
+    public DataRowContext<R> processRow(final DataRowContext<R> dataRowContext) throws Exception {
+        final AsyncSinks<R> run = this.getRun(dataRowContext.getDataFileContext());
+        final DataRowContext<R> row = DataFileProcessors.copyWithoutPosition(dataRowContext);
+        try {
+            for (final DataFileProcessor<R> sink : this.sinks) {
+                sink.processRow(row);
+            }
+            if (null != run) {
+                for (int i = 0; i < this.asyncSinks.size(); i += 1) {
+                    run.add(i, row);
+                }
+            }
+        } catch (Exception ex) {
+            this.abort(dataRowContext.getDataFileContext(), run);
+            throw ex;
+        }
+        return dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<R> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        // the rows of a batch are from the same data file
+        final DataFileContext dataFileContext = dataRowBatch.get(0).getDataFileContext();
+        final AsyncSinks<R> run = this.getRun(dataFileContext);
+        final int size = dataRowBatch.size();
+        final DataRowBatch<R> rows = this.outputBatch.get();
+        rows.clear();
+        for (int i = 0; i < size; i += 1) {
+            rows.add(DataFileProcessors.copyWithoutPosition(dataRowBatch.get(i)));
+        }
+        try {
+            for (final DataFileProcessor<R> sink : this.sinks) {
+                DataFileProcessors.processRows(sink, rows);
+            }
+            if (null != run) {
+                for (int i = 0; i < this.asyncSinks.size(); i += 1) {
+                    for (int j = 0; j < size; j += 1) {
+                        run.add(i, rows.get(j));
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            this.abort(dataFileContext, run);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        final List<Exception> failures = new ArrayList<>(0);
+        final AsyncSinks<R> run = this.getRun(dataFileContext);
+        if (null != run) {
+            try {
+                failures.addAll(run.finish(dataFileContext));
+            } finally {
+                this.runCache.remove(dataFileContext.getFilePath(), run);
+            }
+        }
+        failures.addAll(DataFileProcessors.afterProcessFile(this.sinks, dataFileContext));
+        DataFileProcessors.throwFailures(failures);
+    }
+
+    /**
+     * @return  the processing of the file by the asyncSinks, or null if there is no async sink
+     */
+    private AsyncSinks<R> getRun(final DataFileContext dataFileContext) {
+        if (this.asyncSinks.isEmpty()) {
+            return null;
+        }
+        final AsyncSinks<R> run = this.runCache.get(dataFileContext.getFilePath());
+        if (null == run) {
+            throw new IllegalStateException("beforeProcessFile is not called for " +
+                    dataFileContext.getFilePath());
+        }
+        return run;
+    }
+
+    private void abort(final DataFileContext dataFileContext, final AsyncSinks<R> run) {
+        if (null != run) {
+            run.abort();
+            this.runCache.remove(dataFileContext.getFilePath(), run);
+        }
+    }
+
+    private List<DataFileProcessor<R>> checkSinks(final List<DataFileProcessor<R>> sinks,
+            final List<DataFileProcessor<R>> otherSinks) {
+        if (null == sinks) {
+            return Collections.emptyList();
+        }
+        final Map<DataFileProcessor<R>, Boolean> instances = new IdentityHashMap<>();
+        for (final DataFileProcessor<R> sink : otherSinks) {
+            instances.put(sink, Boolean.TRUE);
+        }
+        for (final DataFileProcessor<R> sink : sinks) {
+            if (null == sink) {
+                throw new IllegalArgumentException("sinks must not contain null");
+            }
+            if (null != instances.put(sink, Boolean.TRUE)) {
+                throw new IllegalArgumentException("sinks must be different instances");
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(sinks));
+    }
+}
@@ -0,0 +1,19 @@
+package tech.firas.framework.fileimport.processor;
+
+/**
+ * Creates the chain of DataFileProcessors run by one worker thread of a {@link ParallelProcessor}
+ *
+ * @param <R>  the type of the row that the first DataFileProcessor of the chain accepts
+ * @param <T>  the type of the row that the last DataFileProcessor of the chain outputs
+ */
+public interface WorkerChainFactory<R, T> {
+
+    /**
+     * @param output  the DataFileProcessor the last DataFileProcessor of the chain should pass its rows to,
+     *                which passes them to the next processor of the ParallelProcessor;
+     *                null if the ParallelProcessor has no next processor, then the chain must end with its own sink
+     * @return  the first DataFileProcessor of a new chain that shares no state with the chains created before
+     * @throws Exception  if an error occurs when creating the chain
+     */
+    DataFileProcessor<R> createWorkerChain(DataFileProcessor<T> output) throws Exception;
+}
@@ -1,19 +1,75 @@
 package tech.firas.framework.fileimport.processor.db;
 
-import java.util.HashMap;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180Parser;
+
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
-import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
+import tech.firas.framework.fileimport.checkpoint.Checkpoint;
+import tech.firas.framework.fileimport.checkpoint.CheckpointStore;
+import tech.firas.framework.fileimport.metrics.StageMetrics;
+import tech.firas.framework.fileimport.processor.BatchDataFileProcessor;
 
-public abstract class AbstractStringListToDbProcessor implements DataFileProcessor<List<String>> {
+public abstract class AbstractStringListToDbProcessor implements BatchDataFileProcessor<List<String>> {
 
     private static final Logger logger = Logger.getLogger(AbstractStringListToDbProcessor.class.getName());
 
-    private Map<String, Integer> rowCountCache = new HashMap<>();
+    /**
+     * The suffix of the name of a reject file, after the name of the data file
+     */
+    public static final String REJECT_FILE_SUFFIX = ".reject";
+
+    /**
+     * The name of the directory of the reject files by default, in the directory of the data file, so that
+     * the reject files are not taken as data files
+     */
+    public static final String DEFAULT_REJECT_DIRECTORY_NAME = "reject";
+
+    /**
+     * The error code of a row without any column
+     */
+    public static final String ROW_EMPTY = "row.empty";
+
+    /**
+     * The error code of a row of less columns than {@code columnDataTypeList} if {@code allowLessColumns} is false
+     */
+    public static final String ROW_LESS_COLUMNS = "row.lessColumns";
+
+    /**
+     * A percentage {@code errorBudget} is not checked before so many rows of a file are processed,
+     * until the end of the file
+     */
+    private static final long MIN_ROWS_FOR_PERCENT_BUDGET = 1000;
+
+    /**
+     * The number of the rows inserted into the batches and the rows rejected, in the session of the file
+     */
+    private final SessionKey<RowCounter> rowCounterKey = new SessionKey<>("rowCount");
+
+    /**
+     * The reject files of the data file by path, in the session of the whole data file, shared by all the
+     * AbstractStringListToDbProcessors of the data file, see {@link RejectFile}
+     */
+    private static final SessionKey<ConcurrentMap<Path, RejectFile>> REJECT_FILES_KEY =
+            new SessionKey<>("rejectFiles");
 
     /**
      * The SQL used to insert a row to DB
@@ -40,58 +96,349 @@ public abstract class AbstractStringListToDbProcessor implements DataFileProcess
 
     private List<DbDataType<?>> columnDataTypeList;
 
+    /**
+     * If not null, {@link #insertBatch} is timed into it after every file, null (by default) not to time it
+     */
+    private StageMetrics insertBatchMetrics;
+
+    /**
+     * The timings of {@link #insertBatch} of the file, in the session of the file
+     */
+    private final SessionKey<StageMetrics> fileBatchMetricsKey = new SessionKey<>("insertBatchMetrics");
+
+    /**
+     * Where a Checkpoint is saved after every committed batch, null (by default) not to save checkpoints
+     */
+    private CheckpointStore checkpointStore;
+
+    /**
+     * How many invalid rows of a file are rejected instead of failing the file, null (by default) to fail the file
+     * at the first invalid row; parsed into {@code maxRejectedRows} or {@code maxRejectedPercent}
+     */
+    private String errorBudget;
+    private long maxRejectedRows = -1;
+    private double maxRejectedPercent = -1;
+
+    /**
+     * Where the reject files are written to, null (by default) for the {@value #DEFAULT_REJECT_DIRECTORY_NAME}
+     * directory in the directory of the data file
+     */
+    private String rejectDirectory;
+
     @Override
     public void beforeProcessFile(final String filePath) throws Exception {
-        this.rowCountCache.put(filePath, 0);
-        logger.finer("rowCountCache initialized for " + filePath);
+        // the row count is kept in the session of the file, and is initialized by the first row
     }
 
     @Override
     public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext) throws Exception {
-        final String filePath = dataRowContext.getDataFileContext().getFilePath();
+        final DataFileContext dataFileContext = dataRowContext.getDataFileContext();
         try {
             final List<DbDataType<?>> typeList = this.getColumnDataTypeList();
             validateProcessorParameters(typeList);
 
-            final List<String> row = dataRowContext.getRow();
-            validateRow(typeList, row);
+            this.insertRow(dataFileContext, typeList, this.getRowCounter(dataFileContext), dataRowContext);
 
-            int rowNumber = this.rowCountCache.get(filePath);
-            rowNumber += 1;
-
-            this.insertOneRowIntoBatch(filePath, rowNumber, row);
+            return dataRowContext;
+        } catch (Exception ex) {
+            this.closeRejectWriter(dataFileContext);
+            cleanResource(dataFileContext);
+            throw ex;
+        }
+    }
 
-            this.rowCountCache.put(filePath, rowNumber);
+    /**
+     * Validate the processor once for the whole batch, and then insert the rows into the JDBC batch
+     * @param dataRowBatch  the rows to insert
+     * @throws Exception  if an error occurs when inserting the rows
+     */
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        final DataFileContext dataFileContext = dataRowBatch.get(0).getDataFileContext();
+        try {
+            final List<DbDataType<?>> typeList = this.getColumnDataTypeList();
+            validateProcessorParameters(typeList);
 
-            if (rowNumber % this.batchSize == 0) {
-                logger.finer("insertBatch, rowNumber: " + rowNumber + ", filePath: " + filePath);
-                this.insertBatch(filePath);
-                logger.finer("insertBatch done, rowNumber: " + rowNumber + ", filePath: " + filePath);
+            final RowCounter rowCounter = this.getRowCounter(dataFileContext);
+            final int size = dataRowBatch.size();
+            for (int i = 0; i < size; i += 1) {
+                this.insertRow(dataFileContext, typeList, rowCounter, dataRowBatch.get(i));
             }
-
-            return dataRowContext;
         } catch (Exception ex) {
-            cleanResource(filePath);
+            this.closeRejectWriter(dataFileContext);
+            cleanResource(dataFileContext);
             throw ex;
         }
     }
 
+    private RowCounter getRowCounter(final DataFileContext dataFileContext) throws Exception {
+        final ProcessingSession session = dataFileContext.getSession();
+        RowCounter rowCounter = session.get(this.rowCounterKey);
+        if (null == rowCounter) {
+            rowCounter = new RowCounter();
+            if (null != this.errorBudget && null != this.checkpointStore) {
+                this.restoreRejects(dataFileContext, rowCounter);
+            }
+            session.put(this.rowCounterKey, rowCounter);
+            logger.finer("Row counter initialized for " + dataFileContext.getFilePath());
+        }
+        return rowCounter;
+    }
+
+    /**
+     * @param rowCounter  the number of the rows inserted before this row, increased by this row
+     */
+    private void insertRow(final DataFileContext dataFileContext, final List<DbDataType<?>> typeList,
+            final RowCounter rowCounter, final DataRowContext<List<String>> dataRowContext) throws Exception {
+        final List<String> row = dataRowContext.getRow();
+        final long newRowNumber = rowCounter.rowNumber + 1;
+        try {
+            this.validateRow(typeList, row);
+            this.insertOneRowIntoBatch(dataFileContext, newRowNumber, row);
+        } catch (ValidationException ex) {
+            if (null == this.errorBudget) {
+                throw ex;
+            }
+            this.reject(dataFileContext, rowCounter, dataRowContext, ex);
+            return;
+        }
+        rowCounter.rowNumber = newRowNumber;
+
+        if (newRowNumber % this.batchSize == 0) {
+            final String filePath = dataFileContext.getFilePath();
+            logger.finer("insertBatch, rowNumber: " + newRowNumber + ", filePath: " + filePath);
+            this.timeInsertBatch(dataFileContext, this.batchSize);
+            logger.finer("insertBatch done, rowNumber: " + newRowNumber + ", filePath: " + filePath);
+            this.saveCheckpoint(dataRowContext);
+        }
+    }
+
     @Override
     public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
         final String filePath = dataFileContext.getFilePath();
-        final int rowNumber = this.rowCountCache.remove(filePath);
-        logger.finer("rowCountCache clear for " + filePath);
+        final RowCounter rowCounter = dataFileContext.getSession().remove(this.rowCounterKey);
+        final long rowNumber = null == rowCounter ? 0 : rowCounter.rowNumber;
+        logger.finer("Row counter removed for " + filePath);
+        if (null != rowCounter && null != this.errorBudget) {
+            closeRejectWriter(rowCounter, filePath);
+            // the worker chains of a ParallelProcessor finish the same file concurrently
+            synchronized (dataFileContext) {
+                dataFileContext.setAcceptedRowCount(dataFileContext.getAcceptedRowCount() + rowCounter.rowNumber +
+                    rowCounter.resumedRowCount);
+                dataFileContext.setRejectedRowCount(dataFileContext.getRejectedRowCount() +
+                        rowCounter.rejectedRowCount);
+            }
+            if (this.isPercentBudgetExceeded(rowCounter)) {
+                cleanResource(dataFileContext);
+                throw new ValidationException("errorBudget.exceeded: " + rowCounter.rejectedRowCount + " of " +
+                        rowCounter.getProcessedRowCount() + " row(s) rejected in " + filePath +
+                        ", errorBudget: " + this.errorBudget);
+            }
+        }
         if (rowNumber % this.batchSize != 0) {
             logger.finer("The last batch has not been inserted, insertBatch, rowNumber: " + rowNumber +
                     ", filePath: " + filePath);
-            this.insertBatch(filePath);
+            this.timeInsertBatch(dataFileContext, (int) (rowNumber % this.batchSize));
             logger.finer("insertBatch done, rowNumber: " + rowNumber + ", filePath: " + filePath);
         }
+        final StageMetrics fileBatchMetrics = dataFileContext.getSession().remove(this.fileBatchMetricsKey);
+        if (null != fileBatchMetrics) {
+            dataFileContext.getMetrics().merge(fileBatchMetrics);
+            final StageMetrics metrics = this.insertBatchMetrics;
+            if (null != metrics) {
+                metrics.merge(fileBatchMetrics);
+            }
+        }
+        if (null != this.checkpointStore) {
+            this.checkpointStore.remove(filePath);
+            logger.finer("Checkpoint removed for " + filePath);
+        }
+    }
+
+    private void timeInsertBatch(final DataFileContext dataFileContext, final int rows) throws Exception {
+        final StageMetrics metrics = this.insertBatchMetrics;
+        if (null == metrics || !metrics.isEnabled()) {
+            this.insertBatch(dataFileContext);
+            return;
+        }
+
+        final ProcessingSession session = dataFileContext.getSession();
+        StageMetrics fileBatchMetrics = session.get(this.fileBatchMetricsKey);
+        if (null == fileBatchMetrics) {
+            fileBatchMetrics = new StageMetrics(metrics.getName());
+            session.put(this.fileBatchMetricsKey, fileBatchMetrics);
+        }
+        final long start = System.nanoTime();
+        try {
+            this.insertBatch(dataFileContext);
+        } finally {
+            fileBatchMetrics.record(System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * Writes the row into the reject file, and fails the file if the error budget is exceeded
+     */
+    private void reject(final DataFileContext dataFileContext, final RowCounter rowCounter,
+            final DataRowContext<List<String>> dataRowContext, final ValidationException ex) throws Exception {
+        rowCounter.rejectedRowCount += 1;
+        final String filePath = dataFileContext.getFilePath();
+        logger.finer("Row " + dataRowContext.getRowNumber() + " of " + filePath + " is rejected: " + ex.getMessage());
+
+        if (null == rowCounter.rejectFile) {
+            final RejectFile rejectFile = this.getRejectFile(dataFileContext);
+            rejectFile.open(filePath);
+            rowCounter.rejectFile = rejectFile;
+        }
+        final long fileRejectedRowCount = rowCounter.rejectFile.write(dataRowContext.getRowNumber(),
+                ex.getErrorCode(), dataRowContext.getRow());
+
+        if ((this.maxRejectedRows >= 0 && fileRejectedRowCount > this.maxRejectedRows) ||
+                (rowCounter.getProcessedRowCount() >= MIN_ROWS_FOR_PERCENT_BUDGET &&
+                        this.isPercentBudgetExceeded(rowCounter))) {
+            throw new ValidationException("errorBudget.exceeded: " + fileRejectedRowCount +
+                    " row(s) rejected in " + filePath + " before row " + dataRowContext.getRowNumber() +
+                    ", errorBudget: " + this.errorBudget, ex);
+        }
+    }
+
+    private boolean isPercentBudgetExceeded(final RowCounter rowCounter) {
+        return this.maxRejectedPercent >= 0 && rowCounter.rejectedRowCount * 100.0 >
+                this.maxRejectedPercent * rowCounter.getProcessedRowCount();
+    }
+
+    /**
+     * <p>If the file is resumed from a Checkpoint, keeps the records of the rows before the Checkpoint in the
+     *    reject file, for the rows after it are processed again, and appends to the reject file from then on.</p>
+     *
+     * <p>The numbers of the rejected rows and the accepted rows before the Checkpoint are restored from the
+     *    reject file and the rows before the Checkpoint which are neither header rows nor footer rows, so this
+     *    processor should get all such rows, e.g. after a
+     *    {@link tech.firas.framework.fileimport.processor.FilterRowTypeProcessor} of the data rows.</p>
+     */
+    private void restoreRejects(final DataFileContext dataFileContext, final RowCounter rowCounter)
+            throws Exception {
+        final String filePath = dataFileContext.getFilePath();
+        final Checkpoint checkpoint = this.checkpointStore.load(filePath);
+        if (null == checkpoint) {
+            return;
+        }
+        final RejectFile rejectFile = this.getRejectFile(dataFileContext);
+        final Path rejectPath = rejectFile.getPath();
+        long rejectedRowCount = 0;
+        if (Files.isRegularFile(rejectPath)) {
+            final Path tempPath = rejectPath.resolveSibling(rejectPath.getFileName() + ".tmp");
+            try (final CSVReader reader = new CSVReaderBuilder(
+                    Files.newBufferedReader(rejectPath, StandardCharsets.UTF_8))
+                    .withCSVParser(new RFC4180Parser()).build();
+                    final BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                String[] record;
+                while (null != (record = reader.readNext())) {
+                    if (record.length < 2 || Long.parseLong(record[0]) > checkpoint.getRowNumber()) {
+                        continue;
+                    }
+                    writer.write(record[0]);
+                    for (int i = 1; i < record.length; i += 1) {
+                        writer.write(',');
+                        RejectFile.writeColumn(writer, record[i]);
+                    }
+                    writer.newLine();
+                    rejectedRowCount += 1;
+                }
+            }
+            Files.move(tempPath, rejectPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        rejectFile.resume(rejectedRowCount);
+        rowCounter.rejectedRowCount = rejectedRowCount;
+        final long rowCount = checkpoint.getRowNumber() - checkpoint.getHeaderRowCount() -
+                checkpoint.getFooterRowCount();
+        rowCounter.resumedRowCount = Math.max(0, rowCount - rejectedRowCount);
+        logger.info("Resume " + filePath + " with " + rowCounter.resumedRowCount + " accepted and " +
+                rejectedRowCount + " rejected row(s) before " + checkpoint);
     }
 
-    protected abstract void insertOneRowIntoBatch(String filePath, int rowNumber, List<String> rowData) throws Exception;
-    protected abstract void insertBatch(String filePath) throws Exception;
-    protected abstract void cleanResource(String filePath);
+    private Path getRejectPath(final String filePath) {
+        final File file = new File(filePath);
+        if (null != this.rejectDirectory) {
+            return Paths.get(this.rejectDirectory, file.getName() + REJECT_FILE_SUFFIX);
+        }
+        final String directory = file.getParent();
+        return null == directory ? Paths.get(DEFAULT_REJECT_DIRECTORY_NAME, file.getName() + REJECT_FILE_SUFFIX) :
+                Paths.get(directory, DEFAULT_REJECT_DIRECTORY_NAME, file.getName() + REJECT_FILE_SUFFIX);
+    }
+
+    /**
+     * @return  the RejectFile of the data file in the session of the whole data file, created if there is none
+     */
+    private RejectFile getRejectFile(final DataFileContext dataFileContext) {
+        final ProcessingSession fileSession = dataFileContext.getSession().getFileSession();
+        ConcurrentMap<Path, RejectFile> rejectFiles = fileSession.get(REJECT_FILES_KEY);
+        if (null == rejectFiles) {
+            synchronized (fileSession) {
+                rejectFiles = fileSession.get(REJECT_FILES_KEY);
+                if (null == rejectFiles) {
+                    rejectFiles = new ConcurrentHashMap<>();
+                    fileSession.put(REJECT_FILES_KEY, rejectFiles);
+                }
+            }
+        }
+        final Path rejectPath = this.getRejectPath(dataFileContext.getFilePath());
+        final RejectFile rejectFile = rejectFiles.get(rejectPath);
+        if (null != rejectFile) {
+            return rejectFile;
+        }
+        final RejectFile newRejectFile = new RejectFile(rejectPath);
+        final RejectFile existing = rejectFiles.putIfAbsent(rejectPath, newRejectFile);
+        return null == existing ? newRejectFile : existing;
+    }
+
+    private void closeRejectWriter(final DataFileContext dataFileContext) {
+        final RowCounter rowCounter = dataFileContext.getSession().get(this.rowCounterKey);
+        if (null != rowCounter) {
+            try {
+                closeRejectWriter(rowCounter, dataFileContext.getFilePath());
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Fail to close the reject file of " + dataFileContext.getFilePath(), ex);
+            }
+        }
+    }
+
+    private static void closeRejectWriter(final RowCounter rowCounter, final String filePath) throws IOException {
+        final RejectFile rejectFile = rowCounter.rejectFile;
+        if (null != rejectFile) {
+            rowCounter.rejectFile = null;
+            rejectFile.release(filePath);
+        }
+    }
+
+    /**
+     * The per-file resources, e.g. a PreparedStatement, should be kept in the session of
+     * {@code dataFileContext}, see {@link DataFileContext#getSession()}
+     */
+    protected abstract void insertOneRowIntoBatch(DataFileContext dataFileContext, long rowNumber,
+            List<String> rowData) throws Exception;
+    protected abstract void insertBatch(DataFileContext dataFileContext) throws Exception;
+    protected abstract void cleanResource(DataFileContext dataFileContext);
+
+    /**
+     * @return  true if the rows are committed when {@link #insertBatch} returns,
+     *          so that a Checkpoint can be saved after every batch
+     */
+    protected boolean isBatchCommitted() {
+        return true;
+    }
+
+    private void saveCheckpoint(final DataRowContext<List<String>> dataRowContext) throws Exception {
+        if (null == this.checkpointStore || dataRowContext.getPosition() < 0 || !this.isBatchCommitted()) {
+            return;
+        }
+        final Checkpoint checkpoint = Checkpoint.of(dataRowContext);
+        this.checkpointStore.save(checkpoint);
+        logger.finer("Saved " + checkpoint);
+    }
 
     private void validateProcessorParameters(final List<DbDataType<?>> typeList) {
         if (null == typeList) {
@@ -108,17 +455,19 @@ public abstract class AbstractStringListToDbProcessor implements DataFileProcess
         }
     }
 
-    private void validateRow(final List<DbDataType<?>> typeList, final List<String> row) {
-        if (null == row) {
-            throw new IllegalArgumentException("row is null");
-        }
-        if (row.isEmpty()) {
-            throw new IllegalArgumentException("row is empty");
+    /**
+     * @throws ValidationException  of {@link #ROW_EMPTY} or {@link #ROW_LESS_COLUMNS} if the row is invalid,
+     *                              so that it counts against the {@code errorBudget} like an invalid column
+     */
+    private void validateRow(final List<DbDataType<?>> typeList, final List<String> row)
+            throws ValidationException {
+        if (null == row || row.isEmpty()) {
+            throw new ValidationException(ROW_EMPTY + ": row is " + (null == row ? "null" : "empty"));
         }
 
         if (!this.allowLessColumns && row.size() < typeList.size()) {
-            throw new IllegalArgumentException("The size of row " + row.size() + " < " +
-                    " the size of columnDataTypeList " + typeList.size());
+            throw new ValidationException(ROW_LESS_COLUMNS + ": the size of row " + row.size() + " < " +
+                    "the size of columnDataTypeList " + typeList.size());
         }
     }
 
@@ -156,4 +505,141 @@ public abstract class AbstractStringListToDbProcessor implements DataFileProcess
     public void setColumnDataTypeList(final List<DbDataType<?>> columnDataTypeList) {
         this.columnDataTypeList = columnDataTypeList;
     }
+
+    public StageMetrics getInsertBatchMetrics() {
+        return insertBatchMetrics;
+    }
+
+    /**
+     * @param insertBatchMetrics  where the timings of every JDBC batch are merged into after every file, and
+     *                            into {@link DataFileContext#getMetrics()} under its name; null (by default)
+     *                            not to time the batches
+     */
+    public void setInsertBatchMetrics(final StageMetrics insertBatchMetrics) {
+        this.insertBatchMetrics = insertBatchMetrics;
+    }
+
+    public String getErrorBudget() {
+        return errorBudget;
+    }
+
+    /**
+     * <p>Reject the rows that fail the validation of {@code columnDataTypeList} (see {@link ValidationException})
+     *    instead of failing the whole file, as long as the rejected rows of a file are within the budget.
+     *    The valid rows are inserted as usual.</p>
+     *
+     * <p>Every rejected row is written into a reject file named after the data file with
+     *    {@value #REJECT_FILE_SUFFIX} (see {@link #setRejectDirectory}), as a CSV line of the row number,
+     *    the error code (see {@link ValidationException#getErrorCode()}) and the columns of the row.
+     *    The numbers of the accepted and rejected rows are added to the DataFileContext, see
+     *    {@link DataFileContext#getRejectedRowCount()}.</p>
+     *
+     * <p>If the budget is exceeded, the file fails with a ValidationException of the error code
+     *    {@code errorBudget.exceeded}. A percentage budget is checked once at least
+     *    {@value #MIN_ROWS_FOR_PERCENT_BUDGET} rows of the file are processed, and at the end of the file.
+     *    Like any failure of the file, it does not roll back the batches committed before it, see
+     *    {@link #isBatchCommitted()}: e.g. a file of less than {@value #MIN_ROWS_FOR_PERCENT_BUDGET} rows may
+     *    only be found over a percentage budget at its end, after all its batches but the last one are
+     *    committed. Use a count budget, or a processor that commits at the end of the file (e.g.
+     *    {@link StringListToDbProcessorWithDataSource#setAutoCommit} false), if such a file must not be
+     *    imported partially.</p>
+     *
+     * <p>If the file is resumed from a Checkpoint (see {@link #setCheckpointStore}), the rejected rows before the
+     *    Checkpoint are kept in the reject file and count against the budget.</p>
+     *
+     * <p>If the rows of a file are processed by several processors concurrently, e.g. the worker chains of a
+     *    {@link tech.firas.framework.fileimport.processor.ParallelProcessor} or the chains of the ranges of a
+     *    {@link tech.firas.framework.fileimport.SplitPlainTextDataFileReader}, they share one reject file, and
+     *    a count budget applies to the rows rejected by all of them, i.e. to the whole file. A percentage budget
+     *    applies to the rows processed by every processor separately, e.g. to every range of the file.</p>
+     *
+     * @param errorBudget  the maximum number of rejected rows of a file, e.g. "100", or the maximum percentage of
+     *                     the rejected rows of a file, e.g. "0.5%"; null to fail the file at the first invalid row
+     */
+    public void setErrorBudget(final String errorBudget) {
+        if (null == errorBudget) {
+            this.maxRejectedRows = -1;
+            this.maxRejectedPercent = -1;
+            this.errorBudget = null;
+            return;
+        }
+
+        final String budget = errorBudget.trim();
+        try {
+            if (budget.endsWith("%")) {
+                final double percent = Double.parseDouble(budget.substring(0, budget.length() - 1).trim());
+                if (!(percent >= 0 && percent <= 100)) {
+                    throw new IllegalArgumentException("errorBudget must be a percentage between 0% and 100%: " +
+                            errorBudget);
+                }
+                this.maxRejectedRows = -1;
+                this.maxRejectedPercent = percent;
+            } else {
+                final long rows = Long.parseLong(budget);
+                if (rows < 0) {
+                    throw new IllegalArgumentException("errorBudget must not be negative: " + errorBudget);
+                }
+                this.maxRejectedRows = rows;
+                this.maxRejectedPercent = -1;
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid errorBudget: " + errorBudget, ex);
+        }
+        this.errorBudget = budget;
+    }
+
+    public String getRejectDirectory() {
+        return rejectDirectory;
+    }
+
+    /**
+     * @param rejectDirectory  where the reject files are written to, null (by default) for the
+     *                         {@value #DEFAULT_REJECT_DIRECTORY_NAME} directory in the directory of the data
+     *                         file, which is created if it does not exist
+     */
+    public void setRejectDirectory(final String rejectDirectory) {
+        this.rejectDirectory = rejectDirectory;
+    }
+
+    public CheckpointStore getCheckpointStore() {
+        return checkpointStore;
+    }
+
+    /**
+     * <p>Save a Checkpoint into {@code checkpointStore} after every committed batch, and remove it after the
+     *    whole data file is imported, so that the reader with the same CheckpointStore
+     *    (see {@link tech.firas.framework.fileimport.AbstractDataFileReader#setCheckpointStore}) can resume the
+     *    data file after the last committed batch if the import is interrupted.</p>
+     *
+     * <p>The Checkpoint is saved after the batch is committed, so if the process dies between them,
+     *    the rows of at most one batch are inserted again when the data file is resumed.</p>
+     *
+     * @param checkpointStore  where the checkpoints are saved, null not to save checkpoints
+     */
+    public void setCheckpointStore(final CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * Updated in place for every row, instead of putting a new boxed Long into the session
+     */
+    private static final class RowCounter {
+        private long rowNumber = 0;
+        private long rejectedRowCount = 0;
+
+        /**
+         * The accepted rows before the Checkpoint the file is resumed from, not in {@code rowNumber},
+         * which is aligned with the batches
+         */
+        private long resumedRowCount = 0;
+
+        /**
+         * Opened for the first rejected row of the file
+         */
+        private RejectFile rejectFile;
+
+        private long getProcessedRowCount() {
+            return this.rowNumber + this.resumedRowCount + this.rejectedRowCount;
+        }
+    }
 }
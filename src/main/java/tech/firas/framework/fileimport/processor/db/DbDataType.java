@@ -3,7 +3,13 @@ package tech.firas.framework.fileimport.processor.db;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
-abstract class DbDataType<T> {
+/**
+ * The type of a column in the DB, which converts a String column of a data row to the value of the column,
+ * see {@link AbstractStringListToDbProcessor#setColumnDataTypeList}
+ *
+ * @param <T>  the Java type of the value
+ */
+public abstract class DbDataType<T> {
 
     private boolean notNull;
 
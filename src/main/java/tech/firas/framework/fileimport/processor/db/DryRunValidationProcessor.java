@@ -0,0 +1,248 @@
+package tech.firas.framework.fileimport.processor.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
+import tech.firas.framework.fileimport.processor.BatchDataFileProcessor;
+
+/**
+ * <p>Validates the rows as an {@link AbstractStringListToDbProcessor} would before inserting them, i.e. converts
+ *    every column by {@link DbDataType#fromString} and checks the number of the columns against
+ *    {@code allowLessColumns}, without touching the DB, so that the data files can be checked before the load
+ *    window. The rules can be copied from the DB processor of the real import by {@link #setRulesOf}.</p>
+ *
+ * <p>A {@link ValidationReport} of every data file is logged and passed to {@code reportListener} in
+ *    {@code afterProcessFile}, with the count of every error code and at most {@code maxSamples} sample errors.
+ *    The numbers of the valid and the invalid rows are added to {@link DataFileContext#getAcceptedRowCount()} and
+ *    {@link DataFileContext#getRejectedRowCount()}. The invalid rows do not fail the file.</p>
+ *
+ * <p>This processor is thread-safe, so that the files can be validated in parallel by
+ *    {@link tech.firas.framework.fileimport.DefaultDataFileImporterBase#setParallelism}, and the rows of a file on
+ *    more cores by chaining this processor after an unordered
+ *    {@link tech.firas.framework.fileimport.processor.ParallelProcessor}, whose workers parse the rows and then
+ *    call this processor concurrently.</p>
+ */
+public class DryRunValidationProcessor implements BatchDataFileProcessor<List<String>> {
+
+    private static final Logger logger = Logger.getLogger(DryRunValidationProcessor.class.getName());
+
+    public static final String ROW_EMPTY = AbstractStringListToDbProcessor.ROW_EMPTY;
+    public static final String ROW_LESS_COLUMNS = AbstractStringListToDbProcessor.ROW_LESS_COLUMNS;
+
+    /**
+     * The report being collected, in the session of the file
+     */
+    private final SessionKey<FileReport> fileReportKey = new SessionKey<>("validationReport");
+
+    private List<DbDataType<?>> columnDataTypeList;
+
+    private boolean allowLessColumns = true;
+
+    private int maxSamples = 20;
+
+    private ValidationReportListener reportListener;
+
+    public List<DbDataType<?>> getColumnDataTypeList() {
+        return columnDataTypeList;
+    }
+
+    public void setColumnDataTypeList(final List<DbDataType<?>> columnDataTypeList) {
+        this.columnDataTypeList = columnDataTypeList;
+    }
+
+    public boolean isAllowLessColumns() {
+        return allowLessColumns;
+    }
+
+    public void setAllowLessColumns(final boolean allowLessColumns) {
+        this.allowLessColumns = allowLessColumns;
+    }
+
+    /**
+     * Copy {@code columnDataTypeList} and {@code allowLessColumns} of {@code dbProcessor}, nothing else of it
+     * is used, so its DataSource is never connected
+     *
+     * @param dbProcessor  the processor whose rules the rows are validated against
+     */
+    public void setRulesOf(final AbstractStringListToDbProcessor dbProcessor) {
+        this.columnDataTypeList = dbProcessor.getColumnDataTypeList();
+        this.allowLessColumns = dbProcessor.isAllowLessColumns();
+    }
+
+    public int getMaxSamples() {
+        return maxSamples;
+    }
+
+    /**
+     * @param maxSamples  the maximum number of the sample errors in the report of a file, 20 by default
+     */
+    public void setMaxSamples(final int maxSamples) {
+        if (maxSamples < 0) {
+            throw new IllegalArgumentException("maxSamples cannot be negative");
+        }
+        this.maxSamples = maxSamples;
+    }
+
+    public ValidationReportListener getReportListener() {
+        return reportListener;
+    }
+
+    public void setReportListener(final ValidationReportListener reportListener) {
+        this.reportListener = reportListener;
+    }
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        if (null == this.columnDataTypeList) {
+            throw new IllegalStateException("columnDataTypeList is null");
+        }
+        if (this.columnDataTypeList.isEmpty()) {
+            throw new IllegalStateException("columnDataTypeList is empty");
+        }
+    }
+
+    @Override
+    public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+            throws Exception {
+        final FileReport fileReport = this.getFileReport(dataRowContext.getDataFileContext());
+        final boolean valid = this.validate(fileReport, dataRowContext);
+        synchronized (fileReport) {
+            fileReport.rowCount += 1;
+            if (!valid) {
+                fileReport.invalidRowCount += 1;
+            }
+        }
+        return dataRowContext;
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        // the rows of a batch are from the same data file
+        final FileReport fileReport = this.getFileReport(dataRowBatch.get(0).getDataFileContext());
+        final int size = dataRowBatch.size();
+        int invalidRowCount = 0;
+        for (int i = 0; i < size; i += 1) {
+            if (!this.validate(fileReport, dataRowBatch.get(i))) {
+                invalidRowCount += 1;
+            }
+        }
+        synchronized (fileReport) {
+            fileReport.rowCount += size;
+            fileReport.invalidRowCount += invalidRowCount;
+        }
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        final FileReport fileReport = dataFileContext.getSession().remove(this.fileReportKey);
+        final ValidationReport report;
+        if (null == fileReport) {
+            report = new ValidationReport(dataFileContext.getFilePath(), 0, 0, new HashMap<String, Long>(),
+                    new ArrayList<ValidationReport.Sample>());
+        } else {
+            synchronized (fileReport) {
+                report = fileReport.toReport(dataFileContext.getFilePath());
+            }
+        }
+        synchronized (dataFileContext) {
+            dataFileContext.setAcceptedRowCount(dataFileContext.getAcceptedRowCount() +
+                    report.getRowCount() - report.getInvalidRowCount());
+            dataFileContext.setRejectedRowCount(dataFileContext.getRejectedRowCount() + report.getInvalidRowCount());
+        }
+
+        if (report.isValid()) {
+            logger.info(report.getRowCount() + " row(s) of " + report.getFilePath() + " are valid");
+        } else {
+            logger.warning(report.getInvalidRowCount() + " of " + report.getRowCount() + " row(s) of " +
+                    report.getFilePath() + " are invalid, errors: " + report.getErrorCounts());
+        }
+        if (null != this.reportListener) {
+            this.reportListener.onReport(report);
+        }
+    }
+
+    private FileReport getFileReport(final DataFileContext dataFileContext) {
+        final ProcessingSession session = dataFileContext.getSession();
+        FileReport fileReport = session.get(this.fileReportKey);
+        if (null == fileReport) {
+            // the rows of a file may be validated by the workers of a ParallelProcessor concurrently
+            synchronized (dataFileContext) {
+                fileReport = session.get(this.fileReportKey);
+                if (null == fileReport) {
+                    fileReport = new FileReport();
+                    session.put(this.fileReportKey, fileReport);
+                }
+            }
+        }
+        return fileReport;
+    }
+
+    /**
+     * @return  true if the row is valid
+     */
+    private boolean validate(final FileReport fileReport, final DataRowContext<List<String>> dataRowContext) {
+        final List<String> row = dataRowContext.getRow();
+        if (null == row || row.isEmpty()) {
+            this.addError(fileReport, dataRowContext, -1, ROW_EMPTY, ROW_EMPTY);
+            return false;
+        }
+
+        final List<DbDataType<?>> typeList = this.columnDataTypeList;
+        final int size = row.size();
+        boolean valid = true;
+        if (!this.allowLessColumns && size < typeList.size()) {
+            this.addError(fileReport, dataRowContext, -1, ROW_LESS_COLUMNS, ROW_LESS_COLUMNS + ": " + size +
+                    " < " + typeList.size());
+            valid = false;
+        }
+        for (int i = 0; i < typeList.size(); i += 1) {
+            try {
+                // a missing column is inserted as null
+                typeList.get(i).fromString(i < size ? row.get(i) : null);
+            } catch (ValidationException ex) {
+                this.addError(fileReport, dataRowContext, i, ex.getErrorCode(), ex.getMessage());
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private void addError(final FileReport fileReport, final DataRowContext<List<String>> dataRowContext,
+            final int columnIndex, final String errorCode, final String message) {
+        synchronized (fileReport) {
+            final Long count = fileReport.errorCounts.get(errorCode);
+            fileReport.errorCounts.put(errorCode, null == count ? 1L : count + 1);
+            if (fileReport.samples.size() < this.maxSamples) {
+                fileReport.samples.add(new ValidationReport.Sample(dataRowContext.getRowNumber(), columnIndex,
+                        errorCode, message, dataRowContext.getRow()));
+            }
+        }
+    }
+
+    /**
+     * The counts of a file, guarded by itself
+     */
+    private static class FileReport {
+
+        private long rowCount = 0;
+        private long invalidRowCount = 0;
+        private final Map<String, Long> errorCounts = new HashMap<>();
+        private final List<ValidationReport.Sample> samples = new ArrayList<>();
+
+        private ValidationReport toReport(final String filePath) {
+            return new ValidationReport(filePath, this.rowCount, this.invalidRowCount, this.errorCounts,
+                    this.samples);
+        }
+    }
+}
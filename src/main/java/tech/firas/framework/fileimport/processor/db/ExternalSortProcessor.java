@@ -0,0 +1,618 @@
+package tech.firas.framework.fileimport.processor.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.SessionKey;
+import tech.firas.framework.fileimport.processor.AbstractChainedFileProcessor;
+
+/**
+ * <p>Sorts the rows of a data file by the columns at {@code sortColumnIndexes} before passing them to the next
+ *    DataFileProcessor, usually an {@link AbstractStringListToDbProcessor}, so that the rows are inserted in the
+ *    order of the clustered index of the table. The columns are compared as the values converted by
+ *    {@code sortColumnDataTypeList}, e.g. "10" is after "9" for an {@link Int32Type}, and null is first;
+ *    a column that cannot be converted is compared as null, and is left to be rejected by the next processor.
+ *    The rows of the same key keep their order in the file.</p>
+ *
+ * <p>The rows are buffered until their estimated size reaches {@code memoryBudget}, then sorted and spilled to
+ *    a temporary file in {@code tempDirectory} as a sorted run. In {@code afterProcessFile}, the runs and the rows
+ *    still buffered are merged and passed to the next processor in batches of {@code outputBatchSize}. The header
+ *    rows are passed at once, and the footer rows after all the sorted rows.</p>
+ *
+ * <p>The sorted rows have no position in the data file, so no checkpoint is saved for them. The runs are named
+ *    "sort-&lt;file name&gt;-*.run", and are deleted when the file is merged, or when this processor (or the next
+ *    one with a header row) fails. If the file fails before its rows reach this processor, e.g. the reader fails,
+ *    or the JVM exits, the runs are left in {@code tempDirectory}; they are deleted in {@code beforeProcessFile}
+ *    when a file of the same name is processed again, unless they are still used in this JVM.</p>
+ */
+public class ExternalSortProcessor extends AbstractChainedFileProcessor<List<String>, List<String>> {
+
+    private static final Logger logger = Logger.getLogger(ExternalSortProcessor.class.getName());
+
+    /**
+     * The estimated overhead of a buffered row and of a column in it, in bytes
+     */
+    private static final int ROW_OVERHEAD = 64;
+    private static final int COLUMN_OVERHEAD = 48;
+
+    private static final int MIN_RUN_BUFFER_SIZE = 4096;
+    private static final int MAX_RUN_BUFFER_SIZE = 65536;
+
+    private static final RowType[] ROW_TYPES = RowType.values();
+
+    /**
+     * The runs created and not deleted yet in this JVM, so that the runs of a file processed concurrently,
+     * e.g. by the ranges of a split file, are not deleted as stale ones
+     */
+    private static final Set<Path> LIVE_RUNS = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+
+    /**
+     * The rows buffered and the runs spilled, in the session of the file
+     */
+    private final SessionKey<SortState> sortStateKey = new SessionKey<>("sortState");
+
+    private int[] sortColumnIndexes;
+
+    private List<DbDataType<?>> sortColumnDataTypeList;
+
+    private long memoryBudget = 64L * 1024 * 1024;
+
+    private String tempDirectory;
+
+    private int outputBatchSize = 1024;
+
+    public List<Integer> getSortColumnIndexes() {
+        if (null == this.sortColumnIndexes) {
+            return null;
+        }
+        final List<Integer> result = new ArrayList<>(this.sortColumnIndexes.length);
+        for (final int index : this.sortColumnIndexes) {
+            result.add(index);
+        }
+        return result;
+    }
+
+    /**
+     * @param sortColumnIndexes  the indexes (count from 0) of the columns of the sort key, the most significant first
+     */
+    public void setSortColumnIndexes(final List<Integer> sortColumnIndexes) {
+        if (null == sortColumnIndexes) {
+            this.sortColumnIndexes = null;
+            return;
+        }
+        final int[] indexes = new int[sortColumnIndexes.size()];
+        for (int i = 0; i < indexes.length; i += 1) {
+            final Integer index = sortColumnIndexes.get(i);
+            if (null == index || index < 0) {
+                throw new IllegalArgumentException("sortColumnIndexes must not contain a null or a negative index");
+            }
+            indexes[i] = index;
+        }
+        this.sortColumnIndexes = indexes;
+    }
+
+    public List<DbDataType<?>> getSortColumnDataTypeList() {
+        return sortColumnDataTypeList;
+    }
+
+    /**
+     * @param sortColumnDataTypeList  the types to convert the columns of the sort key to, one for every index in
+     *                                {@code sortColumnIndexes}; null, or a null type, to compare the columns as
+     *                                strings
+     */
+    public void setSortColumnDataTypeList(final List<DbDataType<?>> sortColumnDataTypeList) {
+        this.sortColumnDataTypeList = sortColumnDataTypeList;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget  the estimated size in bytes of the rows of a file buffered before they are spilled,
+     *                      64 MB by default
+     */
+    public void setMemoryBudget(final long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be a positive integer");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    public String getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @param tempDirectory  the directory of the sorted runs, null (by default) for the system temporary directory
+     */
+    public void setTempDirectory(final String tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    public int getOutputBatchSize() {
+        return outputBatchSize;
+    }
+
+    /**
+     * @param outputBatchSize  how many sorted rows are passed to the next processor at one time, 1024 by default
+     */
+    public void setOutputBatchSize(final int outputBatchSize) {
+        if (outputBatchSize <= 0) {
+            throw new IllegalArgumentException("outputBatchSize must be a positive integer");
+        }
+        this.outputBatchSize = outputBatchSize;
+    }
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        if (null == this.sortColumnIndexes || this.sortColumnIndexes.length <= 0) {
+            throw new IllegalStateException("sortColumnIndexes not set");
+        }
+        if (null != this.sortColumnDataTypeList &&
+                this.sortColumnDataTypeList.size() != this.sortColumnIndexes.length) {
+            throw new IllegalStateException("sortColumnDataTypeList does not match sortColumnIndexes");
+        }
+        this.deleteStaleRuns(filePath);
+        super.beforeProcessFile(filePath);
+    }
+
+    @Override
+    public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+            throws Exception {
+        ensureNextProcessNotNull();
+        final DataFileContext dataFileContext = dataRowContext.getDataFileContext();
+        try {
+            if (RowType.HEADER == dataRowContext.getType()) {
+                return this.getNextProcessor().processRow(dataRowContext);
+            }
+            this.bufferRow(this.getSortState(dataFileContext), dataRowContext);
+            return dataRowContext;
+        } catch (Exception ex) {
+            this.discardSortState(dataFileContext);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+        if (dataRowBatch.isEmpty()) {
+            return;
+        }
+        ensureNextProcessNotNull();
+        // the rows of a batch are from the same data file
+        final DataFileContext dataFileContext = dataRowBatch.get(0).getDataFileContext();
+        try {
+            final SortState sortState = this.getSortState(dataFileContext);
+            final int size = dataRowBatch.size();
+            for (int i = 0; i < size; i += 1) {
+                final DataRowContext<List<String>> dataRowContext = dataRowBatch.get(i);
+                if (RowType.HEADER == dataRowContext.getType()) {
+                    this.getNextProcessor().processRow(dataRowContext);
+                } else {
+                    this.bufferRow(sortState, dataRowContext);
+                }
+            }
+        } catch (Exception ex) {
+            this.discardSortState(dataFileContext);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        final SortState sortState = dataFileContext.getSession().remove(this.sortStateKey);
+        if (null != sortState) {
+            try {
+                this.mergeRuns(dataFileContext, sortState);
+            } finally {
+                deleteRuns(sortState);
+            }
+        }
+        super.afterProcessFile(dataFileContext);
+    }
+
+    /**
+     * Delete the runs of the file, so that they are not left in {@code tempDirectory} when the file fails
+     */
+    private void discardSortState(final DataFileContext dataFileContext) {
+        final SortState sortState = dataFileContext.getSession().remove(this.sortStateKey);
+        if (null != sortState) {
+            deleteRuns(sortState);
+            logger.finer("Sort buffer discarded for " + dataFileContext.getFilePath());
+        }
+    }
+
+    private SortState getSortState(final DataFileContext dataFileContext) {
+        final ProcessingSession session = dataFileContext.getSession();
+        SortState sortState = session.get(this.sortStateKey);
+        if (null == sortState) {
+            sortState = new SortState();
+            session.put(this.sortStateKey, sortState);
+            logger.finer("Sort buffer initialized for " + dataFileContext.getFilePath());
+        }
+        return sortState;
+    }
+
+    private void bufferRow(final SortState sortState, final DataRowContext<List<String>> dataRowContext)
+            throws IOException {
+        // the context and the List may be reused for the next row, so the columns are copied
+        final List<String> row = dataRowContext.getRow();
+        final String[] columns = row.toArray(new String[row.size()]);
+        final SortedRow sortedRow = new SortedRow(this.buildKey(columns), dataRowContext.getRowNumber(),
+                columns, dataRowContext.getType());
+        if (RowType.FOOTER == sortedRow.type) {
+            sortState.footers.add(sortedRow);
+            return;
+        }
+
+        sortState.rows.add(sortedRow);
+        sortState.bufferedBytes += estimateSize(columns);
+        if (sortState.bufferedBytes >= this.memoryBudget) {
+            this.spill(dataRowContext.getDataFileContext(), sortState);
+        }
+    }
+
+    private void spill(final DataFileContext dataFileContext, final SortState sortState) throws IOException {
+        Collections.sort(sortState.rows, SORTED_ROW_COMPARATOR);
+        final Path run;
+        synchronized (LIVE_RUNS) {
+            run = Files.createTempFile(this.getRunDirectory(), getRunPrefix(dataFileContext.getFilePath()), ".run");
+            LIVE_RUNS.add(run);
+        }
+        sortState.runs.add(run);
+        sortState.runSizes.add((long) sortState.rows.size());
+        try (final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(run), MAX_RUN_BUFFER_SIZE))) {
+            for (final SortedRow sortedRow : sortState.rows) {
+                writeRow(outputStream, sortedRow);
+            }
+        }
+        logger.finer("Spilled " + sortState.rows.size() + " row(s) of " + dataFileContext.getFilePath() +
+                " to " + run);
+        sortState.rows.clear();
+        sortState.bufferedBytes = 0;
+    }
+
+    private void mergeRuns(final DataFileContext dataFileContext, final SortState sortState) throws Exception {
+        Collections.sort(sortState.rows, SORTED_ROW_COMPARATOR);
+        final int runBufferSize = (int) Math.max(MIN_RUN_BUFFER_SIZE,
+                Math.min(MAX_RUN_BUFFER_SIZE, this.memoryBudget / (sortState.runs.size() + 1)));
+        final PriorityQueue<RunCursor> queue = new PriorityQueue<>(sortState.runs.size() + 1,
+                new Comparator<RunCursor>() {
+                    @Override
+                    public int compare(final RunCursor cursor1, final RunCursor cursor2) {
+                        return SORTED_ROW_COMPARATOR.compare(cursor1.head, cursor2.head);
+                    }
+                });
+        try {
+            for (int i = 0; i < sortState.runs.size(); i += 1) {
+                final FileRunCursor cursor = new FileRunCursor(sortState.runs.get(i), sortState.runSizes.get(i),
+                        runBufferSize);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+            final MemoryRunCursor memoryCursor = new MemoryRunCursor(sortState.rows);
+            if (memoryCursor.advance()) {
+                queue.add(memoryCursor);
+            }
+            logger.finer("Merging " + sortState.runs.size() + " run(s) and " + sortState.rows.size() +
+                    " buffered row(s) of " + dataFileContext.getFilePath());
+
+            final DataRowBatch<List<String>> batch = new DataRowBatch<>(this.outputBatchSize);
+            while (!queue.isEmpty()) {
+                final RunCursor cursor = queue.poll();
+                batch.add(this.toContext(dataFileContext, cursor.head));
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+                if (batch.size() >= this.outputBatchSize) {
+                    this.forwardRows(batch);
+                    batch.clear();
+                }
+            }
+            for (final SortedRow footer : sortState.footers) {
+                batch.add(this.toContext(dataFileContext, footer));
+            }
+            this.forwardRows(batch);
+        } finally {
+            for (final RunCursor cursor : queue) {
+                cursor.close();
+            }
+        }
+    }
+
+    private DataRowContext<List<String>> toContext(final DataFileContext dataFileContext,
+            final SortedRow sortedRow) {
+        // no position, so that no checkpoint is saved for an unordered row
+        final List<String> row = new ArrayList<>(sortedRow.columns.length);
+        Collections.addAll(row, sortedRow.columns);
+        return new DataRowContext<>(dataFileContext, sortedRow.rowNumber, row, sortedRow.type);
+    }
+
+    /**
+     * @return  the values of the columns of the sort key, null for a missing or invalid column
+     */
+    private Comparable<?>[] buildKey(final String[] columns) {
+        final Comparable<?>[] key = new Comparable<?>[this.sortColumnIndexes.length];
+        for (int i = 0; i < key.length; i += 1) {
+            final int index = this.sortColumnIndexes[i];
+            final String column = index < columns.length ? columns[index] : null;
+            final DbDataType<?> type = null == this.sortColumnDataTypeList ? null :
+                    this.sortColumnDataTypeList.get(i);
+            if (null == type || null == column) {
+                key[i] = column;
+                continue;
+            }
+            final Object value;
+            try {
+                value = type.fromString(column);
+            } catch (ValidationException ex) {
+                continue;
+            }
+            if (null != value && !(value instanceof Comparable)) {
+                throw new IllegalStateException(type.getClass().getName() + " is not comparable");
+            }
+            key[i] = (Comparable<?>) value;
+        }
+        return key;
+    }
+
+    private static long estimateSize(final String[] columns) {
+        long size = ROW_OVERHEAD;
+        for (final String column : columns) {
+            size += null == column ? 8 : COLUMN_OVERHEAD + column.length() * 2L;
+        }
+        return size;
+    }
+
+    private Path getRunDirectory() {
+        return Paths.get(null == this.tempDirectory ? System.getProperty("java.io.tmpdir") : this.tempDirectory);
+    }
+
+    /**
+     * @return  "sort-", the name of the file without the characters that are special in a file name or a glob,
+     *          and "-"
+     */
+    private static String getRunPrefix(final String filePath) {
+        final String fileName = filePath.substring(Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\')) + 1);
+        return "sort-" + fileName.replaceAll("[^\\w.-]", "_") + '-';
+    }
+
+    /**
+     * Delete the runs left in {@code tempDirectory} by a failure of the file, except the ones still used in this JVM
+     */
+    private void deleteStaleRuns(final String filePath) {
+        final Path directory = this.getRunDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        synchronized (LIVE_RUNS) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                    getRunPrefix(filePath) + "*.run")) {
+                for (final Path run : stream) {
+                    if (!LIVE_RUNS.contains(run)) {
+                        Files.deleteIfExists(run);
+                        logger.fine("Deleted the stale run " + run);
+                    }
+                }
+            } catch (IOException ex) {
+                logger.warning("Fail to delete the stale runs of " + filePath + ": " + ex);
+            }
+        }
+    }
+
+    private static void deleteRuns(final SortState sortState) {
+        for (final Path run : sortState.runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException ex) {
+                logger.warning("Fail to delete " + run + ": " + ex);
+            }
+            LIVE_RUNS.remove(run);
+        }
+        sortState.runs.clear();
+    }
+
+    /**
+     * A row is written as its row number, its type, the number of its columns,
+     * and then the length (plus 1, 0 for null) and the UTF-8 bytes of every column
+     */
+    private static void writeRow(final DataOutputStream outputStream, final SortedRow sortedRow)
+            throws IOException {
+        outputStream.writeLong(sortedRow.rowNumber);
+        outputStream.writeByte(sortedRow.type.ordinal());
+        writeVarInt(outputStream, sortedRow.columns.length);
+        for (final String column : sortedRow.columns) {
+            if (null == column) {
+                writeVarInt(outputStream, 0);
+            } else {
+                final byte[] bytes = column.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(outputStream, bytes.length + 1);
+                outputStream.write(bytes);
+            }
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream outputStream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            outputStream.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.writeByte(value);
+    }
+
+    private static int readVarInt(final DataInputStream inputStream) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final int b = inputStream.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Compares the keys, null first, and then the row numbers, to keep the order of the rows of the same key
+     */
+    private static final Comparator<SortedRow> SORTED_ROW_COMPARATOR = new Comparator<SortedRow>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(final SortedRow row1, final SortedRow row2) {
+            for (int i = 0; i < row1.key.length; i += 1) {
+                final Comparable<Object> value1 = (Comparable<Object>) row1.key[i];
+                final Object value2 = row2.key[i];
+                if (value1 != value2) {
+                    if (null == value1) {
+                        return -1;
+                    }
+                    if (null == value2) {
+                        return 1;
+                    }
+                    final int result = value1.compareTo(value2);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+            }
+            return row1.rowNumber < row2.rowNumber ? -1 : (row1.rowNumber == row2.rowNumber ? 0 : 1);
+        }
+    };
+
+    private static class SortedRow {
+
+        private final Comparable<?>[] key;
+        private final long rowNumber;
+        private final String[] columns;
+        private final RowType type;
+
+        private SortedRow(final Comparable<?>[] key, final long rowNumber, final String[] columns,
+                final RowType type) {
+            this.key = key;
+            this.rowNumber = rowNumber;
+            this.columns = columns;
+            this.type = null == type ? RowType.UNKNOWN : type;
+        }
+    }
+
+    private static class SortState {
+
+        private final List<SortedRow> rows = new ArrayList<>();
+        private long bufferedBytes = 0;
+
+        private final List<Path> runs = new ArrayList<>();
+        private final List<Long> runSizes = new ArrayList<>();
+
+        private final List<SortedRow> footers = new ArrayList<>();
+    }
+
+    private abstract static class RunCursor implements Closeable {
+
+        /**
+         * The current row of the run
+         */
+        SortedRow head;
+
+        /**
+         * @return  false if there is no more row in the run
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class MemoryRunCursor extends RunCursor {
+
+        private final List<SortedRow> rows;
+        private int index = 0;
+
+        private MemoryRunCursor(final List<SortedRow> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        boolean advance() {
+            if (this.index >= this.rows.size()) {
+                this.head = null;
+                return false;
+            }
+            this.head = this.rows.get(this.index);
+            this.index += 1;
+            return true;
+        }
+    }
+
+    private class FileRunCursor extends RunCursor {
+
+        private final Path run;
+        private final DataInputStream inputStream;
+        private long remaining;
+
+        private FileRunCursor(final Path run, final long rowCount, final int bufferSize) throws IOException {
+            this.run = run;
+            this.inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), bufferSize));
+            this.remaining = rowCount;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (this.remaining <= 0) {
+                this.head = null;
+                return false;
+            }
+            this.remaining -= 1;
+            final long rowNumber = this.inputStream.readLong();
+            final RowType type = ROW_TYPES[this.inputStream.readUnsignedByte()];
+            final String[] columns = new String[readVarInt(this.inputStream)];
+            for (int i = 0; i < columns.length; i += 1) {
+                final int length = readVarInt(this.inputStream) - 1;
+                if (length >= 0) {
+                    final byte[] bytes = new byte[length];
+                    this.inputStream.readFully(bytes);
+                    columns[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            this.head = new SortedRow(buildKey(columns), rowNumber, columns, type);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.inputStream.close();
+            } catch (IOException ex) {
+                logger.warning("Fail to close " + this.run + ": " + ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package tech.firas.framework.fileimport.processor.db;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <p>The reject file of a data file, shared by the AbstractStringListToDbProcessors that process the rows of the
+ *    data file concurrently, e.g. the worker chains of a
+ *    {@link tech.firas.framework.fileimport.processor.ParallelProcessor} or the chains of the ranges of a
+ *    {@link tech.firas.framework.fileimport.SplitPlainTextDataFileReader}, so that they do not overwrite the
+ *    records of each other. It is kept in the session of the whole data file, see
+ *    {@link tech.firas.framework.fileimport.ProcessingSession#getFileSession()}.</p>
+ *
+ * <p>The file is truncated when it is opened for the first time for the data file, and is appended to after that,
+ *    e.g. by a range that is processed after the other ranges have closed the file.</p>
+ */
+final class RejectFile {
+
+    private static final Logger logger = Logger.getLogger(RejectFile.class.getName());
+
+    private final Path path;
+
+    /**
+     * Opened by the first processor that rejects a row, and closed when no processor uses it
+     */
+    private BufferedWriter writer;
+
+    /**
+     * The number of the processors that use {@code writer}
+     */
+    private int users = 0;
+
+    /**
+     * Whether the file has been opened or resumed for the data file, then it is appended to
+     */
+    private boolean started = false;
+
+    /**
+     * The number of the rows rejected into this file, by all the processors
+     */
+    private long rejectedRowCount = 0;
+
+    RejectFile(final Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Appends to the file from now on, the file is resumed from a Checkpoint
+     *
+     * @param rejectedRowCount  the number of the rows rejected before the Checkpoint, kept in the file
+     */
+    synchronized void resume(final long rejectedRowCount) {
+        this.started = true;
+        this.rejectedRowCount = rejectedRowCount;
+    }
+
+    /**
+     * Opens the file for a processor, which must {@link #release} it after the data file is processed
+     *
+     * @param filePath  the path of the data file
+     * @throws IOException  if the file cannot be opened
+     */
+    synchronized void open(final String filePath) throws IOException {
+        if (null == this.writer) {
+            if (null != this.path.getParent()) {
+                Files.createDirectories(this.path.getParent());
+            }
+            if (this.started) {
+                this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } else {
+                this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8);
+                logger.info("Rejecting the invalid rows of " + filePath + " into " + this.path);
+            }
+            this.started = true;
+        }
+        this.users += 1;
+    }
+
+    /**
+     * Writes a record of a rejected row, as a CSV line of the row number, the error code and the columns
+     *
+     * @return  the number of the rows rejected into this file, including this one
+     */
+    synchronized long write(final long rowNumber, final String errorCode, final List<String> row)
+            throws IOException {
+        final BufferedWriter writer = this.writer;
+        if (null == writer) {
+            throw new IllegalStateException(this.path + " is not open");
+        }
+        writer.write(String.valueOf(rowNumber));
+        writer.write(',');
+        writeColumn(writer, errorCode);
+        if (null != row) {
+            for (final String column : row) {
+                writer.write(',');
+                writeColumn(writer, column);
+            }
+        }
+        writer.newLine();
+        this.rejectedRowCount += 1;
+        return this.rejectedRowCount;
+    }
+
+    /**
+     * Closes the file if no other processor uses it
+     *
+     * @param filePath  the path of the data file
+     * @throws IOException  if the file cannot be closed
+     */
+    synchronized void release(final String filePath) throws IOException {
+        this.users -= 1;
+        final BufferedWriter writer = this.writer;
+        if (this.users <= 0 && null != writer) {
+            this.writer = null;
+            writer.close();
+            logger.finer("Reject file closed for " + filePath);
+        }
+    }
+
+    /**
+     * Writes a column of a reject file, quoted as in RFC 4180 if necessary
+     */
+    static void writeColumn(final BufferedWriter writer, final String column) throws IOException {
+        if (null == column) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < column.length() && !quote; i += 1) {
+            final char c = column.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(column);
+            return;
+        }
+        writer.write('"');
+        writer.write(column.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
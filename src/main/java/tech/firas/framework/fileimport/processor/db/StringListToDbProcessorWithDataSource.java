@@ -3,19 +3,20 @@ package tech.firas.framework.fileimport.processor.db;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
 
 /**
- * This class gets a Connection for importing each file from {@code dataSource}
+ * This class gets a Connection for importing each file from {@code dataSource}, when the first row of the file
+ * is inserted
  */
 public class StringListToDbProcessorWithDataSource extends AbstractStringListToDbProcessor {
 
@@ -35,29 +36,47 @@ public class StringListToDbProcessorWithDataSource extends AbstractStringListToD
 
     private DataSource dataSource;
 
-    protected Map<String, PreparedStatement> statementCache = new HashMap<>();
+    /**
+     * The PreparedStatement of the file, in the session of the file
+     */
+    private final SessionKey<PreparedStatement> statementKey = new SessionKey<>("statement");
 
     @Override
     public void beforeProcessFile(final String filePath) throws Exception {
         super.beforeProcessFile(filePath);
 
         validateProcessorParameters();
+    }
 
-        final Connection connection = this.dataSource.getConnection();
-        final Boolean autoCommit = this.autoCommit;
-        if (null != autoCommit) {
-            connection.setAutoCommit(autoCommit);
+    /**
+     * Get the PreparedStatement of the file from the session of the file, create it with a new Connection
+     * for the first row of the file
+     */
+    private PreparedStatement getStatement(final DataFileContext dataFileContext) throws SQLException {
+        final ProcessingSession session = dataFileContext.getSession();
+        final PreparedStatement cached = session.get(this.statementKey);
+        if (null != cached) {
+            return cached;
         }
-        logger.finer("Connection created for " + filePath);
 
+        final String filePath = dataFileContext.getFilePath();
+        final Connection connection = this.dataSource.getConnection();
+        final PreparedStatement ps;
         try {
-            final PreparedStatement ps = connection.prepareStatement(this.getInsertSql());
-            this.statementCache.put(filePath, ps);
-        } catch (Exception ex) {
+            final Boolean autoCommit = this.autoCommit;
+            if (null != autoCommit) {
+                connection.setAutoCommit(autoCommit);
+            }
+            logger.finer("Connection created for " + filePath);
+
+            ps = connection.prepareStatement(this.getInsertSql());
+        } catch (SQLException | RuntimeException ex) {
             connection.close();
             throw ex;
         }
+        session.put(this.statementKey, ps);
         logger.finer("PreparedStatement cached for " + filePath);
+        return ps;
     }
 
     @Override
@@ -66,8 +85,12 @@ public class StringListToDbProcessorWithDataSource extends AbstractStringListToD
 
         final String filePath = dataFileContext.getFilePath();
         final Connection connection;
-        final PreparedStatement ps = this.statementCache.remove(filePath);
-        logger.finer("statementCache clear for " + filePath);
+        final PreparedStatement ps = dataFileContext.getSession().remove(this.statementKey);
+        if (null == ps) {
+            logger.finer("No row is inserted for " + filePath);
+            return;
+        }
+        logger.finer("PreparedStatement removed from the session of " + filePath);
         try {
             connection = ps.getConnection();
         } catch (SQLException ex) {
@@ -106,12 +129,9 @@ public class StringListToDbProcessorWithDataSource extends AbstractStringListToD
     }
 
     @Override
-    protected void insertOneRowIntoBatch(final String filePath, final int rowNumber,
+    protected void insertOneRowIntoBatch(final DataFileContext dataFileContext, final long rowNumber,
             final List<String> rowData) throws Exception {
-        final PreparedStatement ps = this.statementCache.get(filePath);
-        if (null == ps) {
-            throw new IllegalStateException("No PreparedStatement is found for " + filePath);
-        }
+        final PreparedStatement ps = this.getStatement(dataFileContext);
 
         Iterator<String> iterator = rowData.iterator();
         
@@ -121,7 +141,7 @@ public class StringListToDbProcessorWithDataSource extends AbstractStringListToD
             if (!iterator.hasNext()) {
                 logger.info("The size of the " + rowNumber +
                         " row < the size of columnDataTypeList " + typeList.size() +
-                        ", filePath: " + filePath);
+                        ", filePath: " + dataFileContext.getFilePath());
                 item.setParameterForPreparedStatement(ps, i, null);
             } else {
                 item.setParameterForPreparedStatement(ps, i, iterator.next());
@@ -132,18 +152,30 @@ public class StringListToDbProcessorWithDataSource extends AbstractStringListToD
     }
 
     @Override
-    protected void insertBatch(final String filePath) throws Exception {
-        final PreparedStatement ps = this.statementCache.get(filePath);
+    protected void insertBatch(final DataFileContext dataFileContext) throws Exception {
+        final PreparedStatement ps = dataFileContext.getSession().get(this.statementKey);
         if (null == ps) {
-            throw new IllegalStateException("No PreparedStatement is found for " + filePath);
+            throw new IllegalStateException("No PreparedStatement is found for " + dataFileContext.getFilePath());
         }
         ps.executeBatch();
     }
 
+    /**
+     * @return  true only if {@code autoCommit} is true, otherwise the batches are not committed until the end
+     */
+    @Override
+    protected boolean isBatchCommitted() {
+        return Boolean.TRUE.equals(this.autoCommit);
+    }
+
     @Override
-    protected void cleanResource(final String filePath) {
-        final PreparedStatement ps = this.statementCache.remove(filePath);
-        logger.finer("statementCache clear for " + filePath);
+    protected void cleanResource(final DataFileContext dataFileContext) {
+        final String filePath = dataFileContext.getFilePath();
+        final PreparedStatement ps = dataFileContext.getSession().remove(this.statementKey);
+        if (null == ps) {
+            return;
+        }
+        logger.finer("PreparedStatement removed from the session of " + filePath);
         try {
             final Connection connection = ps.getConnection();
 
@@ -1,15 +1,15 @@
 package tech.firas.framework.fileimport.processor.db;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
 
 /**
  * This class uses a JdbcTemplate to import data to DB
@@ -20,8 +20,10 @@ public class StringListToDbProcessorWithJdbcTemplate extends AbstractStringListT
 
     private JdbcTemplate jdbcTemplate;
 
-    protected Map<String, int[]> sqlTypeCache = new HashMap<>();
-    protected Map<String, List<Object[]>> rowParamCache = new HashMap<>();
+    /**
+     * The SQL types and the parameters of the current batch of the file, in the session of the file
+     */
+    private final SessionKey<BatchState> batchStateKey = new SessionKey<>("batchState");
 
     @Override
     public void beforeProcessFile(final String filePath) throws Exception {
@@ -33,30 +35,19 @@ public class StringListToDbProcessorWithJdbcTemplate extends AbstractStringListT
             throw new IllegalStateException("columnDataTypeList is empty");
         }
 
-        final int[] types = new int[typeList.size()];
-        int i = 0;
-        for (DbDataType item : typeList) {
-            types[i++] = item.getJavaSqlType();
-        }
-        this.sqlTypeCache.put(filePath, types);
-
         super.beforeProcessFile(filePath);
     }
 
     @Override
     public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
         super.afterProcessFile(dataFileContext);
-        this.cleanResource(dataFileContext.getFilePath());
+        this.cleanResource(dataFileContext);
     }
 
     @Override
-    protected void insertOneRowIntoBatch(final String filePath, final int rowNumber,
+    protected void insertOneRowIntoBatch(final DataFileContext dataFileContext, final long rowNumber,
             final List<String> rowData) throws Exception {
-        List<Object[]> params = this.rowParamCache.get(filePath);
-        if (null == params) {
-            params = new ArrayList<>(this.getBatchSize());
-            this.rowParamCache.put(filePath, params);
-        }
+        final List<Object[]> params = this.getBatchState(dataFileContext).params;
 
         Iterator<String> iterator = rowData.iterator();
 
@@ -65,6 +56,7 @@ public class StringListToDbProcessorWithJdbcTemplate extends AbstractStringListT
         int i = 0;
         for (final DbDataType<?> item : typeList) {
             if (!iterator.hasNext()) {
+                final String filePath = dataFileContext.getFilePath();
                 logger.info('[' + filePath + "] The size of the " + rowNumber +
                         " row < the size of columnDataTypeList " + typeList.size() +
                         ", filePath: " + filePath);
@@ -78,22 +70,36 @@ public class StringListToDbProcessorWithJdbcTemplate extends AbstractStringListT
     }
 
     @Override
-    protected void insertBatch(final String filePath) throws Exception {
+    protected void insertBatch(final DataFileContext dataFileContext) throws Exception {
         if (null == this.jdbcTemplate) {
             throw new IllegalStateException("jdbcTemplate is null");
         }
 
-        final List<Object[]> params = this.rowParamCache.get(filePath);
-        this.jdbcTemplate.batchUpdate(this.getInsertSql(), params, this.sqlTypeCache.get(filePath));
-        params.clear();
+        final BatchState batchState = this.getBatchState(dataFileContext);
+        this.jdbcTemplate.batchUpdate(this.getInsertSql(), batchState.params, batchState.types);
+        batchState.params.clear();
     }
 
     @Override
-    protected void cleanResource(final String filePath) {
-        this.sqlTypeCache.remove(filePath);
-        logger.finer("sqlTypeCache clear for " + filePath);
-        this.rowParamCache.remove(filePath);
-        logger.finer("rowParamCache clear for " + filePath);
+    protected void cleanResource(final DataFileContext dataFileContext) {
+        dataFileContext.getSession().remove(this.batchStateKey);
+        logger.finer("Batch state removed from the session of " + dataFileContext.getFilePath());
+    }
+
+    private BatchState getBatchState(final DataFileContext dataFileContext) {
+        final ProcessingSession session = dataFileContext.getSession();
+        BatchState batchState = session.get(this.batchStateKey);
+        if (null == batchState) {
+            final List<DbDataType<?>> typeList = this.getColumnDataTypeList();
+            final int[] types = new int[typeList.size()];
+            int i = 0;
+            for (DbDataType item : typeList) {
+                types[i++] = item.getJavaSqlType();
+            }
+            batchState = new BatchState(types, new ArrayList<Object[]>(this.getBatchSize()));
+            session.put(this.batchStateKey, batchState);
+        }
+        return batchState;
     }
 
     public JdbcTemplate getJdbcTemplate() {
@@ -103,4 +109,14 @@ public class StringListToDbProcessorWithJdbcTemplate extends AbstractStringListT
     public void setJdbcTemplate(final JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
+
+    private static final class BatchState {
+        private final int[] types;
+        private final List<Object[]> params;
+
+        private BatchState(final int[] types, final List<Object[]> params) {
+            this.types = types;
+            this.params = params;
+        }
+    }
 }
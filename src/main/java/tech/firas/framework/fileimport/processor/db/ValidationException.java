@@ -1,5 +1,8 @@
 package tech.firas.framework.fileimport.processor.db;
 
+/**
+ * The message is an error code, e.g. {@code int32.invalid.format}, optionally followed by ": " and the details
+ */
 public class ValidationException extends Exception {
 
     public ValidationException(final String message) {
@@ -9,4 +12,16 @@ public class ValidationException extends Exception {
     public ValidationException(final String message, final Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * @return  the error code in the message, i.e. the message before ": "
+     */
+    public String getErrorCode() {
+        final String message = this.getMessage();
+        if (null == message) {
+            return null;
+        }
+        final int index = message.indexOf(": ");
+        return index < 0 ? message : message.substring(0, index);
+    }
 }
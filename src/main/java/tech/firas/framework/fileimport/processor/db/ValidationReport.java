@@ -0,0 +1,130 @@
+package tech.firas.framework.fileimport.processor.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of validating a data file by {@link DryRunValidationProcessor}: how many rows are invalid,
+ * how many times every error code occurs, and some of the invalid rows as samples
+ */
+public class ValidationReport {
+
+    private final String filePath;
+    private final long rowCount;
+    private final long invalidRowCount;
+    private final Map<String, Long> errorCounts;
+    private final List<Sample> samples;
+
+    public ValidationReport(final String filePath, final long rowCount, final long invalidRowCount,
+            final Map<String, Long> errorCounts, final List<Sample> samples) {
+        this.filePath = filePath;
+        this.rowCount = rowCount;
+        this.invalidRowCount = invalidRowCount;
+        this.errorCounts = Collections.unmodifiableMap(new TreeMap<>(errorCounts));
+        this.samples = Collections.unmodifiableList(new ArrayList<>(samples));
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return  the number of the rows validated
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getInvalidRowCount() {
+        return invalidRowCount;
+    }
+
+    /**
+     * @return  how many times every error code occurs, sorted by the error code;
+     *          a row with two invalid columns is counted twice
+     */
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+
+    /**
+     * @return  some of the errors with their rows, in the order they are found
+     */
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    public boolean isValid() {
+        return invalidRowCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport{" +
+                "filePath='" + filePath + '\'' +
+                ", rowCount=" + rowCount +
+                ", invalidRowCount=" + invalidRowCount +
+                ", errorCounts=" + errorCounts +
+                ", samples=" + samples +
+                '}';
+    }
+
+    /**
+     * An error of a row
+     */
+    public static class Sample {
+
+        private final long rowNumber;
+
+        /**
+         * The index (count from 0) of the invalid column, or -1 if the error is of the whole row
+         */
+        private final int columnIndex;
+
+        private final String errorCode;
+        private final String message;
+        private final List<String> row;
+
+        public Sample(final long rowNumber, final int columnIndex, final String errorCode, final String message,
+                final List<String> row) {
+            this.rowNumber = rowNumber;
+            this.columnIndex = columnIndex;
+            this.errorCode = errorCode;
+            this.message = message;
+            this.row = null == row ? null : Collections.unmodifiableList(new ArrayList<>(row));
+        }
+
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public List<String> getRow() {
+            return row;
+        }
+
+        @Override
+        public String toString() {
+            return "Sample{" +
+                    "rowNumber=" + rowNumber +
+                    ", columnIndex=" + columnIndex +
+                    ", message='" + message + '\'' +
+                    ", row=" + row +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package tech.firas.framework.fileimport.processor.db;
+
+/**
+ * Gets the report of every data file validated by {@link DryRunValidationProcessor}
+ */
+public interface ValidationReportListener {
+
+    /**
+     * Called in {@code afterProcessFile} of the data file, maybe by the threads of different files at the same time
+     *
+     * @param report  the report of a data file
+     * @throws Exception  if an error occurs, then the file fails
+     */
+    void onReport(ValidationReport report) throws Exception;
+}
@@ -0,0 +1,51 @@
+package tech.firas.framework.fileimport.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>A List view of an array of columns, like {@code Arrays.asList}, but the array can be replaced,
+ *    so that one ArrayColumnList can be reused for all the rows of a data file.</p>
+ *
+ * <p>The List itself must not be kept after the row is processed, but the columns can.</p>
+ */
+public class ArrayColumnList extends AbstractList<String> implements RandomAccess {
+
+    private static final String[] EMPTY = new String[0];
+
+    private String[] columns = EMPTY;
+
+    /**
+     * @param columns  the columns of the next row, the array is not copied
+     * @return  this List
+     */
+    public ArrayColumnList reset(final String[] columns) {
+        if (null == columns) {
+            throw new IllegalArgumentException("columns must not be null");
+        }
+        this.columns = columns;
+        return this;
+    }
+
+    @Override
+    public String get(final int index) {
+        return this.columns[index];
+    }
+
+    @Override
+    public String set(final int index, final String element) {
+        final String old = this.columns[index];
+        this.columns[index] = element;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return this.columns.length;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.columns.clone();
+    }
+}
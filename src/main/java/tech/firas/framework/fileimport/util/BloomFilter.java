@@ -0,0 +1,89 @@
+package tech.firas.framework.fileimport.util;
+
+/**
+ * <p>A Bloom filter of string keys in a long array, for telling whether a key has been seen among more keys than
+ *    {@link CompactKeySet} can hold. It never misses a key that has been added, but it may take a new key as
+ *    added, with the false positive probability it is created for, so a small part of the new keys is lost
+ *    when it is used to drop the duplicates.</p>
+ *
+ * <p>It is not thread safe.</p>
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedSize                the number of the keys expected to be added
+     * @param falsePositiveProbability  the false positive probability when {@code expectedSize} keys are added
+     */
+    public BloomFilter(final long expectedSize, final double falsePositiveProbability) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("expectedSize must be a positive integer");
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        }
+        final double ln2 = Math.log(2);
+        final double optimalBits = -expectedSize * Math.log(falsePositiveProbability) / (ln2 * ln2);
+        final long wordCount = (long) Math.ceil(Math.max(64, optimalBits) / 64);
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many bits: " + optimalBits);
+        }
+        this.bits = new long[(int) wordCount];
+        this.bitCount = wordCount * 64;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round(this.bitCount / (double) expectedSize * ln2)));
+    }
+
+    /**
+     * @param key  the key to add
+     * @return  true if the key is not added before, false if it is probably added before
+     */
+    public boolean add(final CharSequence key) {
+        final long hash1 = CompactKeySet.hash(key, 0);
+        final long hash2 = CompactKeySet.hash(key, hash1) | 1;
+        boolean added = false;
+        long combined = hash1;
+        for (int i = 0; i < this.hashCount; i += 1) {
+            final long bit = (combined & Long.MAX_VALUE) % this.bitCount;
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            if ((this.bits[word] & mask) == 0) {
+                this.bits[word] |= mask;
+                added = true;
+            }
+            combined += hash2;
+        }
+        return added;
+    }
+
+    /**
+     * @param key  the key to look for
+     * @return  false if the key is not added, true if it is probably added
+     */
+    public boolean mightContain(final CharSequence key) {
+        final long hash1 = CompactKeySet.hash(key, 0);
+        final long hash2 = CompactKeySet.hash(key, hash1) | 1;
+        long combined = hash1;
+        for (int i = 0; i < this.hashCount; i += 1) {
+            final long bit = (combined & Long.MAX_VALUE) % this.bitCount;
+            if ((this.bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    /**
+     * @return  the number of the bits of this filter
+     */
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    public int getHashCount() {
+        return this.hashCount;
+    }
+}
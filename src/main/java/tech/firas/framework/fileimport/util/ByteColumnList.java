@@ -0,0 +1,119 @@
+package tech.firas.framework.fileimport.util;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>An unmodifiable List of the columns of one row, backed by the bytes of the row.</p>
+ *
+ * <p>A column is decoded only when it is got from this List for the first time, so the columns that are
+ *    not used are never decoded.</p>
+ */
+public class ByteColumnList extends AbstractList<String> implements RandomAccess {
+
+    /**
+     * The bytes of the column include the quote characters, which should be removed
+     */
+    public static final byte QUOTED = 1;
+
+    /**
+     * The bytes of the column contain escape characters or doubled quote characters
+     */
+    public static final byte ESCAPED = 2;
+
+    private final byte[] data;
+    private final int[] bounds;
+    private final byte[] flags;
+    private final Charset charset;
+    private final byte quote;
+    private final byte escape;
+    private final boolean hasEscape;
+
+    private String[] columns;
+
+    /**
+     * @param data     the bytes of the row
+     * @param bounds   the (start, end) indexes in {@code data} of every column
+     * @param flags    the flags ({@link #QUOTED} and / or {@link #ESCAPED}) of every column,
+     *                 or null if the columns need no unescaping
+     * @param charset  for decoding the columns
+     * @param quote    the quote character
+     * @param escape   the escape character, or {@link MappedCsvScanner#NO_ESCAPE}
+     */
+    public ByteColumnList(final byte[] data, final int[] bounds, final byte[] flags, final Charset charset,
+            final char quote, final char escape) {
+        if (bounds.length % 2 != 0) {
+            throw new IllegalArgumentException("bounds must contain pairs of start and end indexes");
+        }
+        this.data = data;
+        this.bounds = bounds;
+        this.flags = flags;
+        this.charset = charset;
+        this.quote = (byte) quote;
+        this.hasEscape = MappedCsvScanner.NO_ESCAPE != escape;
+        this.escape = (byte) escape;
+    }
+
+    /**
+     * For the columns that need no unquoting or unescaping, e.g. the fields of a fixed-width record
+     *
+     * @param data     the bytes of the row
+     * @param bounds   the (start, end) indexes in {@code data} of every column
+     * @param charset  for decoding the columns
+     */
+    public ByteColumnList(final byte[] data, final int[] bounds, final Charset charset) {
+        this(data, bounds, null, charset, '"', MappedCsvScanner.NO_ESCAPE);
+    }
+
+    @Override
+    public String get(final int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (null == this.columns) {
+            this.columns = new String[size()];
+        }
+        String column = this.columns[index];
+        if (null == column) {
+            column = decode(index);
+            this.columns[index] = column;
+        }
+        return column;
+    }
+
+    @Override
+    public int size() {
+        return this.bounds.length / 2;
+    }
+
+    private String decode(final int index) {
+        final int start = this.bounds[index * 2];
+        final int end = this.bounds[index * 2 + 1];
+        final byte flag = null == this.flags ? 0 : this.flags[index];
+        if (flag == 0) {
+            return new String(this.data, start, end - start, this.charset);
+        }
+
+        final byte[] unescaped = new byte[end - start];
+        int length = 0;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i += 1) {
+            final byte b = this.data[i];
+            if (this.hasEscape && b == this.escape && i + 1 < end) {
+                i += 1;
+                unescaped[length++] = this.data[i];
+            } else if ((flag & QUOTED) != 0 && b == this.quote) {
+                if (inQuotes && i + 1 < end && this.data[i + 1] == this.quote) {
+                    i += 1;
+                    unescaped[length++] = b;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else {
+                unescaped[length++] = b;
+            }
+        }
+        return new String(unescaped, 0, length, this.charset);
+    }
+}
@@ -0,0 +1,17 @@
+package tech.firas.framework.fileimport.util;
+
+/**
+ * A CloseableIterator of the rows of a file that knows how many bytes of the file have been read,
+ * for reporting the progress of the readers that cannot resume from a position, e.g. of a compressed file
+ *
+ * @param <T>  the type of the rows
+ */
+public interface ByteCountingIterator<T> extends CloseableIterator<T> {
+
+    /**
+     * @return  the number of bytes of the file read so far, may be ahead of the row last returned by
+     *          {@link #next()} because of buffering; or -1 if it is unknown. Should be thread safe, because
+     *          it is called by the consumer of a {@link ReadAheadIterator} while the source is iterated.
+     */
+    long getBytesRead();
+}
@@ -0,0 +1,180 @@
+package tech.firas.framework.fileimport.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>An exact set of string keys, stored like {@link CompactStringTable} in one char array with the offsets and
+ *    the hashes of the keys in int arrays, and indexed by an open addressing hash table of int, instead of a
+ *    HashSet of String (about 80 bytes of overhead for every key).</p>
+ *
+ * <p>It takes about 16 bytes plus 2 bytes per char for every key. It is not thread safe.</p>
+ */
+public class CompactKeySet {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private char[] chars;
+    private int length = 0;
+
+    /**
+     * The key i is {@code chars[offsets[i]]} to {@code chars[offsets[i + 1]]}, and its hash is {@code hashes[i]}
+     */
+    private int[] offsets;
+    private int[] hashes;
+    private int size = 0;
+
+    /**
+     * The index of a key plus 1 in every slot, 0 for an empty slot; its length is a power of 2
+     */
+    private int[] table;
+
+    public CompactKeySet() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSize  how many keys are expected, the set grows when more keys are added
+     */
+    public CompactKeySet(final int expectedSize) {
+        final int capacity = Math.max(16, Math.min(expectedSize, MAX_CAPACITY / 2));
+        this.chars = new char[capacity * 4];
+        this.offsets = new int[capacity + 1];
+        this.hashes = new int[capacity];
+        this.table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    /**
+     * @param key  the key to add
+     * @return  true if the key is not in this set before
+     */
+    public boolean add(final CharSequence key) {
+        final int hash = (int) hash(key, 0);
+        final int mask = this.table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            final int index = this.table[slot] - 1;
+            if (index < 0) {
+                this.table[slot] = this.append(key, hash) + 1;
+                if (this.size * 2 > this.table.length) {
+                    this.rehash();
+                }
+                return true;
+            }
+            if (this.hashes[index] == hash && this.equalsAt(index, key)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param key  the key to look for
+     * @return  true if the key is in this set
+     */
+    public boolean contains(final CharSequence key) {
+        final int hash = (int) hash(key, 0);
+        final int mask = this.table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            final int index = this.table[slot] - 1;
+            if (index < 0) {
+                return false;
+            }
+            if (this.hashes[index] == hash && this.equalsAt(index, key)) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private int append(final CharSequence key, final int hash) {
+        final int keyLength = key.length();
+        if ((long) this.length + keyLength > Integer.MAX_VALUE - 8 || this.size >= MAX_CAPACITY) {
+            throw new IllegalStateException("Too many keys: " + this.size + " keys of " + this.length +
+                    " chars, use a Bloom filter instead");
+        }
+        if (this.length + keyLength > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars,
+                    (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) this.chars.length * 2,
+                            (long) this.length + keyLength)));
+        }
+        if (this.size + 2 > this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+            this.hashes = Arrays.copyOf(this.hashes, this.offsets.length);
+        }
+        for (int i = 0; i < keyLength; i += 1) {
+            this.chars[this.length + i] = key.charAt(i);
+        }
+        this.length += keyLength;
+        this.hashes[this.size] = hash;
+        this.size += 1;
+        this.offsets[this.size] = this.length;
+        return this.size - 1;
+    }
+
+    private boolean equalsAt(final int index, final CharSequence key) {
+        final int start = this.offsets[index];
+        final int keyLength = key.length();
+        if (this.offsets[index + 1] - start != keyLength) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i += 1) {
+            if (this.chars[start + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        final int[] newTable = new int[this.table.length * 2];
+        final int mask = newTable.length - 1;
+        for (int index = 0; index < this.size; index += 1) {
+            int slot = this.hashes[index] & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = index + 1;
+        }
+        this.table = newTable;
+    }
+
+    /**
+     * A 64-bit hash of the chars, mixed like MurmurHash3, for the hash tables and the Bloom filters of keys
+     *
+     * @param key   the chars to hash
+     * @param seed  the seed of the hash, different seeds give independent hashes
+     * @return  the hash
+     */
+    static long hash(final CharSequence key, final long seed) {
+        long h = seed ^ (key.length() * 0x9E3779B97F4A7C15L);
+        final int keyLength = key.length();
+        int i = 0;
+        for (; i + 4 <= keyLength; i += 4) {
+            final long k = key.charAt(i) | ((long) key.charAt(i + 1) << 16) |
+                    ((long) key.charAt(i + 2) << 32) | ((long) key.charAt(i + 3) << 48);
+            h ^= mix(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+        }
+        long k = 0;
+        for (int shift = 0; i < keyLength; i += 1, shift += 16) {
+            k |= (long) key.charAt(i) << shift;
+        }
+        h ^= mix(k);
+        return fmix(h);
+    }
+
+    private static long mix(long k) {
+        k *= 0x87C37B91114253D5L;
+        k = Long.rotateLeft(k, 31);
+        return k * 0x4CF5AD432745937FL;
+    }
+
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,73 @@
+package tech.firas.framework.fileimport.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>An append-only table of strings, stored in one char array with the offsets of the strings in an int array,
+ *    instead of one String object (about 40 bytes of overhead each) for every string.</p>
+ *
+ * <p>For the shared strings table of an XLSX file, which may contain millions of short strings.</p>
+ */
+public class CompactStringTable {
+
+    private char[] chars;
+    private int length = 0;
+
+    /**
+     * The offset of the string i in {@code chars} is {@code offsets[i]}, and its end is {@code offsets[i + 1]}
+     */
+    private int[] offsets;
+    private int size = 0;
+
+    public CompactStringTable() {
+        this(1024, 64);
+    }
+
+    /**
+     * @param initialCharCapacity  the initial capacity of the characters of all the strings
+     * @param initialCapacity      the initial capacity of the number of the strings
+     */
+    public CompactStringTable(final int initialCharCapacity, final int initialCapacity) {
+        this.chars = new char[Math.max(16, initialCharCapacity)];
+        this.offsets = new int[Math.max(16, initialCapacity) + 1];
+    }
+
+    /**
+     * @param value  the string to append
+     * @return  the index of the appended string
+     */
+    public int add(final CharSequence value) {
+        final int valueLength = value.length();
+        if (this.length + valueLength > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars,
+                    (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) this.chars.length * 2,
+                            (long) this.length + valueLength)));
+        }
+        if (this.size + 2 > this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+        }
+        for (int i = 0; i < valueLength; i += 1) {
+            this.chars[this.length + i] = value.charAt(i);
+        }
+        this.length += valueLength;
+        this.size += 1;
+        this.offsets[this.size] = this.length;
+        return this.size - 1;
+    }
+
+    /**
+     * @param index  the index of the string, count from 0
+     * @return  a new String of the string at {@code index}
+     */
+    public String get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        final int start = this.offsets[index];
+        return new String(this.chars, start, this.offsets[index + 1] - start);
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,50 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The compression formats of data files that can be read directly, detected by the magic bytes at the beginning
+ * of the file instead of the file name
+ */
+public enum CompressionFormat {
+
+    NONE,
+
+    /**
+     * Begins with 0x1F 0x8B, may contain several members
+     */
+    GZIP,
+
+    /**
+     * Begins with "PK\3\4", or "PK\5\6" for an empty archive
+     */
+    ZIP;
+
+    /**
+     * @param path  the path of the file
+     * @return  the compression format of the file, NONE if the file is shorter than the magic bytes
+     * @throws IOException  if the file cannot be read
+     */
+    public static CompressionFormat detect(final Path path) throws IOException {
+        final byte[] magic = new byte[4];
+        int length = 0;
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            int n;
+            while (length < magic.length && (n = inputStream.read(magic, length, magic.length - length)) >= 0) {
+                length += n;
+            }
+        }
+
+        if (length >= 2 && magic[0] == (byte) 0x1F && magic[1] == (byte) 0x8B) {
+            return GZIP;
+        }
+        if (length >= 4 && magic[0] == 'P' && magic[1] == 'K' &&
+                ((magic[2] == 3 && magic[3] == 4) || (magic[2] == 5 && magic[3] == 6))) {
+            return ZIP;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,63 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes read (and skipped) from the underlying InputStream into an AtomicLong,
+ * which can be read by another thread, e.g. while the stream is decompressed on a background thread
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final AtomicLong count;
+
+    /**
+     * @param in     the underlying InputStream
+     * @param count  where the number of the bytes read is added to
+     */
+    public CountingInputStream(final InputStream in, final AtomicLong count) {
+        super(in);
+        if (null == count) {
+            throw new IllegalArgumentException("count must not be null");
+        }
+        this.count = count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int result = super.read();
+        if (result >= 0) {
+            this.count.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int result = super.read(b, off, len);
+        if (result > 0) {
+            this.count.addAndGet(result);
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long result = super.skip(n);
+        if (result > 0) {
+            this.count.addAndGet(result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+}
@@ -0,0 +1,245 @@
+package tech.firas.framework.fileimport.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <p>An unmodifiable List of the columns of one CSV line, backed by the line itself.</p>
+ *
+ * <p>{@link #reset} scans the line once and only records the boundaries of the fields, and a column is
+ *    created (unquoted and unescaped if needed) only when it is got from this List for the first time, so the
+ *    columns that are not used are never created. Like {@link MappedCsvScanner}, a field that begins with the
+ *    quote character is a quoted field, in which the separator is part of the field, and two consecutive quote
+ *    characters stand for one quote character (RFC 4180). A quote character in the middle of an unquoted field
+ *    is an ordinary character. If the escape character is set, the character after it is always an ordinary
+ *    character. An unclosed quoted field ends at the end of the line.</p>
+ *
+ * <p>One LazyCsvColumnList can be reset for every line of a data file. The List itself must not be kept after
+ *    the line is processed then, but the columns and the List returned by {@link #copy} can.</p>
+ */
+public class LazyCsvColumnList extends AbstractList<String> implements RandomAccess {
+
+    private final char separator;
+    private final char quote;
+    private final char escape;
+    private final boolean hasEscape;
+
+    private String line = "";
+
+    private int fieldCount = 0;
+
+    /**
+     * The (start, end) indexes in {@code line} of every field
+     */
+    private int[] bounds;
+
+    /**
+     * The flags of every field, {@link ByteColumnList#QUOTED} and / or {@link ByteColumnList#ESCAPED}
+     */
+    private byte[] flags;
+
+    /**
+     * The columns created, null until a column is got
+     */
+    private String[] columns;
+
+    /**
+     * @param separator  the separator between fields
+     * @param quote      the quote character
+     * @param escape     the escape character, or {@link MappedCsvScanner#NO_ESCAPE}
+     */
+    public LazyCsvColumnList(final char separator, final char quote, final char escape) {
+        if (separator == quote || (MappedCsvScanner.NO_ESCAPE != escape &&
+                (escape == separator || escape == quote))) {
+            throw new IllegalArgumentException("separator, quote and escape must be different");
+        }
+        this.separator = separator;
+        this.quote = quote;
+        this.escape = escape;
+        this.hasEscape = MappedCsvScanner.NO_ESCAPE != escape;
+        this.bounds = new int[32];
+        this.flags = new byte[16];
+    }
+
+    private LazyCsvColumnList(final LazyCsvColumnList other) {
+        this.separator = other.separator;
+        this.quote = other.quote;
+        this.escape = other.escape;
+        this.hasEscape = other.hasEscape;
+        this.line = other.line;
+        this.fieldCount = other.fieldCount;
+        this.bounds = Arrays.copyOf(other.bounds, other.fieldCount * 2);
+        this.flags = Arrays.copyOf(other.flags, other.fieldCount);
+    }
+
+    /**
+     * Scans the next line, the columns of the last line are dropped
+     *
+     * @param line  a CSV line without the line terminator
+     * @return  this List
+     */
+    public LazyCsvColumnList reset(final String line) {
+        if (null == line) {
+            throw new IllegalArgumentException("line must not be null");
+        }
+        if (null != this.columns) {
+            Arrays.fill(this.columns, 0, Math.min(this.fieldCount, this.columns.length), null);
+        }
+        this.line = line;
+        this.fieldCount = 0;
+        this.scan(line);
+        return this;
+    }
+
+    /**
+     * @return  a LazyCsvColumnList of the current line which is not affected by {@link #reset},
+     *          the columns not got yet are still created on the first access
+     */
+    public LazyCsvColumnList copy() {
+        return new LazyCsvColumnList(this);
+    }
+
+    @Override
+    public String get(final int index) {
+        if (index < 0 || index >= this.fieldCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.fieldCount);
+        }
+        if (null == this.columns || this.columns.length < this.fieldCount) {
+            this.columns = null == this.columns ? new String[this.fieldCount] :
+                    Arrays.copyOf(this.columns, this.fieldCount);
+        }
+        String column = this.columns[index];
+        if (null == column) {
+            column = this.create(index);
+            this.columns[index] = column;
+        }
+        return column;
+    }
+
+    @Override
+    public int size() {
+        return this.fieldCount;
+    }
+
+    private void scan(final String line) {
+        final int limit = line.length();
+        int i = 0;
+        while (true) {
+            final int fieldStart = i;
+            int contentStart = i;
+            int contentEnd;
+            byte flag = 0;
+
+            if (i < limit && line.charAt(i) == this.quote) {
+                boolean inQuotes = true;
+                int closingQuote = -1;
+                i += 1;
+                contentStart = i;
+                while (i < limit) {
+                    final char c = line.charAt(i);
+                    if (this.hasEscape && c == this.escape) {
+                        flag |= ByteColumnList.ESCAPED;
+                        i += 2;
+                    } else if (inQuotes) {
+                        if (c == this.quote) {
+                            if (i + 1 < limit && line.charAt(i + 1) == this.quote) {
+                                flag |= ByteColumnList.ESCAPED;
+                                i += 2;
+                            } else {
+                                inQuotes = false;
+                                closingQuote = i;
+                                i += 1;
+                            }
+                        } else {
+                            i += 1;
+                        }
+                    } else if (c == this.separator) {
+                        break;
+                    } else {
+                        // characters after the closing quote, or another quoted part
+                        inQuotes = c == this.quote;
+                        flag |= ByteColumnList.ESCAPED;
+                        i += 1;
+                    }
+                }
+                if (i > limit) {
+                    i = limit; // an escape character at the end of the line
+                }
+                if (flag == 0 && closingQuote == i - 1) {
+                    contentEnd = closingQuote;
+                } else if (flag == 0 && closingQuote < 0) {
+                    contentEnd = i;
+                } else {
+                    flag |= ByteColumnList.QUOTED;
+                    contentStart = fieldStart;
+                    contentEnd = i;
+                }
+            } else {
+                while (i < limit) {
+                    final char c = line.charAt(i);
+                    if (c == this.separator) {
+                        break;
+                    }
+                    if (this.hasEscape && c == this.escape) {
+                        flag |= ByteColumnList.ESCAPED;
+                        i += 2;
+                    } else {
+                        i += 1;
+                    }
+                }
+                if (i > limit) {
+                    i = limit;
+                }
+                contentEnd = i;
+            }
+            this.addField(contentStart, contentEnd, flag);
+
+            if (i >= limit) {
+                return;
+            }
+            i += 1; // the separator
+        }
+    }
+
+    private void addField(final int start, final int end, final byte flag) {
+        final int index = this.fieldCount;
+        if (index * 2 >= this.bounds.length) {
+            this.bounds = Arrays.copyOf(this.bounds, this.bounds.length * 2);
+            this.flags = Arrays.copyOf(this.flags, this.flags.length * 2);
+        }
+        this.bounds[index * 2] = start;
+        this.bounds[index * 2 + 1] = end;
+        this.flags[index] = flag;
+        this.fieldCount = index + 1;
+    }
+
+    private String create(final int index) {
+        final int start = this.bounds[index * 2];
+        final int end = this.bounds[index * 2 + 1];
+        final byte flag = this.flags[index];
+        if (flag == 0) {
+            return this.line.substring(start, end);
+        }
+
+        final StringBuilder builder = new StringBuilder(end - start);
+        boolean inQuotes = false;
+        for (int i = start; i < end; i += 1) {
+            final char c = this.line.charAt(i);
+            if (this.hasEscape && c == this.escape && i + 1 < end) {
+                i += 1;
+                builder.append(this.line.charAt(i));
+            } else if ((flag & ByteColumnList.QUOTED) != 0 && c == this.quote) {
+                if (inQuotes && i + 1 < end && this.line.charAt(i + 1) == this.quote) {
+                    i += 1;
+                    builder.append(c);
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,265 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Tokenizes the CSV records of a region of a file mapped into memory, directly over the bytes.</p>
+ *
+ * <p>A field that begins with the quote character is a quoted field, in which the separator and the line
+ *    terminators are part of the field, and two consecutive quote characters stand for one quote character
+ *    (RFC 4180). A quote character in the middle of an unquoted field is an ordinary character. If the escape
+ *    character is set, the character after it is always an ordinary character.</p>
+ *
+ * <p>Only the boundaries of the fields are recorded when scanning, so the fields are not decoded until
+ *    {@link ByteColumnList#get} is called on the List returned by {@link #getColumns}.</p>
+ *
+ * <p>The separator, the quote character and the escape character are searched over the bytes as well, so in the
+ *    double-byte character sets like GBK, GB18030 and Big5, whose second bytes may be ASCII bytes from 0x40
+ *    (and digits in the four-byte characters of GB18030), they must be below 0x40 and not digits.</p>
+ */
+public class MappedCsvScanner extends MappedFileScanner {
+
+    /**
+     * Means that there is no escape character
+     */
+    public static final char NO_ESCAPE = '\0';
+
+    /**
+     * The canonical names of the character sets in which a byte from 0x40 or a digit may be a part of
+     * a multi-byte character
+     */
+    private static final Set<String> ASCII_TRAIL_BYTE_CHARSETS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("GBK", "x-mswin-936", "GB18030", "Big5", "Big5-HKSCS", "x-windows-950", "Shift_JIS",
+                    "windows-31j", "x-SJIS_0213", "x-windows-949", "x-Johab")));
+
+    private final byte separator;
+    private final byte quote;
+    private final byte escape;
+    private final boolean hasEscape;
+
+    private int fieldCount;
+
+    /**
+     * The (start, end) indexes in the current window of every field
+     */
+    private int[] fieldBounds = new int[64];
+
+    /**
+     * The flags of every field, {@link ByteColumnList#QUOTED} and / or {@link ByteColumnList#ESCAPED}
+     */
+    private byte[] fieldFlags = new byte[32];
+
+    /**
+     * Creates a MappedCsvScanner to scan the region [start, end) of the file
+     *
+     * @param channel     the channel of the file, it will be closed when this scanner is closed
+     * @param start       the offset of the first byte of the region, should be the beginning of a record
+     * @param end         the offset of the byte after the last byte of the region
+     * @param windowSize  how many bytes are mapped at one time, it grows if a record is longer than it
+     * @param separator   the separator between fields, must be an ASCII character
+     * @param quote       the quote character, must be an ASCII character
+     * @param escape      the escape character, must be an ASCII character, or {@link #NO_ESCAPE}
+     */
+    public MappedCsvScanner(final FileChannel channel, final long start, final long end, final int windowSize,
+            final char separator, final char quote, final char escape) {
+        this(channel, start, end, windowSize, separator, quote, escape, null);
+    }
+
+    /**
+     * Creates a MappedCsvScanner to scan the region [start, end) of the file in the character set
+     *
+     * @param channel     the channel of the file, it will be closed when this scanner is closed
+     * @param start       the offset of the first byte of the region, should be the beginning of a record
+     * @param end         the offset of the byte after the last byte of the region
+     * @param windowSize  how many bytes are mapped at one time, it grows if a record is longer than it
+     * @param separator   the separator between fields, must be an ASCII character
+     * @param quote       the quote character, must be an ASCII character
+     * @param escape      the escape character, must be an ASCII character, or {@link #NO_ESCAPE}
+     * @param charset     the character set of the file, null if no multi-byte character contains ASCII bytes
+     * @throws IllegalArgumentException  if the separator, the quote character or the escape character
+     *                                   may be a part of a multi-byte character of {@code charset}
+     */
+    public MappedCsvScanner(final FileChannel channel, final long start, final long end, final int windowSize,
+            final char separator, final char quote, final char escape, final Charset charset) {
+        super(channel, start, end, windowSize);
+        this.separator = toAsciiByte(separator, "separator", charset);
+        this.quote = toAsciiByte(quote, "quote", charset);
+        this.hasEscape = NO_ESCAPE != escape;
+        this.escape = this.hasEscape ? toAsciiByte(escape, "escape", charset) : 0;
+        if (this.separator == this.quote ||
+                (this.hasEscape && (this.escape == this.separator || this.escape == this.quote))) {
+            throw new IllegalArgumentException("separator, quote and escape must be different");
+        }
+    }
+
+    /**
+     * Moves to the next CSV record
+     *
+     * @return  false if there is no more record in the region
+     * @throws IOException  if the file cannot be mapped
+     */
+    public boolean nextCsvRecord() throws IOException {
+        return nextRecord();
+    }
+
+    /**
+     * @return  the number of the fields in the current record
+     */
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    /**
+     * Copies the bytes of the current record, the fields will be decoded when they are got from the List
+     *
+     * @param charset  for decoding the fields
+     * @return  a List of the fields in the current record
+     */
+    public ByteColumnList getColumns(final Charset charset) {
+        final int count = this.fieldCount;
+        final int recordStart = getRecordStart();
+        final int recordEnd = count == 0 ? recordStart : this.fieldBounds[count * 2 - 1];
+        final byte[] data = new byte[recordEnd - recordStart];
+        getBuffer(recordStart, recordEnd).get(data);
+
+        final int[] bounds = Arrays.copyOf(this.fieldBounds, count * 2);
+        for (int i = 0; i < bounds.length; i += 1) {
+            bounds[i] -= recordStart;
+        }
+        return new ByteColumnList(data, bounds, Arrays.copyOf(this.fieldFlags, count), charset,
+                (char) this.quote, this.hasEscape ? (char) this.escape : NO_ESCAPE);
+    }
+
+    @Override
+    protected int scan(final ByteBuffer buffer, final int start, final int limit, final boolean reachesEnd) {
+        this.fieldCount = 0;
+        int i = start;
+        while (true) {
+            final int fieldStart = i;
+            int contentStart = i;
+            int contentEnd;
+            byte flags = 0;
+
+            if (i < limit && buffer.get(i) == this.quote) {
+                boolean inQuotes = true;
+                int closingQuote = -1;
+                i += 1;
+                contentStart = i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!reachesEnd) {
+                            return -1;
+                        }
+                        i = limit; // an unclosed quoted field at the end of the region
+                        break;
+                    }
+                    final byte b = buffer.get(i);
+                    if (this.hasEscape && b == this.escape) {
+                        flags |= ByteColumnList.ESCAPED;
+                        i += 2;
+                    } else if (inQuotes) {
+                        if (b == this.quote) {
+                            if (i + 1 >= limit && !reachesEnd) {
+                                return -1;
+                            }
+                            if (i + 1 < limit && buffer.get(i + 1) == this.quote) {
+                                flags |= ByteColumnList.ESCAPED;
+                                i += 2;
+                            } else {
+                                inQuotes = false;
+                                closingQuote = i;
+                                i += 1;
+                            }
+                        } else {
+                            i += 1;
+                        }
+                    } else if (b == this.separator || b == '\n' || b == '\r') {
+                        break;
+                    } else {
+                        // characters after the closing quote, or another quoted part
+                        inQuotes = b == this.quote;
+                        flags |= ByteColumnList.ESCAPED;
+                        i += 1;
+                    }
+                }
+                if (flags == 0 && closingQuote == i - 1) {
+                    contentEnd = closingQuote;
+                } else if (flags == 0 && closingQuote < 0) {
+                    contentEnd = i;
+                } else {
+                    flags |= ByteColumnList.QUOTED;
+                    contentStart = fieldStart;
+                    contentEnd = i;
+                }
+            } else {
+                while (i < limit) {
+                    final byte b = buffer.get(i);
+                    if (b == this.separator || b == '\n' || b == '\r') {
+                        break;
+                    }
+                    if (this.hasEscape && b == this.escape) {
+                        flags |= ByteColumnList.ESCAPED;
+                        i += 2;
+                    } else {
+                        i += 1;
+                    }
+                }
+                if (i >= limit) {
+                    if (!reachesEnd) {
+                        return -1;
+                    }
+                    i = limit;
+                }
+                contentEnd = i;
+            }
+            addField(contentStart, contentEnd, flags);
+
+            if (i >= limit) {
+                return limit;
+            }
+            final byte b = buffer.get(i);
+            if (b == this.separator) {
+                i += 1;
+                continue;
+            }
+            if (b == '\r') {
+                if (i + 1 < limit) {
+                    return buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+                }
+                return reachesEnd ? i + 1 : -1;
+            }
+            return i + 1; // '\n'
+        }
+    }
+
+    private void addField(final int start, final int end, final byte flags) {
+        final int index = this.fieldCount;
+        if (index * 2 >= this.fieldBounds.length) {
+            this.fieldBounds = Arrays.copyOf(this.fieldBounds, this.fieldBounds.length * 2);
+            this.fieldFlags = Arrays.copyOf(this.fieldFlags, this.fieldFlags.length * 2);
+        }
+        this.fieldBounds[index * 2] = start;
+        this.fieldBounds[index * 2 + 1] = end;
+        this.fieldFlags[index] = flags;
+        this.fieldCount = index + 1;
+    }
+
+    private static byte toAsciiByte(final char c, final String name, final Charset charset) {
+        if (c <= 0 || c >= 0x80 || c == '\r' || c == '\n') {
+            throw new IllegalArgumentException(name + " must be an ASCII character other than line terminators");
+        }
+        if (null != charset && ASCII_TRAIL_BYTE_CHARSETS.contains(charset.name()) &&
+                (c >= 0x40 || (c >= '0' && c <= '9'))) {
+            throw new IllegalArgumentException(name + " must be below 0x40 and not a digit in " + charset.name() +
+                    ", whose multi-byte characters may contain it");
+        }
+        return (byte) c;
+    }
+}
@@ -0,0 +1,197 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <p>Scans the records of a region of a file by mapping the file into memory with {@link FileChannel#map},
+ *    one window at a time, so that files larger than 2 GB can be scanned.</p>
+ *
+ * <p>A record must be within one window, so the window grows if a record is longer than it.</p>
+ *
+ * <p>The record terminators are searched over the bytes, so the subclasses only work for the character sets
+ *    in which '\r' and '\n' are encoded as the single bytes 0x0D and 0x0A and no other character contains
+ *    these bytes (US-ASCII, ISO-8859-*, UTF-8, GBK, GB18030, Big5, ...), see {@link #checkCharset}. Other
+ *    ASCII bytes may be a part of a multi-byte character in some of them, e.g. the second bytes of GBK, see
+ *    {@link MappedCsvScanner}.</p>
+ */
+public abstract class MappedFileScanner implements Closeable {
+
+    /**
+     * The default size of the window of the file mapped into memory, 64 MB
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+
+    /**
+     * The (exclusive) end offset of the region to scan
+     */
+    private final long end;
+
+    private int windowSize;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * The file offset corresponding to the index 0 of {@code buffer}
+     */
+    private long bufferOffset;
+
+    /**
+     * The number of the bytes mapped in {@code buffer}
+     */
+    private int bufferLength;
+
+    /**
+     * The file offset of the beginning of the next record
+     */
+    private long position;
+
+    private long recordOffset;
+    private int recordStart;
+
+    /**
+     * Creates a MappedFileScanner to scan the region [start, end) of the file
+     *
+     * @param channel     the channel of the file, it will be closed when this scanner is closed
+     * @param start       the offset of the first byte of the region, should be the beginning of a record
+     * @param end         the offset of the byte after the last byte of the region
+     * @param windowSize  how many bytes are mapped at one time, it grows if a record is longer than it
+     */
+    protected MappedFileScanner(final FileChannel channel, final long start, final long end, final int windowSize) {
+        if (null == channel) {
+            throw new IllegalArgumentException("channel must not be null");
+        }
+        if (start < 0 || start > end) {
+            throw new IllegalArgumentException("Invalid region: [" + start + ", " + end + ")");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be a positive integer");
+        }
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.position = start;
+    }
+
+    /**
+     * Checks whether the records of a file encoded in {@code charset} can be scanned over the bytes
+     *
+     * @param charset  the character set of the file
+     * @return  {@code charset}
+     * @throws IllegalArgumentException  if the Charset does not encode '\r' and '\n' as single bytes
+     */
+    public static Charset checkCharset(final Charset charset) {
+        if (!Arrays.equals(new byte[] {'\r', '\n'}, "\r\n".getBytes(charset))) {
+            throw new IllegalArgumentException(charset.name() + " does not encode line terminators as single bytes");
+        }
+        return charset;
+    }
+
+    /**
+     * Moves to the next record
+     *
+     * @return  false if there is no more record in the region
+     * @throws IOException  if the file cannot be mapped
+     */
+    protected boolean nextRecord() throws IOException {
+        if (this.position >= this.end) {
+            return false;
+        }
+        if (null == this.buffer || this.position >= this.bufferOffset + this.bufferLength) {
+            map(this.position);
+        } else {
+            this.buffer.clear(); // the limit may have been changed by getRecordBuffer
+        }
+
+        while (true) {
+            final int start = (int) (this.position - this.bufferOffset);
+            final int next = scan(this.buffer, start, this.bufferLength,
+                    this.bufferOffset + this.bufferLength >= this.end);
+            if (next >= 0) {
+                this.recordOffset = this.position;
+                this.recordStart = start;
+                this.position = this.bufferOffset + next;
+                return true;
+            }
+
+            // the record crosses the end of the window
+            if (start == 0) {
+                // the record is longer than the whole window
+                if (this.windowSize >= MAX_WINDOW_SIZE) {
+                    throw new IOException("The record at offset " + this.position + " is too long");
+                }
+                this.windowSize = (int) Math.min((long) this.windowSize * 2, MAX_WINDOW_SIZE);
+            }
+            map(this.position);
+        }
+    }
+
+    /**
+     * Scans one record in the buffer. Use absolute get methods of {@code buffer} only.
+     *
+     * @param buffer      the mapped window
+     * @param start       the index of the beginning of the record
+     * @param limit       the index after the last mapped byte
+     * @param reachesEnd  whether {@code limit} corresponds to the end of the region
+     * @return  the index where the next record begins, or -1 if the bytes until {@code limit} are not enough
+     *          to find the end of the record and {@code reachesEnd} is false
+     */
+    protected abstract int scan(ByteBuffer buffer, int start, int limit, boolean reachesEnd);
+
+    /**
+     * @param startIndex  the index of the first byte in the current window to return
+     * @param endIndex    the index after the last byte in the current window to return
+     * @return  the buffer of the current window, with its position and limit set to the specific indexes
+     */
+    protected ByteBuffer getBuffer(final int startIndex, final int endIndex) {
+        this.buffer.limit(endIndex).position(startIndex);
+        return this.buffer;
+    }
+
+    /**
+     * @return  the index of the beginning of the current record in the current window
+     */
+    protected int getRecordStart() {
+        return this.recordStart;
+    }
+
+    /**
+     * @return  the file offset of the beginning of the current record
+     */
+    public long getRecordOffset() {
+        return this.recordOffset;
+    }
+
+    /**
+     * @return  the file offset after the current record, i.e. where the next record begins
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    public long getEnd() {
+        return this.end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer = null;
+        this.channel.close();
+    }
+
+    private void map(final long offset) throws IOException {
+        final long length = Math.min(this.windowSize, this.end - offset);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        this.bufferOffset = offset;
+        this.bufferLength = (int) length;
+    }
+}
@@ -0,0 +1,84 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Scans the lines of a region of a file mapped into memory.
+ * "\n", "\r\n" and "\r" are recognized as line terminators.
+ */
+public class MappedLineScanner extends MappedFileScanner {
+
+    private int lineEnd;
+
+    /**
+     * Creates a MappedLineScanner to scan the region [start, end) of the file
+     *
+     * @param channel     the channel of the file, it will be closed when this scanner is closed
+     * @param start       the offset of the first byte of the region, should be the beginning of a line
+     * @param end         the offset of the byte after the last byte of the region
+     * @param windowSize  how many bytes are mapped at one time, it grows if a line is longer than it
+     */
+    public MappedLineScanner(final FileChannel channel, final long start, final long end, final int windowSize) {
+        super(channel, start, end, windowSize);
+    }
+
+    /**
+     * Moves to the next line
+     *
+     * @return  false if there is no more line in the region
+     * @throws IOException  if the file cannot be mapped
+     */
+    public boolean nextLine() throws IOException {
+        return nextRecord();
+    }
+
+    /**
+     * @return  the buffer containing the current line, its position and limit are set to the
+     *          beginning and the end (excluding the line terminator) of the current line
+     */
+    public ByteBuffer getLineBuffer() {
+        return getBuffer(getRecordStart(), this.lineEnd);
+    }
+
+    /**
+     * @return  the file offset of the beginning of the current line
+     */
+    public long getLineOffset() {
+        return getRecordOffset();
+    }
+
+    /**
+     * @return  the number of bytes of the current line, excluding the line terminator
+     */
+    public int getLineLength() {
+        return this.lineEnd - getRecordStart();
+    }
+
+    @Override
+    protected int scan(final ByteBuffer buffer, final int start, final int limit, final boolean reachesEnd) {
+        for (int i = start; i < limit; i += 1) {
+            final byte b = buffer.get(i);
+            if (b == '\n') {
+                this.lineEnd = i;
+                return i + 1;
+            }
+            if (b == '\r') {
+                if (i + 1 < limit) {
+                    this.lineEnd = i;
+                    return buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+                } else if (reachesEnd) {
+                    this.lineEnd = i;
+                    return i + 1;
+                }
+                return -1; // cannot see the byte after '\r' in this window
+            }
+        }
+        if (reachesEnd) {
+            this.lineEnd = limit;
+            return limit;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,16 @@
+package tech.firas.framework.fileimport.util;
+
+/**
+ * A CloseableIterator of the rows of a file that knows where every row ends in the file,
+ * so that reading the file can be resumed after a row
+ *
+ * @param <T>  the type of the rows
+ */
+public interface PositionAwareIterator<T> extends CloseableIterator<T> {
+
+    /**
+     * @return  the position (e.g. the byte offset) in the file after the row last returned by {@link #next()},
+     *          i.e. where the reading can be resumed; or -1 if no row has been returned
+     */
+    long getPosition();
+}
@@ -0,0 +1,210 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * <p>An InputStream that reads the source InputStream on a background thread, so that the work of reading the
+ *    source (e.g. decompressing) and the work of the reader of this stream (e.g. parsing) overlap.</p>
+ *
+ * <p>The background thread reads the source into at most {@code chunkCount} chunks of {@code chunkSize} bytes
+ *    ahead, and the chunks are reused after the reader of this stream has consumed them. An exception thrown by
+ *    the source is thrown to the reader of this stream after the bytes read before it.</p>
+ *
+ * <p>The source is only used, and closed, by the background thread. This stream is not thread-safe, i.e. it
+ *    should be read by only one thread.</p>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final Logger logger = Logger.getLogger(ReadAheadInputStream.class.getName());
+
+    private final InputStream source;
+    private final String name;
+
+    private final BlockingQueue<Chunk> freeChunks;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final Thread thread;
+
+    private Chunk current;
+    private int position;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Starts a background thread to read the source
+     *
+     * @param source      the InputStream to read ahead
+     * @param chunkSize   the number of bytes in a chunk
+     * @param chunkCount  the maximum number of chunks read ahead
+     * @param name        for naming the background thread and logging, e.g. the path of the file
+     */
+    public ReadAheadInputStream(final InputStream source, final int chunkSize, final int chunkCount,
+            final String name) {
+        if (null == source) {
+            throw new IllegalArgumentException("source must not be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be a positive integer");
+        }
+        if (chunkCount <= 0) {
+            throw new IllegalArgumentException("chunkCount must be a positive integer");
+        }
+
+        this.source = source;
+        this.name = name;
+        this.freeChunks = new ArrayBlockingQueue<>(chunkCount);
+        for (int i = 0; i < chunkCount; i += 1) {
+            this.freeChunks.add(new Chunk(new byte[chunkSize]));
+        }
+        // one more for the end of the source
+        this.filledChunks = new ArrayBlockingQueue<>(chunkCount + 1);
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readSource();
+            }
+        }, "read-ahead-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensureAvailable()) {
+            return -1;
+        }
+        final int b = this.current.data[this.position] & 0xFF;
+        this.position += 1;
+        this.recycleIfConsumed();
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (offset < 0 || length < 0 || length > bytes.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.ensureAvailable()) {
+            return -1;
+        }
+
+        final int n = Math.min(length, this.current.length - this.position);
+        System.arraycopy(this.current.data, this.position, bytes, offset, n);
+        this.position += n;
+        this.recycleIfConsumed();
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+        return null == this.current || this.current.length < 0 ? 0 : this.current.length - this.position;
+    }
+
+    /**
+     * Stops the background thread, which closes the source
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.thread.interrupt();
+        try {
+            this.thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return  false if the end of the source is reached
+     */
+    private boolean ensureAvailable() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+        if (null == this.current) {
+            try {
+                this.current = this.filledChunks.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted when waiting for " + this.name);
+            }
+            this.position = 0;
+        }
+        if (null != this.current.error) {
+            throw new IOException("Fail to read " + this.name, this.current.error);
+        }
+        return this.current.length >= 0;
+    }
+
+    private void recycleIfConsumed() {
+        if (this.position >= this.current.length) {
+            this.freeChunks.add(this.current);
+            this.current = null;
+        }
+    }
+
+    private void readSource() {
+        try {
+            while (!this.closed) {
+                final Chunk chunk = this.freeChunks.take();
+                int length = 0;
+                int n = 0;
+                while (length < chunk.data.length &&
+                        (n = this.source.read(chunk.data, length, chunk.data.length - length)) >= 0) {
+                    length += n;
+                }
+                if (length > 0) {
+                    chunk.length = length;
+                    this.filledChunks.put(chunk);
+                }
+                if (n < 0) {
+                    final Chunk end = new Chunk(null);
+                    end.length = -1;
+                    this.filledChunks.put(end);
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            // closed by the reader of this stream
+        } catch (Throwable ex) {
+            if (!this.closed) {
+                final Chunk failure = new Chunk(null);
+                failure.error = ex;
+                // there must be room because at most chunkCount chunks are filled
+                this.filledChunks.offer(failure);
+            }
+        } finally {
+            try {
+                this.source.close();
+                logger.finer("Source of " + this.name + " closed");
+            } catch (IOException ex) {
+                logger.warning("Fail to close the source of " + this.name + ": " + ex);
+            }
+        }
+    }
+
+    private static class Chunk {
+
+        private final byte[] data;
+        private int length;
+        private Throwable error;
+
+        private Chunk(final byte[] data) {
+            this.data = data;
+        }
+    }
+}
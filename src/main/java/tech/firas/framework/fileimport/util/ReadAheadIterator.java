@@ -0,0 +1,276 @@
+package tech.firas.framework.fileimport.util;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * <p>A CloseableIterator that iterates the source iterator on a background thread, so that reading the rows
+ *    (I/O and decoding) and processing the rows overlap. At most {@code capacity} elements are read ahead.</p>
+ *
+ * <p>The source is only used, and closed, by the background thread. A RuntimeException or Error thrown by the
+ *    source is thrown by {@link #hasNext()} after the elements read before it. {@link #close()} stops the
+ *    background thread and waits until the source is closed.</p>
+ *
+ * <p>If the source is a {@link PositionAwareIterator}, the position of every element is passed along with it,
+ *    so {@link #getPosition()} is the position after the element last returned by {@link #next()};
+ *    otherwise it is always -1. If the source is a {@link ByteCountingIterator}, {@link #getBytesRead()} is the
+ *    bytes read by the source, which are ahead of the elements returned by {@link #next()}.</p>
+ *
+ * <p>How often, and how long, each side waits for the other is counted: the background thread stalls when the
+ *    buffer is full, i.e. the consumer is slower; the consumer stalls when the buffer is empty.</p>
+ *
+ * @param <E>  the type of the elements
+ */
+public class ReadAheadIterator<E> implements PositionAwareIterator<E>, ByteCountingIterator<E> {
+
+    private static final Logger logger = Logger.getLogger(ReadAheadIterator.class.getName());
+
+    /**
+     * Stands for a null element, because a BlockingQueue does not accept null
+     */
+    private static final Object NULL = new Object();
+
+    private static final Object END = new Object();
+
+    private final CloseableIterator<? extends E> source;
+    private final PositionAwareIterator<? extends E> positionAwareSource;
+    private final String name;
+    private final BlockingQueue<Object> buffer;
+    private final Thread thread;
+
+    private volatile boolean closed = false;
+
+    /**
+     * The element taken from the buffer but not returned by {@link #next()} yet
+     */
+    private Object nextElement;
+    private boolean ended = false;
+    private long position = -1;
+
+    private volatile long producerStallCount = 0;
+    private volatile long producerStallNanos = 0;
+    private long consumerStallCount = 0;
+    private long consumerStallNanos = 0;
+
+    /**
+     * Starts a background thread to iterate the source
+     *
+     * @param source    the iterator to read ahead
+     * @param capacity  the maximum number of elements read ahead
+     * @param name      for naming the background thread and logging, e.g. the path of the file
+     */
+    public ReadAheadIterator(final CloseableIterator<? extends E> source, final int capacity, final String name) {
+        if (null == source) {
+            throw new IllegalArgumentException("source must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be a positive integer");
+        }
+
+        this.source = source;
+        this.positionAwareSource = source instanceof PositionAwareIterator ?
+                (PositionAwareIterator<? extends E>) source : null;
+        this.name = name;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                iterateSource();
+            }
+        }, "read-ahead-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.ended) {
+            return false;
+        }
+        if (this.closed) {
+            throw new IllegalStateException("Iterator of " + this.name + " closed");
+        }
+        if (null != this.nextElement) {
+            return true;
+        }
+
+        Object element = this.buffer.poll();
+        if (null == element) {
+            this.consumerStallCount += 1;
+            final long start = System.nanoTime();
+            try {
+                element = this.buffer.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when waiting for " + this.name, ex);
+            } finally {
+                this.consumerStallNanos += System.nanoTime() - start;
+            }
+        }
+
+        if (END == element) {
+            this.ended = true;
+            this.close();
+            return false;
+        }
+        if (element instanceof Failure) {
+            this.ended = true;
+            this.close();
+            final Throwable error = ((Failure) element).error;
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            throw new IllegalStateException("Fail to read " + this.name, error);
+        }
+        this.nextElement = element;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object element = this.nextElement;
+        this.nextElement = null;
+        if (element instanceof Positioned) {
+            this.position = ((Positioned) element).position;
+            element = ((Positioned) element).element;
+        }
+        return NULL == element ? null : (E) element;
+    }
+
+    @Override
+    public long getPosition() {
+        return this.position;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return this.source instanceof ByteCountingIterator ?
+                ((ByteCountingIterator<? extends E>) this.source).getBytesRead() : -1;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the background thread, and waits until it closes the source
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.thread.interrupt();
+        try {
+            this.thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.buffer.clear();
+        this.nextElement = null;
+        logger.finer("Read ahead of " + this.name + " stopped, producer stalls: " + this.producerStallCount +
+                " (" + this.producerStallNanos + " ns), consumer stalls: " + this.consumerStallCount +
+                " (" + this.consumerStallNanos + " ns)");
+    }
+
+    /**
+     * @return  how many times the background thread waited because the buffer was full
+     */
+    public long getProducerStallCount() {
+        return producerStallCount;
+    }
+
+    /**
+     * @return  how long in nanoseconds the background thread waited because the buffer was full
+     */
+    public long getProducerStallNanos() {
+        return producerStallNanos;
+    }
+
+    /**
+     * @return  how many times the consumer waited because the buffer was empty
+     */
+    public long getConsumerStallCount() {
+        return consumerStallCount;
+    }
+
+    /**
+     * @return  how long in nanoseconds the consumer waited because the buffer was empty
+     */
+    public long getConsumerStallNanos() {
+        return consumerStallNanos;
+    }
+
+    private void iterateSource() {
+        try {
+            while (!this.closed && this.source.hasNext()) {
+                final Object element = this.source.next();
+                if (null == this.positionAwareSource) {
+                    this.put(null == element ? NULL : element);
+                } else {
+                    this.put(new Positioned(null == element ? NULL : element,
+                            this.positionAwareSource.getPosition()));
+                }
+            }
+            this.put(END);
+        } catch (InterruptedException ex) {
+            // closed by the consumer
+        } catch (Throwable ex) {
+            if (!this.closed) {
+                try {
+                    this.put(new Failure(ex));
+                } catch (InterruptedException ie) {
+                    // closed by the consumer
+                }
+            }
+        } finally {
+            try {
+                this.source.close();
+            } catch (IOException ex) {
+                logger.warning("Fail to close the source of " + this.name + ": " + ex);
+            }
+        }
+    }
+
+    private void put(final Object element) throws InterruptedException {
+        if (!this.buffer.offer(element)) {
+            final long start = System.nanoTime();
+            this.buffer.put(element);
+            // written by the background thread only
+            this.producerStallCount = this.producerStallCount + 1;
+            this.producerStallNanos = this.producerStallNanos + (System.nanoTime() - start);
+        }
+    }
+
+    private static class Positioned {
+
+        private final Object element;
+        private final long position;
+
+        private Positioned(final Object element, final long position) {
+            this.element = element;
+            this.position = position;
+        }
+    }
+
+    private static class Failure {
+
+        private final Throwable error;
+
+        private Failure(final Throwable error) {
+            this.error = error;
+        }
+    }
+}
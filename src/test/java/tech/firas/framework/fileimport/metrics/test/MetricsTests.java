@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.metrics.test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.metrics.JmxMetricsExporter;
+import tech.firas.framework.fileimport.metrics.LatencyHistogram;
+import tech.firas.framework.fileimport.metrics.StageMetrics;
+import tech.firas.framework.fileimport.metrics.TimingDataFileProcessor;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+
+public class MetricsTests extends AbstractTests {
+
+    private static final int FILE_COUNT = 3;
+    private static final int ROW_COUNT = 1000;
+
+    @Test
+    public void testHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getPercentileNanos(99));
+        for (long i = 1; i <= 100000; i += 1) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(100000, histogram.getCount());
+        Assert.assertEquals(100000, histogram.getMaxNanos());
+        Assert.assertEquals(50000, histogram.getMeanNanos());
+        for (final double percentile : new double[] {1, 50, 90, 99, 99.9}) {
+            final long expected = (long) (percentile * 1000);
+            final long actual = histogram.getPercentileNanos(percentile);
+            Assert.assertTrue(percentile + ": " + actual, actual >= expected && actual <= expected * 1.125);
+        }
+        Assert.assertEquals(100000, histogram.getPercentileNanos(100));
+        Assert.assertEquals(7, histogram.getPercentileNanos(0.007));
+
+        final LatencyHistogram merged = new LatencyHistogram();
+        merged.record(Long.MAX_VALUE / 2);
+        merged.merge(histogram);
+        Assert.assertEquals(100001, merged.getCount());
+        Assert.assertEquals(Long.MAX_VALUE / 2, merged.getMaxNanos());
+        Assert.assertEquals(histogram.getPercentileNanos(50), merged.getPercentileNanos(50));
+
+        merged.reset();
+        Assert.assertEquals(0, merged.getCount());
+        Assert.assertEquals(0, merged.getPercentileNanos(50));
+    }
+
+    @Test
+    public void testTiming() throws Exception {
+        final File directory = Files.createTempDirectory("metrics").toFile();
+        final JmxMetricsExporter exporter = new JmxMetricsExporter();
+        try {
+            for (int i = 0; i < FILE_COUNT; i += 1) {
+                final StringBuilder builder = new StringBuilder("id,name\n");
+                for (int j = 1; j <= ROW_COUNT; j += 1) {
+                    builder.append(j).append(",name ").append(j).append('\n');
+                }
+                Files.write(new File(directory, "data" + i + ".csv").toPath(),
+                        builder.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            final TimingDataFileProcessor<List<String>> sinkTiming = new TimingDataFileProcessor<>();
+            sinkTiming.setName("sink");
+            sinkTiming.setDelegate(new CollectingProcessor<List<String>>());
+
+            final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+            csvProcessor.setCsvParser(new RFC4180Parser());
+            csvProcessor.setNextProcessor(sinkTiming);
+
+            final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+            setRowTypeProcessor.setDataRowJudge(new FixedNumberHeaderRowJudge<String>(1));
+            setRowTypeProcessor.setNextProcessor(csvProcessor);
+
+            final TimingDataFileProcessor<String> chainTiming = new TimingDataFileProcessor<>();
+            chainTiming.setName("chain");
+            chainTiming.setDelegate(setRowTypeProcessor);
+
+            final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+            reader.setDataFileProcessor(chainTiming);
+            reader.setRowBatchSize(64);
+
+            final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+            importer.setDataFileReader(reader);
+            importer.setBaseDirectory(directory.getPath());
+            importer.setFileNamePattern("\\.csv$");
+
+            final ObjectName objectName = exporter.register(chainTiming.getMetrics());
+
+            final ImportContext result = importer.call();
+            Assert.assertTrue(result.getMessage(), result.isSuccessful());
+            for (final DataFileContext dataFileContext : result.getDataFileContextMap().values()) {
+                final StageMetrics chain = dataFileContext.getMetrics().getStage("chain");
+                Assert.assertEquals(ROW_COUNT + 1, chain.getRowCount());
+                Assert.assertTrue(chain.getElapsedNanos() >= chain.getTotalNanos());
+                Assert.assertEquals(ROW_COUNT + 1, dataFileContext.getMetrics().getStage("sink").getRowCount());
+            }
+
+            final StageMetrics chain = result.getMetrics().getStage("chain");
+            Assert.assertEquals(FILE_COUNT * (ROW_COUNT + 1), chain.getRowCount());
+            Assert.assertTrue(chain.getTotalNanos() >= result.getMetrics().getStage("sink").getTotalNanos());
+            Assert.assertEquals(FILE_COUNT * (ROW_COUNT + 1), chainTiming.getMetrics().getRowCount());
+
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals((long) FILE_COUNT * (ROW_COUNT + 1), mBeanServer.getAttribute(objectName, "RowCount"));
+            Assert.assertEquals(chain.getCallCount(), mBeanServer.getAttribute(objectName, "CallCount"));
+            logger.info(String.valueOf(result.getMetrics()));
+
+            // disabled: nothing is timed
+            mBeanServer.setAttribute(objectName, new Attribute("Enabled", false));
+            sinkTiming.getMetrics().setEnabled(false);
+            final ImportContext disabledResult = importer.call();
+            Assert.assertTrue(disabledResult.isSuccessful());
+            Assert.assertTrue(disabledResult.getMetrics().isEmpty());
+            Assert.assertEquals(FILE_COUNT * (ROW_COUNT + 1), chainTiming.getMetrics().getRowCount());
+
+            exporter.close();
+            Assert.assertFalse(mBeanServer.isRegistered(objectName));
+        } finally {
+            exporter.close();
+            for (final File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package tech.firas.framework.fileimport.processor.db.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import javax.sql.DataSource;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.checkpoint.Checkpoint;
+import tech.firas.framework.fileimport.checkpoint.CheckpointStore;
+import tech.firas.framework.fileimport.checkpoint.FileCheckpointStore;
+import tech.firas.framework.fileimport.checkpoint.JdbcCheckpointStore;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.FilterRowTypeProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithDataSource;
+import tech.firas.framework.fileimport.processor.db.VarCharType;
+import tech.firas.framework.fileimport.test.AbstractTests;
+
+public class CheckpointTests extends AbstractTests {
+
+    private static final int ROW_COUNT = 100;
+
+    private DataSource dataSource = null;
+
+    @Override
+    public void setup() throws Exception {
+        super.setup();
+
+        this.dataSource = new DriverManagerDataSource("jdbc:h2:mem:checkpoint;DB_CLOSE_DELAY=-1", "sa", "");
+        try (final Connection connection = this.dataSource.getConnection()) {
+            try (final Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DROP TABLE t_checkpoint_test IF EXISTS");
+                statement.executeUpdate("CREATE TABLE t_checkpoint_test(id VARCHAR(10) NOT NULL, " +
+                        "name VARCHAR(100))");
+                statement.executeUpdate("DROP TABLE t_file_import_checkpoint IF EXISTS");
+                statement.executeUpdate("CREATE TABLE t_file_import_checkpoint(" +
+                        "file_path VARCHAR(1000) NOT NULL PRIMARY KEY, byte_offset BIGINT NOT NULL, " +
+                        "row_no BIGINT NOT NULL, header_rows BIGINT NOT NULL, data_rows BIGINT NOT NULL, " +
+                        "footer_rows BIGINT NOT NULL, file_length BIGINT NOT NULL, last_modified BIGINT NOT NULL)");
+            }
+            connection.commit();
+        }
+    }
+
+    @Test
+    public void testFileCheckpointStore() throws Exception {
+        final File directory = Files.createTempDirectory("checkpoints").toFile();
+        try {
+            final FileCheckpointStore store = new FileCheckpointStore();
+            store.setDirectory(directory.getPath());
+            testStore(store);
+            testResume(store, 0);
+            testResume(store, 50);
+            Assert.assertEquals(0, directory.list().length);
+        } finally {
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void testJdbcCheckpointStore() throws Exception {
+        final JdbcCheckpointStore store = new JdbcCheckpointStore();
+        store.setDataSource(this.dataSource);
+        testStore(store);
+        testResume(store, 0);
+        testResume(store, 50);
+
+        try {
+            store.setTableName("t; DROP TABLE t_checkpoint_test");
+            Assert.fail("The table name should be rejected");
+        } catch (IllegalArgumentException ex) {
+            logger.finer("Expected: " + ex);
+        }
+    }
+
+    private void testStore(final CheckpointStore store) throws Exception {
+        final String filePath = "/data/import/a.csv";
+        Assert.assertNull(store.load(filePath));
+
+        store.save(new Checkpoint(filePath, 100L, 5, 1, 4, 0, 1000L, 123456789L));
+        final Checkpoint checkpoint = new Checkpoint(filePath, 3000000000L, 9, 1, 8, 0, 4000000000L, 123456789L);
+        store.save(checkpoint);
+        Assert.assertEquals(checkpoint.toString(), store.load(filePath).toString());
+        Assert.assertNull(store.load("/data/import/b.csv"));
+
+        store.remove(filePath);
+        Assert.assertNull(store.load(filePath));
+        store.remove(filePath);
+    }
+
+    /**
+     * @param rowBatchSize  the rowBatchSize of the reader which crashes, the rows of a batch of the reader are
+     *                      typed and counted before any of them is inserted
+     */
+    private void testResume(final CheckpointStore store, final int rowBatchSize) throws Exception {
+        final File file = File.createTempFile("checkpoint", ".csv");
+        try {
+            final StringBuilder builder = new StringBuilder("id,name\n");
+            for (int i = 1; i <= ROW_COUNT; i += 1) {
+                builder.append(i).append(",name ").append(i).append('\n');
+            }
+            Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+            final String filePath = file.getCanonicalPath();
+
+            // the 4th batch fails, so 3 batches (24 rows) are committed
+            final MappedPlainTextDataFileReader reader = createReader(store, 30, rowBatchSize);
+            try {
+                reader.readDataFile(filePath, null);
+                Assert.fail("The import should crash");
+            } catch (IllegalStateException ex) {
+                logger.finer("Expected: " + ex);
+            }
+            Assert.assertEquals(24, this.countRows());
+            final Checkpoint checkpoint = store.load(filePath);
+            Assert.assertNotNull(checkpoint);
+            Assert.assertEquals(25, checkpoint.getRowNumber());
+            Assert.assertEquals("id,name\n".length() + 9 * "1,name 1\n".length() + 15 * "10,name 10\n".length(),
+                    checkpoint.getPosition());
+            Assert.assertEquals(1, checkpoint.getHeaderRowCount());
+            Assert.assertEquals(24, checkpoint.getDataRowCount());
+
+            // resume in batches of rows, which do not need to be aligned with the batches of the DB
+            final DataFileContext dataFileContext = createReader(store, -1, 7).readDataFile(filePath, null);
+            Assert.assertEquals(1, dataFileContext.getHeaderRowCount());
+            Assert.assertEquals(ROW_COUNT, dataFileContext.getDataRowCount());
+            Assert.assertNull(store.load(filePath));
+
+            final List<String> ids = new ArrayList<>();
+            try (final Connection connection = this.dataSource.getConnection();
+                    final Statement statement = connection.createStatement();
+                    final ResultSet resultSet = statement.executeQuery("SELECT id FROM t_checkpoint_test")) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString(1));
+                }
+            }
+            Assert.assertEquals(ROW_COUNT, ids.size());
+            Assert.assertEquals(ROW_COUNT, new HashSet<>(ids).size());
+
+            // a checkpoint of a changed file is discarded
+            store.save(checkpoint);
+            Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+            Assert.assertEquals(ROW_COUNT, createReader(store, -1, 0).readDataFile(filePath, null).getDataRowCount());
+            Assert.assertEquals(ROW_COUNT * 2, this.countRows());
+        } finally {
+            Assert.assertTrue(file.delete());
+            try (final Connection connection = this.dataSource.getConnection();
+                    final Statement statement = connection.createStatement()) {
+                statement.executeUpdate("TRUNCATE TABLE t_checkpoint_test");
+            }
+        }
+    }
+
+    private MappedPlainTextDataFileReader createReader(final CheckpointStore store, final int crashAtRow,
+            final int rowBatchSize) {
+        final CrashingProcessor toDbProcessor = new CrashingProcessor(crashAtRow);
+        toDbProcessor.setInsertSql("INSERT INTO t_checkpoint_test(id, name) VALUES (?, ?)");
+        toDbProcessor.setBatchSize(8);
+        toDbProcessor.setColumnDataTypeList(
+                Arrays.<DbDataType<?>>asList(new VarCharType(true, 10), new VarCharType(100)));
+        toDbProcessor.setDataSource(this.dataSource);
+        toDbProcessor.setCheckpointStore(store);
+
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(toDbProcessor);
+
+        final FilterRowTypeProcessor<String> filterProcessor = new FilterRowTypeProcessor<>();
+        filterProcessor.setAllowRowTypes(Collections.singleton(RowType.DATA));
+        filterProcessor.setNextProcessor(csvProcessor);
+
+        final FixedNumberHeaderRowJudge<String> judge = new FixedNumberHeaderRowJudge<>();
+        judge.setNumberOfHeaderRows(1);
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(judge);
+        setRowTypeProcessor.setNextProcessor(filterProcessor);
+
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        reader.setCheckpointStore(store);
+        reader.setRowBatchSize(rowBatchSize);
+        return reader;
+    }
+
+    private int countRows() throws SQLException {
+        try (final Connection connection = this.dataSource.getConnection();
+                final Statement statement = connection.createStatement();
+                final ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM t_checkpoint_test")) {
+            Assert.assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Simulates a crash when the {@code crashAtRow}-th row of the import is inserted
+     */
+    private static class CrashingProcessor extends StringListToDbProcessorWithDataSource {
+
+        private final int crashAtRow;
+
+        private CrashingProcessor(final int crashAtRow) {
+            this.crashAtRow = crashAtRow;
+        }
+
+        @Override
+        protected void insertOneRowIntoBatch(final DataFileContext dataFileContext, final long rowNumber,
+                final List<String> rowData) throws Exception {
+            if (rowNumber == this.crashAtRow) {
+                throw new IllegalStateException("Crash at row " + rowNumber);
+            }
+            super.insertOneRowIntoBatch(dataFileContext, rowNumber, rowData);
+        }
+    }
+}
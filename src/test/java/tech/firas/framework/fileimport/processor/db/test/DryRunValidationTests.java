@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.db.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.ParallelProcessor;
+import tech.firas.framework.fileimport.processor.WorkerChainFactory;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.DryRunValidationProcessor;
+import tech.firas.framework.fileimport.processor.db.Int32Type;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithDataSource;
+import tech.firas.framework.fileimport.processor.db.ValidationReport;
+import tech.firas.framework.fileimport.processor.db.ValidationReportListener;
+import tech.firas.framework.fileimport.processor.db.VarCharType;
+import tech.firas.framework.fileimport.test.AbstractTests;
+
+public class DryRunValidationTests extends AbstractTests {
+
+    @Test
+    public void testReport() throws Exception {
+        final ReportCollector collector = new ReportCollector();
+        final DryRunValidationProcessor processor = new DryRunValidationProcessor();
+        processor.setRulesOf(createDbProcessor());
+        processor.setMaxSamples(3);
+        processor.setReportListener(collector);
+
+        final DataFileContext context = new DataFileContext("test");
+        processor.beforeProcessFile(context.getFilePath());
+        processor.processRow(new DataRowContext<>(context, 1, Arrays.asList("1", "a"), RowType.DATA));
+        processor.processRow(new DataRowContext<>(context, 2, Arrays.asList("x", "b"), RowType.DATA));
+        final DataRowBatch<List<String>> batch = new DataRowBatch<>();
+        batch.add(new DataRowContext<>(context, 3, Collections.singletonList("3"), RowType.DATA));
+        batch.add(new DataRowContext<>(context, 4, Collections.<String>emptyList(), RowType.DATA));
+        batch.add(new DataRowContext<>(context, 5, Arrays.asList("", "far too long"), RowType.DATA));
+        batch.add(new DataRowContext<>(context, 6, Arrays.asList("6", "f", "extra"), RowType.DATA));
+        processor.processRows(batch);
+        processor.afterProcessFile(context);
+
+        final ValidationReport report = collector.reports.get("test");
+        Assert.assertEquals(6, report.getRowCount());
+        Assert.assertEquals(4, report.getInvalidRowCount());
+        Assert.assertFalse(report.isValid());
+        final Map<String, Long> errorCounts = report.getErrorCounts();
+        Assert.assertEquals(Long.valueOf(1), errorCounts.get("int32.invalid.format"));
+        Assert.assertEquals(Long.valueOf(1), errorCounts.get(DryRunValidationProcessor.ROW_LESS_COLUMNS));
+        Assert.assertEquals(Long.valueOf(1), errorCounts.get(DryRunValidationProcessor.ROW_EMPTY));
+        Assert.assertEquals(Long.valueOf(1), errorCounts.get("int32.invalid.notNull"));
+        Assert.assertEquals(1, errorCounts.get("varchar.toolong.length").longValue());
+        Assert.assertEquals(5, errorCounts.size());
+
+        Assert.assertEquals(3, report.getSamples().size());
+        final ValidationReport.Sample sample = report.getSamples().get(0);
+        Assert.assertEquals(2, sample.getRowNumber());
+        Assert.assertEquals(0, sample.getColumnIndex());
+        Assert.assertEquals("int32.invalid.format", sample.getErrorCode());
+        Assert.assertEquals(Arrays.asList("x", "b"), sample.getRow());
+        Assert.assertEquals(-1, report.getSamples().get(1).getColumnIndex());
+
+        Assert.assertEquals(2, context.getAcceptedRowCount());
+        Assert.assertEquals(4, context.getRejectedRowCount());
+        Assert.assertEquals(0, context.getSession().size());
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        final File directory = Files.createTempDirectory("dryRun").toFile();
+        try {
+            for (int i = 0; i < 4; i += 1) {
+                final StringBuilder builder = new StringBuilder();
+                for (int j = 1; j <= 5000; j += 1) {
+                    builder.append(j % 1000 == 0 ? "bad" : String.valueOf(j)).append(",name ").append(j)
+                            .append('\n');
+                }
+                Files.write(new File(directory, "data" + i + ".csv").toPath(),
+                        builder.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            final ReportCollector collector = new ReportCollector();
+            final DryRunValidationProcessor validator = new DryRunValidationProcessor();
+            validator.setRulesOf(createDbProcessor());
+            validator.setReportListener(collector);
+
+            final ParallelProcessor<String, List<String>> parallelProcessor = new ParallelProcessor<>();
+            parallelProcessor.setParallelism(3);
+            parallelProcessor.setWorkerChainFactory(new WorkerChainFactory<String, List<String>>() {
+                @Override
+                public DataFileProcessor<String> createWorkerChain(final DataFileProcessor<List<String>> output) {
+                    final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+                    csvProcessor.setCsvParser(new RFC4180Parser());
+                    csvProcessor.setNextProcessor(output);
+                    return csvProcessor;
+                }
+            });
+            parallelProcessor.setNextProcessor(validator);
+
+            final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+            reader.setRowBatchSize(64);
+            reader.setDataFileProcessor(parallelProcessor);
+            final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+            importer.setDataFileReader(reader);
+            importer.setBaseDirectory(directory.getPath());
+            importer.setFileNamePattern("\\.csv$");
+            importer.setParallelism(2);
+
+            final ImportContext result = importer.call();
+            Assert.assertTrue(result.getMessage(), result.isSuccessful());
+            Assert.assertEquals(4, collector.reports.size());
+            for (final ValidationReport report : collector.reports.values()) {
+                Assert.assertEquals(5000, report.getRowCount());
+                Assert.assertEquals(5, report.getInvalidRowCount());
+                Assert.assertEquals(Collections.singletonMap("int32.invalid.format", 5L), report.getErrorCounts());
+                Assert.assertEquals(5, report.getSamples().size());
+                Assert.assertEquals(4995, result.getDataFileContextMap().get(report.getFilePath())
+                        .getAcceptedRowCount());
+            }
+        } finally {
+            for (final File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    /**
+     * The DataSource cannot be connected, so the test fails if the validator touches the DB
+     */
+    private static StringListToDbProcessorWithDataSource createDbProcessor() {
+        final DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setUrl("jdbc:nowhere:dryRun");
+        final StringListToDbProcessorWithDataSource dbProcessor = new StringListToDbProcessorWithDataSource();
+        dbProcessor.setDataSource(dataSource);
+        dbProcessor.setInsertSql("INSERT INTO t_nowhere(id, name) VALUES (?, ?)");
+        dbProcessor.setAllowLessColumns(false);
+        dbProcessor.setColumnDataTypeList(Arrays.<DbDataType<?>>asList(new Int32Type(true), new VarCharType(10)));
+        return dbProcessor;
+    }
+
+    private static class ReportCollector implements ValidationReportListener {
+
+        private final Map<String, ValidationReport> reports = new ConcurrentHashMap<>();
+
+        @Override
+        public void onReport(final ValidationReport report) {
+            this.reports.put(report.getFilePath(), report);
+        }
+    }
+}
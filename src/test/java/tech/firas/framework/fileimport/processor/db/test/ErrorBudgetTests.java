@@ -0,0 +1,408 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.db.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.SplitPlainTextDataFileReader;
+import tech.firas.framework.fileimport.checkpoint.Checkpoint;
+import tech.firas.framework.fileimport.checkpoint.FileCheckpointStore;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessorFactory;
+import tech.firas.framework.fileimport.processor.ParallelProcessor;
+import tech.firas.framework.fileimport.processor.WorkerChainFactory;
+import tech.firas.framework.fileimport.processor.db.AbstractStringListToDbProcessor;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.Int32Type;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithDataSource;
+import tech.firas.framework.fileimport.processor.db.StringListToDbProcessorWithJdbcTemplate;
+import tech.firas.framework.fileimport.processor.db.ValidationException;
+import tech.firas.framework.fileimport.test.AbstractTests;
+
+public class ErrorBudgetTests extends AbstractTests {
+
+    private static final String DATA = "1,10\nx,20\n3,\"3,0\"\n4,40\n5,\n";
+
+    private DriverManagerDataSource dataSource;
+    private File directory;
+    private File file;
+    private File rejectFile;
+
+    @Override
+    public void setup() throws Exception {
+        super.setup();
+
+        this.dataSource = new DriverManagerDataSource();
+        this.dataSource.setDriverClassName("org.h2.Driver");
+        this.dataSource.setUrl("jdbc:h2:mem:reject;DB_CLOSE_DELAY=-1");
+
+        this.directory = Files.createTempDirectory("reject").toFile();
+        this.file = new File(this.directory, "data.csv");
+        Files.write(this.file.toPath(), DATA.getBytes(StandardCharsets.UTF_8));
+        final File rejectDirectory =
+                new File(this.directory, AbstractStringListToDbProcessor.DEFAULT_REJECT_DIRECTORY_NAME);
+        this.rejectFile = new File(rejectDirectory, "data.csv" + AbstractStringListToDbProcessor.REJECT_FILE_SUFFIX);
+    }
+
+    @After
+    public void tearDown() {
+        delete(this.directory);
+    }
+
+    @Test
+    public void testWithinBudget() throws Exception {
+        for (final AbstractStringListToDbProcessor processor : this.processors()) {
+            for (final String budget : new String[] {"2", "40%"}) {
+                this.createTable();
+                processor.setErrorBudget(budget);
+                final DataFileContext dataFileContext = read(processor, this.file);
+
+                Assert.assertEquals(3, dataFileContext.getAcceptedRowCount());
+                Assert.assertEquals(2, dataFileContext.getRejectedRowCount());
+                Assert.assertEquals(Arrays.asList("1:10", "4:40", "5:null"), this.queryRows());
+                Assert.assertEquals(Arrays.asList("2,int32.invalid.format,x,20", "3,int32.invalid.format,3,\"3,0\""),
+                        Files.readAllLines(this.rejectFile.toPath(), StandardCharsets.UTF_8));
+                Assert.assertTrue(this.rejectFile.delete());
+            }
+        }
+    }
+
+    @Test
+    public void testBudgetExceeded() throws Exception {
+        for (final AbstractStringListToDbProcessor processor : this.processors()) {
+            for (final String budget : new String[] {"1", "39.9%", "0"}) {
+                this.createTable();
+                processor.setErrorBudget(budget);
+                try {
+                    read(processor, this.file);
+                    Assert.fail("The error budget " + budget + " should be exceeded");
+                } catch (ValidationException ex) {
+                    logger.finer("Expected: " + ex);
+                    Assert.assertEquals("errorBudget.exceeded", ex.getErrorCode());
+                }
+                Assert.assertTrue(this.rejectFile.isFile());
+                Assert.assertTrue(this.rejectFile.delete());
+            }
+        }
+    }
+
+    @Test
+    public void testWithoutBudget() throws Exception {
+        for (final AbstractStringListToDbProcessor processor : this.processors()) {
+            this.createTable();
+            try {
+                read(processor, this.file);
+                Assert.fail("The invalid row should fail the file");
+            } catch (ValidationException ex) {
+                Assert.assertEquals("int32.invalid.format", ex.getErrorCode());
+            }
+            Assert.assertFalse(this.rejectFile.exists());
+        }
+    }
+
+    @Test
+    public void testRejectDirectory() throws Exception {
+        final File rejectDirectory = new File(this.directory, "rejects");
+        Assert.assertTrue(rejectDirectory.mkdir());
+        try {
+            this.createTable();
+            final AbstractStringListToDbProcessor processor = this.processors().get(0);
+            processor.setErrorBudget("10");
+            processor.setRejectDirectory(rejectDirectory.getPath());
+            read(processor, this.file);
+            Assert.assertFalse(this.rejectFile.exists());
+            final File rejectFile = new File(rejectDirectory, this.rejectFile.getName());
+            Assert.assertEquals(2, Files.readAllLines(rejectFile.toPath(), StandardCharsets.UTF_8).size());
+            Assert.assertTrue(rejectFile.delete());
+        } finally {
+            Assert.assertTrue(rejectDirectory.delete());
+        }
+    }
+
+    @Test
+    public void testLessColumns() throws Exception {
+        Files.write(this.file.toPath(), "1,10\n2\n3,30\n".getBytes(StandardCharsets.UTF_8));
+        for (final AbstractStringListToDbProcessor processor : this.processors()) {
+            this.createTable();
+            processor.setAllowLessColumns(false);
+            try {
+                read(processor, this.file);
+                Assert.fail("The row of less columns should fail the file");
+            } catch (ValidationException ex) {
+                Assert.assertEquals(AbstractStringListToDbProcessor.ROW_LESS_COLUMNS, ex.getErrorCode());
+            }
+
+            this.createTable();
+            processor.setErrorBudget("1");
+            final DataFileContext dataFileContext = read(processor, this.file);
+            Assert.assertEquals(2, dataFileContext.getAcceptedRowCount());
+            Assert.assertEquals(1, dataFileContext.getRejectedRowCount());
+            Assert.assertEquals(Arrays.asList("1:10", "3:30"), this.queryRows());
+            Assert.assertEquals(
+                    Collections.singletonList("2," + AbstractStringListToDbProcessor.ROW_LESS_COLUMNS + ",2"),
+                    Files.readAllLines(this.rejectFile.toPath(), StandardCharsets.UTF_8));
+            Assert.assertTrue(this.rejectFile.delete());
+        }
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Files.write(this.file.toPath(), "1,10\nx,20\n3,30\n4,x\n5,50\n6,60\n7,x\n8,80\n"
+                .getBytes(StandardCharsets.UTF_8));
+        final File checkpointDirectory = new File(this.directory, "checkpoints");
+        Assert.assertTrue(checkpointDirectory.mkdir());
+        final FileCheckpointStore store = new FileCheckpointStore();
+        store.setDirectory(checkpointDirectory.getPath());
+        this.createTable();
+
+        final CrashingProcessor processor = new CrashingProcessor();
+        processor.setDataSource(this.dataSource);
+        processor.setInsertSql("INSERT INTO t_reject(id, qty) VALUES (?, ?)");
+        processor.setBatchSize(2);
+        processor.setColumnDataTypeList(Arrays.<DbDataType<?>>asList(new Int32Type(true), new Int32Type()));
+        processor.setErrorBudget("3");
+        processor.setCheckpointStore(store);
+        processor.crashAtId = "8";
+        final MappedPlainTextDataFileReader reader = createMappedReader(processor, store);
+        try {
+            reader.readDataFile(this.file.getPath(), null);
+            Assert.fail("The import should crash");
+        } catch (IllegalStateException ex) {
+            logger.finer("Expected: " + ex);
+        }
+        final Checkpoint checkpoint = store.load(this.file.getCanonicalPath());
+        Assert.assertNotNull(checkpoint);
+        Assert.assertEquals(6, checkpoint.getRowNumber());
+        Assert.assertEquals(3, Files.readAllLines(this.rejectFile.toPath(), StandardCharsets.UTF_8).size());
+
+        // the rejected rows before the checkpoint are kept and counted, the ones after it are rejected again
+        processor.crashAtId = null;
+        final DataFileContext dataFileContext = reader.readDataFile(this.file.getPath(), null);
+        Assert.assertEquals(5, dataFileContext.getAcceptedRowCount());
+        Assert.assertEquals(3, dataFileContext.getRejectedRowCount());
+        Assert.assertEquals(Arrays.asList("1:10", "3:30", "5:50", "6:60", "8:80"), this.queryRows());
+        Assert.assertEquals(Arrays.asList("2,int32.invalid.format,x,20", "4,int32.invalid.format,4,x",
+                "7,int32.invalid.format,7,x"), Files.readAllLines(this.rejectFile.toPath(), StandardCharsets.UTF_8));
+        Assert.assertEquals(1, this.rejectFile.getParentFile().list().length);
+    }
+
+    @Test
+    public void testConcurrentRejects() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= 2000; i += 1) {
+            builder.append(i).append(',').append(i % 5 == 0 ? "x" : String.valueOf(i)).append('\n');
+        }
+        Files.write(this.file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+
+        // the worker chains of a ParallelProcessor
+        this.createTable();
+        final ParallelProcessor<String, List<String>> parallelProcessor = new ParallelProcessor<>();
+        parallelProcessor.setParallelism(4);
+        parallelProcessor.setWorkerChainFactory(new WorkerChainFactory<String, List<String>>() {
+            @Override
+            public DataFileProcessor<String> createWorkerChain(final DataFileProcessor<List<String>> output) {
+                return csvChain(createProcessor(ErrorBudgetTests.this.dataSource, "400"));
+            }
+        });
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setCharset("UTF-8");
+        reader.setDataFileProcessor(parallelProcessor);
+        final DataFileContext dataFileContext = reader.readDataFile(this.file.getPath(), null);
+        Assert.assertEquals(1600, dataFileContext.getAcceptedRowCount());
+        Assert.assertEquals(400, dataFileContext.getRejectedRowCount());
+        this.assertRejectFile(400);
+
+        // the ranges of a SplitPlainTextDataFileReader, the count budget is for the whole file
+        for (final String budget : new String[] {"400", "399"}) {
+            this.createTable();
+            final SplitPlainTextDataFileReader splitReader = new SplitPlainTextDataFileReader();
+            splitReader.setSplitCount(4);
+            splitReader.setMinSplitSize(1024);
+            splitReader.setDataFileProcessorFactory(new DataFileProcessorFactory<String>() {
+                @Override
+                public DataFileProcessor<String> createDataFileProcessor() {
+                    return csvChain(createProcessor(ErrorBudgetTests.this.dataSource, budget));
+                }
+            });
+            try {
+                final DataFileContext splitContext = splitReader.readDataFile(this.file.getPath(), null);
+                Assert.assertEquals("400", budget);
+                Assert.assertEquals(1600, splitContext.getAcceptedRowCount());
+                Assert.assertEquals(400, splitContext.getRejectedRowCount());
+                this.assertRejectFile(400);
+            } catch (ValidationException ex) {
+                Assert.assertEquals("399", budget);
+                Assert.assertEquals("errorBudget.exceeded", ex.getErrorCode());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBudget() {
+        final AbstractStringListToDbProcessor processor = new StringListToDbProcessorWithDataSource();
+        for (final String budget : new String[] {"abc", "-1", "101%", "%"}) {
+            try {
+                processor.setErrorBudget(budget);
+                Assert.fail(budget + " should be invalid");
+            } catch (IllegalArgumentException ex) {
+                logger.finer("Expected: " + ex);
+            }
+        }
+        processor.setErrorBudget(" 0.5% ");
+        Assert.assertEquals("0.5%", processor.getErrorBudget());
+        Assert.assertEquals("decimal.invalid.nan", new ValidationException("decimal.invalid.nan").getErrorCode());
+    }
+
+    private List<AbstractStringListToDbProcessor> processors() {
+        final StringListToDbProcessorWithDataSource dataSourceProcessor = new StringListToDbProcessorWithDataSource();
+        dataSourceProcessor.setDataSource(this.dataSource);
+        final StringListToDbProcessorWithJdbcTemplate jdbcTemplateProcessor =
+                new StringListToDbProcessorWithJdbcTemplate();
+        jdbcTemplateProcessor.setJdbcTemplate(new JdbcTemplate(this.dataSource));
+
+        final List<AbstractStringListToDbProcessor> result = new ArrayList<>();
+        for (final AbstractStringListToDbProcessor processor :
+                Arrays.<AbstractStringListToDbProcessor>asList(dataSourceProcessor, jdbcTemplateProcessor)) {
+            processor.setInsertSql("INSERT INTO t_reject(id, qty) VALUES (?, ?)");
+            processor.setBatchSize(2);
+            processor.setColumnDataTypeList(Arrays.<DbDataType<?>>asList(new Int32Type(true), new Int32Type()));
+            result.add(processor);
+        }
+        return result;
+    }
+
+    private static AbstractStringListToDbProcessor createProcessor(final DataSource dataSource,
+            final String errorBudget) {
+        final StringListToDbProcessorWithDataSource processor = new StringListToDbProcessorWithDataSource();
+        processor.setDataSource(dataSource);
+        processor.setInsertSql("INSERT INTO t_reject(id, qty) VALUES (?, ?)");
+        processor.setBatchSize(50);
+        processor.setColumnDataTypeList(Arrays.<DbDataType<?>>asList(new Int32Type(true), new Int32Type()));
+        processor.setErrorBudget(errorBudget);
+        return processor;
+    }
+
+    private static CsvRowToStringListProcessor csvChain(final AbstractStringListToDbProcessor processor) {
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(processor);
+        return csvProcessor;
+    }
+
+    private static DataFileContext read(final AbstractStringListToDbProcessor processor, final File file)
+            throws Exception {
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setCharset("UTF-8");
+        reader.setDataFileProcessor(csvChain(processor));
+        return reader.readDataFile(file.getPath(), null);
+    }
+
+    /**
+     * Every row of a multiple of 5 is rejected once
+     */
+    private void assertRejectFile(final int rejectedRowCount) throws Exception {
+        final List<String> lines = Files.readAllLines(this.rejectFile.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(rejectedRowCount, lines.size());
+        final Set<Long> rowNumbers = new HashSet<>();
+        for (final String line : lines) {
+            final long rowNumber = Long.parseLong(line.substring(0, line.indexOf(',')));
+            Assert.assertEquals(0, rowNumber % 5);
+            Assert.assertTrue(rowNumbers.add(rowNumber));
+        }
+        Assert.assertTrue(this.rejectFile.delete());
+    }
+
+    private static MappedPlainTextDataFileReader createMappedReader(final AbstractStringListToDbProcessor processor,
+            final FileCheckpointStore store) {
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(processor);
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setDataFileProcessor(csvProcessor);
+        reader.setCheckpointStore(store);
+        return reader;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (null != children) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        Assert.assertTrue(file.delete());
+    }
+
+    private void createTable() throws Exception {
+        try (final Connection connection = this.dataSource.getConnection();
+                final Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE t_reject IF EXISTS");
+            statement.executeUpdate("CREATE TABLE t_reject(id INT NOT NULL, qty INT)");
+        }
+    }
+
+    private List<String> queryRows() throws Exception {
+        final List<String> result = new ArrayList<>();
+        try (final Connection connection = this.dataSource.getConnection();
+                final Statement statement = connection.createStatement();
+                final ResultSet resultSet = statement.executeQuery("SELECT id, qty FROM t_reject ORDER BY id")) {
+            while (resultSet.next()) {
+                result.add(resultSet.getInt(1) + ":" + resultSet.getObject(2));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Simulates a crash when the row of the ID {@code crashAtId} is inserted
+     */
+    private static class CrashingProcessor extends StringListToDbProcessorWithDataSource {
+
+        private String crashAtId;
+
+        @Override
+        protected void insertOneRowIntoBatch(final DataFileContext dataFileContext, final long rowNumber,
+                final List<String> rowData) throws Exception {
+            if (rowData.get(0).equals(this.crashAtId)) {
+                throw new IllegalStateException("Crash at ID " + this.crashAtId);
+            }
+            super.insertOneRowIntoBatch(dataFileContext, rowNumber, rowData);
+        }
+    }
+}
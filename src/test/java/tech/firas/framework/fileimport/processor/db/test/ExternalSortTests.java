@@ -0,0 +1,245 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.db.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.db.DbDataType;
+import tech.firas.framework.fileimport.processor.db.ExternalSortProcessor;
+import tech.firas.framework.fileimport.processor.db.Int64Type;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+
+public class ExternalSortTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testSort() throws Exception {
+        final File directory = Files.createTempDirectory("sort").toFile();
+        try {
+            // the first budget keeps all the rows in memory, the second one spills every few rows
+            for (final long memoryBudget : new long[] {1L << 30, 2000}) {
+                final CollectingProcessor<List<String>> collector = new CollectingProcessor<>();
+                final ExternalSortProcessor processor = new ExternalSortProcessor();
+                processor.setSortColumnIndexes(Arrays.asList(1, 0));
+                processor.setSortColumnDataTypeList(Arrays.<DbDataType<?>>asList(new Int64Type(), null));
+                processor.setMemoryBudget(memoryBudget);
+                processor.setTempDirectory(directory.getPath());
+                processor.setOutputBatchSize(7);
+                processor.setNextProcessor(collector);
+
+                final List<List<String>> rows = new ArrayList<>();
+                for (int i = 0; i < 1000; i += 1) {
+                    final String number = random.nextInt(10) == 0 ? (random.nextBoolean() ? "x" : null) :
+                            String.valueOf(random.nextInt(200) - 100);
+                    rows.add(Arrays.asList(random.nextBoolean() ? "a" : "b", number, "中文 " + i));
+                }
+
+                final DataFileContext context = new DataFileContext("test");
+                processor.beforeProcessFile(context.getFilePath());
+                processor.processRow(new DataRowContext<>(context, 1, Arrays.asList("type", "number", "name"),
+                        RowType.HEADER));
+                final DataRowBatch<List<String>> batch = new DataRowBatch<>();
+                for (int i = 0; i < rows.size(); i += 1) {
+                    final DataRowContext<List<String>> dataRowContext = new DataRowContext<>(context, i + 2,
+                            rows.get(i), RowType.DATA);
+                    dataRowContext.setPosition(i * 10L);
+                    if (i % 3 == 0) {
+                        processor.processRow(dataRowContext);
+                    } else {
+                        batch.add(dataRowContext);
+                        if (batch.size() >= 5) {
+                            processor.processRows(batch);
+                            batch.clear();
+                        }
+                    }
+                }
+                processor.processRows(batch);
+                processor.processRow(new DataRowContext<>(context, rows.size() + 2,
+                        Collections.singletonList("total"), RowType.FOOTER));
+                Assert.assertEquals(1, collector.getRows().size());
+                Assert.assertEquals(memoryBudget < 1L << 30, directory.list().length > 0);
+                processor.afterProcessFile(context);
+
+                Assert.assertEquals(0, directory.list().length);
+                Assert.assertEquals(0, context.getSession().size());
+                Assert.assertEquals(rows.size() + 2, collector.getRows().size());
+                Assert.assertEquals(RowType.HEADER, collector.getRowTypes().get(0));
+                Assert.assertEquals(Collections.singletonList("total"), collector.getRows().get(rows.size() + 1));
+
+                final List<Long> sorted = collector.getRowNumbers().subList(1, rows.size() + 1);
+                for (int i = 1; i <= rows.size(); i += 1) {
+                    final long rowNumber = collector.getRowNumbers().get(i);
+                    Assert.assertEquals(rows.get((int) rowNumber - 2), collector.getRows().get(i));
+                    Assert.assertEquals(RowType.DATA, collector.getRowTypes().get(i));
+                    Assert.assertEquals(-1, collector.getPositions().get(i).longValue());
+                }
+                final List<Long> expected = new ArrayList<>(sorted);
+                Collections.sort(expected, new Comparator<Long>() {
+                    @Override
+                    public int compare(final Long rowNumber1, final Long rowNumber2) {
+                        final List<String> row1 = rows.get(rowNumber1.intValue() - 2);
+                        final List<String> row2 = rows.get(rowNumber2.intValue() - 2);
+                        final Long number1 = toLong(row1.get(1));
+                        final Long number2 = toLong(row2.get(1));
+                        if (null == number1 || null == number2) {
+                            if (null != number1 || null != number2) {
+                                return null == number1 ? -1 : 1;
+                            }
+                        } else if (!number1.equals(number2)) {
+                            return number1.compareTo(number2);
+                        }
+                        final int result = row1.get(0).compareTo(row2.get(0));
+                        return result != 0 ? result : rowNumber1.compareTo(rowNumber2);
+                    }
+                });
+                Assert.assertEquals(expected, sorted);
+            }
+        } finally {
+            for (final File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final File directory = Files.createTempDirectory("sort").toFile();
+        try {
+            // a run left by an earlier failure of the file, and a run of another file
+            final File staleRun = new File(directory, "sort-test.csv-123.run");
+            final File otherRun = new File(directory, "sort-other.csv-123.run");
+            Assert.assertTrue(staleRun.createNewFile());
+            Assert.assertTrue(otherRun.createNewFile());
+
+            final ExternalSortProcessor processor = new ExternalSortProcessor();
+            processor.setSortColumnIndexes(Collections.singletonList(0));
+            // a key of "invalid" is not comparable, which fails the file after some runs are spilled
+            final DbDataType<Object> type = new DbDataType<Object>(false) {
+                @Override
+                public Object fromString(final String column) {
+                    return "invalid".equals(column) ? new Object() : column;
+                }
+
+                @Override
+                public int getJavaSqlType() {
+                    return Types.VARCHAR;
+                }
+
+                @Override
+                protected void setParameterForPreparedStatement0(final PreparedStatement ps, final int index,
+                        final Object value) {
+                }
+            };
+            processor.setSortColumnDataTypeList(Collections.<DbDataType<?>>singletonList(type));
+            processor.setMemoryBudget(1000);
+            processor.setTempDirectory(directory.getPath());
+            processor.setNextProcessor(new CollectingProcessor<List<String>>());
+
+            final DataFileContext context = new DataFileContext("data/test.csv");
+            processor.beforeProcessFile(context.getFilePath());
+            Assert.assertFalse(staleRun.exists());
+            Assert.assertTrue(otherRun.exists());
+            for (final boolean batch : new boolean[] {false, true}) {
+                final DataRowBatch<List<String>> dataRowBatch = new DataRowBatch<>();
+                for (int i = 0; i <= 100; i += 1) {
+                    final DataRowContext<List<String>> dataRowContext = new DataRowContext<>(context, i + 1,
+                            Collections.singletonList(i < 100 ? String.valueOf(random.nextInt()) : "invalid"),
+                            RowType.DATA);
+                    if (i == 100) {
+                        Assert.assertTrue(directory.list().length > 2);
+                    }
+                    try {
+                        if (batch) {
+                            dataRowBatch.add(dataRowContext);
+                            if (dataRowBatch.size() >= 10 || i == 100) {
+                                processor.processRows(dataRowBatch);
+                                dataRowBatch.clear();
+                            }
+                        } else {
+                            processor.processRow(dataRowContext);
+                        }
+                        Assert.assertTrue(i < 100);
+                    } catch (IllegalStateException ex) {
+                        Assert.assertEquals(100, i);
+                        logger.finer("Expected: " + ex);
+                    }
+                }
+                Assert.assertArrayEquals(new String[] {otherRun.getName()}, directory.list());
+                Assert.assertEquals(0, context.getSession().size());
+            }
+        } finally {
+            for (final File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() throws Exception {
+        final ExternalSortProcessor processor = new ExternalSortProcessor();
+        processor.setNextProcessor(new CollectingProcessor<List<String>>());
+        try {
+            processor.beforeProcessFile("test");
+            Assert.fail("sortColumnIndexes is not set");
+        } catch (IllegalStateException ex) {
+            logger.finer("Expected: " + ex);
+        }
+
+        processor.setSortColumnIndexes(Arrays.asList(0, 1));
+        processor.setSortColumnDataTypeList(Collections.<DbDataType<?>>singletonList(new Int64Type()));
+        try {
+            processor.beforeProcessFile("test");
+            Assert.fail("sortColumnDataTypeList does not match");
+        } catch (IllegalStateException ex) {
+            logger.finer("Expected: " + ex);
+        }
+
+        try {
+            processor.setSortColumnIndexes(Collections.singletonList(-1));
+            Assert.fail("A negative index is invalid");
+        } catch (IllegalArgumentException ex) {
+            logger.finer("Expected: " + ex);
+        }
+    }
+
+    private static Long toLong(final String value) {
+        try {
+            return null == value ? null : Long.valueOf(value);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
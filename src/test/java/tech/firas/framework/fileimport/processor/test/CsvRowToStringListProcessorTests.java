@@ -15,21 +15,30 @@
  */
 package tech.firas.framework.fileimport.processor.test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.ICSVParser;
 import com.opencsv.RFC4180Parser;
 import org.junit.Assert;
 import org.junit.Test;
 
 import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
 import tech.firas.framework.fileimport.DataRowContext;
 import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
 import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
 import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.BatchDataFileProcessor;
 import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
 import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessors;
 import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
 import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.util.LazyCsvColumnList;
+import tech.firas.framework.fileimport.util.MappedCsvScanner;
 
 public class CsvRowToStringListProcessorTests extends AbstractTests {
 
@@ -67,6 +76,222 @@ public class CsvRowToStringListProcessorTests extends AbstractTests {
         reader.readDataFile("src/test/resources/default_plain_text_data_file.csv", null);
     }
 
+    @Test
+    public void testCsvReusingRowContext() throws Exception {
+        final CsvRowToStringListProcessor toStringListProcessor = new CsvRowToStringListProcessor();
+        toStringListProcessor.setCsvParser(new RFC4180Parser());
+        toStringListProcessor.setReuseRowContext(true);
+        final SameContextProcessor sameContextProcessor = new SameContextProcessor(new CsvTestProcessor(5));
+        toStringListProcessor.setNextProcessor(sameContextProcessor);
+
+        final FixedNumberHeaderRowJudge<String> rowJudge = new FixedNumberHeaderRowJudge<>();
+        rowJudge.setNumberOfHeaderRows(1);
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(rowJudge);
+        setRowTypeProcessor.setNextProcessor(toStringListProcessor);
+
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        reader.setReuseRowContext(true);
+        final DataFileContext dataFileContext = reader.readDataFile(
+                "src/test/resources/default_plain_text_data_file.csv", null);
+        Assert.assertEquals(1, dataFileContext.getHeaderRowCount());
+        Assert.assertEquals(9, sameContextProcessor.rowCount);
+    }
+
+    @Test
+    public void testCsvInBatches() throws Exception {
+        final CsvRowToStringListProcessor toStringListProcessor = new CsvRowToStringListProcessor();
+        toStringListProcessor.setCsvParser(new RFC4180Parser());
+        final BatchCountingProcessor batchCountingProcessor = new BatchCountingProcessor(new CsvTestProcessor(5));
+        toStringListProcessor.setNextProcessor(batchCountingProcessor);
+
+        final FixedNumberHeaderRowJudge<String> rowJudge = new FixedNumberHeaderRowJudge<>();
+        rowJudge.setNumberOfHeaderRows(1);
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(rowJudge);
+        setRowTypeProcessor.setNextProcessor(toStringListProcessor);
+
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        reader.setRowBatchSize(4);
+        final DataFileContext dataFileContext = reader.readDataFile(
+                "src/test/resources/default_plain_text_data_file.csv", null);
+        Assert.assertEquals(1, dataFileContext.getHeaderRowCount());
+        Assert.assertEquals(8, dataFileContext.getDataRowCount());
+        Assert.assertEquals(Arrays.asList(4, 4, 1), batchCountingProcessor.batchSizes);
+    }
+
+    @Test
+    public void testCsvWithLazyColumns() throws Exception {
+        final CsvRowToStringListProcessor toStringListProcessor = new CsvRowToStringListProcessor();
+        toStringListProcessor.setCsvParser(new RFC4180Parser());
+        toStringListProcessor.setLazyColumns(true);
+        final BatchCountingProcessor batchCountingProcessor = new BatchCountingProcessor(new CsvTestProcessor(5));
+        toStringListProcessor.setNextProcessor(batchCountingProcessor);
+
+        final FixedNumberHeaderRowJudge<String> rowJudge = new FixedNumberHeaderRowJudge<>();
+        rowJudge.setNumberOfHeaderRows(1);
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(rowJudge);
+        setRowTypeProcessor.setNextProcessor(toStringListProcessor);
+
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        reader.setRowBatchSize(4);
+        final DataFileContext dataFileContext = reader.readDataFile(
+                "src/test/resources/default_plain_text_data_file.csv", null);
+        Assert.assertEquals(8, dataFileContext.getDataRowCount());
+        Assert.assertEquals(Arrays.asList(4, 4, 1), batchCountingProcessor.batchSizes);
+    }
+
+    @Test
+    public void testCsvWithLazyColumnsReusingRowContext() throws Exception {
+        final CsvRowToStringListProcessor toStringListProcessor = new CsvRowToStringListProcessor();
+        toStringListProcessor.setCsvParser(new RFC4180Parser());
+        toStringListProcessor.setLazyColumns(true);
+        toStringListProcessor.setReuseRowContext(true);
+        final SameContextProcessor sameContextProcessor = new SameContextProcessor(new CsvTestProcessor(5));
+        toStringListProcessor.setNextProcessor(sameContextProcessor);
+
+        final FixedNumberHeaderRowJudge<String> rowJudge = new FixedNumberHeaderRowJudge<>();
+        rowJudge.setNumberOfHeaderRows(1);
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(rowJudge);
+        setRowTypeProcessor.setNextProcessor(toStringListProcessor);
+
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        reader.setReuseRowContext(true);
+        reader.readDataFile("src/test/resources/default_plain_text_data_file.csv", null);
+        Assert.assertEquals(9, sameContextProcessor.rowCount);
+        Assert.assertTrue(sameContextProcessor.columns instanceof LazyCsvColumnList);
+    }
+
+    @Test
+    public void testLazyCsvColumnList() throws Exception {
+        final RFC4180Parser parser = new RFC4180Parser();
+        final LazyCsvColumnList columnList = new LazyCsvColumnList(',', '"', MappedCsvScanner.NO_ESCAPE);
+        final String[] lines = {"", "a", ",", "a,b,", "\"a,b\",c", "\"\"", "\"a\"\"b\",\"\"\"\"", "x\"y,z",
+                " \"a\" ,b", "\"\",\"\",\"\"", "a,,\"\",,b"};
+        for (final String line : lines) {
+            Assert.assertEquals(line, Arrays.asList(parser.parseLine(line)), columnList.reset(line));
+        }
+
+        columnList.reset("a,\"b,c\",d");
+        final LazyCsvColumnList copy = columnList.copy();
+        Assert.assertEquals("d", columnList.get(2));
+        columnList.reset("e");
+        Assert.assertEquals(Arrays.asList("a", "b,c", "d"), copy);
+        Assert.assertEquals(Arrays.asList("e"), columnList);
+
+        final LazyCsvColumnList escaping = new LazyCsvColumnList(';', '\'', '\\');
+        Assert.assertEquals(Arrays.asList("a;b", "it's", "c\\d"), escaping.reset("a\\;b;'it\\'s';c\\\\d"));
+        Assert.assertEquals(Arrays.asList("a", "b\"c"),
+                lazyColumnsOf(new CSVParserBuilder().withEscapeChar('\\').build(), "a,b\\\"c"));
+    }
+
+    private static List<String> lazyColumnsOf(final ICSVParser csvParser, final String line) throws Exception {
+        final CsvRowToStringListProcessor toStringListProcessor = new CsvRowToStringListProcessor();
+        toStringListProcessor.setCsvParser(csvParser);
+        toStringListProcessor.setLazyColumns(true);
+        final List<List<String>> rows = new ArrayList<>();
+        toStringListProcessor.setNextProcessor(new DataFileProcessor<List<String>>() {
+            @Override
+            public void beforeProcessFile(final String filePath) {
+            }
+
+            @Override
+            public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> row) {
+                rows.add(row.getRow());
+                return row;
+            }
+
+            @Override
+            public void afterProcessFile(final DataFileContext dataFileContext) {
+            }
+        });
+        toStringListProcessor.processRow(new DataRowContext<>(new DataFileContext("test"), 1, line, RowType.DATA));
+        Assert.assertTrue(rows.get(0) instanceof LazyCsvColumnList);
+        return rows.get(0);
+    }
+
+    /**
+     * Records the sizes of the batches, and passes the rows one by one to the next processor
+     */
+    private static class BatchCountingProcessor implements BatchDataFileProcessor<List<String>> {
+
+        private final DataFileProcessor<List<String>> nextProcessor;
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        private BatchCountingProcessor(final DataFileProcessor<List<String>> nextProcessor) {
+            this.nextProcessor = nextProcessor;
+        }
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+            this.nextProcessor.beforeProcessFile(filePath);
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+            this.nextProcessor.afterProcessFile(dataFileContext);
+        }
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> row)
+                throws Exception {
+            Assert.fail("The rows should be passed in batches");
+            return row;
+        }
+
+        @Override
+        public void processRows(final DataRowBatch<List<String>> dataRowBatch) throws Exception {
+            this.batchSizes.add(dataRowBatch.size());
+            DataFileProcessors.processRows(this.nextProcessor, dataRowBatch);
+        }
+    }
+
+    /**
+     * Checks that the same DataRowContext and the same List are passed for all the rows
+     */
+    private static class SameContextProcessor implements DataFileProcessor<List<String>> {
+
+        private final DataFileProcessor<List<String>> nextProcessor;
+        private DataRowContext<List<String>> context;
+        private List<String> columns;
+        private int rowCount = 0;
+
+        private SameContextProcessor(final DataFileProcessor<List<String>> nextProcessor) {
+            this.nextProcessor = nextProcessor;
+        }
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+            this.nextProcessor.beforeProcessFile(filePath);
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+            this.nextProcessor.afterProcessFile(dataFileContext);
+        }
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> row)
+                throws Exception {
+            Assert.assertTrue(row.isRecycled());
+            if (null == this.context) {
+                this.context = row;
+                this.columns = row.getRow();
+            } else {
+                Assert.assertSame(this.context, row);
+                Assert.assertSame(this.columns, row.getRow());
+            }
+            this.rowCount += 1;
+            return this.nextProcessor.processRow(row);
+        }
+    }
+
     private static class TxtTestProcessor implements DataFileProcessor<List<String>> {
 
         private final int totalRows;
@@ -86,7 +311,7 @@ public class CsvRowToStringListProcessorTests extends AbstractTests {
         @Override
         public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> row)
                 throws Exception {
-            switch (row.getRowNumber()) {
+            switch ((int) row.getRowNumber()) {
                 case 1:
                     Assert.assertEquals(RowType.HEADER, row.getType());
                     break;
@@ -159,7 +384,7 @@ public class CsvRowToStringListProcessorTests extends AbstractTests {
         @Override
         public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> row)
                 throws Exception {
-            switch (row.getRowNumber()) {
+            switch ((int) row.getRowNumber()) {
                 case 6:
                     Assert.assertEquals(RowType.DATA, row.getType());
                     final List<String> a1 = row.getRow();
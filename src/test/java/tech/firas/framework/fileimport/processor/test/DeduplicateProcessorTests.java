@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.ImportRunListener;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DeduplicateProcessor;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+import tech.firas.framework.fileimport.util.BloomFilter;
+import tech.firas.framework.fileimport.util.CompactKeySet;
+
+public class DeduplicateProcessorTests extends AbstractTests {
+
+    @Test
+    public void testFileScope() throws Exception {
+        for (final DeduplicateProcessor.Mode mode : DeduplicateProcessor.Mode.values()) {
+            final CollectingProcessor<List<String>> collector = new CollectingProcessor<>();
+            final DeduplicateProcessor processor = new DeduplicateProcessor();
+            processor.setMode(mode);
+            processor.setKeyColumnIndexes(Arrays.asList(0, 2));
+            processor.setNextProcessor(collector);
+
+            for (int i = 0; i < 2; i += 1) {
+                final DataFileContext context = new DataFileContext("test" + i);
+                processor.beforeProcessFile(context.getFilePath());
+                processor.processRow(new DataRowContext<>(context, 1, Arrays.asList("id", "name", "type"),
+                        RowType.HEADER));
+                processor.processRow(new DataRowContext<>(context, 2, Arrays.asList("id", "name", "type"),
+                        RowType.HEADER));
+                final DataRowBatch<List<String>> batch = new DataRowBatch<>();
+                batch.add(new DataRowContext<>(context, 3, Arrays.asList("1", "a", "x"), RowType.DATA));
+                batch.add(new DataRowContext<>(context, 4, Arrays.asList("1", "b", "x"), RowType.DATA));
+                batch.add(new DataRowContext<>(context, 5, Arrays.asList("1", "c", "y"), RowType.DATA));
+                batch.add(new DataRowContext<>(context, 6, Arrays.asList("1x", "d", ""), RowType.DATA));
+                batch.add(new DataRowContext<>(context, 7, Collections.singletonList("1"), RowType.DATA));
+                processor.processRows(batch);
+                processor.processRow(new DataRowContext<>(context, 8, Arrays.asList("1", "e", "y"), RowType.DATA));
+                processor.processRow(new DataRowContext<>(context, 9, Arrays.asList("1"), RowType.DATA));
+                processor.processRow(new DataRowContext<>(context, 10, Arrays.asList("1", "f", null),
+                        RowType.DATA));
+                processor.processRow(new DataRowContext<>(context, 11, Arrays.asList("total"), RowType.FOOTER));
+                processor.processRow(new DataRowContext<>(context, 12, Arrays.asList("total"), RowType.FOOTER));
+                processor.afterProcessFile(context);
+
+                Assert.assertEquals(4, context.getDuplicateRowCount());
+                Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 5L, 6L, 7L, 11L, 12L), collector.getRowNumbers());
+                Assert.assertEquals(0, context.getSession().size());
+                collector.clear();
+            }
+        }
+    }
+
+    @Test
+    public void testRunScope() throws Exception {
+        final File directory = Files.createTempDirectory("deduplicate").toFile();
+        try {
+            writeFile(new File(directory, "a.csv"), 1, 100);
+            writeFile(new File(directory, "b.csv"), 51, 150);
+
+            final DeduplicateProcessor processor = new DeduplicateProcessor();
+            processor.setKeyColumnIndexes(Collections.singletonList(0));
+            processor.setScope(DeduplicateProcessor.Scope.RUN);
+            final DefaultDataFileImporterBase<String> importer = createImporter(directory, processor);
+            importer.setRunListeners(Collections.<ImportRunListener>singletonList(processor));
+            for (int i = 0; i < 2; i += 1) {
+                final ImportContext result = importer.call();
+                Assert.assertTrue(result.getMessage(), result.isSuccessful());
+                long duplicateRowCount = 0;
+                for (final DataFileContext dataFileContext : result.getDataFileContextMap().values()) {
+                    duplicateRowCount += dataFileContext.getDuplicateRowCount();
+                }
+                // every row is written twice, and the keys 51 to 100 are in both files
+                Assert.assertEquals(250, duplicateRowCount);
+            }
+
+            processor.setScope(DeduplicateProcessor.Scope.FILE);
+            processor.setMode(DeduplicateProcessor.Mode.BLOOM_FILTER);
+            processor.setExpectedKeyCount(1000);
+            for (final DataFileContext dataFileContext : importer.call().getDataFileContextMap().values()) {
+                Assert.assertEquals(100, dataFileContext.getDuplicateRowCount());
+            }
+        } finally {
+            for (final File file : directory.listFiles()) {
+                Assert.assertTrue(file.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void testCompactKeySet() {
+        final CompactKeySet keySet = new CompactKeySet(1);
+        for (int i = 0; i < 200000; i += 1) {
+            Assert.assertTrue(keySet.add("key" + i));
+        }
+        Assert.assertTrue(keySet.add(""));
+        Assert.assertFalse(keySet.add(""));
+        Assert.assertEquals(200001, keySet.size());
+        for (int i = 0; i < 200000; i += 1) {
+            Assert.assertFalse(keySet.add("key" + i));
+            Assert.assertTrue(keySet.contains(new StringBuilder("key").append(i)));
+        }
+        Assert.assertFalse(keySet.contains("key200000"));
+    }
+
+    @Test
+    public void testBloomFilter() {
+        final int n = 100000;
+        final BloomFilter bloomFilter = new BloomFilter(n, 0.01);
+        int falsePositives = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (!bloomFilter.add("key" + i)) {
+                falsePositives += 1;
+            }
+        }
+        logger.info(falsePositives + " false positive(s) of " + n + " keys, " + bloomFilter.getBitCount() +
+                " bits, " + bloomFilter.getHashCount() + " hashes");
+        Assert.assertTrue(falsePositives < n * 0.01);
+        for (int i = 0; i < n; i += 1) {
+            Assert.assertTrue(bloomFilter.mightContain("key" + i));
+            Assert.assertFalse(bloomFilter.add("key" + i));
+        }
+
+        try {
+            new BloomFilter(n, 1);
+            Assert.fail("falsePositiveProbability 1 should be invalid");
+        } catch (IllegalArgumentException ex) {
+            logger.finer("Expected: " + ex);
+        }
+    }
+
+    private static void writeFile(final File file, final int firstKey, final int lastKey) throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = firstKey; i <= lastKey; i += 1) {
+            builder.append(i).append(",first ").append(i).append('\n');
+            builder.append(i).append(",second ").append(i).append('\n');
+        }
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DefaultDataFileImporterBase<String> createImporter(final File directory,
+            final DeduplicateProcessor processor) {
+        processor.setNextProcessor(new CollectingProcessor<List<String>>());
+
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(processor);
+
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setDataFileProcessor(csvProcessor);
+
+        final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+        importer.setDataFileReader(reader);
+        importer.setBaseDirectory(directory.getPath());
+        importer.setFileNamePattern("\\.csv$");
+        return importer;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.HashPartitionProcessor;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+
+public class HashPartitionProcessorTests extends AbstractTests {
+
+    private static final int PARTITION_COUNT = 3;
+    private static final int ROW_COUNT = 10000;
+
+    @Test
+    public void testSequential() throws Exception {
+        this.testPartition(false);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        this.testPartition(true);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final List<PartitionProcessor> collectors = createCollectors();
+        collectors.get(1).failAt = 1000;
+        final HashPartitionProcessor processor = new HashPartitionProcessor();
+        processor.setPartitions(new ArrayList<DataFileProcessor<List<String>>>(collectors));
+        processor.setParallel(true);
+        processor.setPartitionBatchSize(10);
+        processor.setQueueCapacity(1);
+        try {
+            this.process(processor, "fail");
+            Assert.fail("The failure of the partition should be thrown");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertEquals("fail at 1000", ex.getMessage());
+        }
+        for (final PartitionProcessor collector : collectors) {
+            Assert.assertEquals(1, collector.getBegunFileCount());
+            Assert.assertEquals(0, collector.getEndedFileCount());
+        }
+
+        // the next file is not affected
+        collectors.get(1).failAt = -1;
+        this.process(processor, "next");
+        for (final PartitionProcessor collector : collectors) {
+            Assert.assertEquals(1, collector.getEndedFileCount());
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() throws Exception {
+        final PartitionProcessor collector = new PartitionProcessor();
+        try {
+            new HashPartitionProcessor().setPartitions(
+                    Arrays.<DataFileProcessor<List<String>>>asList(collector, collector));
+            Assert.fail("The partitions must be different instances");
+        } catch (IllegalArgumentException ex) {
+            logger.finer("Expected: " + ex);
+        }
+        try {
+            new HashPartitionProcessor().beforeProcessFile("test");
+            Assert.fail("The partitions are not set");
+        } catch (IllegalStateException ex) {
+            logger.finer("Expected: " + ex);
+        }
+    }
+
+    private void testPartition(final boolean parallel) throws Exception {
+        final List<PartitionProcessor> collectors = createCollectors();
+        final HashPartitionProcessor processor = new HashPartitionProcessor();
+        processor.setPartitions(new ArrayList<DataFileProcessor<List<String>>>(collectors));
+        processor.setKeyColumnIndexes(Collections.singletonList(1));
+        processor.setParallel(parallel);
+        processor.setPartitionBatchSize(64);
+
+        this.process(processor, "test");
+
+        final Map<String, Integer> partitionOfKey = new HashMap<>();
+        int rowCount = 0;
+        for (int i = 0; i < PARTITION_COUNT; i += 1) {
+            final PartitionProcessor collector = collectors.get(i);
+            Assert.assertEquals(1, collector.getBegunFileCount());
+            Assert.assertEquals(1, collector.getEndedFileCount());
+            Assert.assertFalse(collector.getRowNumbers().isEmpty());
+            Assert.assertEquals(parallel, !Thread.currentThread().getName().equals(collector.getThreadName()));
+            long lastRowNumber = 0;
+            for (int j = 0; j < collector.getRowNumbers().size(); j += 1) {
+                // the rows of a partition keep their order
+                Assert.assertTrue(collector.getRowNumbers().get(j) > lastRowNumber);
+                lastRowNumber = collector.getRowNumbers().get(j);
+                final Integer partition = partitionOfKey.put(collector.getRows().get(j).get(1), i);
+                Assert.assertTrue(null == partition || partition == i);
+            }
+            rowCount += collector.getRowNumbers().size();
+        }
+        Assert.assertEquals(ROW_COUNT, rowCount);
+        Assert.assertEquals(100, partitionOfKey.size());
+    }
+
+    private void process(final HashPartitionProcessor processor, final String filePath) throws Exception {
+        final DataFileContext context = new DataFileContext(filePath);
+        processor.beforeProcessFile(filePath);
+        final DataRowBatch<List<String>> batch = new DataRowBatch<>();
+        for (int i = 1; i <= ROW_COUNT; i += 1) {
+            final DataRowContext<List<String>> dataRowContext = new DataRowContext<>(context, i,
+                    Arrays.asList(String.valueOf(i), "key" + (i % 100)), RowType.DATA);
+            dataRowContext.setPosition(i * 10L);
+            if (i <= ROW_COUNT / 2) {
+                processor.processRow(dataRowContext);
+            } else {
+                batch.add(dataRowContext);
+                if (batch.size() >= 7) {
+                    processor.processRows(batch);
+                    batch.clear();
+                }
+            }
+        }
+        processor.processRows(batch);
+        processor.afterProcessFile(context);
+    }
+
+    private static List<PartitionProcessor> createCollectors() {
+        final List<PartitionProcessor> collectors = new ArrayList<>();
+        for (int i = 0; i < PARTITION_COUNT; i += 1) {
+            collectors.add(new PartitionProcessor());
+        }
+        return collectors;
+    }
+
+    /**
+     * Collects the rows of a partition, and fails from the row {@code failAt}
+     */
+    private static class PartitionProcessor extends CollectingProcessor<List<String>> {
+
+        private volatile long failAt = -1;
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+                throws Exception {
+            if (dataRowContext.getRowNumber() >= this.failAt && this.failAt >= 0) {
+                throw new IllegalArgumentException("fail at " + this.failAt);
+            }
+            // no checkpoint should be saved by a partition
+            Assert.assertEquals(-1, dataRowContext.getPosition());
+            return super.processRow(dataRowContext);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.AbstractChainedFileProcessor;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.ParallelProcessor;
+import tech.firas.framework.fileimport.processor.WorkerChainFactory;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+
+public class ParallelProcessorTests extends AbstractTests {
+
+    private static final int ROW_COUNT = 10000;
+
+    @Test
+    public void testUnordered() throws Exception {
+        final CountingFactory factory = new CountingFactory(-1);
+        final CheckingProcessor collector = new CheckingProcessor(false);
+        final ParallelProcessor<String, List<String>> processor = new ParallelProcessor<>();
+        processor.setWorkerChainFactory(factory);
+        processor.setParallelism(4);
+        processor.setQueueCapacity(8);
+        processor.setNextProcessor(collector);
+
+        process(processor, "unordered", 0);
+        Assert.assertEquals(4, factory.started.get());
+        Assert.assertEquals(4, factory.finished.get());
+        final List<Long> rowNumbers = new ArrayList<>(collector.getRowNumbers());
+        Assert.assertEquals(ROW_COUNT, rowNumbers.size());
+        Collections.sort(rowNumbers);
+        for (int i = 0; i < ROW_COUNT; i += 1) {
+            Assert.assertEquals(i + 1, rowNumbers.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        for (final int batchSize : new int[] {0, 64}) {
+            final CountingFactory factory = new CountingFactory(-1);
+            final CheckingProcessor collector = new CheckingProcessor(true);
+            final ParallelProcessor<String, List<String>> processor = new ParallelProcessor<>();
+            processor.setWorkerChainFactory(factory);
+            processor.setParallelism(4);
+            processor.setOrdered(true);
+            processor.setNextProcessor(collector);
+
+            process(processor, "ordered" + batchSize, batchSize);
+            Assert.assertEquals(4, factory.finished.get());
+            final List<Long> rowNumbers = collector.getRowNumbers();
+            Assert.assertEquals(ROW_COUNT, rowNumbers.size());
+            for (int i = 0; i < ROW_COUNT; i += 1) {
+                Assert.assertEquals(i + 1, rowNumbers.get(i).longValue());
+            }
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        for (final boolean ordered : new boolean[] {false, true}) {
+            final CountingFactory factory = new CountingFactory(500);
+            final ParallelProcessor<String, List<String>> processor = new ParallelProcessor<>();
+            processor.setWorkerChainFactory(factory);
+            processor.setParallelism(3);
+            processor.setQueueCapacity(4);
+            processor.setOrdered(ordered);
+            try {
+                process(processor, "failure" + ordered, 0);
+                Assert.fail("The failure of the worker should be thrown");
+            } catch (IllegalArgumentException ex) {
+                Assert.assertEquals("row 500", ex.getMessage());
+            }
+            Assert.assertEquals(0, factory.finished.get());
+        }
+    }
+
+    private static void process(final ParallelProcessor<String, List<String>> processor, final String filePath,
+            final int batchSize) throws Exception {
+        final DataFileContext context = new DataFileContext(filePath);
+        processor.beforeProcessFile(filePath);
+        final DataRowBatch<String> batch = new DataRowBatch<>();
+        for (int i = 1; i <= ROW_COUNT; i += 1) {
+            final DataRowContext<String> row = new DataRowContext<>(context, i, i + ",\"name " + i + '"',
+                    RowType.DATA);
+            row.setPosition(i * 10L);
+            if (batchSize <= 0) {
+                processor.processRow(row);
+            } else {
+                batch.add(row);
+                if (batch.size() >= batchSize || i == ROW_COUNT) {
+                    processor.processRows(batch);
+                    batch.clear();
+                }
+            }
+        }
+        processor.afterProcessFile(context);
+    }
+
+    /**
+     * Creates worker chains of CSV parsing, and then a processor that sleeps now and then to shuffle the rows,
+     * and throws an IllegalArgumentException at {@code failAtRow}
+     */
+    private static class CountingFactory implements WorkerChainFactory<String, List<String>> {
+
+        private final int failAtRow;
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+
+        private CountingFactory(final int failAtRow) {
+            this.failAtRow = failAtRow;
+        }
+
+        @Override
+        public DataFileProcessor<String> createWorkerChain(final DataFileProcessor<List<String>> output) {
+            final AbstractChainedFileProcessor<List<String>, List<String>> shuffler =
+                    new AbstractChainedFileProcessor<List<String>, List<String>>() {
+                        @Override
+                        public void beforeProcessFile(final String filePath) throws Exception {
+                            started.incrementAndGet();
+                            super.beforeProcessFile(filePath);
+                        }
+
+                        @Override
+                        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+                            finished.incrementAndGet();
+                            super.afterProcessFile(dataFileContext);
+                        }
+
+                        @Override
+                        public DataRowContext<List<String>> processRow(
+                                final DataRowContext<List<String>> dataRowContext) throws Exception {
+                            final long rowNumber = dataRowContext.getRowNumber();
+                            Assert.assertEquals(String.valueOf(rowNumber), dataRowContext.getRow().get(0));
+                            if (rowNumber == failAtRow) {
+                                throw new IllegalArgumentException("row " + rowNumber);
+                            }
+                            if (rowNumber % 97 == 0) {
+                                Thread.sleep(1);
+                            }
+                            return this.getNextProcessor().processRow(dataRowContext);
+                        }
+                    };
+            shuffler.setNextProcessor(null == output ? new CheckingProcessor(false) : output);
+
+            final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+            csvProcessor.setCsvParser(new RFC4180Parser());
+            csvProcessor.setNextProcessor(shuffler);
+            return csvProcessor;
+        }
+    }
+
+    /**
+     * Collects the rows that the workers output, and checks the columns and the positions of them
+     */
+    private static class CheckingProcessor extends CollectingProcessor<List<String>> {
+
+        private final Thread thread;
+
+        /**
+         * @param sameThread  true to check that all the rows are processed on the current thread
+         */
+        private CheckingProcessor(final boolean sameThread) {
+            this.thread = sameThread ? Thread.currentThread() : null;
+        }
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+                throws Exception {
+            if (null != this.thread) {
+                Assert.assertSame(this.thread, Thread.currentThread());
+            }
+            Assert.assertEquals("name " + dataRowContext.getRowNumber(), dataRowContext.getRow().get(1));
+            // only the rows in order (on the current thread) keep their positions for checkpoints
+            Assert.assertEquals(null == this.thread ? -1 : dataRowContext.getRowNumber() * 10,
+                    dataRowContext.getPosition());
+            return super.processRow(dataRowContext);
+        }
+    }
+}
@@ -48,6 +48,7 @@ public class SetRowTypeProcessorTests extends AbstractTests {
                         getRandomColumnValue(), RowType.UNKNOWN));
             }
             processor.afterProcessFile(context);
+            Assert.assertEquals(0, context.getSession().size());
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.processor.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowBatch;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.TeeProcessor;
+import tech.firas.framework.fileimport.test.AbstractTests;
+import tech.firas.framework.fileimport.test.CollectingProcessor;
+
+public class TeeProcessorTests extends AbstractTests {
+
+    private static final int ROW_COUNT = 5000;
+
+    @Test
+    public void testTee() throws Exception {
+        final SinkProcessor sink1 = new SinkProcessor();
+        final SinkProcessor sink2 = new SinkProcessor();
+        final SinkProcessor asyncSink = new SinkProcessor();
+        asyncSink.sleepEvery = 1000;
+        final TeeProcessor<String> processor = new TeeProcessor<>();
+        processor.setSinks(Arrays.<DataFileProcessor<String>>asList(sink1, sink2));
+        processor.setAsyncSinks(Collections.<DataFileProcessor<String>>singletonList(asyncSink));
+        processor.setAsyncBatchSize(100);
+        processor.setAsyncQueueCapacity(2);
+
+        for (int i = 0; i < 2; i += 1) {
+            process(processor, "test" + i, ROW_COUNT);
+            for (final SinkProcessor sink : Arrays.asList(sink1, sink2, asyncSink)) {
+                Assert.assertEquals("test" + i, sink.getBegunFile());
+                Assert.assertEquals("test" + i, sink.getEndedFile());
+                Assert.assertEquals(ROW_COUNT, sink.getRowNumbers().size());
+                for (int j = 0; j < ROW_COUNT; j += 1) {
+                    Assert.assertEquals(j + 1, (long) sink.getRowNumbers().get(j));
+                }
+            }
+            Assert.assertEquals(Thread.currentThread().getName(), sink1.getThreadName());
+            Assert.assertNotEquals(Thread.currentThread().getName(), asyncSink.getThreadName());
+        }
+    }
+
+    @Test
+    public void testAfterProcessFileFailure() throws Exception {
+        final SinkProcessor sink1 = new SinkProcessor();
+        final SinkProcessor sink2 = new SinkProcessor();
+        sink2.failAfter = true;
+        final SinkProcessor asyncSink = new SinkProcessor();
+        asyncSink.failAfter = true;
+        final TeeProcessor<String> processor = new TeeProcessor<>();
+        processor.setSinks(Arrays.<DataFileProcessor<String>>asList(sink2, sink1));
+        processor.setAsyncSinks(Collections.<DataFileProcessor<String>>singletonList(asyncSink));
+
+        try {
+            process(processor, "test", 100);
+            Assert.fail("afterProcessFile should fail");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("fail to finish test", ex.getMessage());
+            Assert.assertEquals(1, ex.getSuppressed().length);
+        }
+        // the failures of the others do not stop sink1 from finishing the file
+        Assert.assertEquals("test", sink1.getEndedFile());
+        Assert.assertEquals(100, sink1.getRowNumbers().size());
+    }
+
+    @Test
+    public void testRowFailure() throws Exception {
+        for (final boolean async : new boolean[] {false, true}) {
+            final SinkProcessor sink = new SinkProcessor();
+            final SinkProcessor failingSink = new SinkProcessor();
+            failingSink.failAt = 50;
+            final TeeProcessor<String> processor = new TeeProcessor<>();
+            processor.setSinks(Collections.<DataFileProcessor<String>>singletonList(sink));
+            if (async) {
+                processor.setAsyncSinks(Collections.<DataFileProcessor<String>>singletonList(failingSink));
+                processor.setAsyncBatchSize(10);
+            } else {
+                processor.setSinks(Arrays.<DataFileProcessor<String>>asList(sink, failingSink));
+            }
+
+            try {
+                process(processor, "test", 100);
+                Assert.fail("The row should fail");
+            } catch (IllegalArgumentException ex) {
+                Assert.assertEquals("fail at 50", ex.getMessage());
+            }
+            Assert.assertNull(sink.getEndedFile());
+            Assert.assertNull(failingSink.getEndedFile());
+        }
+    }
+
+    @Test
+    public void testInvalidParameters() throws Exception {
+        final SinkProcessor sink = new SinkProcessor();
+        final TeeProcessor<String> processor = new TeeProcessor<>();
+        try {
+            processor.beforeProcessFile("test");
+            Assert.fail("The sinks are not set");
+        } catch (IllegalStateException ex) {
+            logger.finer("Expected: " + ex);
+        }
+        processor.setSinks(Collections.<DataFileProcessor<String>>singletonList(sink));
+        try {
+            processor.setAsyncSinks(Collections.<DataFileProcessor<String>>singletonList(sink));
+            Assert.fail("The sinks must be different instances");
+        } catch (IllegalArgumentException ex) {
+            logger.finer("Expected: " + ex);
+        }
+    }
+
+    private static void process(final TeeProcessor<String> processor, final String filePath, final int rowCount)
+            throws Exception {
+        final DataFileContext context = new DataFileContext(filePath);
+        processor.beforeProcessFile(filePath);
+        final DataRowBatch<String> batch = new DataRowBatch<>();
+        for (int i = 1; i <= rowCount; i += 1) {
+            final DataRowContext<String> dataRowContext = new DataRowContext<>(context, i, "row " + i,
+                    RowType.DATA);
+            dataRowContext.setPosition(i * 10L);
+            if (i <= rowCount / 2) {
+                processor.processRow(dataRowContext);
+            } else {
+                batch.add(dataRowContext);
+                if (batch.size() >= 9) {
+                    processor.processRows(batch);
+                    batch.clear();
+                }
+            }
+        }
+        processor.processRows(batch);
+        processor.afterProcessFile(context);
+    }
+
+    /**
+     * Collects the rows of the last file, and fails at {@code failAt} or after the file if {@code failAfter}
+     */
+    private static class SinkProcessor extends CollectingProcessor<String> {
+
+        private long failAt = -1;
+        private boolean failAfter = false;
+        private int sleepEvery = 0;
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+            super.beforeProcessFile(filePath);
+            this.clear();
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+            if (this.failAfter) {
+                throw new IllegalStateException("fail to finish " + dataFileContext.getFilePath());
+            }
+            super.afterProcessFile(dataFileContext);
+        }
+
+        @Override
+        public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
+            if (dataRowContext.getRowNumber() == this.failAt) {
+                throw new IllegalArgumentException("fail at " + this.failAt);
+            }
+            if (this.sleepEvery > 0 && dataRowContext.getRowNumber() % this.sleepEvery == 0) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals("row " + dataRowContext.getRowNumber(), dataRowContext.getRow());
+            // no checkpoint should be saved by a sink
+            Assert.assertEquals(-1, dataRowContext.getPosition());
+            return super.processRow(dataRowContext);
+        }
+    }
+}
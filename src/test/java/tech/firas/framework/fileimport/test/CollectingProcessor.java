@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+
+/**
+ * <p>Collects the rows that reach the end of a chain of DataFileProcessors, so that a test can check them.
+ *    The rows may be collected by many threads.</p>
+ *
+ * <p>Override {@link #processRow} to check every row or to fail at some row, and call the super method to
+ *    collect the row; override {@link #copyRow} if the row is not kept by the reader after it is processed.</p>
+ *
+ * @param <R>  the type of the rows
+ */
+public class CollectingProcessor<R> implements DataFileProcessor<R> {
+
+    private final List<R> rows = Collections.synchronizedList(new ArrayList<R>());
+    private final List<Long> rowNumbers = Collections.synchronizedList(new ArrayList<Long>());
+    private final List<RowType> rowTypes = Collections.synchronizedList(new ArrayList<RowType>());
+    private final List<Long> positions = Collections.synchronizedList(new ArrayList<Long>());
+
+    private final AtomicInteger begunFileCount = new AtomicInteger();
+    private final AtomicInteger endedFileCount = new AtomicInteger();
+
+    /**
+     * The DataFileContexts of the files ended, key is the file path
+     */
+    private final Map<String, DataFileContext> endedFiles = new ConcurrentHashMap<>();
+
+    private volatile String begunFile;
+    private volatile String endedFile;
+    private volatile String threadName;
+
+    /**
+     * @return  a CollectingProcessor that copies every row, for the readers that reuse the Lists of columns
+     */
+    public static CollectingProcessor<List<String>> copyingLists() {
+        return new CollectingProcessor<List<String>>() {
+            @Override
+            protected List<String> copyRow(final List<String> row) {
+                return new ArrayList<>(row);
+            }
+        };
+    }
+
+    @Override
+    public void beforeProcessFile(final String filePath) throws Exception {
+        this.begunFileCount.incrementAndGet();
+        this.begunFile = filePath;
+        this.endedFile = null;
+    }
+
+    @Override
+    public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        this.endedFileCount.incrementAndGet();
+        this.endedFile = dataFileContext.getFilePath();
+        this.endedFiles.put(dataFileContext.getFilePath(), dataFileContext);
+    }
+
+    @Override
+    public DataRowContext<R> processRow(final DataRowContext<R> dataRowContext) throws Exception {
+        this.threadName = Thread.currentThread().getName();
+        synchronized (this.rows) {
+            this.rows.add(this.copyRow(dataRowContext.getRow()));
+            this.rowNumbers.add(dataRowContext.getRowNumber());
+            this.rowTypes.add(dataRowContext.getType());
+            this.positions.add(dataRowContext.getPosition());
+        }
+        return dataRowContext;
+    }
+
+    /**
+     * @param row  the row to collect
+     * @return  the row itself by default
+     */
+    protected R copyRow(final R row) {
+        return row;
+    }
+
+    /**
+     * Forget the rows collected
+     */
+    public void clear() {
+        synchronized (this.rows) {
+            this.rows.clear();
+            this.rowNumbers.clear();
+            this.rowTypes.clear();
+            this.positions.clear();
+        }
+    }
+
+    public List<R> getRows() {
+        return this.rows;
+    }
+
+    public List<Long> getRowNumbers() {
+        return this.rowNumbers;
+    }
+
+    public List<RowType> getRowTypes() {
+        return this.rowTypes;
+    }
+
+    public List<Long> getPositions() {
+        return this.positions;
+    }
+
+    public int getBegunFileCount() {
+        return this.begunFileCount.get();
+    }
+
+    public int getEndedFileCount() {
+        return this.endedFileCount.get();
+    }
+
+    public Map<String, DataFileContext> getEndedFiles() {
+        return this.endedFiles;
+    }
+
+    /**
+     * @return  the path of the last file begun
+     */
+    public String getBegunFile() {
+        return this.begunFile;
+    }
+
+    /**
+     * @return  the path of the last file ended, null if the last file begun is not ended
+     */
+    public String getEndedFile() {
+        return this.endedFile;
+    }
+
+    /**
+     * @return  the name of the thread that processed the last row
+     */
+    public String getThreadName() {
+        return this.threadName;
+    }
+}
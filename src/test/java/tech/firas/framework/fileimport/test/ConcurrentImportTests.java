@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+
+public class ConcurrentImportTests extends AbstractTests {
+
+    private static final int FILE_COUNT = 8;
+    private static final int ROW_COUNT = 2000;
+
+    @Test
+    public void testParallelism() throws Exception {
+        final File directory = createFiles();
+        try {
+            final CountingProcessor counter = new CountingProcessor();
+            final DefaultDataFileImporterBase<String> importer = createImporter(directory, counter);
+            importer.setParallelism(3);
+            final ImportContext result = importer.call();
+            assertResult(result, directory);
+            Assert.assertTrue(counter.maxConcurrentFiles.get() <= 3);
+        } finally {
+            deleteFiles(directory);
+        }
+    }
+
+    @Test
+    public void testExecutorService() throws Exception {
+        final File directory = createFiles();
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        try {
+            final DefaultDataFileImporterBase<String> importer = createImporter(directory, new CountingProcessor());
+            importer.setExecutorService(executorService);
+            importer.setParallelism(FILE_COUNT);
+            assertResult(importer.call(), directory);
+            Assert.assertFalse(executorService.isShutdown());
+        } finally {
+            executorService.shutdown();
+            deleteFiles(directory);
+        }
+    }
+
+    @Test
+    public void testExecutorServiceWithoutParallelism() throws Exception {
+        final File directory = createFiles();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            // every file waits for another one, so the files are only imported if 2 of them are imported together
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final CountingProcessor counter = new CountingProcessor() {
+                @Override
+                public void beforeProcessFile(final String filePath) throws Exception {
+                    super.beforeProcessFile(filePath);
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+            };
+            final DefaultDataFileImporterBase<String> importer = createImporter(directory, counter);
+            importer.setExecutorService(executorService);
+            assertResult(importer.call(), directory);
+            Assert.assertEquals(2, counter.maxConcurrentFiles.get());
+        } finally {
+            executorService.shutdown();
+            deleteFiles(directory);
+        }
+    }
+
+    private static void assertResult(final ImportContext result, final File directory) throws Exception {
+        Assert.assertFalse(result.isSuccessful());
+        Assert.assertEquals((FILE_COUNT - 1) + " file(s) imported, 1 file(s) failed", result.getMessage());
+
+        final String badFile = new File(directory, "data0.csv").getCanonicalPath();
+        Assert.assertEquals(1, result.getFailedFileMap().size());
+        Assert.assertEquals("bad row in " + badFile, result.getFailedFileMap().get(badFile).getMessage());
+
+        Assert.assertEquals(FILE_COUNT - 1, result.getDataFileContextMap().size());
+        for (final DataFileContext dataFileContext : result.getDataFileContextMap().values()) {
+            Assert.assertEquals(1, dataFileContext.getHeaderRowCount());
+            Assert.assertEquals(ROW_COUNT, dataFileContext.getDataRowCount());
+            Assert.assertEquals(ROW_COUNT, ((AtomicInteger) dataFileContext.getAttachment()).get());
+        }
+    }
+
+    private static DefaultDataFileImporterBase<String> createImporter(final File directory,
+            final CountingProcessor counter) {
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(counter);
+
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(new FixedNumberHeaderRowJudge<String>(1));
+        setRowTypeProcessor.setNextProcessor(csvProcessor);
+
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+
+        final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+        importer.setDataFileReader(reader);
+        importer.setBaseDirectory(directory.getPath());
+        importer.setFileNamePattern("\\.csv$");
+        return importer;
+    }
+
+    private static File createFiles() throws Exception {
+        final File directory = Files.createTempDirectory("concurrent").toFile();
+        for (int i = 0; i < FILE_COUNT; i += 1) {
+            final StringBuilder builder = new StringBuilder("id,name\n");
+            for (int j = 1; j <= ROW_COUNT; j += 1) {
+                builder.append(j).append(",name ").append(j).append('\n');
+            }
+            if (i == 0) {
+                builder.append("bad\n");
+            }
+            Files.write(new File(directory, "data" + i + ".csv").toPath(),
+                    builder.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return directory;
+    }
+
+    private static void deleteFiles(final File directory) {
+        for (final File file : directory.listFiles()) {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertTrue(directory.delete());
+    }
+
+    /**
+     * Counts the data rows of every file into the attachment of its DataFileContext,
+     * and fails for the row that has only one column
+     */
+    private static class CountingProcessor implements DataFileProcessor<List<String>> {
+
+        private final ConcurrentMap<String, Boolean> processingFiles = new ConcurrentHashMap<>();
+        private final AtomicInteger maxConcurrentFiles = new AtomicInteger();
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+            this.processingFiles.put(filePath, Boolean.TRUE);
+            final int count = this.processingFiles.size();
+            int max;
+            while (count > (max = this.maxConcurrentFiles.get()) &&
+                    !this.maxConcurrentFiles.compareAndSet(max, count)) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+            this.processingFiles.remove(dataFileContext.getFilePath());
+        }
+
+        @Override
+        public DataRowContext<List<String>> processRow(final DataRowContext<List<String>> dataRowContext)
+                throws Exception {
+            final DataFileContext dataFileContext = dataRowContext.getDataFileContext();
+            if (dataRowContext.getRow().size() < 2) {
+                this.processingFiles.remove(dataFileContext.getFilePath());
+                throw new IllegalArgumentException("bad row in " + dataFileContext.getFilePath());
+            }
+            if (null == dataFileContext.getAttachment()) {
+                dataFileContext.setAttachment(new AtomicInteger());
+            }
+            if (dataRowContext.getRowNumber() > 1) {
+                ((AtomicInteger) dataFileContext.getAttachment()).incrementAndGet();
+            }
+            return dataRowContext;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultDataFileImporterBase;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
+import tech.firas.framework.fileimport.ImportContext;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+
+public class DefaultPlainTextDataFileReaderTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testGzip() throws Exception {
+        final List<String> lines = getRandomLines(5000);
+        final File file = File.createTempFile("compressed", ".csv.gz");
+        try {
+            // two gzip members, as produced by appending to a gzip file
+            try (final OutputStream outputStream = new FileOutputStream(file)) {
+                writeGzipMember(outputStream, lines.subList(0, 2000));
+                writeGzipMember(outputStream, lines.subList(2000, lines.size()));
+            }
+
+            for (final int[] readAhead : new int[][] {{1, 1}, {100, 3}, {64 * 1024, 0}}) {
+                final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+                reader.setCharset("UTF-8");
+                reader.setReadAheadChunkSize(readAhead[0]);
+                reader.setReadAheadChunkCount(readAhead[1]);
+                Assert.assertEquals(Arrays.asList(file.getPath()), reader.listDataFiles(file.getPath()));
+
+                final CollectingProcessor<String> collector = new CollectingProcessor<>();
+                final DataFileContext dataFileContext = read(reader, collector, file.getPath());
+                Assert.assertEquals(1, dataFileContext.getHeaderRowCount());
+                Assert.assertEquals(lines.size() - 1, dataFileContext.getDataRowCount());
+                Assert.assertEquals(lines, collector.getRows());
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testCorruptedGzip() throws Exception {
+        final File file = File.createTempFile("corrupted", ".csv.gz");
+        try {
+            try (final OutputStream outputStream = new FileOutputStream(file)) {
+                writeGzipMember(outputStream, getRandomLines(5000));
+            }
+            final byte[] bytes = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+            final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+            reader.setCharset("UTF-8");
+            try {
+                read(reader, new CollectingProcessor<String>(), file.getPath());
+                Assert.fail("A truncated gzip file should not be read successfully");
+            } catch (IllegalStateException ex) {
+                logger.finer("Expected: " + ex + ", caused by " + ex.getCause());
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testZipEntries() throws Exception {
+        final File directory = Files.createTempDirectory("zip").toFile();
+        final File file = new File(directory, "data.zip");
+        final Map<String, List<String>> entries = new HashMap<>();
+        entries.put("a.csv", getRandomLines(3000));
+        entries.put("dir/b.csv", getRandomLines(20));
+        try {
+            try (final ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file))) {
+                outputStream.putNextEntry(new ZipEntry("dir/"));
+                outputStream.closeEntry();
+                for (final Map.Entry<String, List<String>> entry : entries.entrySet()) {
+                    outputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                    outputStream.write(join(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+                    outputStream.closeEntry();
+                }
+            }
+            final String archivePath = file.getCanonicalPath();
+
+            final FileRowsProcessor collector = new FileRowsProcessor();
+            final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+            setRowTypeProcessor.setDataRowJudge(new FixedNumberHeaderRowJudge<String>(1));
+            setRowTypeProcessor.setNextProcessor(collector);
+            final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+            reader.setCharset("UTF-8");
+            reader.setDataFileProcessor(setRowTypeProcessor);
+
+            final DefaultDataFileImporterBase<String> importer = new DefaultDataFileImporterBase<>();
+            importer.setDataFileReader(reader);
+            importer.setBaseDirectory(directory.getPath());
+            importer.setFileNamePattern("\\.zip$");
+            final ImportContext importContext = importer.call();
+            Assert.assertTrue(importContext.getMessage(), importContext.isSuccessful());
+
+            final Map<String, DataFileContext> dataFileContextMap = importContext.getDataFileContextMap();
+            Assert.assertEquals(entries.size(), dataFileContextMap.size());
+            for (final Map.Entry<String, List<String>> entry : entries.entrySet()) {
+                final String entryPath = archivePath + DefaultPlainTextDataFileReader.ZIP_ENTRY_SEPARATOR +
+                        entry.getKey();
+                final DataFileContext dataFileContext = dataFileContextMap.get(entryPath);
+                Assert.assertEquals(entryPath, dataFileContext.getFilePath());
+                Assert.assertEquals(entry.getValue().size() - 1, dataFileContext.getDataRowCount());
+                Assert.assertEquals(entry.getValue(), collector.fileRows.get(entryPath));
+            }
+
+            try {
+                reader.readDataFile(archivePath, null);
+                Assert.fail("An archive of several entries should not be read as one data file");
+            } catch (IllegalArgumentException ex) {
+                logger.finer("Expected: " + ex);
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    @Test
+    public void testReusedContextsInBatches() throws Exception {
+        final List<String> lines = getRandomLines(11);
+        final File file = File.createTempFile("reused", ".csv");
+        try {
+            Files.write(file.toPath(), join(lines).getBytes(StandardCharsets.UTF_8));
+            final KeepingProcessor keepingProcessor = new KeepingProcessor();
+            final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+            reader.setCharset("UTF-8");
+            reader.setReuseRowContext(true);
+            reader.setRowBatchSize(2);
+            reader.setDataFileProcessor(keepingProcessor);
+            reader.readDataFile(file.getPath(), null);
+
+            final List<String> rows = new ArrayList<>();
+            for (final DataRowContext<String> dataRowContext : keepingProcessor.kept) {
+                rows.add(dataRowContext.getRow());
+            }
+            Assert.assertEquals(lines, rows);
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private static DataFileContext read(final DefaultPlainTextDataFileReader reader,
+            final CollectingProcessor<String> collector, final String filePath) throws Exception {
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(new FixedNumberHeaderRowJudge<String>(1));
+        setRowTypeProcessor.setNextProcessor(collector);
+        reader.setDataFileProcessor(setRowTypeProcessor);
+        return reader.readDataFile(filePath, null);
+    }
+
+    private static void writeGzipMember(final OutputStream outputStream, final List<String> lines)
+            throws Exception {
+        final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(join(lines).getBytes(StandardCharsets.UTF_8));
+        gzipOutputStream.finish();
+    }
+
+    private static String join(final List<String> lines) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String line : lines) {
+            builder.append(line).append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return builder.toString();
+    }
+
+    private static List<String> getRandomLines(final int count) {
+        final List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i += 1) {
+            final StringBuilder builder = new StringBuilder().append(i).append(',');
+            for (int j = random.nextInt(40); j > 0; j -= 1) {
+                builder.append(random.nextInt(5) == 0 ? (char) ('一' + random.nextInt(1000)) :
+                        (char) ('a' + random.nextInt(26)));
+            }
+            lines.add(builder.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Collects the rows of every file separately
+     */
+    private static class FileRowsProcessor extends CollectingProcessor<String> {
+
+        private final Map<String, List<String>> fileRows = new HashMap<>();
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+            super.beforeProcessFile(filePath);
+            this.fileRows.put(filePath, new ArrayList<String>());
+        }
+
+        @Override
+        public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
+            this.fileRows.get(dataRowContext.getDataFileContext().getFilePath()).add(dataRowContext.getRow());
+            return super.processRow(dataRowContext);
+        }
+    }
+
+    /**
+     * Keeps the rows like a processor that processes them later, which copies a context only if it is recycled
+     */
+    private static class KeepingProcessor implements DataFileProcessor<String> {
+
+        private final List<DataRowContext<String>> kept = new ArrayList<>();
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        }
+
+        @Override
+        public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
+            this.kept.add(dataRowContext.isRecycled() ? new DataRowContext<>(dataRowContext.getDataFileContext(),
+                    dataRowContext.getRowNumber(), dataRowContext.getRow(), dataRowContext.getType()) :
+                    dataRowContext);
+            return dataRowContext;
+        }
+    }
+}
@@ -15,9 +15,12 @@
  */
 package tech.firas.framework.fileimport.test;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.RandomAccess;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -55,6 +58,25 @@ public class DefaultStringListToJavaBeanConverterTests extends AbstractTests {
         }
     }
 
+    @Test
+    public void testOnlyMappedColumnsGot() throws NoSuchMethodException {
+        final DefaultStringListToJavaBeanConverter<BeanForTest> converter =
+                DefaultStringListToJavaBeanConverter.ofClass(BeanForTest.class);
+        converter.setFieldNames(Arrays.asList("aaAa", "bbBb", "ccCc", "ddDd"));
+
+        final List<String> columns = new ArrayList<>();
+        columns.addAll(Arrays.asList("true", "unmapped", "false", "123"));
+        for (int i = 0; i < 176; i += 1) {
+            columns.add("column " + i);
+        }
+        final CountingList countingList = new CountingList(columns);
+        final BeanForTest bean = converter.convert(countingList);
+        Assert.assertTrue(bean.isAaAa());
+        Assert.assertFalse(bean.getCcCc());
+        Assert.assertEquals(123, bean.getDdDd());
+        Assert.assertEquals(Arrays.asList(0, 2, 3), countingList.gotIndexes);
+    }
+
     private BeanForTest getAForTest() {
         final BeanForTest result = new BeanForTest();
         result.setAaAa(random.nextBoolean());
@@ -75,4 +97,28 @@ public class DefaultStringListToJavaBeanConverterTests extends AbstractTests {
         }
         return builder.toString();
     }
+
+    /**
+     * Records the indexes of the columns got
+     */
+    private static class CountingList extends AbstractList<String> implements RandomAccess {
+
+        private final List<String> columns;
+        private final List<Integer> gotIndexes = new ArrayList<>();
+
+        private CountingList(final List<String> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public String get(final int index) {
+            this.gotIndexes.add(index);
+            return this.columns.get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.columns.size();
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.FixedWidthDataFileReader;
+import tech.firas.framework.fileimport.FixedWidthField;
+import tech.firas.framework.fileimport.processor.FixedWidthRowToStringListProcessor;
+
+public class FixedWidthDataFileReaderTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    /**
+     * id: 6, name: 10, amount: 8 right aligned, flag: 1 not trimmed
+     */
+    private static final List<FixedWidthField> LAYOUT = Arrays.asList(
+            new FixedWidthField(0, 6),
+            new FixedWidthField(6, 10, FixedWidthField.Trim.TRAILING),
+            new FixedWidthField(16, 8, FixedWidthField.Trim.LEADING),
+            new FixedWidthField(24, 1, FixedWidthField.Trim.NONE));
+
+    @Test
+    public void testByteOffsets() throws Exception {
+        // a Chinese character is 2 bytes in GBK, so the character offsets of the fields after it are wrong
+        final Charset gbk = Charset.forName("GBK");
+        final List<List<String>> expected = new ArrayList<>();
+        final File file = writeRecords(gbk, true, expected);
+        try {
+            final FixedWidthDataFileReader reader = new FixedWidthDataFileReader();
+            reader.setCharset("GBK");
+            reader.setFields(LAYOUT);
+            reader.setByteOffsets(true);
+            reader.setWindowSize(100);
+            Assert.assertEquals(expected, readAll(reader, file.getPath()));
+
+            final FixedWidthRowToStringListProcessor processor = new FixedWidthRowToStringListProcessor();
+            processor.setFields(LAYOUT);
+            processor.setByteOffsetCharset("GBK");
+            Assert.assertEquals(expected, readAll(processor, "GBK", file.getPath()));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testCharOffsets() throws Exception {
+        final Charset utf8 = Charset.forName("UTF-8");
+        final List<List<String>> expected = new ArrayList<>();
+        final File file = writeRecords(utf8, false, expected);
+        try {
+            final FixedWidthDataFileReader reader = new FixedWidthDataFileReader();
+            reader.setCharset("UTF-8");
+            reader.setFields(LAYOUT);
+            Assert.assertEquals(expected, readAll(reader, file.getPath()));
+
+            final FixedWidthRowToStringListProcessor processor = new FixedWidthRowToStringListProcessor();
+            processor.setFields(LAYOUT);
+            Assert.assertEquals(expected, readAll(processor, "UTF-8", file.getPath()));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testShortRecords() throws Exception {
+        final File file = File.createTempFile("fixed", ".txt");
+        try {
+            Files.write(file.toPath(), "00000100张三\r\n000002  \n\n000003000000000000012345X".getBytes("GBK"));
+            final FixedWidthDataFileReader reader = new FixedWidthDataFileReader();
+            reader.setCharset("GBK");
+            reader.setFields(LAYOUT);
+            reader.setByteOffsets(true);
+            final List<List<String>> rows = readAll(reader, file.getPath());
+            Assert.assertEquals(4, rows.size());
+            Assert.assertEquals(Arrays.asList("000001", "00张三", "", ""), rows.get(0));
+            Assert.assertEquals(Arrays.asList("000002", "", "", ""), rows.get(1));
+            Assert.assertEquals(Arrays.asList("", "", "", ""), rows.get(2));
+            Assert.assertEquals(Arrays.asList("000003", "0000000000", "00012345", "X"), rows.get(3));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    /**
+     * @param byteOffsets  whether the widths of the fields are counted in bytes
+     */
+    private static File writeRecords(final Charset charset, final boolean byteOffsets,
+            final List<List<String>> expected) throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i += 1) {
+            final String id = String.format("%06d", i);
+            final StringBuilder name = new StringBuilder();
+            for (int j = random.nextInt(5); j > 0; j -= 1) {
+                name.append(random.nextBoolean() ? (char) ('一' + random.nextInt(1000)) :
+                        (char) ('a' + random.nextInt(26)));
+            }
+            final String amount = String.valueOf(random.nextInt(1000000));
+            final String flag = random.nextBoolean() ? "Y" : " ";
+            expected.add(Arrays.asList(id, name.toString(), amount, flag));
+
+            content.append(id).append(name);
+            final int nameWidth = byteOffsets ? name.toString().getBytes(charset).length : name.length();
+            for (int j = nameWidth; j < 10; j += 1) {
+                content.append(' ');
+            }
+            for (int j = amount.length(); j < 8; j += 1) {
+                content.append(' ');
+            }
+            content.append(amount).append(flag).append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+
+        final File file = File.createTempFile("fixed", ".txt");
+        Files.write(file.toPath(), content.toString().getBytes(charset));
+        return file;
+    }
+
+    private static List<List<String>> readAll(final FixedWidthDataFileReader reader, final String filePath)
+            throws Exception {
+        final CollectingProcessor<List<String>> collector = CollectingProcessor.copyingLists();
+        reader.setDataFileProcessor(collector);
+        reader.readDataFile(filePath, null);
+        return collector.getRows();
+    }
+
+    private static List<List<String>> readAll(final FixedWidthRowToStringListProcessor processor,
+            final String charset, final String filePath) throws Exception {
+        final CollectingProcessor<List<String>> collector = CollectingProcessor.copyingLists();
+        processor.setNextProcessor(collector);
+        final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+        reader.setCharset(charset);
+        reader.setDataFileProcessor(processor);
+        reader.readDataFile(filePath, null);
+        return collector.getRows();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.MappedCsvDataFileReader;
+
+public class MappedCsvDataFileReaderTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testSameAsRFC4180Parser() throws Exception {
+        final RFC4180Parser parser = new RFC4180Parser();
+        for (final String fileName : new String[] {"src/test/resources/default_plain_text_data_file.txt",
+                "src/test/resources/default_plain_text_data_file.csv"}) {
+            final List<List<String>> expected = new ArrayList<>();
+            for (final String line : Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8)) {
+                expected.add(Arrays.asList(parser.parseLine(line)));
+            }
+
+            final MappedCsvDataFileReader reader = new MappedCsvDataFileReader();
+            reader.setCharset("UTF-8");
+            Assert.assertEquals(expected, readAll(reader, fileName));
+        }
+    }
+
+    @Test
+    public void testQuotedLineTerminatorsAndWindows() throws Exception {
+        final List<List<String>> expected = new ArrayList<>();
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i += 1) {
+            final List<String> row = new ArrayList<>();
+            for (int j = random.nextInt(10); j >= 0; j -= 1) {
+                final String column = getRandomColumnValue();
+                row.add(column);
+                if (j > 0 || !column.isEmpty()) {
+                    appendColumn(content, column);
+                } else {
+                    content.append("\"\""); // an empty line would be one empty column as well
+                }
+                content.append(j > 0 ? "," : (random.nextBoolean() ? "\n" : "\r\n"));
+            }
+            expected.add(row);
+        }
+
+        final File file = File.createTempFile("mapped", ".csv");
+        try {
+            Files.write(file.toPath(), content.toString().getBytes("GBK"));
+            for (final int windowSize : new int[] {1, 13, 256, 1 << 20}) {
+                final MappedCsvDataFileReader reader = new MappedCsvDataFileReader();
+                reader.setCharset("GBK");
+                reader.setWindowSize(windowSize);
+                Assert.assertEquals(expected, readAll(reader, file.getPath()));
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testSeparatorAndEscape() throws Exception {
+        final File file = File.createTempFile("mapped", ".txt");
+        try {
+            Files.write(file.toPath(), "a|b\\|c|\"d|\"\"e\"\"\"|f\\\\\r\n|\"\"|".getBytes("UTF-8"));
+            final MappedCsvDataFileReader reader = new MappedCsvDataFileReader();
+            reader.setCharset("UTF-8");
+            reader.setSeparator('|');
+            reader.setEscapeChar('\\');
+            final List<List<String>> rows = readAll(reader, file.getPath());
+            Assert.assertEquals(2, rows.size());
+            Assert.assertEquals(Arrays.asList("a", "b|c", "d|\"e\"", "f\\"), rows.get(0));
+            Assert.assertEquals(Arrays.asList("", "", ""), rows.get(1));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testInvalidDelimiters() throws Exception {
+        final File file = File.createTempFile("mapped", ".txt");
+        try {
+            // the second byte of "\u4E57" in GBK is '\\', and the one of "\u4E85" is '|'
+            Files.write(file.toPath(), "\u4E57|\u4E85\n".getBytes("GBK"));
+            final String[][] cases = {{"GBK", "|", "\"", "\0"}, {"GBK", ";", "\"", "\\"}, {"Big5", ",", "'", "@"},
+                    {"GB18030", "0", "\"", "\0"}, {"UTF-8", ",", "\"", "\""}};
+            for (final String[] c : cases) {
+                final MappedCsvDataFileReader reader = new MappedCsvDataFileReader();
+                reader.setCharset(c[0]);
+                reader.setSeparator(c[1].charAt(0));
+                reader.setQuoteChar(c[2].charAt(0));
+                reader.setEscapeChar(c[3].charAt(0));
+                try {
+                    readAll(reader, file.getPath());
+                    Assert.fail(Arrays.toString(c) + " should be rejected");
+                } catch (IllegalArgumentException ex) {
+                    logger.finer("Expected: " + ex);
+                }
+            }
+
+            final MappedCsvDataFileReader reader = new MappedCsvDataFileReader();
+            reader.setCharset("GBK");
+            reader.setSeparator(';');
+            Assert.assertEquals(Collections.singletonList(Collections.singletonList("\u4E57|\u4E85")),
+                    readAll(reader, file.getPath()));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private static void appendColumn(final StringBuilder content, final String column) {
+        if (column.indexOf(',') >= 0 || column.indexOf('\n') >= 0 || column.indexOf('\r') >= 0 ||
+                column.startsWith("\"") || random.nextBoolean()) {
+            content.append('"').append(column.replace("\"", "\"\"")).append('"');
+        } else {
+            content.append(column);
+        }
+    }
+
+    private static List<List<String>> readAll(final MappedCsvDataFileReader reader, final String filePath)
+            throws Exception {
+        final CollectingProcessor<List<String>> processor = CollectingProcessor.copyingLists();
+        reader.setDataFileProcessor(processor);
+        reader.readDataFile(filePath, null);
+        return processor.getRows();
+    }
+
+    private static String getRandomColumnValue() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(12); i > 0; i -= 1) {
+            switch (random.nextInt(12)) {
+                case 0:
+                    builder.append(',');
+                    break;
+                case 1:
+                    builder.append('"');
+                    break;
+                case 2:
+                    builder.append(random.nextBoolean() ? "\n" : "\r\n");
+                    break;
+                case 3:
+                    builder.append((char) ('一' + random.nextInt(1000)));
+                    break;
+                default:
+                    builder.append((char) (random.nextInt(127 - (int) ' ') + (int) ' '));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.PlainTextDataFileReader;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+
+public class MappedPlainTextDataFileReaderTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testSameAsScanner() throws Exception {
+        for (final String fileName : new String[] {"src/test/resources/default_plain_text_data_file.txt",
+                "src/test/resources/default_plain_text_data_file.csv"}) {
+            Assert.assertEquals(readAll(new DefaultPlainTextDataFileReader(), fileName),
+                    readAll(new MappedPlainTextDataFileReader(), fileName));
+        }
+    }
+
+    @Test
+    public void testLineTerminatorsAndWindows() throws Exception {
+        for (final String charset : new String[] {"UTF-8", "GBK"}) {
+            final List<String> lines = new ArrayList<>();
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 2000; i += 1) {
+                // not empty, otherwise "\r" + "" + "\n" would be read as one line terminator
+                final String line = getRandomLine(1 + random.nextInt(i % 100 == 0 ? 300 : 30));
+                lines.add(line);
+                content.append(line).append(random.nextBoolean() ? "\n" : (random.nextBoolean() ? "\r\n" : "\r"));
+            }
+            lines.add("last line without terminator");
+            content.append("last line without terminator");
+
+            final File file = File.createTempFile("mapped", ".txt");
+            try {
+                Files.write(file.toPath(), content.toString().getBytes(Charset.forName(charset)));
+                for (final int windowSize : new int[] {1, 7, 64, 4096, 1 << 20}) {
+                    final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+                    reader.setCharset(charset);
+                    reader.setWindowSize(windowSize);
+                    Assert.assertEquals(lines, readAll(reader, file.getPath()));
+                }
+            } finally {
+                Assert.assertTrue(file.delete());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final File file = File.createTempFile("mapped", ".txt");
+        try {
+            Assert.assertTrue(readAll(new MappedPlainTextDataFileReader(), file.getPath()).isEmpty());
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCharset() throws Exception {
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setCharset("UTF-16");
+        readAll(reader, "src/test/resources/default_plain_text_data_file.txt");
+    }
+
+    /**
+     * Compares the throughput of MappedPlainTextDataFileReader with that of DefaultPlainTextDataFileReader
+     */
+    @Test
+    public void testThroughput() throws Exception {
+        final File file = File.createTempFile("throughput", ".csv");
+        try {
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 200000; i += 1) {
+                content.append(i).append(",").append(getRandomLine(20 + random.nextInt(100))).append("\r\n");
+            }
+            Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+            final double megaBytes = file.length() / 1024.0 / 1024.0;
+
+            final DefaultPlainTextDataFileReader scannerReader = new DefaultPlainTextDataFileReader();
+            scannerReader.setCharset("UTF-8");
+            final MappedPlainTextDataFileReader mappedReader = new MappedPlainTextDataFileReader();
+            mappedReader.setCharset("UTF-8");
+
+            for (int round = 0; round < 3; round += 1) { // the first rounds warm up the JIT
+                final long scannerNanos = timeToRead(scannerReader, file.getPath(), 200000);
+                final long mappedNanos = timeToRead(mappedReader, file.getPath(), 200000);
+                logger.info(String.format("Round %d, %.1f MB: Scanner %.1f MB/s, mapped %.1f MB/s", round, megaBytes,
+                        megaBytes * 1e9 / scannerNanos, megaBytes * 1e9 / mappedNanos));
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private static long timeToRead(final PlainTextDataFileReader reader, final String filePath,
+            final int expectedRows) throws Exception {
+        final CountingProcessor processor = new CountingProcessor();
+        reader.setDataFileProcessor(processor);
+        final long start = System.nanoTime();
+        reader.readDataFile(filePath, null);
+        final long nanos = System.nanoTime() - start;
+        Assert.assertEquals(expectedRows, processor.count);
+        return nanos;
+    }
+
+    private static List<String> readAll(final PlainTextDataFileReader reader, final String filePath)
+            throws Exception {
+        final CollectingProcessor<String> processor = new CollectingProcessor<>();
+        reader.setDataFileProcessor(processor);
+        reader.readDataFile(filePath, null);
+        for (int i = 0; i < processor.getRowNumbers().size(); i += 1) {
+            Assert.assertEquals(i + 1, processor.getRowNumbers().get(i).longValue());
+        }
+        return processor.getRows();
+    }
+
+    private static String getRandomLine(final int length) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i += 1) {
+            if (random.nextInt(10) == 0) {
+                builder.append((char) ('一' + random.nextInt(1000))); // some Chinese characters
+            } else {
+                builder.append((char) (random.nextInt(127 - (int) ' ') + (int) ' '));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class CountingProcessor implements DataFileProcessor<String> {
+
+        private int count;
+
+        @Override
+        public void beforeProcessFile(final String filePath) throws Exception {
+        }
+
+        @Override
+        public void afterProcessFile(final DataFileContext dataFileContext) throws Exception {
+        }
+
+        @Override
+        public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext) throws Exception {
+            this.count += 1;
+            return dataRowContext;
+        }
+    }
+}
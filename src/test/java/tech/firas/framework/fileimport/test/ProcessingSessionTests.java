@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.ProcessingSession;
+import tech.firas.framework.fileimport.SessionKey;
+
+public class ProcessingSessionTests extends AbstractTests {
+
+    @Test
+    public void testSlots() {
+        final ProcessingSession session = new ProcessingSession();
+        final SessionKey<String> key1 = new SessionKey<>("same");
+        final SessionKey<String> key2 = new SessionKey<>("same");
+        Assert.assertNull(session.get(key1));
+
+        Assert.assertNull(session.put(key1, "a"));
+        Assert.assertNull(session.put(key2, "b"));
+        Assert.assertEquals("a", session.get(key1));
+        Assert.assertEquals("b", session.get(key2));
+        Assert.assertEquals(2, session.size());
+
+        Assert.assertEquals("a", session.put(key1, "c"));
+        Assert.assertEquals("c", session.get(key1));
+        Assert.assertEquals(2, session.size());
+
+        Assert.assertEquals("c", session.remove(key1));
+        Assert.assertNull(session.get(key1));
+        Assert.assertEquals("b", session.get(key2));
+        Assert.assertNull(session.remove(key1));
+
+        Assert.assertEquals("b", session.put(key2, null));
+        Assert.assertEquals(0, session.size());
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception {
+        final ProcessingSession session = new ProcessingSession();
+        final int threadCount = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>(threadCount);
+        final List<SessionKey<Integer>> keys = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i += 1) {
+            final SessionKey<Integer> key = new SessionKey<>("key" + i);
+            keys.add(key);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    for (int j = 1; j <= 1000; j += 1) {
+                        session.put(key, j);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(threadCount, session.size());
+        for (final SessionKey<Integer> key : keys) {
+            Assert.assertEquals(Integer.valueOf(1000), session.get(key));
+        }
+    }
+}
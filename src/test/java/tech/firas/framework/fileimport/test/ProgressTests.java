@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.AbstractDataFileReader;
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.ImportProgress;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.ProgressListener;
+import tech.firas.framework.fileimport.checkpoint.Checkpoint;
+import tech.firas.framework.fileimport.checkpoint.FileCheckpointStore;
+
+public class ProgressTests extends AbstractTests {
+
+    private static final int ROW_COUNT = 20000;
+
+    @Test
+    public void testProgress() throws Exception {
+        final File file = File.createTempFile("progress", ".csv");
+        final File gzipFile = File.createTempFile("progress", ".csv.gz");
+        try {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 1; i <= ROW_COUNT; i += 1) {
+                builder.append(i).append(",name ").append(i).append('\n');
+            }
+            final byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+            Files.write(file.toPath(), data);
+            try (final OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(gzipFile.toPath()))) {
+                outputStream.write(data);
+            }
+
+            final DefaultPlainTextDataFileReader defaultReader = new DefaultPlainTextDataFileReader();
+            checkProgress(defaultReader, file, data.length);
+            checkProgress(defaultReader, gzipFile, gzipFile.length());
+            defaultReader.setReadAheadCapacity(64);
+            checkProgress(defaultReader, file, data.length);
+
+            final MappedPlainTextDataFileReader mappedReader = new MappedPlainTextDataFileReader();
+            mappedReader.setRowBatchSize(100);
+            checkProgress(mappedReader, file, data.length);
+        } finally {
+            Assert.assertTrue(file.delete());
+            Assert.assertTrue(gzipFile.delete());
+        }
+    }
+
+    @Test
+    public void testResumeBeyondIntRange() throws Exception {
+        final File file = File.createTempFile("progress", ".csv");
+        final File directory = Files.createTempDirectory("checkpoint").toFile();
+        try {
+            Files.write(file.toPath(), "1\n2\n3\n4\n5\n6\n7\n8\n".getBytes(StandardCharsets.UTF_8));
+            final long rowNumber = Integer.MAX_VALUE + 10L;
+            final FileCheckpointStore store = new FileCheckpointStore();
+            store.setDirectory(directory.getPath());
+            store.save(new Checkpoint(file.getPath(), 6, rowNumber, 1, 3000000000L, 0,
+                    file.length(), file.lastModified()));
+
+            final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+            reader.setCheckpointStore(store);
+            final CollectingListener listener = new CollectingListener();
+            reader.setProgressListener(listener);
+            final CollectingProcessor<String> processor = new CollectingProcessor<>();
+            reader.setDataFileProcessor(processor);
+            final DataFileContext dataFileContext = reader.readDataFile(file.getPath(), null);
+
+            Assert.assertEquals(5, processor.getRowNumbers().size());
+            for (int i = 0; i < 5; i += 1) {
+                Assert.assertEquals(rowNumber + 1 + i, processor.getRowNumbers().get(i).longValue());
+            }
+            Assert.assertEquals(3000000000L, dataFileContext.getDataRowCount());
+
+            final ImportProgress last = listener.progresses.get(listener.progresses.size() - 1);
+            Assert.assertTrue(last.isFinished());
+            Assert.assertEquals(rowNumber + 5, last.getRowCount());
+            Assert.assertEquals(file.length(), last.getBytesRead());
+        } finally {
+            Assert.assertTrue(file.delete());
+            for (final File f : directory.listFiles()) {
+                Assert.assertTrue(f.delete());
+            }
+            Assert.assertTrue(directory.delete());
+        }
+    }
+
+    private void checkProgress(final AbstractDataFileReader<String> reader, final File file, final long size)
+            throws Exception {
+        final CollectingListener listener = new CollectingListener();
+        reader.setProgressListener(listener);
+        reader.setProgressIntervalMillis(1);
+        reader.setDataFileProcessor(new CollectingProcessor<String>() {
+            @Override
+            public DataRowContext<String> processRow(final DataRowContext<String> dataRowContext)
+                    throws Exception {
+                if (this.getRowNumbers().size() % 1000 == 999) {
+                    Thread.sleep(1); // so that the progress is reported
+                }
+                return super.processRow(dataRowContext);
+            }
+        });
+        reader.readDataFile(file.getPath(), null);
+
+        final List<ImportProgress> progresses = listener.progresses;
+        logger.info(progresses.size() + " reports, the last one: " + progresses.get(progresses.size() - 1));
+        Assert.assertTrue(progresses.size() >= 2);
+        for (int i = 0; i < progresses.size(); i += 1) {
+            final ImportProgress progress = progresses.get(i);
+            Assert.assertEquals(file.getPath(), progress.getFilePath());
+            Assert.assertEquals(size, progress.getFileSize());
+            Assert.assertEquals(i == progresses.size() - 1, progress.isFinished());
+            if (i > 0) {
+                Assert.assertTrue(progress.getRowCount() >= progresses.get(i - 1).getRowCount());
+                Assert.assertTrue(progress.getBytesRead() >= progresses.get(i - 1).getBytesRead());
+            }
+            if (!progress.isFinished()) {
+                Assert.assertTrue(progress.getBytesRead() >= 0 && progress.getBytesRead() <= size);
+                Assert.assertTrue(progress.getFraction() >= 0 && progress.getFraction() <= 1);
+                Assert.assertTrue(progress.getEtaMillis() >= 0);
+            }
+        }
+
+        final ImportProgress last = progresses.get(progresses.size() - 1);
+        Assert.assertEquals(ROW_COUNT, last.getRowCount());
+        Assert.assertEquals(size, last.getBytesRead());
+        Assert.assertEquals(1, last.getFraction(), 0);
+        Assert.assertEquals(0, last.getEtaMillis());
+        Assert.assertTrue(last.getRowsPerSecond() > 0);
+        Assert.assertTrue(last.getBytesPerSecond() > 0);
+    }
+
+    private static class CollectingListener implements ProgressListener {
+
+        private final List<ImportProgress> progresses = new ArrayList<>();
+
+        @Override
+        public void onProgress(final ImportProgress progress) {
+            this.progresses.add(progress);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.AbstractDataFileReader;
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowContext;
+import tech.firas.framework.fileimport.DefaultPlainTextDataFileReader;
+import tech.firas.framework.fileimport.util.CloseableIterator;
+
+public class ReadAheadTests extends AbstractTests {
+
+    @Test
+    public void testSameRows() throws Exception {
+        final String filePath = "src/test/resources/default_plain_text_data_file.csv";
+        final List<String> expected = Files.readAllLines(Paths.get(filePath), StandardCharsets.UTF_8);
+
+        for (final int capacity : new int[] {1, 2, 1024}) {
+            final DefaultPlainTextDataFileReader reader = new DefaultPlainTextDataFileReader();
+            reader.setCharset("UTF-8");
+            reader.setReadAheadCapacity(capacity);
+            final CollectingProcessor<String> processor = new CollectingProcessor<>();
+            reader.setDataFileProcessor(processor);
+            final DataFileContext dataFileContext = reader.readDataFile(filePath, null);
+            Assert.assertEquals(expected, processor.getRows());
+            Assert.assertTrue(dataFileContext.getProcessorStallCount() >= 0);
+            Assert.assertTrue(dataFileContext.getReaderStallNanos() >= 0);
+        }
+    }
+
+    @Test
+    public void testSlowProcessor() throws Exception {
+        final CountingReader reader = new CountingReader(200, -1);
+        reader.setReadAheadCapacity(4);
+        final CollectingProcessor<Integer> processor = new CollectingProcessor<Integer>() {
+            @Override
+            public DataRowContext<Integer> processRow(final DataRowContext<Integer> dataRowContext)
+                    throws Exception {
+                Thread.sleep(1);
+                return super.processRow(dataRowContext);
+            }
+        };
+        reader.setDataFileProcessor(processor);
+        final DataFileContext dataFileContext = reader.readDataFile("slow processor", null);
+
+        Assert.assertEquals(200, processor.getRows().size());
+        for (int i = 0; i < 200; i += 1) {
+            Assert.assertEquals(Integer.valueOf(i), processor.getRows().get(i));
+        }
+        Assert.assertTrue(reader.iterator.closed);
+        // the reader must have waited for room in the buffer
+        Assert.assertTrue(dataFileContext.getReaderStallCount() > 0);
+        Assert.assertTrue(dataFileContext.getReaderStallNanos() > 0);
+        logger.finer(dataFileContext.getReaderStallCount() + " reader stall(s), " +
+                dataFileContext.getProcessorStallCount() + " processor stall(s)");
+    }
+
+    @Test
+    public void testProcessorFailure() throws Exception {
+        // the source never ends, so it must be stopped by closing
+        final CountingReader reader = new CountingReader(Integer.MAX_VALUE, -1);
+        reader.setReadAheadCapacity(8);
+        reader.setDataFileProcessor(new CollectingProcessor<Integer>() {
+            @Override
+            public DataRowContext<Integer> processRow(final DataRowContext<Integer> dataRowContext) {
+                if (dataRowContext.getRowNumber() > 100) {
+                    throw new IllegalArgumentException("Row " + dataRowContext.getRowNumber());
+                }
+                return dataRowContext;
+            }
+        });
+        try {
+            reader.readDataFile("processor failure", null);
+            Assert.fail("The exception of the processor should be thrown");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertEquals("Row 101", ex.getMessage());
+        }
+        Assert.assertTrue(reader.iterator.closed);
+    }
+
+    @Test
+    public void testReaderFailure() throws Exception {
+        final CountingReader reader = new CountingReader(Integer.MAX_VALUE, 50);
+        reader.setReadAheadCapacity(8);
+        final CollectingProcessor<Integer> processor = new CollectingProcessor<>();
+        reader.setDataFileProcessor(processor);
+        try {
+            reader.readDataFile("reader failure", null);
+            Assert.fail("The exception of the reader should be thrown");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("Element 50", ex.getMessage());
+        }
+        // the rows before the failure are processed
+        Assert.assertEquals(50, processor.getRows().size());
+        Assert.assertTrue(reader.iterator.closed);
+    }
+
+    private static class CountingReader extends AbstractDataFileReader<Integer> {
+
+        private final int count;
+        private final int failAt;
+        private CountingIterator iterator;
+
+        private CountingReader(final int count, final int failAt) {
+            this.count = count;
+            this.failAt = failAt;
+        }
+
+        @Override
+        protected CloseableIterator<Integer> getRowIterator(final String filePath, final Object parameters) {
+            this.iterator = new CountingIterator(this.count, this.failAt);
+            return this.iterator;
+        }
+    }
+
+    private static class CountingIterator implements CloseableIterator<Integer> {
+
+        private final int count;
+        private final int failAt;
+        private int next = 0;
+        private volatile boolean closed = false;
+
+        private CountingIterator(final int count, final int failAt) {
+            this.count = count;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean hasNext() {
+            Assert.assertFalse(this.closed);
+            return this.next < this.count;
+        }
+
+        @Override
+        public Integer next() {
+            if (this.next >= this.count) {
+                throw new NoSuchElementException();
+            }
+            if (this.next == this.failAt) {
+                throw new IllegalStateException("Element " + this.next);
+            }
+            final int result = this.next;
+            this.next += 1;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+}
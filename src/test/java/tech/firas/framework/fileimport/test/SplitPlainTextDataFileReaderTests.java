@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.DataRowJudge;
+import tech.firas.framework.fileimport.RowType;
+import tech.firas.framework.fileimport.SplitPlainTextDataFileReader;
+import tech.firas.framework.fileimport.metrics.TimingDataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessor;
+import tech.firas.framework.fileimport.processor.DataFileProcessorFactory;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+
+public class SplitPlainTextDataFileReaderTests extends AbstractTests {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void test() throws Exception {
+        final int dataRows = 10000;
+        final StringBuilder content = new StringBuilder("header 1\nheader 2\n");
+        for (int i = 3; i < dataRows + 3; i += 1) {
+            content.append(i).append(',');
+            for (int j = random.nextInt(50); j > 0; j -= 1) {
+                content.append((char) ('a' + random.nextInt(26)));
+            }
+            content.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        content.append("EOF,").append(dataRows);
+
+        final File file = File.createTempFile("split", ".txt");
+        try {
+            Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+            for (final int splitCount : new int[] {1, 2, 7, 16}) {
+                final CollectingProcessor<String> collector = new CollectingProcessor<>();
+                final SplitPlainTextDataFileReader reader = new SplitPlainTextDataFileReader();
+                reader.setCharset("UTF-8");
+                reader.setSplitCount(splitCount);
+                reader.setMinSplitSize(1024);
+                reader.setReadAheadCapacity(splitCount % 2 == 0 ? 16 : 0);
+                reader.setDataFileProcessorFactory(new DataFileProcessorFactory<String>() {
+                    @Override
+                    public DataFileProcessor<String> createDataFileProcessor() {
+                        final SetRowTypeProcessor<String> processor = new SetRowTypeProcessor<>();
+                        processor.setDataRowJudge(new HeaderFooterJudge());
+                        processor.setNextProcessor(collector);
+                        final TimingDataFileProcessor<String> timing = new TimingDataFileProcessor<>();
+                        timing.setName("range");
+                        timing.setDelegate(processor);
+                        return timing;
+                    }
+                });
+
+                final DataFileContext dataFileContext = reader.readDataFile(file.getPath(), null);
+                final Map<Long, String> rows = new HashMap<>();
+                for (int i = 0; i < collector.getRows().size(); i += 1) {
+                    Assert.assertNull(rows.put(collector.getRowNumbers().get(i), collector.getRows().get(i)));
+                }
+                Assert.assertEquals(2, dataFileContext.getHeaderRowCount());
+                Assert.assertEquals(dataRows, dataFileContext.getDataRowCount());
+                Assert.assertEquals(1, dataFileContext.getFooterRowCount());
+                // the metrics of the ranges are merged
+                Assert.assertEquals(dataRows + 3, dataFileContext.getMetrics().getStage("range").getRowCount());
+                Assert.assertEquals(dataRows + 3, rows.size());
+                for (long i = 3; i < dataRows + 3; i += 1) {
+                    Assert.assertTrue(rows.get(i).startsWith(i + ","));
+                }
+                Assert.assertEquals("EOF," + dataRows, rows.get(dataRows + 3L));
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private static class HeaderFooterJudge implements DataRowJudge<String> {
+
+        @Override
+        public RowType test(final long rowNumber, final String row, final RowType previousRowType) {
+            if (rowNumber <= 2) {
+                Assert.assertTrue(row.startsWith("header"));
+                return RowType.HEADER;
+            }
+            return row.startsWith("EOF,") ? RowType.FOOTER : RowType.DATA;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.opencsv.RFC4180Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.DataFileContext;
+import tech.firas.framework.fileimport.FixedNumberHeaderRowJudge;
+import tech.firas.framework.fileimport.MappedPlainTextDataFileReader;
+import tech.firas.framework.fileimport.WatchingDataFileImporter;
+import tech.firas.framework.fileimport.processor.CsvRowToStringListProcessor;
+import tech.firas.framework.fileimport.processor.SetRowTypeProcessor;
+
+public class WatchingDataFileImporterTests extends AbstractTests {
+
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    @Test
+    public void testStability() throws Exception {
+        final File directory = Files.createTempDirectory("watching").toFile();
+        final CollectingProcessor<List<String>> collector = new CollectingProcessor<>();
+        final WatchingDataFileImporter<String> importer = createImporter(directory, collector);
+        importer.setStabilityMillis(500);
+        try {
+            writeFile(new File(directory, "existing.csv"), 10);
+            importer.start();
+            awaitImported(importer, 1);
+
+            // written in two parts, the first part must not be imported alone
+            final File slowFile = new File(directory, "slow.csv");
+            try (final FileOutputStream outputStream = new FileOutputStream(slowFile)) {
+                outputStream.write("id,name\n1,a\n".getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+                Thread.sleep(200);
+                outputStream.write("2,b\n3,c\n".getBytes(StandardCharsets.UTF_8));
+            }
+            writeFile(new File(directory, "ignored.txt"), 5);
+            for (int i = 0; i < 3; i += 1) {
+                writeFile(new File(directory, "new" + i + ".csv"), 100 + i);
+            }
+            awaitImported(importer, 5);
+        } finally {
+            importer.close();
+        }
+
+        Assert.assertFalse(importer.isRunning());
+        Assert.assertEquals(0, importer.getFailedFileCount());
+        Assert.assertEquals(5, collector.getEndedFiles().size());
+        Assert.assertEquals(Long.valueOf(10), rowCount(collector, path(directory, "existing.csv")));
+        Assert.assertEquals(Long.valueOf(3), rowCount(collector, path(directory, "slow.csv")));
+        for (int i = 0; i < 3; i += 1) {
+            Assert.assertEquals(Long.valueOf(100 + i), rowCount(collector, path(directory, "new" + i + ".csv")));
+        }
+        deleteFiles(directory);
+    }
+
+    @Test
+    public void testMarker() throws Exception {
+        final File directory = Files.createTempDirectory("watching").toFile();
+        final CollectingProcessor<List<String>> collector = new CollectingProcessor<>();
+        final WatchingDataFileImporter<String> importer = createImporter(directory, collector);
+        importer.setMarkerSuffix(".done");
+        importer.setStabilityMillis(0);
+        importer.setParallelism(2);
+        importer.setQueueCapacity(1);
+        try {
+            importer.start();
+            writeFile(new File(directory, "data0.csv"), 20);
+            Thread.sleep(500);
+            Assert.assertEquals(0, importer.getImportedFileCount());
+
+            for (int i = 0; i < 4; i += 1) {
+                if (i > 0) {
+                    writeFile(new File(directory, "data" + i + ".csv"), 20 + i);
+                }
+                Assert.assertTrue(new File(directory, "data" + i + ".csv.done").createNewFile());
+            }
+            awaitImported(importer, 4);
+
+            // the marker is created again, but the data file is not changed
+            Assert.assertTrue(new File(directory, "data0.csv.done").delete());
+            Assert.assertTrue(new File(directory, "data0.csv.done").createNewFile());
+            Thread.sleep(500);
+        } finally {
+            importer.close();
+        }
+
+        Assert.assertEquals(4, importer.getImportedFileCount());
+        for (int i = 0; i < 4; i += 1) {
+            Assert.assertEquals(Long.valueOf(20 + i), rowCount(collector, path(directory, "data" + i + ".csv")));
+        }
+        deleteFiles(directory);
+    }
+
+    private static void awaitImported(final WatchingDataFileImporter<?> importer, final long count)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (importer.getImportedFileCount() < count) {
+            Assert.assertTrue("Only " + importer.getImportedFileCount() + " file(s) imported",
+                    System.nanoTime() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static WatchingDataFileImporter<String> createImporter(final File directory,
+            final CollectingProcessor<List<String>> collector) {
+        final CsvRowToStringListProcessor csvProcessor = new CsvRowToStringListProcessor();
+        csvProcessor.setCsvParser(new RFC4180Parser());
+        csvProcessor.setNextProcessor(collector);
+
+        final SetRowTypeProcessor<String> setRowTypeProcessor = new SetRowTypeProcessor<>();
+        setRowTypeProcessor.setDataRowJudge(new FixedNumberHeaderRowJudge<String>(1));
+        setRowTypeProcessor.setNextProcessor(csvProcessor);
+
+        final MappedPlainTextDataFileReader reader = new MappedPlainTextDataFileReader();
+        reader.setDataFileProcessor(setRowTypeProcessor);
+
+        final WatchingDataFileImporter<String> importer = new WatchingDataFileImporter<>();
+        importer.setDataFileReader(reader);
+        importer.setBaseDirectory(directory.getPath());
+        importer.setFileNamePattern("\\.csv$");
+        importer.setPollIntervalMillis(50);
+        importer.setShutdownTimeoutMillis(TIMEOUT_MILLIS);
+        return importer;
+    }
+
+    private static void writeFile(final File file, final int rowCount) throws Exception {
+        final StringBuilder builder = new StringBuilder("id,name\n");
+        for (int j = 1; j <= rowCount; j += 1) {
+            builder.append(j).append(",name ").append(j).append('\n');
+        }
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String path(final File directory, final String fileName) throws Exception {
+        return new File(directory, fileName).getCanonicalPath();
+    }
+
+    private static Long rowCount(final CollectingProcessor<List<String>> collector, final String filePath) {
+        final DataFileContext dataFileContext = collector.getEndedFiles().get(filePath);
+        return null == dataFileContext ? null : dataFileContext.getDataRowCount();
+    }
+
+    private static void deleteFiles(final File directory) {
+        for (final File file : directory.listFiles()) {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertTrue(directory.delete());
+    }
+}
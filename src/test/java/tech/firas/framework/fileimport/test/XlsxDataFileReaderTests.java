@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.firas.framework.fileimport.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tech.firas.framework.fileimport.XlsxDataFileReader;
+
+public class XlsxDataFileReaderTests extends AbstractTests {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String WORKBOOK = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>" +
+            "<sheet name=\"Summary\" sheetId=\"1\" r:id=\"rId2\"/>" +
+            "<sheet name=\"明细\" sheetId=\"2\" r:id=\"rId1\"/>" +
+            "</sheets></workbook>";
+
+    private static final String RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet2.xml\"/>" +
+            "<Relationship Id=\"rId2\" Type=\"" + REL_NS + "/worksheet\" Target=\"/xl/worksheets/sheet1.xml\"/>" +
+            "<Relationship Id=\"rId3\" Type=\"" + REL_NS + "/sharedStrings\" Target=\"sharedStrings.xml\"/>" +
+            "</Relationships>";
+
+    private static final String SHARED_STRINGS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<sst xmlns=\"" + MAIN_NS + "\" count=\"4\" uniqueCount=\"4\">" +
+            "<si><t>name</t></si>" +
+            "<si><t xml:space=\"preserve\"> amount </t></si>" +
+            "<si><r><rPr><b/></rPr><t>张</t></r><r><t>三</t></r><rPh sb=\"0\" eb=\"1\"><t>zhang</t></rPh></si>" +
+            "<si><t>a &amp; b</t></si>" +
+            "</sst>";
+
+    private static final String SUMMARY_SHEET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<worksheet xmlns=\"" + MAIN_NS + "\"><dimension ref=\"A1:D5\"/><sheetData>" +
+            "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c></row>" +
+            "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>2</v></c><c r=\"B2\"><v>12.5</v></c>" +
+            "<c r=\"D2\" t=\"b\"><v>1</v></c></row>" +
+            "<row r=\"5\"><c r=\"B5\" t=\"inlineStr\"><is><t>inline</t></is></c>" +
+            "<c r=\"C5\"><f>B2*2</f><v>25</v></c><c r=\"D5\" t=\"s\"><v>3</v></c></row>" +
+            "</sheetData></worksheet>";
+
+    @Test
+    public void testChooseSheet() throws Exception {
+        final File file = writeXlsx(SUMMARY_SHEET, 5000);
+        try {
+            final XlsxDataFileReader reader = new XlsxDataFileReader();
+            final List<List<String>> summary = Arrays.asList(
+                    Arrays.asList("name", " amount "),
+                    Arrays.asList("张三", "12.5", "", "TRUE"),
+                    Collections.<String>emptyList(),
+                    Collections.<String>emptyList(),
+                    Arrays.asList("", "inline", "25", "a & b"));
+            Assert.assertEquals(summary, readAll(reader, file.getPath(), null));
+            Assert.assertEquals(summary, readAll(reader, file.getPath(), 0));
+            Assert.assertEquals(summary, readAll(reader, file.getPath(), "Summary"));
+
+            for (final Object parameters : new Object[] {1, "明细"}) {
+                final List<List<String>> rows = readAll(reader, file.getPath(), parameters);
+                Assert.assertEquals(5000, rows.size());
+                for (int i = 0; i < rows.size(); i += 1) {
+                    Assert.assertEquals(Arrays.asList(String.valueOf(i), "name", "row " + i), rows.get(i));
+                }
+            }
+
+            for (final Object parameters : new Object[] {2, "Sheet1", 1L}) {
+                try {
+                    readAll(reader, file.getPath(), parameters);
+                    Assert.fail("Sheet " + parameters + " should not be found");
+                } catch (IllegalArgumentException ex) {
+                    logger.finer("Expected: " + ex);
+                }
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testExternalEntity() throws Exception {
+        final File secret = File.createTempFile("secret", ".txt");
+        final File file = writeXlsx("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<!DOCTYPE worksheet [<!ENTITY xxe SYSTEM \"" + secret.toURI() + "\">]>" +
+                "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>" +
+                "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>&xxe;</t></is></c></row>" +
+                "</sheetData></worksheet>", 1);
+        try {
+            Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+            final List<List<String>> rows;
+            try {
+                rows = readAll(new XlsxDataFileReader(), file.getPath(), "Summary");
+            } catch (IllegalStateException ex) {
+                logger.finer("Expected: " + ex + ", caused by " + ex.getCause());
+                return;
+            }
+            Assert.assertFalse(rows.toString().contains("secret"));
+        } finally {
+            Assert.assertTrue(file.delete());
+            Assert.assertTrue(secret.delete());
+        }
+    }
+
+    private static File writeXlsx(final String summarySheet, final int detailRowCount) throws Exception {
+        final File file = File.createTempFile("workbook", ".xlsx");
+        try (final ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file))) {
+            writeEntry(outputStream, "xl/workbook.xml", WORKBOOK);
+            writeEntry(outputStream, "xl/_rels/workbook.xml.rels", RELATIONSHIPS);
+            writeEntry(outputStream, "xl/sharedStrings.xml", SHARED_STRINGS);
+            writeEntry(outputStream, "xl/worksheets/sheet1.xml", summarySheet);
+
+            // rows without "r" and cells without "r"
+            outputStream.putNextEntry(new ZipEntry("xl/worksheets/sheet2.xml"));
+            final StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                    "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>");
+            for (int i = 0; i < detailRowCount; i += 1) {
+                builder.append("<row><c><v>").append(i).append("</v></c><c t=\"s\"><v>0</v></c>")
+                        .append("<c t=\"inlineStr\"><is><t>row ").append(i).append("</t></is></c></row>");
+                if (builder.length() > 8192) {
+                    outputStream.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+                    builder.setLength(0);
+                }
+            }
+            builder.append("</sheetData></worksheet>");
+            outputStream.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+            outputStream.closeEntry();
+        }
+        return file;
+    }
+
+    private static void writeEntry(final ZipOutputStream outputStream, final String name,
+            final String content) throws Exception {
+        outputStream.putNextEntry(new ZipEntry(name));
+        outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        outputStream.closeEntry();
+    }
+
+    private static List<List<String>> readAll(final XlsxDataFileReader reader, final String filePath,
+            final Object parameters) throws Exception {
+        final CollectingProcessor<List<String>> collector = new CollectingProcessor<>();
+        reader.setDataFileProcessor(collector);
+        reader.readDataFile(filePath, parameters);
+        for (int i = 0; i < collector.getRowNumbers().size(); i += 1) {
+            Assert.assertEquals(i + 1, collector.getRowNumbers().get(i).longValue());
+        }
+        return collector.getRows();
+    }
+}